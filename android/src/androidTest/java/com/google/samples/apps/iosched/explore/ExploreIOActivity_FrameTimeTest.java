@@ -0,0 +1,200 @@
+/*
+ * Copyright 2016 Google Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.samples.apps.iosched.explore;
+
+import android.content.Context;
+import android.os.SystemClock;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+import android.test.suitebuilder.annotation.LargeTest;
+import android.util.Log;
+import android.view.Choreographer;
+import android.view.WindowManager;
+
+import com.google.samples.apps.iosched.R;
+import com.google.samples.apps.iosched.archframework.ModelWithLoaderManager;
+import com.google.samples.apps.iosched.injection.ModelProvider;
+import com.google.samples.apps.iosched.provider.ScheduleContract;
+import com.google.samples.apps.iosched.testutils.BaseActivityTestRule;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static android.support.test.espresso.Espresso.onView;
+import static android.support.test.espresso.assertion.ViewAssertions.matches;
+import static android.support.test.espresso.matcher.ViewMatchers.isDisplayed;
+import static android.support.test.espresso.matcher.ViewMatchers.withId;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Measures the frames drawn while the Explore screen opens and reloads its sessions, with the real
+ * {@link ExploreIOModel} and the conference data of the device, reading the sessions on the loader
+ * thread and on the main thread. The frame times are logged rather than asserted, as they depend
+ * on the device; compare the two tests' logs.
+ * <p/>
+ * Frames are timed with a {@link Choreographer.FrameCallback}, as the frame metrics API is not
+ * available at the SDK level the app is compiled against.
+ */
+@RunWith(AndroidJUnit4.class)
+@LargeTest
+public class ExploreIOActivity_FrameTimeTest {
+
+    private static final String TAG = "ExploreIOFrameTimeTest";
+
+    /**
+     * How many times the sessions are reloaded once the screen is open.
+     */
+    private static final int RELOADS = 5;
+
+    /**
+     * How long to wait after each reload for the sessions to be displayed, in milliseconds.
+     */
+    private static final long RELOAD_WAIT = 1000;
+
+    @Rule
+    public BaseActivityTestRule<ExploreIOActivity> mActivityRule =
+            new BaseActivityTestRule<ExploreIOActivity>(ExploreIOActivity.class, true, false);
+
+    private FrameRecorder mRecorder;
+
+    @Before
+    public void setUp() {
+        ModelProvider.resetStubModels();
+        mRecorder = new FrameRecorder(getFrameIntervalNanos());
+    }
+
+    @After
+    public void tearDown() {
+        ModelWithLoaderManager.setBackgroundReadsEnabled(true);
+    }
+
+    @Test
+    public void openAndReload_SessionsReadOnLoaderThread() {
+        ModelWithLoaderManager.setBackgroundReadsEnabled(true);
+
+        openAndReloadSessions();
+
+        mRecorder.log("Sessions read on the loader thread");
+    }
+
+    @Test
+    public void openAndReload_SessionsReadOnMainThread() {
+        ModelWithLoaderManager.setBackgroundReadsEnabled(false);
+
+        openAndReloadSessions();
+
+        mRecorder.log("Sessions read on the main thread");
+    }
+
+    private void openAndReloadSessions() {
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(mRecorder.mStart);
+        mActivityRule.launchActivity(null);
+        onView(withId(R.id.explore_card_list)).check(matches(isDisplayed()));
+        Context context = InstrumentationRegistry.getTargetContext();
+        for (int i = 0; i < RELOADS; i++) {
+            context.getContentResolver().notifyChange(ScheduleContract.Sessions.CONTENT_URI, null);
+            SystemClock.sleep(RELOAD_WAIT);
+            onView(withId(R.id.explore_card_list)).check(matches(isDisplayed()));
+        }
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(mRecorder.mStop);
+        assertTrue(mRecorder.mFrames > 0);
+    }
+
+    private static long getFrameIntervalNanos() {
+        WindowManager windowManager = (WindowManager) InstrumentationRegistry.getTargetContext()
+                .getSystemService(Context.WINDOW_SERVICE);
+        return (long) (1000000000L / windowManager.getDefaultDisplay().getRefreshRate());
+    }
+
+    /**
+     * Records the interval between consecutive frames. Only used on the main thread, apart from
+     * the results once stopped.
+     */
+    private static class FrameRecorder implements Choreographer.FrameCallback {
+
+        private final long mFrameIntervalNanos;
+
+        private boolean mRecording;
+
+        private long mLastFrameNanos;
+
+        private int mFrames;
+
+        /**
+         * The frames that took longer than a frame interval, so that at least one vsync was
+         * missed.
+         */
+        private int mJankyFrames;
+
+        /**
+         * The total of the vsyncs missed by the janky frames.
+         */
+        private long mMissedVsyncs;
+
+        private long mLongestFrameNanos;
+
+        private FrameRecorder(long frameIntervalNanos) {
+            mFrameIntervalNanos = frameIntervalNanos;
+        }
+
+        private final Runnable mStart = new Runnable() {
+            @Override
+            public void run() {
+                mRecording = true;
+                Choreographer.getInstance().postFrameCallback(FrameRecorder.this);
+            }
+        };
+
+        private final Runnable mStop = new Runnable() {
+            @Override
+            public void run() {
+                mRecording = false;
+                Choreographer.getInstance().removeFrameCallback(FrameRecorder.this);
+            }
+        };
+
+        @Override
+        public void doFrame(long frameTimeNanos) {
+            if (!mRecording) {
+                return;
+            }
+            if (mLastFrameNanos != 0) {
+                long frameNanos = frameTimeNanos - mLastFrameNanos;
+                mFrames++;
+                mLongestFrameNanos = Math.max(mLongestFrameNanos, frameNanos);
+                // Allow half an interval of scheduling slack before counting a frame as janky.
+                long missed = (frameNanos + mFrameIntervalNanos / 2) / mFrameIntervalNanos - 1;
+                if (missed > 0) {
+                    mJankyFrames++;
+                    mMissedVsyncs += missed;
+                }
+            }
+            mLastFrameNanos = frameTimeNanos;
+            Choreographer.getInstance().postFrameCallback(this);
+        }
+
+        private void log(String mode) {
+            Log.i(TAG, mode + ": " + mFrames + " frames, " + mJankyFrames + " janky ("
+                    + (mFrames == 0 ? 0 : mJankyFrames * 100 / mFrames) + "%), "
+                    + mMissedVsyncs + " vsyncs missed, longest frame "
+                    + mLongestFrameNanos / 1000000 + "ms");
+        }
+    }
+}
@@ -0,0 +1,151 @@
+/*
+ * Copyright 2016 Google Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.samples.apps.iosched.io;
+
+import android.content.Context;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+import android.test.suitebuilder.annotation.LargeTest;
+import android.util.Log;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.samples.apps.iosched.R;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.util.zip.GZIPOutputStream;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Compares the disk footprint and the time {@link JSONHandler#openFile(File)} takes to stream the
+ * bootstrap data set from a plain and from a gzip compressed data cache file, after a warm up.
+ * The times are logged rather than asserted, as they depend on the device.
+ */
+@RunWith(AndroidJUnit4.class)
+@LargeTest
+public class DataCacheCompressionBenchmarkTest {
+
+    private static final String TAG = "DataCacheCompressionBenchmark";
+
+    private static final int WARM_UP_ITERATIONS = 20;
+
+    private static final int MEASURED_ITERATIONS = 50;
+
+    private File mPlainFile;
+
+    private File mGzipFile;
+
+    @Before
+    public void setUp() throws IOException {
+        Context context = InstrumentationRegistry.getTargetContext();
+        mPlainFile = File.createTempFile("bootstrap", ".json", context.getCacheDir());
+        mGzipFile = File.createTempFile("bootstrap", ".json.gz", context.getCacheDir());
+        copy(context, new FileOutputStream(mPlainFile));
+        copy(context, new GZIPOutputStream(new FileOutputStream(mGzipFile)));
+    }
+
+    @After
+    public void tearDown() {
+        mPlainFile.delete();
+        mGzipFile.delete();
+    }
+
+    @Test
+    public void openFile_BootstrapData() throws IOException {
+        assertThat(countTokens(mGzipFile), is(countTokens(mPlainFile)));
+
+        for (int i = 0; i < WARM_UP_ITERATIONS; i++) {
+            countTokens(mPlainFile);
+            countTokens(mGzipFile);
+        }
+        long plainNanos = 0;
+        long gzipNanos = 0;
+        for (int i = 0; i < MEASURED_ITERATIONS; i++) {
+            long start = System.nanoTime();
+            countTokens(mPlainFile);
+            plainNanos += System.nanoTime() - start;
+            start = System.nanoTime();
+            countTokens(mGzipFile);
+            gzipNanos += System.nanoTime() - start;
+        }
+
+        Log.i(TAG, "Bootstrap data: plain " + mPlainFile.length() + " bytes, "
+                + plainNanos / MEASURED_ITERATIONS / 1000 + "us per read; gzip "
+                + mGzipFile.length() + " bytes, " + gzipNanos / MEASURED_ITERATIONS / 1000
+                + "us per read.");
+    }
+
+    /**
+     * Streams the whole file through a {@link JsonReader}, as the import does.
+     */
+    private static int countTokens(File file) throws IOException {
+        Reader reader = JSONHandler.openFile(file);
+        try {
+            JsonReader jsonReader = new JsonReader(reader);
+            int tokens = 0;
+            while (jsonReader.peek() != JsonToken.END_DOCUMENT) {
+                JsonToken token = jsonReader.peek();
+                if (token == JsonToken.BEGIN_OBJECT) {
+                    jsonReader.beginObject();
+                } else if (token == JsonToken.END_OBJECT) {
+                    jsonReader.endObject();
+                } else if (token == JsonToken.BEGIN_ARRAY) {
+                    jsonReader.beginArray();
+                } else if (token == JsonToken.END_ARRAY) {
+                    jsonReader.endArray();
+                } else if (token == JsonToken.NAME) {
+                    jsonReader.nextName();
+                } else {
+                    jsonReader.skipValue();
+                }
+                tokens++;
+            }
+            return tokens;
+        } finally {
+            reader.close();
+        }
+    }
+
+    /**
+     * Copies the bootstrap data resource to {@code to}, then closes it.
+     */
+    private static void copy(Context context, OutputStream to) throws IOException {
+        InputStream is = context.getResources().openRawResource(R.raw.bootstrap_data);
+        try {
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = is.read(buffer)) != -1) {
+                to.write(buffer, 0, read);
+            }
+        } finally {
+            is.close();
+            to.close();
+        }
+    }
+}
@@ -0,0 +1,134 @@
+/*
+ * Copyright 2016 Google Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.samples.apps.iosched.io;
+
+import android.content.ContentProviderOperation;
+import android.content.Context;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+import android.test.suitebuilder.annotation.LargeTest;
+
+import com.google.gson.stream.JsonReader;
+import com.google.samples.apps.iosched.BuildConfig;
+import com.google.samples.apps.iosched.R;
+import com.google.samples.apps.iosched.sync.ConferenceDataHandler;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Checks that importing the data already in the database, as a sync with no changes does, writes
+ * nothing, and that entities missing from the data are deleted one by one.
+ */
+@RunWith(AndroidJUnit4.class)
+@LargeTest
+public class IncrementalImportTest {
+
+    private Context mContext;
+
+    @Before
+    public void setUp() throws IOException {
+        mContext = InstrumentationRegistry.getTargetContext();
+        Reader bootstrapJson = JSONHandler.openResource(mContext, R.raw.bootstrap_data);
+        try {
+            new ConferenceDataHandler(mContext).applyConferenceData(new Reader[]{bootstrapJson},
+                    BuildConfig.BOOTSTRAP_DATA_TIMESTAMP, false);
+        } finally {
+            bootstrapJson.close();
+        }
+    }
+
+    @Test
+    public void makeContentProviderOperations_SameData_WritesNothing() throws IOException {
+        // Given the handlers of every diffed table, fed the data imported in setUp()
+        TagsHandler tagsHandler = new TagsHandler(mContext);
+        SpeakersHandler speakersHandler = new SpeakersHandler(mContext);
+        SessionsHandler sessionsHandler = new SessionsHandler(mContext);
+        Map<String, JSONHandler> handlers = new LinkedHashMap<>();
+        handlers.put("rooms", new RoomsHandler(mContext));
+        handlers.put("blocks", new BlocksHandler(mContext));
+        handlers.put("cards", new CardHandler(mContext));
+        handlers.put("tags", tagsHandler);
+        handlers.put("speakers", speakersHandler);
+        handlers.put("sessions", sessionsHandler);
+        handlers.put("search_suggestions", new SearchSuggestHandler(mContext));
+        handlers.put("hashtags", new HashtagsHandler(mContext));
+        handlers.put("video_library", new VideosHandler(mContext));
+        processBootstrapData(handlers);
+        sessionsHandler.setTagMap(tagsHandler.getTagMap());
+        sessionsHandler.setSpeakerMap(speakersHandler.getSpeakerMap());
+
+        for (Map.Entry<String, JSONHandler> entry : handlers.entrySet()) {
+            // When each builds its content provider operations
+            ArrayList<ContentProviderOperation> ops = new ArrayList<>();
+            entry.getValue().makeContentProviderOperations(ops);
+
+            // Then every row is found unchanged, and nothing is written
+            assertThat(entry.getKey(), ops.size(), is(0));
+            for (TableDiff diff : entry.getValue().getTableDiffs()) {
+                assertThat(diff.toString(), diff.hasChanges(), is(false));
+            }
+        }
+    }
+
+    @Test
+    public void makeContentProviderOperations_MissingEntities_DeletesTheirRows() {
+        // Given a handler fed no rooms
+        RoomsHandler roomsHandler = new RoomsHandler(mContext);
+
+        // When it builds its content provider operations
+        ArrayList<ContentProviderOperation> ops = new ArrayList<>();
+        roomsHandler.makeContentProviderOperations(ops);
+
+        // Then each room imported in setUp() is deleted, and nothing else is written
+        TableDiff diff = roomsHandler.getTableDiffs().get(0);
+        assertThat(diff.getDeleteCount() > 0, is(true));
+        assertThat(ops.size(), is(diff.getDeleteCount()));
+        assertThat(diff.getInsertCount() + diff.getUpdateCount() + diff.getUnchangedCount(),
+                is(0));
+    }
+
+    private void processBootstrapData(Map<String, JSONHandler> handlers) throws IOException {
+        Reader bootstrapJson = JSONHandler.openResource(mContext, R.raw.bootstrap_data);
+        try {
+            JsonReader reader = new JsonReader(bootstrapJson);
+            reader.setLenient(true);
+            reader.beginObject();
+            while (reader.hasNext()) {
+                JSONHandler handler = handlers.get(reader.nextName());
+                if (handler != null) {
+                    handler.process(reader);
+                } else {
+                    reader.skipValue();
+                }
+            }
+            reader.endObject();
+        } finally {
+            bootstrapJson.close();
+        }
+    }
+}
@@ -0,0 +1,136 @@
+/*
+ * Copyright 2016 Google Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.samples.apps.iosched.map.util;
+
+import android.content.res.AssetManager;
+import android.os.Debug;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+import android.test.suitebuilder.annotation.LargeTest;
+import android.util.Log;
+
+import com.larvalabs.svgandroid.SVGBuilder;
+import com.larvalabs.svgandroid.SVGParseException;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Compares the time and the memory taken by fully parsing the bundled map overlay SVGs, as the
+ * map does, and by only validating them, as the data import does, after a warm up. The results
+ * are logged rather than asserted, as they depend on the device.
+ */
+@RunWith(AndroidJUnit4.class)
+@LargeTest
+public class SVGParserBenchmarkTest {
+
+    private static final String TAG = "SVGParserBenchmark";
+
+    private static final String MAP_TILES = "maptiles";
+
+    private static final int WARM_UP_ITERATIONS = 5;
+
+    private static final int MEASURED_ITERATIONS = 20;
+
+    @Test
+    @SuppressWarnings("deprecation")
+    public void parseMapOverlays() throws IOException, SVGParseException {
+        List<byte[]> svgs = readSvgs();
+        assertTrue(!svgs.isEmpty());
+
+        for (int i = 0; i < WARM_UP_ITERATIONS; i++) {
+            parse(svgs, false);
+            parse(svgs, true);
+        }
+        long buildNanos = 0;
+        long buildBytes = 0;
+        long validateNanos = 0;
+        long validateBytes = 0;
+        Debug.startAllocCounting();
+        for (int i = 0; i < MEASURED_ITERATIONS; i++) {
+            long bytes = getAllocatedBytes();
+            long start = System.nanoTime();
+            parse(svgs, false);
+            buildNanos += System.nanoTime() - start;
+            buildBytes += getAllocatedBytes() - bytes;
+
+            bytes = getAllocatedBytes();
+            start = System.nanoTime();
+            parse(svgs, true);
+            validateNanos += System.nanoTime() - start;
+            validateBytes += getAllocatedBytes() - bytes;
+        }
+        Debug.stopAllocCounting();
+
+        int parses = MEASURED_ITERATIONS * svgs.size();
+        Log.i(TAG, "Map overlays: build " + buildNanos / parses / 1000 + "us, "
+                + buildBytes / parses + " bytes per parse; validate "
+                + validateNanos / parses / 1000 + "us, " + validateBytes / parses
+                + " bytes per parse.");
+    }
+
+    private static void parse(List<byte[]> svgs, boolean validateOnly) throws SVGParseException {
+        for (byte[] svg : svgs) {
+            SVGBuilder builder = new SVGBuilder().readFromInputStream(
+                    new ByteArrayInputStream(svg));
+            if (validateOnly) {
+                builder.validate();
+            } else {
+                builder.build();
+            }
+        }
+    }
+
+    /**
+     * @return The bytes allocated by this thread since allocation counting was started.
+     */
+    @SuppressWarnings("deprecation")
+    private static long getAllocatedBytes() {
+        return Debug.getThreadAllocSize();
+    }
+
+    private static List<byte[]> readSvgs() throws IOException {
+        List<byte[]> svgs = new ArrayList<>();
+        AssetManager assets = InstrumentationRegistry.getTargetContext().getAssets();
+        for (String name : assets.list(MAP_TILES)) {
+            if (name.endsWith(".svg")) {
+                ByteArrayOutputStream data = new ByteArrayOutputStream();
+                InputStream is = assets.open(MAP_TILES + "/" + name);
+                try {
+                    byte[] buffer = new byte[8192];
+                    int read;
+                    while ((read = is.read(buffer)) != -1) {
+                        data.write(buffer, 0, read);
+                    }
+                } finally {
+                    is.close();
+                }
+                svgs.add(data.toByteArray());
+            }
+        }
+        return svgs;
+    }
+}
@@ -0,0 +1,153 @@
+/*
+ * Copyright 2016 Google Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.samples.apps.iosched.map.util;
+
+import android.content.Context;
+import android.graphics.Rect;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+import android.test.suitebuilder.annotation.LargeTest;
+import android.util.Log;
+
+import com.google.android.gms.maps.model.Tile;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.assertArrayEquals;
+
+/**
+ * Renders the tiles of a floor with one {@link SVGTileProvider} shared by 1, 2 and 4 threads, and
+ * checks that every thread count renders the same tiles. Throughput is logged; it should grow
+ * with the number of threads, up to the number of cores.
+ */
+@RunWith(AndroidJUnit4.class)
+@LargeTest
+public class SVGTileProviderBenchmarkTest {
+
+    private static final String TAG = "SVGTileProviderBenchmarkTest";
+
+    private static final String FLOOR_ASSET = "maptiles/floor0-2016-2.svg";
+
+    private static final int[] THREAD_COUNTS = {1, 2, 4};
+
+    private static final int ZOOM = TilePyramidRenderer.MAX_ZOOM;
+
+    private Context mContext;
+
+    private File mSvgFile;
+
+    @Before
+    public void setUp() throws IOException {
+        mContext = InstrumentationRegistry.getTargetContext();
+        mSvgFile = new File(mContext.getCacheDir(), TAG + ".svg");
+        copyAsset(FLOOR_ASSET, mSvgFile);
+    }
+
+    @After
+    public void tearDown() {
+        mSvgFile.delete();
+    }
+
+    @Test
+    public void renderTiles_SharedProvider_ScalesWithThreads() throws Exception {
+        SVGTileProvider provider = new SVGTileProvider(mSvgFile,
+                TilePyramidRenderer.getDpi(mContext));
+        List<int[]> tiles = new ArrayList<>();
+        Rect bounds = provider.getTileBounds(ZOOM);
+        for (int x = bounds.left; x <= bounds.right; x++) {
+            for (int y = bounds.top; y <= bounds.bottom; y++) {
+                tiles.add(new int[]{x, y});
+            }
+        }
+        // Warm up the tile generators and the code paths.
+        render(provider, tiles, THREAD_COUNTS[THREAD_COUNTS.length - 1]);
+
+        List<byte[]> expected = null;
+        for (int threads : THREAD_COUNTS) {
+            long start = System.nanoTime();
+            List<byte[]> rendered = render(provider, tiles, threads);
+            long elapsed = System.nanoTime() - start;
+            Log.i(TAG, threads + " threads rendered " + tiles.size() + " tiles in "
+                    + elapsed / 1000000 + "ms (" + tiles.size() * 1000000000L / elapsed
+                    + " tiles/sec)");
+
+            if (expected == null) {
+                expected = rendered;
+            } else {
+                for (int i = 0; i < tiles.size(); i++) {
+                    assertArrayEquals(expected.get(i), rendered.get(i));
+                }
+            }
+        }
+    }
+
+    /**
+     * @return The data of each tile of {@link #ZOOM}, in the order of {@code tiles}.
+     */
+    private static List<byte[]> render(final SVGTileProvider provider, List<int[]> tiles,
+            int threads) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<Tile>> futures = new ArrayList<>();
+            for (final int[] tile : tiles) {
+                futures.add(executor.submit(new Callable<Tile>() {
+                    @Override
+                    public Tile call() {
+                        return provider.getTile(tile[0], tile[1], ZOOM);
+                    }
+                }));
+            }
+            List<byte[]> data = new ArrayList<>();
+            for (Future<Tile> future : futures) {
+                data.add(future.get().data);
+            }
+            return data;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private void copyAsset(String asset, File file) throws IOException {
+        InputStream in = mContext.getAssets().open(asset);
+        OutputStream out = new FileOutputStream(file);
+        try {
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+        } finally {
+            in.close();
+            out.close();
+        }
+    }
+}
@@ -0,0 +1,184 @@
+/*
+ * Copyright 2016 Google Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.samples.apps.iosched.map.util;
+
+import android.content.Context;
+import android.graphics.Rect;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+import android.test.suitebuilder.annotation.LargeTest;
+import android.util.Log;
+import android.util.SparseArray;
+
+import com.google.android.gms.maps.model.Tile;
+import com.google.android.gms.maps.model.TileProvider;
+import com.jakewharton.disklrucache.DiskLruCache;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Compares rendering the tiles of a floor one at a time, as the map does on demand, with
+ * rendering them into a {@link TilePack} in parallel, and compares getting rendered tiles from the
+ * {@link CachedTileProvider} and from the {@link TilePackTileProvider}. Results are logged.
+ */
+@RunWith(AndroidJUnit4.class)
+@LargeTest
+public class TilePackBenchmarkTest {
+
+    private static final String TAG = "TilePackBenchmarkTest";
+
+    private static final String FLOOR_ASSET = "maptiles/floor0-2016-2.svg";
+
+    private static final int FLOOR = 0;
+
+    private static final int LOOKUP_ROUNDS = 5;
+
+    private Context mContext;
+
+    private File mWorkDir;
+
+    private File mSvgFile;
+
+    private float mDpi;
+
+    @Before
+    public void setUp() throws IOException {
+        mContext = InstrumentationRegistry.getTargetContext();
+        mWorkDir = new File(mContext.getCacheDir(), TAG);
+        mWorkDir.mkdirs();
+        mSvgFile = new File(mWorkDir, "floor.svg");
+        copyAsset(FLOOR_ASSET, mSvgFile);
+        mDpi = TilePyramidRenderer.getDpi(mContext);
+    }
+
+    @After
+    public void tearDown() {
+        deleteRecursively(mWorkDir);
+    }
+
+    @Test
+    public void renderAndLookupTiles() throws IOException {
+        SVGTileProvider svgProvider = new SVGTileProvider(mSvgFile, mDpi);
+        List<int[]> tiles = getPyramid(svgProvider);
+
+        // Render the tiles one at a time, into the disk cache
+        DiskLruCache cache = DiskLruCache.open(new File(mWorkDir, "cache"), 1, 3,
+                64 * 1024 * 1024);
+        CachedTileProvider cachedProvider = new CachedTileProvider(Integer.toString(FLOOR),
+                svgProvider, cache);
+        long start = System.nanoTime();
+        for (int[] tile : tiles) {
+            assertNotNull(cachedProvider.getTile(tile[0], tile[1], tile[2]));
+        }
+        long serialRenderNanos = System.nanoTime() - start;
+
+        // Render the tiles in parallel, into a tile pack
+        SparseArray<File> files = new SparseArray<>();
+        files.put(FLOOR, mSvgFile);
+        File packFile = new File(mWorkDir, "tiles.pack");
+        start = System.nanoTime();
+        TilePyramidRenderer.render(files, mDpi, packFile);
+        long packRenderNanos = System.nanoTime() - start;
+        TilePack pack = TilePack.open(packFile);
+        TilePackTileProvider packProvider = new TilePackTileProvider(pack, FLOOR, cachedProvider);
+
+        long cacheLookupNanos = timeLookups(cachedProvider, tiles);
+        long packLookupNanos = timeLookups(packProvider, tiles);
+        cachedProvider.closeCache();
+
+        Log.i(TAG, tiles.size() + " tiles, rendered one at a time in "
+                + serialRenderNanos / 1000000 + "ms ("
+                + tiles.size() * 1000000000L / serialRenderNanos + " tiles/sec), in parallel in "
+                + packRenderNanos / 1000000 + "ms ("
+                + tiles.size() * 1000000000L / packRenderNanos + " tiles/sec)");
+        Log.i(TAG, "getTile() from the disk cache " + cacheLookupNanos / 1000 + "us, from the "
+                + "tile pack " + packLookupNanos / 1000 + "us");
+        assertThat(pack.getTileCount(), is(tiles.size()));
+    }
+
+    /**
+     * @return The average time of getting a tile from {@code provider}, in nanoseconds.
+     */
+    private static long timeLookups(TileProvider provider, List<int[]> tiles) {
+        long start = System.nanoTime();
+        for (int round = 0; round < LOOKUP_ROUNDS; round++) {
+            for (int[] coordinates : tiles) {
+                Tile tile = provider.getTile(coordinates[0], coordinates[1], coordinates[2]);
+                assertTrue(tile != null && tile.data.length > 0);
+            }
+        }
+        return (System.nanoTime() - start) / (LOOKUP_ROUNDS * tiles.size());
+    }
+
+    /**
+     * @return The (x, y, zoom) coordinates of the tiles pre-rendered for a floor.
+     */
+    private static List<int[]> getPyramid(SVGTileProvider provider) {
+        List<int[]> tiles = new ArrayList<>();
+        for (int zoom = TilePyramidRenderer.MIN_ZOOM; zoom <= TilePyramidRenderer.MAX_ZOOM;
+                zoom++) {
+            Rect bounds = provider.getTileBounds(zoom);
+            for (int x = bounds.left; x <= bounds.right; x++) {
+                for (int y = bounds.top; y <= bounds.bottom; y++) {
+                    tiles.add(new int[]{x, y, zoom});
+                }
+            }
+        }
+        return tiles;
+    }
+
+    private void copyAsset(String asset, File file) throws IOException {
+        InputStream in = mContext.getAssets().open(asset);
+        OutputStream out = new FileOutputStream(file);
+        try {
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+        } finally {
+            in.close();
+            out.close();
+        }
+    }
+
+    private static void deleteRecursively(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                deleteRecursively(child);
+            }
+        }
+        file.delete();
+    }
+}
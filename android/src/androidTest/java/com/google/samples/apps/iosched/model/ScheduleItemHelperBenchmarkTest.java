@@ -0,0 +1,121 @@
+/*
+ * Copyright 2016 Google Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.samples.apps.iosched.model;
+
+import android.support.test.runner.AndroidJUnit4;
+import android.test.suitebuilder.annotation.LargeTest;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.google.samples.apps.iosched.util.LogUtils.LOGI;
+import static com.google.samples.apps.iosched.util.LogUtils.makeLogTag;
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Compares the time {@link ScheduleItemHelper} and {@link PairwiseScheduleItemHelper} take to
+ * process a conference day with ten times the sessions and blocks of the bootstrap data, after a
+ * warm up. The times are logged rather than asserted, as they depend on the device.
+ */
+@RunWith(AndroidJUnit4.class)
+@LargeTest
+public class ScheduleItemHelperBenchmarkTest {
+
+    private static final String TAG = makeLogTag(ScheduleItemHelperBenchmarkTest.class);
+
+    // The bootstrap data has 100 sessions and 53 blocks over 3 days; ten times as many per day.
+    private static final int SESSIONS = 100 * 10 / 3;
+
+    private static final int BREAKS = 40 * 10 / 3;
+
+    private static final int FREE_BLOCKS = 13 * 10 / 3;
+
+    private static final int COUNTERS = SESSIONS;
+
+    private static final int WARM_UP_ITERATIONS = 1000;
+
+    private static final int MEASURED_ITERATIONS = 1000;
+
+    private ArrayList<ScheduleItem> mMutableItems;
+
+    private ArrayList<ScheduleItem> mImmutableItems;
+
+    private List<long[]> mCounters;
+
+    @Before
+    public void setUp() {
+        ScheduleItemsGenerator generator = new ScheduleItemsGenerator(0);
+        mMutableItems = generator.items(FREE_BLOCKS, ScheduleItem.FREE, 240 * 60 * 1000);
+        mImmutableItems = generator.immutableItems(BREAKS, SESSIONS);
+        mCounters = generator.counters(COUNTERS, true);
+    }
+
+    @Test
+    public void processItems_TenTimesBootstrapData() {
+        assertThat(runIntervals().toString(), is(runPairwise().toString()));
+
+        for (int i = 0; i < WARM_UP_ITERATIONS; i++) {
+            runIntervals();
+            runPairwise();
+        }
+        long intervalsNanos = 0;
+        long pairwiseNanos = 0;
+        for (int i = 0; i < MEASURED_ITERATIONS; i++) {
+            long start = System.nanoTime();
+            runIntervals();
+            intervalsNanos += System.nanoTime() - start;
+            start = System.nanoTime();
+            runPairwise();
+            pairwiseNanos += System.nanoTime() - start;
+        }
+
+        LOGI(TAG, "processItems with " + SESSIONS + " sessions: intervals "
+                + intervalsNanos / MEASURED_ITERATIONS + " ns/op, pairwise "
+                + pairwiseNanos / MEASURED_ITERATIONS + " ns/op");
+    }
+
+    private ArrayList<ScheduleItem> runIntervals() {
+        ArrayList<ScheduleItem> items = ScheduleItemHelper.processItems(
+                ScheduleItemsGenerator.copy(mMutableItems),
+                ScheduleItemsGenerator.copy(mImmutableItems));
+        ScheduleItemHelper.addSessionCounts(free(items), mCounters);
+        return items;
+    }
+
+    private ArrayList<ScheduleItem> runPairwise() {
+        ArrayList<ScheduleItem> items = PairwiseScheduleItemHelper.processItems(
+                ScheduleItemsGenerator.copy(mMutableItems),
+                ScheduleItemsGenerator.copy(mImmutableItems));
+        PairwiseScheduleItemHelper.addSessionCounts(free(items), mCounters);
+        return items;
+    }
+
+    private static List<ScheduleItem> free(List<ScheduleItem> items) {
+        List<ScheduleItem> free = new ArrayList<ScheduleItem>();
+        for (ScheduleItem item : items) {
+            if (item.type == ScheduleItem.FREE) {
+                free.add(item);
+            }
+        }
+        return free;
+    }
+}
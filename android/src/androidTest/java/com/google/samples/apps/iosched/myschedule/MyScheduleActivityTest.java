@@ -37,9 +37,9 @@ import com.google.samples.apps.iosched.navigation.NavigationModel;
 import com.google.samples.apps.iosched.provider.ScheduleContract;
 import com.google.samples.apps.iosched.settings.SettingsUtils;
 import com.google.samples.apps.iosched.testutils.BaseActivityTestRule;
+import com.google.samples.apps.iosched.testutils.DataChangeBusIdlingResource;
 import com.google.samples.apps.iosched.testutils.NavigationUtils;
 import com.google.samples.apps.iosched.testutils.OrientationHelper;
-import com.google.samples.apps.iosched.testutils.ThrottleContentObserverIdlingResource;
 import com.google.samples.apps.iosched.util.TimeUtils;
 
 import org.junit.Before;
@@ -379,8 +379,8 @@ public class MyScheduleActivityTest {
             mStubMyScheduleModel.setMockScheduleDataDay2(MyScheduleMockItems
                     .getItemsForAttendee(2, false, MyScheduleMockItems.SESSION_TITLE_2));
             mStubMyScheduleModel.fireContentObserver();
-            // Wait for the ThrottleContentObserver to process the event
-            idlingResource = new ThrottleContentObserverIdlingResource(
+            // Wait for the DataChangeBus to deliver the event
+            idlingResource = new DataChangeBusIdlingResource(
                     InstrumentationRegistry.getTargetContext());
             Espresso.registerIdlingResources(idlingResource);
 
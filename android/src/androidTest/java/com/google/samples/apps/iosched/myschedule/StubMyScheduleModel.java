@@ -18,19 +18,22 @@ package com.google.samples.apps.iosched.myschedule;
 
 import android.content.Context;
 import android.os.Handler;
+import android.os.Looper;
 import android.support.test.InstrumentationRegistry;
 
 import com.google.samples.apps.iosched.Config;
 import com.google.samples.apps.iosched.model.ScheduleHelper;
 import com.google.samples.apps.iosched.model.ScheduleItem;
+import com.google.samples.apps.iosched.provider.DataChangeBus;
+import com.google.samples.apps.iosched.provider.ScheduleContract;
 
 import java.util.ArrayList;
 
 /**
  * A stub {@link MyScheduleModel}, to be injected using {@link com.google.samples.apps.iosched
  * .injection.Injection}. It overrides {@link #updateData(DataQueryCallback)} to bypass the {@link
- * ScheduleHelper#getScheduleDataAsync(LoadScheduleDataListener, long, long)} mechanism. Use the
- * classes in {@link com.google.samples.apps.iosched.mockdata} to provide the mock data.
+ * ScheduleHelper#getScheduleDataAsync(LoadScheduleDataListener, long[][], String[])} mechanism.
+ * Use the classes in {@link com.google.samples.apps.iosched.mockdata} to provide the mock data.
  */
 public class StubMyScheduleModel extends MyScheduleModel {
 
@@ -61,9 +64,14 @@ public class StubMyScheduleModel extends MyScheduleModel {
     }
 
     public void fireContentObserver() {
-        mObserver.cancelPendingCallback();
-        mObserver.onChange(true);
-     }
+        new Handler(Looper.getMainLooper()).post(new Runnable() {
+            @Override
+            public void run() {
+                mDataChangeListener.onDataChanged(DataChangeBus.DataChange.forTables(
+                        ScheduleContract.Sessions.CONTENT_URI));
+            }
+        });
+    }
 
     /**
      * This bypasses the use of {@link ScheduleHelper} to get the data and sets the data as per the
@@ -0,0 +1,122 @@
+/*
+ * Copyright 2016 Google Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.samples.apps.iosched.provider;
+
+import android.content.Context;
+import android.database.DatabaseUtils;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+import android.test.suitebuilder.annotation.LargeTest;
+import android.util.Log;
+
+import com.google.samples.apps.iosched.BuildConfig;
+import com.google.samples.apps.iosched.R;
+import com.google.samples.apps.iosched.io.JSONHandler;
+import com.google.samples.apps.iosched.provider.ScheduleDatabase.Tables;
+import com.google.samples.apps.iosched.service.DataBootstrapService;
+import com.google.samples.apps.iosched.sync.ConferenceDataHandler;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Compares the time the first launch takes to fill an empty database with the bootstrap data,
+ * from the {@link DataBootstrapService#SNAPSHOT_ASSET} packaged by the {@code
+ * buildBootstrapSnapshot} Gradle task and from the bootstrap data JSON. The times are logged
+ * rather than asserted, as they depend on the device.
+ * <p/>
+ * Each run starts from a new {@link ThrowawayScheduleContext}, so every run applies the data to an
+ * empty database as on a cold start. The test is skipped if the app was built without the
+ * snapshot.
+ */
+@RunWith(AndroidJUnit4.class)
+@LargeTest
+public class BootstrapColdStartBenchmarkTest {
+
+    private static final String TAG = "BootstrapColdStartBench";
+
+    private static final int RUNS = 3;
+
+    @Test
+    public void bootstrap_SnapshotVsJsonImport() throws IOException {
+        Context targetContext = InstrumentationRegistry.getTargetContext();
+        assumeTrue(hasSnapshotAsset(targetContext));
+
+        // Keep the best run, as the first ones also warm up SQLite and the JIT.
+        long snapshotTime = Long.MAX_VALUE;
+        long importTime = Long.MAX_VALUE;
+        long snapshotSessions = 0;
+        long importSessions = 0;
+        for (int i = 0; i < RUNS; i++) {
+            ThrowawayScheduleContext context = new ThrowawayScheduleContext(targetContext);
+            try {
+                long start = System.currentTimeMillis();
+                assertThat(DataBootstrapService.applySnapshot(context,
+                        new ConferenceDataHandler(context)), is(true));
+                snapshotTime = Math.min(snapshotTime, System.currentTimeMillis() - start);
+                snapshotSessions = DatabaseUtils.queryNumEntries(context.getDatabase(),
+                        Tables.SESSIONS);
+            } finally {
+                context.close();
+            }
+
+            context = new ThrowawayScheduleContext(targetContext);
+            try {
+                long start = System.currentTimeMillis();
+                Reader bootstrapJson = JSONHandler.openResource(context, R.raw.bootstrap_data);
+                try {
+                    new ConferenceDataHandler(context).applyConferenceData(
+                            new Reader[]{bootstrapJson}, BuildConfig.BOOTSTRAP_DATA_TIMESTAMP,
+                            false);
+                } finally {
+                    bootstrapJson.close();
+                }
+                importTime = Math.min(importTime, System.currentTimeMillis() - start);
+                importSessions = DatabaseUtils.queryNumEntries(context.getDatabase(),
+                        Tables.SESSIONS);
+            } finally {
+                context.close();
+            }
+        }
+
+        Log.i(TAG, "Bootstrap data applied from the snapshot in " + snapshotTime
+                + "ms, imported from JSON in " + importTime + "ms.");
+        assertThat(snapshotSessions, is(importSessions));
+    }
+
+    /**
+     * @return Whether the app was built with a snapshot of the current bootstrap data.
+     */
+    private static boolean hasSnapshotAsset(Context context) {
+        try {
+            InputStream asset = context.getAssets().open(DataBootstrapService.SNAPSHOT_ASSET);
+            asset.close();
+            return true;
+        } catch (IOException e) {
+            Log.i(TAG, "No " + DataBootstrapService.SNAPSHOT_ASSET + " packaged, skipping.");
+            return false;
+        }
+    }
+}
@@ -0,0 +1,222 @@
+/*
+ * Copyright 2016 Google Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.samples.apps.iosched.provider;
+
+import android.database.Cursor;
+import android.database.DatabaseUtils;
+import android.database.sqlite.SQLiteDatabase;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+import android.test.suitebuilder.annotation.LargeTest;
+import android.util.Log;
+
+import com.google.samples.apps.iosched.BuildConfig;
+import com.google.samples.apps.iosched.R;
+import com.google.samples.apps.iosched.io.JSONHandler;
+import com.google.samples.apps.iosched.provider.ScheduleDatabase.Tables;
+import com.google.samples.apps.iosched.service.DataBootstrapService;
+import com.google.samples.apps.iosched.sync.ConferenceDataHandler;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Builds the bootstrap snapshot shipped as {@link DataBootstrapService#SNAPSHOT_ASSET} from the
+ * bootstrap data, and compares applying it with importing the bootstrap data.
+ * <p>
+ * {@link #writeSnapshot_BootstrapData()} writes the snapshot to the app's external files
+ * directory, from where the {@code buildBootstrapSnapshot} Gradle task pulls it into the assets.
+ * The data is imported into a {@link ThrowawayScheduleContext}, so the app's own database, and the
+ * user's schedule and feedback kept in it, are left alone.
+ */
+@RunWith(AndroidJUnit4.class)
+@LargeTest
+public class BootstrapSnapshotTest {
+
+    private static final String TAG = "BootstrapSnapshotTest";
+
+    private static final String SEARCH_QUERY = "android";
+
+    private ThrowawayScheduleContext mContext;
+
+    private SQLiteDatabase mDatabase;
+
+    private File mSnapshotFile;
+
+    @Before
+    public void setUp() {
+        mContext = new ThrowawayScheduleContext(InstrumentationRegistry.getTargetContext());
+        mDatabase = mContext.getDatabase();
+        mSnapshotFile = new File(mContext.getCacheDir(), DataBootstrapService.SNAPSHOT_ASSET);
+    }
+
+    @After
+    public void tearDown() {
+        mSnapshotFile.delete();
+        mContext.close();
+    }
+
+    @Test
+    public void writeSnapshot_BootstrapData() throws IOException {
+        // Given the bootstrap data imported from JSON
+        importBootstrapData();
+
+        // When a snapshot of it is written to the external files directory
+        File externalFilesDir = mContext.getExternalFilesDir(null);
+        assertNotNull(externalFilesDir);
+        File snapshotFile = new File(externalFilesDir, DataBootstrapService.SNAPSHOT_ASSET);
+        writeSnapshot(mDatabase, snapshotFile, BuildConfig.BOOTSTRAP_DATA_TIMESTAMP);
+
+        // Then it holds the bootstrap data
+        Log.i(TAG, "Snapshot of " + snapshotFile.length() + " bytes written to " + snapshotFile);
+        clearConferenceData();
+        assertTrue(new ConferenceDataHandler(mContext).applySnapshot(snapshotFile,
+                BuildConfig.BOOTSTRAP_DATA_TIMESTAMP));
+        assertTrue(DatabaseUtils.queryNumEntries(mDatabase, Tables.SESSIONS) > 0);
+    }
+
+    @Test
+    public void applySnapshot_HoldsSameDataAsImport() throws IOException {
+        // Given the bootstrap data imported from JSON
+        long importStart = System.currentTimeMillis();
+        importBootstrapData();
+        long importTime = System.currentTimeMillis() - importStart;
+        long sessions = DatabaseUtils.queryNumEntries(mDatabase, Tables.SESSIONS);
+        List<String> searchResults = searchSessions();
+        assertTrue(sessions > 0);
+
+        // When a snapshot of the imported data is applied to an empty database
+        writeSnapshot(mDatabase, mSnapshotFile, BuildConfig.BOOTSTRAP_DATA_TIMESTAMP);
+        clearConferenceData();
+        long snapshotStart = System.currentTimeMillis();
+        boolean applied = new ConferenceDataHandler(mContext).applySnapshot(mSnapshotFile,
+                BuildConfig.BOOTSTRAP_DATA_TIMESTAMP);
+        long snapshotTime = System.currentTimeMillis() - snapshotStart;
+        Log.i(TAG, "Bootstrap data imported in " + importTime + "ms, snapshot of "
+                + mSnapshotFile.length() + " bytes applied in " + snapshotTime + "ms.");
+
+        // Then the database holds the same sessions, and finds the same ones when searching
+        assertTrue(applied);
+        assertThat(DatabaseUtils.queryNumEntries(mDatabase, Tables.SESSIONS), is(sessions));
+        assertThat(searchSessions(), is(searchResults));
+    }
+
+    @Test
+    public void applySnapshot_OtherDataTimestamp_IsIgnored() throws IOException {
+        // Given a snapshot of other data than the bootstrap data
+        importBootstrapData();
+        writeSnapshot(mDatabase, mSnapshotFile, "Thu, 01 Jan 1970 00:00:00 GMT");
+        clearConferenceData();
+
+        // When the snapshot is applied for the bootstrap data
+        boolean applied = new ConferenceDataHandler(mContext).applySnapshot(mSnapshotFile,
+                BuildConfig.BOOTSTRAP_DATA_TIMESTAMP);
+
+        // Then it is ignored and the database is left empty
+        assertFalse(applied);
+        assertThat(DatabaseUtils.queryNumEntries(mDatabase, Tables.SESSIONS), is(0L));
+    }
+
+    private void importBootstrapData() throws IOException {
+        Reader bootstrapJson = JSONHandler.openResource(mContext, R.raw.bootstrap_data);
+        try {
+            new ConferenceDataHandler(mContext).applyConferenceData(new Reader[]{bootstrapJson},
+                    BuildConfig.BOOTSTRAP_DATA_TIMESTAMP, false);
+        } finally {
+            bootstrapJson.close();
+        }
+    }
+
+    private void clearConferenceData() {
+        mDatabase.beginTransaction();
+        try {
+            for (String table : ScheduleDatabase.CONFERENCE_DATA_TABLES) {
+                mDatabase.delete(table, null, null);
+            }
+            mDatabase.execSQL("DELETE FROM " + Tables.SESSIONS_SEARCH);
+            mDatabase.setTransactionSuccessful();
+        } finally {
+            mDatabase.endTransaction();
+        }
+    }
+
+    private List<String> searchSessions() {
+        List<String> sessionIds = new ArrayList<>();
+        Cursor cursor = mContext.getContentResolver().query(
+                ScheduleContract.Sessions.buildSearchUri(SEARCH_QUERY),
+                new String[]{ScheduleContract.Sessions.SESSION_ID}, null, null,
+                ScheduleContract.Sessions.SESSION_ID);
+        try {
+            while (cursor.moveToNext()) {
+                sessionIds.add(cursor.getString(0));
+            }
+        } finally {
+            cursor.close();
+        }
+        return sessionIds;
+    }
+
+    /**
+     * Writes the conference data of {@code db} to a new snapshot database, along with the
+     * database version and the timestamp of the data, as read by
+     * {@link ScheduleDatabase#copySnapshot}.
+     */
+    private static void writeSnapshot(SQLiteDatabase db, File snapshotFile, String dataTimestamp) {
+        snapshotFile.delete();
+        List<String> tables = new ArrayList<>();
+        for (String table : ScheduleDatabase.CONFERENCE_DATA_TABLES) {
+            tables.add(table);
+        }
+        Cursor cursor = db.rawQuery("SELECT name FROM sqlite_master WHERE type='table'"
+                + " AND name LIKE '" + Tables.SESSIONS_SEARCH + "\\_%' ESCAPE '\\'", null);
+        try {
+            while (cursor.moveToNext()) {
+                tables.add(cursor.getString(0));
+            }
+        } finally {
+            cursor.close();
+        }
+
+        db.execSQL("ATTACH DATABASE ? AS snapshot", new Object[]{snapshotFile.getPath()});
+        try {
+            for (String table : tables) {
+                db.execSQL("CREATE TABLE snapshot." + table + " AS SELECT * FROM main." + table);
+            }
+            db.execSQL("CREATE TABLE snapshot." + ScheduleDatabase.SNAPSHOT_METADATA_TABLE + "("
+                    + ScheduleDatabase.SNAPSHOT_DATA_TIMESTAMP + " TEXT)");
+            db.execSQL("INSERT INTO snapshot." + ScheduleDatabase.SNAPSHOT_METADATA_TABLE
+                    + " VALUES(?)", new Object[]{dataTimestamp});
+            db.execSQL("PRAGMA snapshot.user_version=" + db.getVersion());
+        } finally {
+            db.execSQL("DETACH DATABASE snapshot");
+        }
+    }
+}
@@ -0,0 +1,167 @@
+/*
+ * Copyright 2016 Google Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.samples.apps.iosched.provider;
+
+import android.content.ContentValues;
+import android.database.Cursor;
+import android.database.DatabaseUtils;
+import android.database.sqlite.SQLiteDatabase;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+import android.test.suitebuilder.annotation.LargeTest;
+import android.util.Log;
+
+import com.google.samples.apps.iosched.BuildConfig;
+import com.google.samples.apps.iosched.R;
+import com.google.samples.apps.iosched.io.JSONHandler;
+import com.google.samples.apps.iosched.sync.ConferenceDataHandler;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Compares inserting the rows of the bootstrap data through a {@link BulkInsertHelper}, as the
+ * sync adapter inserts of {@link ScheduleProvider#applyBatch} do, with inserting them one by one
+ * with {@link SQLiteDatabase#insertOrThrow}, as they were before. The rows per second are logged
+ * rather than asserted, as they depend on the device.
+ * <p/>
+ * Each run inserts every row in a transaction that is rolled back, so all runs start from the
+ * same imported data.
+ */
+@RunWith(AndroidJUnit4.class)
+@LargeTest
+public class BulkInsertHelperBenchmarkTest {
+
+    private static final String TAG = "BulkInsertBenchmark";
+
+    private static final int RUNS = 5;
+
+    private ThrowawayScheduleContext mContext;
+
+    private SQLiteDatabase mDatabase;
+
+    /**
+     * The rows of the bootstrap data, by table.
+     */
+    private Map<String, List<ContentValues>> mRows;
+
+    private int mRowCount;
+
+    @Before
+    public void setUp() throws IOException {
+        mContext = new ThrowawayScheduleContext(InstrumentationRegistry.getTargetContext());
+        Reader bootstrapJson = JSONHandler.openResource(mContext, R.raw.bootstrap_data);
+        try {
+            new ConferenceDataHandler(mContext).applyConferenceData(new Reader[]{bootstrapJson},
+                    BuildConfig.BOOTSTRAP_DATA_TIMESTAMP, false);
+        } finally {
+            bootstrapJson.close();
+        }
+        mDatabase = mContext.getDatabase();
+        mRows = new LinkedHashMap<>();
+        for (String table : ScheduleDatabase.CONFERENCE_DATA_TABLES) {
+            List<ContentValues> rows = readRows(table);
+            mRows.put(table, rows);
+            mRowCount += rows.size();
+        }
+    }
+
+    @After
+    public void tearDown() {
+        mContext.close();
+    }
+
+    @Test
+    public void insert_BootstrapData_BulkInsertHelperVsInsertOrThrow() {
+        assertTrue(mRowCount > 0);
+        // The first runs warm up the statement caches of SQLite and the JIT; keep the best run.
+        long insertOrThrowTime = Long.MAX_VALUE;
+        long bulkInsertHelperTime = Long.MAX_VALUE;
+        for (int i = 0; i < RUNS; i++) {
+            insertOrThrowTime = Math.min(insertOrThrowTime, timeInserts(false));
+            bulkInsertHelperTime = Math.min(bulkInsertHelperTime, timeInserts(true));
+        }
+        Log.i(TAG, mRowCount + " rows inserted with insertOrThrow in " + insertOrThrowTime
+                + "ms (" + rowsPerSecond(insertOrThrowTime) + " rows/sec), with BulkInsertHelper in "
+                + bulkInsertHelperTime + "ms (" + rowsPerSecond(bulkInsertHelperTime)
+                + " rows/sec).");
+    }
+
+    /**
+     * Replaces the rows of every table by the same rows, in a transaction that is rolled back.
+     *
+     * @return The time taken by the inserts, in milliseconds.
+     */
+    private long timeInserts(boolean useBulkInsertHelper) {
+        BulkInsertHelper bulkInsertHelper = new BulkInsertHelper(mDatabase);
+        long time = 0;
+        mDatabase.beginTransaction();
+        try {
+            for (Map.Entry<String, List<ContentValues>> entry : mRows.entrySet()) {
+                String table = entry.getKey();
+                mDatabase.delete(table, null, null);
+                long start = System.nanoTime();
+                for (ContentValues row : entry.getValue()) {
+                    if (useBulkInsertHelper) {
+                        bulkInsertHelper.insert(table, row);
+                    } else {
+                        mDatabase.insertOrThrow(table, null, row);
+                    }
+                }
+                time += System.nanoTime() - start;
+                assertThat(table, DatabaseUtils.queryNumEntries(mDatabase, table),
+                        is((long) entry.getValue().size()));
+            }
+        } finally {
+            mDatabase.endTransaction();
+            bulkInsertHelper.close();
+        }
+        return time / 1000000;
+    }
+
+    private long rowsPerSecond(long time) {
+        return mRowCount * 1000L / Math.max(1, time);
+    }
+
+    private List<ContentValues> readRows(String table) {
+        List<ContentValues> rows = new ArrayList<>();
+        Cursor cursor = mDatabase.query(table, null, null, null, null, null, null);
+        try {
+            while (cursor.moveToNext()) {
+                ContentValues row = new ContentValues();
+                DatabaseUtils.cursorRowToContentValues(cursor, row);
+                rows.add(row);
+            }
+        } finally {
+            cursor.close();
+        }
+        return rows;
+    }
+}
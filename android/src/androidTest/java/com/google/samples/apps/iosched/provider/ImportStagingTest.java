@@ -0,0 +1,171 @@
+/*
+ * Copyright 2016 Google Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.samples.apps.iosched.provider;
+
+import android.content.ContentProviderOperation;
+import android.content.ContentValues;
+import android.database.DatabaseUtils;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteException;
+import android.net.Uri;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+import android.test.suitebuilder.annotation.MediumTest;
+
+import com.google.samples.apps.iosched.provider.ScheduleContract.MySchedule;
+import com.google.samples.apps.iosched.provider.ScheduleContract.Sessions;
+import com.google.samples.apps.iosched.provider.ScheduleDatabase.SessionsTags;
+import com.google.samples.apps.iosched.provider.ScheduleDatabase.Tables;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+/**
+ * Checks that the conference data imports {@link ScheduleProvider#applyBatch} stages in
+ * {@link ImportStaging} are applied as a whole, with the same effect as writing the tables
+ * directly. The imports run in a {@link ThrowawayScheduleContext}.
+ */
+@RunWith(AndroidJUnit4.class)
+@MediumTest
+public class ImportStagingTest {
+
+    private static final String ACCOUNT_NAME = "account";
+
+    private static final Uri SESSIONS_URI =
+            ScheduleContractHelper.setUriAsCalledFromSyncAdapter(Sessions.CONTENT_URI);
+
+    private ThrowawayScheduleContext mContext;
+
+    private SQLiteDatabase mDatabase;
+
+    @Before
+    public void setUp() {
+        mContext = new ThrowawayScheduleContext(InstrumentationRegistry.getTargetContext());
+        mDatabase = mContext.getDatabase();
+    }
+
+    @After
+    public void tearDown() {
+        mContext.close();
+    }
+
+    @Test
+    public void applyBatch_Import_WritesChangesAndKeepsUserData() throws Exception {
+        // Given two tagged sessions in the user's schedule
+        insertSession("A", "Title A");
+        insertSession("B", "Title B");
+        insertScheduledSession("A");
+        insertScheduledSession("B");
+
+        // When an import updates the first one, deletes the second one and adds a third one
+        ArrayList<ContentProviderOperation> batch = new ArrayList<ContentProviderOperation>();
+        batch.add(ContentProviderOperation.newUpdate(SESSIONS_URI)
+                .withSelection(Sessions.SESSION_ID + "=?", new String[]{"A"})
+                .withValue(Sessions.SESSION_TITLE, "New title A")
+                .build());
+        batch.add(ContentProviderOperation.newDelete(SESSIONS_URI)
+                .withSelection(Sessions.SESSION_ID + "=?", new String[]{"B"})
+                .build());
+        batch.add(newSessionInsert("C", "Title C"));
+        batch.add(newTagInsert("C"));
+        applyBatch(batch);
+
+        // Then the sessions are written, the mappings and schedule of the deleted one are dropped
+        // along with it, and the updated one stays in the schedule
+        assertThat(count(Tables.SESSIONS, null), is(2L));
+        assertThat(DatabaseUtils.stringForQuery(mDatabase, "SELECT " + Sessions.SESSION_TITLE
+                + " FROM " + Tables.SESSIONS + " WHERE " + Sessions.SESSION_ID + "='A'", null),
+                is("New title A"));
+        assertThat(count(Tables.SESSIONS_TAGS, SessionsTags.SESSION_ID + "='B'"), is(0L));
+        assertThat(count(Tables.SESSIONS_TAGS, SessionsTags.SESSION_ID + "='C'"), is(1L));
+        assertThat(count(Tables.MY_SCHEDULE, MySchedule.SESSION_ID + "='A'"), is(1L));
+        assertThat(count(Tables.MY_SCHEDULE, MySchedule.SESSION_ID + "='B'"), is(0L));
+    }
+
+    @Test
+    public void applyBatch_ImportFailingAfterSeveralTransactions_LeavesTablesUnchanged()
+            throws Exception {
+        // Given a session
+        insertSession("A", "Title A");
+
+        // When an import of more sessions than a transaction holds fails on its last one
+        ArrayList<ContentProviderOperation> batch = new ArrayList<ContentProviderOperation>();
+        for (int i = 0; i < 1200; i++) {
+            batch.add(newSessionInsert("S" + i, "Title " + i));
+        }
+        batch.add(ContentProviderOperation.newInsert(SESSIONS_URI)
+                .withValue(Sessions.SESSION_ID, "Invalid")
+                .build());
+        try {
+            applyBatch(batch);
+            fail("The invalid session was imported");
+        } catch (SQLiteException expected) {
+            // Expected: the session start and end are missing.
+        }
+
+        // Then none of the import is applied
+        assertThat(count(Tables.SESSIONS, null), is(1L));
+    }
+
+    private void applyBatch(ArrayList<ContentProviderOperation> batch) throws Exception {
+        mContext.getContentResolver().applyBatch(ScheduleContract.CONTENT_AUTHORITY, batch);
+    }
+
+    private void insertSession(String sessionId, String title) throws Exception {
+        ArrayList<ContentProviderOperation> batch = new ArrayList<ContentProviderOperation>();
+        batch.add(newSessionInsert(sessionId, title));
+        batch.add(newTagInsert(sessionId));
+        applyBatch(batch);
+    }
+
+    private void insertScheduledSession(String sessionId) {
+        ContentValues values = new ContentValues();
+        values.put(MySchedule.SESSION_ID, sessionId);
+        values.put(MySchedule.MY_SCHEDULE_ACCOUNT_NAME, ACCOUNT_NAME);
+        mDatabase.insertOrThrow(Tables.MY_SCHEDULE, null, values);
+    }
+
+    private static ContentProviderOperation newSessionInsert(String sessionId, String title) {
+        return ContentProviderOperation.newInsert(SESSIONS_URI)
+                .withValue(ScheduleContract.SyncColumns.UPDATED, 0)
+                .withValue(Sessions.SESSION_ID, sessionId)
+                .withValue(Sessions.SESSION_TITLE, title)
+                .withValue(Sessions.SESSION_START, 0)
+                .withValue(Sessions.SESSION_END, 1)
+                .build();
+    }
+
+    private static ContentProviderOperation newTagInsert(String sessionId) {
+        return ContentProviderOperation.newInsert(ScheduleContractHelper
+                .setUriAsCalledFromSyncAdapter(Sessions.buildTagsDirUri(sessionId)))
+                .withValue(SessionsTags.SESSION_ID, sessionId)
+                .withValue(SessionsTags.TAG_ID, "TAG")
+                .build();
+    }
+
+    private long count(String table, String selection) {
+        return DatabaseUtils.queryNumEntries(mDatabase, table, selection);
+    }
+}
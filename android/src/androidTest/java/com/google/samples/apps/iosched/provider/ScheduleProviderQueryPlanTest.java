@@ -0,0 +1,163 @@
+/*
+ * Copyright 2016 Google Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.samples.apps.iosched.provider;
+
+import android.content.ContentProviderClient;
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.net.Uri;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+import android.test.suitebuilder.annotation.MediumTest;
+
+import com.google.samples.apps.iosched.util.SelectionBuilder;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Runs {@code EXPLAIN QUERY PLAN} on the query the {@link ScheduleProvider} builds for each
+ * {@link ScheduleUriEnum}, and fails if one of them reads a table in full where an index should
+ * have been used.
+ */
+@RunWith(AndroidJUnit4.class)
+@MediumTest
+public class ScheduleProviderQueryPlanTest {
+
+    private static final String FAKE_ACCOUNT_NAME = "account@example.com";
+
+    /**
+     * Queries listing a whole table, which may scan the table they start from. The tables they
+     * join must still be searched through an index.
+     */
+    private static final EnumSet<ScheduleUriEnum> WHOLE_TABLE_QUERIES = EnumSet.of(
+            ScheduleUriEnum.BLOCKS,
+            ScheduleUriEnum.CARDS,
+            ScheduleUriEnum.TAGS,
+            ScheduleUriEnum.ROOMS,
+            ScheduleUriEnum.SESSIONS,
+            ScheduleUriEnum.SESSIONS_COUNTER,
+            // Selects on whether a session is starred or a keynote, which no index can serve.
+            ScheduleUriEnum.SESSIONS_MY_SCHEDULE,
+            ScheduleUriEnum.SPEAKERS,
+            ScheduleUriEnum.ANNOUNCEMENTS,
+            ScheduleUriEnum.MAPMARKERS,
+            ScheduleUriEnum.MAPTILES,
+            ScheduleUriEnum.FEEDBACK_ALL,
+            ScheduleUriEnum.HASHTAGS,
+            ScheduleUriEnum.VIDEOS);
+
+    private ScheduleProvider mProvider;
+
+    private ContentProviderClient mProviderClient;
+
+    private SQLiteDatabase mDatabase;
+
+    @Before
+    public void setUp() {
+        Context context = InstrumentationRegistry.getTargetContext();
+        mProviderClient = context.getContentResolver()
+                .acquireContentProviderClient(ScheduleContract.CONTENT_AUTHORITY);
+        mProvider = (ScheduleProvider) mProviderClient.getLocalContentProvider();
+        mDatabase = new ScheduleDatabase(context).getReadableDatabase();
+    }
+
+    @After
+    public void tearDown() {
+        mDatabase.close();
+        mProviderClient.release();
+    }
+
+    @Test
+    public void expandedSelections_DoNotScanTablesInFull() {
+        List<String> failures = new ArrayList<>();
+        int checkedQueries = 0;
+        for (ScheduleUriEnum uriEnum : ScheduleUriEnum.values()) {
+            SelectionBuilder builder;
+            try {
+                builder = mProvider.buildExpandedSelection(buildUri(uriEnum), uriEnum.code);
+            } catch (UnsupportedOperationException e) {
+                // Not queried through an expanded selection.
+                continue;
+            }
+            checkedQueries++;
+
+            String sql = builder.buildQuery(false, null, null, null);
+            List<String> plan = explainQueryPlan(sql, builder.getSelectionArgs());
+            boolean mayScanFirstTable = WHOLE_TABLE_QUERIES.contains(uriEnum);
+            boolean firstTable = true;
+            for (String detail : plan) {
+                if (detail.contains("AUTOMATIC")) {
+                    failures.add(uriEnum + " builds a temporary index: " + detail);
+                } else if (isFullScan(detail) && !(firstTable && mayScanFirstTable)) {
+                    failures.add(uriEnum + " scans a table in full: " + detail);
+                }
+                if (detail.startsWith("SCAN") || detail.startsWith("SEARCH")) {
+                    firstTable = false;
+                }
+            }
+        }
+
+        assertTrue("No query was checked", checkedQueries > 0);
+        if (!failures.isEmpty()) {
+            fail(failures.toString());
+        }
+    }
+
+    private List<String> explainQueryPlan(String sql, String[] selectionArgs) {
+        List<String> plan = new ArrayList<>();
+        Cursor cursor = mDatabase.rawQuery("EXPLAIN QUERY PLAN " + sql, selectionArgs);
+        try {
+            int detailColumn = cursor.getColumnIndexOrThrow("detail");
+            while (cursor.moveToNext()) {
+                plan.add(cursor.getString(detailColumn));
+            }
+        } finally {
+            cursor.close();
+        }
+        return plan;
+    }
+
+    /**
+     * Returns whether a query plan step reads a whole table or index. Full-text tables are
+     * searched through their own index, which the plan also reports as a scan.
+     */
+    private static boolean isFullScan(String detail) {
+        return detail.startsWith("SCAN") && !detail.contains("VIRTUAL TABLE");
+    }
+
+    /**
+     * Builds a {@link Uri} matching {@code uriEnum}, with placeholder values for its wild cards.
+     */
+    private static Uri buildUri(ScheduleUriEnum uriEnum) {
+        // Intervals are written as "start-end".
+        String placeholder = uriEnum == ScheduleUriEnum.SESSIONS_UNSCHEDULED ? "0-1" : "0";
+        String path = uriEnum.path.replace("*", placeholder).replace("#", "0");
+        Uri uri = ScheduleContract.BASE_CONTENT_URI.buildUpon().appendEncodedPath(path).build();
+        return ScheduleContractHelper.addOverrideAccountName(uri, FAKE_ACCOUNT_NAME);
+    }
+}
@@ -0,0 +1,175 @@
+/*
+ * Copyright 2016 Google Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.samples.apps.iosched.provider;
+
+import android.database.Cursor;
+import android.net.Uri;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+import android.test.suitebuilder.annotation.LargeTest;
+import android.util.Log;
+
+import com.google.samples.apps.iosched.BuildConfig;
+import com.google.samples.apps.iosched.R;
+import com.google.samples.apps.iosched.io.JSONHandler;
+import com.google.samples.apps.iosched.sync.ConferenceDataHandler;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Compares the relevance order of session searches with the order they were shown in before,
+ * {@link ScheduleContract.Sessions#SORT_BY_TYPE_THEN_TIME}, on the bootstrap data.
+ * <p/>
+ * The quality of an order is measured by searching each session by the first words of its title,
+ * as a user looking for it would type, and taking the mean reciprocal rank of the session in the
+ * results. The times of the searches are logged rather than asserted, as they depend on the
+ * device.
+ */
+@RunWith(AndroidJUnit4.class)
+@LargeTest
+public class SessionSearchBenchmarkTest {
+
+    private static final String TAG = "SessionSearchBenchmark";
+
+    /**
+     * The number of words of the title a session is searched by.
+     */
+    private static final int QUERY_WORDS = 2;
+
+    /**
+     * The limit of the ranked searches, as the Explore sessions screen uses.
+     */
+    private static final int SEARCH_LIMIT = 50;
+
+    private static final String[] PROJECTION = {
+            ScheduleContract.Sessions.SESSION_ID,
+            ScheduleContract.Sessions.SEARCH_SNIPPET
+    };
+
+    private ThrowawayScheduleContext mContext;
+
+    @Before
+    public void setUp() throws IOException {
+        mContext = new ThrowawayScheduleContext(InstrumentationRegistry.getTargetContext());
+        Reader bootstrapJson = JSONHandler.openResource(mContext, R.raw.bootstrap_data);
+        try {
+            new ConferenceDataHandler(mContext).applyConferenceData(new Reader[]{bootstrapJson},
+                    BuildConfig.BOOTSTRAP_DATA_TIMESTAMP, false);
+        } finally {
+            bootstrapJson.close();
+        }
+    }
+
+    @After
+    public void tearDown() {
+        mContext.close();
+    }
+
+    @Test
+    public void search_SessionTitles_RelevanceOrderRanksSessionsHigher() {
+        // Given a query for each session, made of the first words of its title
+        List<String> sessionIds = new ArrayList<>();
+        List<String> queries = new ArrayList<>();
+        Cursor cursor = mContext.getContentResolver().query(ScheduleContract.Sessions.CONTENT_URI,
+                new String[]{ScheduleContract.Sessions.SESSION_ID,
+                        ScheduleContract.Sessions.SESSION_TITLE}, null, null, null);
+        try {
+            while (cursor.moveToNext()) {
+                String query = toQuery(cursor.getString(1));
+                if (!query.isEmpty()) {
+                    sessionIds.add(cursor.getString(0));
+                    queries.add(query);
+                }
+            }
+        } finally {
+            cursor.close();
+        }
+        assertTrue(!queries.isEmpty());
+
+        // When the sessions are searched in relevance order, with the limit of the Explore
+        // sessions screen, and in the order searches were shown before, without a limit
+        double relevanceRanks = 0;
+        double previousRanks = 0;
+        long relevanceTime = 0;
+        long previousTime = 0;
+        for (int i = 0; i < queries.size(); i++) {
+            long start = System.nanoTime();
+            relevanceRanks += reciprocalRank(sessionIds.get(i),
+                    ScheduleContract.Sessions.buildSearchUri(queries.get(i), SEARCH_LIMIT), null);
+            relevanceTime += System.nanoTime() - start;
+            start = System.nanoTime();
+            previousRanks += reciprocalRank(sessionIds.get(i),
+                    ScheduleContract.Sessions.buildSearchUri(queries.get(i)),
+                    ScheduleContract.Sessions.SORT_BY_TYPE_THEN_TIME);
+            previousTime += System.nanoTime() - start;
+        }
+
+        // Then the sessions are found closer to the top in relevance order
+        double relevanceScore = relevanceRanks / queries.size();
+        double previousScore = previousRanks / queries.size();
+        Log.i(TAG, queries.size() + " searches. Relevance order: mean reciprocal rank "
+                + String.format(Locale.US, "%.3f", relevanceScore) + ", "
+                + relevanceTime / 1000 / queries.size() + "us per search. Type then time order: "
+                + "mean reciprocal rank " + String.format(Locale.US, "%.3f", previousScore) + ", "
+                + previousTime / 1000 / queries.size() + "us per search.");
+        assertTrue(relevanceScore >= previousScore);
+    }
+
+    /**
+     * @return The first {@link #QUERY_WORDS} words of {@code title}, in lower case so that none is
+     * taken for an operator, or an empty string if it has none.
+     */
+    private static String toQuery(String title) {
+        String[] words = title.toLowerCase(Locale.US).replaceAll("[^\\p{L}\\p{N}]+", " ").trim()
+                .split(" ");
+        StringBuilder query = new StringBuilder();
+        for (int i = 0; i < words.length && i < QUERY_WORDS; i++) {
+            query.append(i > 0 ? " " : "").append(words[i]);
+        }
+        return query.toString();
+    }
+
+    /**
+     * @return 1 / the position of {@code sessionId} in the results of the search, or 0 if it is
+     * not found.
+     */
+    private double reciprocalRank(String sessionId, Uri searchUri, String sortOrder) {
+        Cursor cursor = mContext.getContentResolver().query(searchUri, PROJECTION, null, null,
+                sortOrder);
+        try {
+            while (cursor.moveToNext()) {
+                if (sessionId.equals(cursor.getString(0))) {
+                    return 1.0 / (cursor.getPosition() + 1);
+                }
+            }
+            return 0;
+        } finally {
+            cursor.close();
+        }
+    }
+}
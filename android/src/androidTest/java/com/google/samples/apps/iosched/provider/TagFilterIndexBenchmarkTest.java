@@ -0,0 +1,79 @@
+/*
+ * Copyright 2016 Google Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.samples.apps.iosched.provider;
+
+import android.support.test.runner.AndroidJUnit4;
+import android.test.suitebuilder.annotation.LargeTest;
+import android.util.Log;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Measures filtering a catalog of 1000 sessions by a topic, two types and a theme with a {@link
+ * TagFilterIndex}. The time is logged rather than asserted, as it depends on the device.
+ */
+@RunWith(AndroidJUnit4.class)
+@LargeTest
+public class TagFilterIndexBenchmarkTest {
+
+    private static final String TAG = "TagFilterIndexBenchmark";
+
+    private static final String[] CATEGORIES = {"TOPIC", "TYPE", "THEME"};
+
+    private static final int TAGS_PER_CATEGORY = 20;
+
+    private static final int SESSIONS = 1000;
+
+    private static final int ITERATIONS = 10000;
+
+    @Test
+    public void findSessions_FullCatalog() {
+        TagFilterIndex index = new TagFilterIndex();
+        for (String category : CATEGORIES) {
+            for (int t = 0; t < TAGS_PER_CATEGORY; t++) {
+                index.addTag(category + "_" + t, category);
+            }
+        }
+        Random random = new Random(0);
+        for (int session = 1; session <= SESSIONS; session++) {
+            for (String category : CATEGORIES) {
+                index.addSessionTag(session, category + "_" + random.nextInt(TAGS_PER_CATEGORY));
+            }
+        }
+        String[] filter = {"TOPIC_3", "TYPE_1", "TYPE_2", "THEME_0"};
+
+        // The first runs warm up the JIT.
+        int matches = 0;
+        for (int i = 0; i < ITERATIONS; i++) {
+            matches = index.findSessions(filter).length;
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            index.findSessions(filter);
+        }
+        long nanosPerFilter = (System.nanoTime() - start) / ITERATIONS;
+
+        Log.i(TAG, "findSessions over " + SESSIONS + " sessions: " + matches + " matches in "
+                + nanosPerFilter + "ns.");
+        assertTrue(matches > 0);
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright 2016 Google Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.samples.apps.iosched.provider;
+
+import android.content.ContentResolver;
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.database.sqlite.SQLiteDatabase;
+import android.test.RenamingDelegatingContext;
+import android.test.mock.MockContentResolver;
+
+/**
+ * A context whose {@link ScheduleProvider} keeps its data in a throwaway database, for tests that
+ * clear or import the conference data. Deleting the sessions of the app's own database would also
+ * delete the sessions in the user's schedule and their feedback, through the database triggers.
+ * <p/>
+ * The database and shared preferences (where the data timestamp is kept) are renamed, and the
+ * content resolver only knows the throwaway provider, so changes are not notified to the app.
+ * Call {@link #close()} once done, which deletes the database.
+ */
+public class ThrowawayScheduleContext extends RenamingDelegatingContext {
+
+    private static final String FILE_PREFIX = "throwaway.";
+
+    private final MockContentResolver mResolver = new MockContentResolver();
+
+    private final ScheduleProvider mProvider = new ScheduleProvider();
+
+    private ScheduleDatabase mDatabase;
+
+    public ThrowawayScheduleContext(Context targetContext) {
+        super(targetContext, FILE_PREFIX);
+        // Start from an empty database, even if a previous test run did not close its context.
+        ScheduleDatabase.deleteDatabase(this);
+        mProvider.attachInfo(this, null);
+        mResolver.addProvider(ScheduleContract.CONTENT_AUTHORITY, mProvider);
+    }
+
+    @Override
+    public ContentResolver getContentResolver() {
+        return mResolver;
+    }
+
+    @Override
+    public Context getApplicationContext() {
+        return this;
+    }
+
+    @Override
+    public SharedPreferences getSharedPreferences(String name, int mode) {
+        return super.getSharedPreferences(FILE_PREFIX + name, mode);
+    }
+
+    /**
+     * @return The throwaway database, for tests that read or write it directly.
+     */
+    public SQLiteDatabase getDatabase() {
+        if (mDatabase == null) {
+            mDatabase = new ScheduleDatabase(this);
+        }
+        return mDatabase.getWritableDatabase();
+    }
+
+    /**
+     * Shuts the provider down and deletes the throwaway database.
+     */
+    public void close() {
+        if (mDatabase != null) {
+            mDatabase.close();
+        }
+        mProvider.shutdown();
+        ScheduleDatabase.deleteDatabase(this);
+    }
+}
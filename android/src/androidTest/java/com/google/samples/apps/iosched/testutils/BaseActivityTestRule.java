@@ -59,6 +59,18 @@ public class BaseActivityTestRule<T extends Activity> extends IntentsTestRule<T>
         mAttending = attending;
     }
 
+    /**
+     * @param activityClass  The Activity under test
+     * @param attending      Whether the user should be set as attending or not
+     * @param launchActivity Whether the Activity should be launched before each test, or only
+     *                       when the test calls {@link #launchActivity}
+     */
+    public BaseActivityTestRule(final Class<T> activityClass, boolean attending,
+            boolean launchActivity) {
+        super(activityClass, false, launchActivity);
+        mAttending = attending;
+    }
+
     @Override
     protected void beforeActivityLaunched() {
         if (mAttending) {
@@ -17,13 +17,13 @@ package com.google.samples.apps.iosched.testutils;
 import android.content.Context;
 import android.support.test.espresso.IdlingResource;
 
-import com.google.samples.apps.iosched.util.ThrottledContentObserver;
+import com.google.samples.apps.iosched.provider.DataChangeBus;
 import com.google.samples.apps.iosched.util.TimeUtils;
 
 /**
- * An {@link IdlingResource} that waits for the {@link ThrottledContentObserver#THROTTLE_DELAY}.
+ * An {@link IdlingResource} that waits for the {@link DataChangeBus#getDeliveryDelay()}.
  */
-public class ThrottleContentObserverIdlingResource implements IdlingResource {
+public class DataChangeBusIdlingResource implements IdlingResource {
 
     private long mStartTime;
 
@@ -33,20 +33,20 @@ public class ThrottleContentObserverIdlingResource implements IdlingResource {
 
     private ResourceCallback resourceCallback;
 
-    public ThrottleContentObserverIdlingResource(Context context) {
+    public DataChangeBusIdlingResource(Context context) {
         mStartTime = TimeUtils.getCurrentTime(context);
         mContext = context;
     }
 
     @Override
     public String getName() {
-        return ThrottleContentObserverIdlingResource.class.getName();
+        return DataChangeBusIdlingResource.class.getName();
     }
 
     @Override
     public boolean isIdleNow() {
         mElapsedTime = TimeUtils.getCurrentTime(mContext) - mStartTime;
-        boolean idle = mElapsedTime > ThrottledContentObserver.getThrottleDelay();
+        boolean idle = mElapsedTime > DataChangeBus.getDeliveryDelay();
         if (idle) {
             resourceCallback.onTransitionToIdle();
         }
@@ -0,0 +1,86 @@
+/*
+ * Copyright 2016 Google Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.samples.apps.iosched.archframework;
+
+import android.content.CursorLoader;
+import android.database.Cursor;
+import android.database.CursorWrapper;
+
+import static com.google.samples.apps.iosched.util.LogUtils.LOGD;
+import static com.google.samples.apps.iosched.util.LogUtils.makeLogTag;
+
+/**
+ * A {@link CursorLoader} that runs the query of another cursor loader, then reads the data of the
+ * model from the cursor with {@link BackgroundReadable#readDataInBackground}, all on the
+ * loader thread. The loaded cursor is a {@link DataCursor} holding the data read, so that the
+ * main thread only has to apply it to the model.
+ * <p/>
+ * The loader does not observe its cursor: reading the data again is costly, so the view restarts
+ * the query on the {@link com.google.samples.apps.iosched.provider.DataChangeBus} changes of the
+ * tables it reads instead of on every content observer notification.
+ */
+class BackgroundReadLoader<Q extends QueryEnum> extends CursorLoader {
+
+    private static final String TAG = makeLogTag(BackgroundReadLoader.class);
+
+    private final BackgroundReadable<Q> mModel;
+
+    private final Q mQuery;
+
+    /**
+     * The loader created by the model for {@link #mQuery}. It is never started; only its query is
+     * run.
+     */
+    private final CursorLoader mQueryLoader;
+
+    BackgroundReadLoader(BackgroundReadable<Q> model, Q query, CursorLoader queryLoader) {
+        super(queryLoader.getContext());
+        mModel = model;
+        mQuery = query;
+        mQueryLoader = queryLoader;
+    }
+
+    @Override
+    public Cursor loadInBackground() {
+        Cursor cursor = mQueryLoader.loadInBackground();
+        if (cursor == null) {
+            return null;
+        }
+        long start = System.currentTimeMillis();
+        Object data = mModel.readDataInBackground(cursor, mQuery);
+        LOGD(TAG, "Read " + mQuery + " data in " + (System.currentTimeMillis() - start)
+                + "ms.");
+        return new DataCursor(cursor, data);
+    }
+
+    /**
+     * A cursor holding the data read from it by {@link BackgroundReadable#readDataInBackground}.
+     */
+    static class DataCursor extends CursorWrapper {
+
+        private final Object mData;
+
+        DataCursor(Cursor cursor, Object data) {
+            super(cursor);
+            mData = data;
+        }
+
+        Object getData() {
+            return mData;
+        }
+    }
+}
@@ -0,0 +1,55 @@
+/*
+ * Copyright 2016 Google Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.samples.apps.iosched.archframework;
+
+import android.content.CursorLoader;
+import android.database.Cursor;
+import android.os.Bundle;
+
+/**
+ * Implemented by the {@link ModelWithLoaderManager}s that read the data of some of their queries
+ * from the cursor on the loader thread, so that reading a large cursor doesn't hold up the main
+ * thread. The data of these queries is read by {@link #readDataInBackground(Cursor, QueryEnum)},
+ * then applied to the model on the main thread by {@link #applyData(Object, QueryEnum)}, instead
+ * of being read by {@link ModelWithLoaderManager#readDataFromCursor(Cursor, QueryEnum)}.
+ */
+public interface BackgroundReadable<Q extends QueryEnum> {
+
+    /**
+     * @return whether the data of {@code query} is read on the loader thread. This only applies to
+     * the queries whose {@link ModelWithLoaderManager#createCursorLoader(QueryEnum, Bundle)}
+     * returns a {@link CursorLoader}.
+     */
+    public boolean readsDataInBackground(Q query);
+
+    /**
+     * Reads the data of {@code query} from the {@code cursor}, on the loader thread. It must not
+     * change the model, which is used by the main thread in the meantime; instead it returns the
+     * data read, which is passed to {@link #applyData(Object, QueryEnum)}. The returned object must
+     * not be changed afterwards.
+     */
+    public Object readDataInBackground(Cursor cursor, Q query);
+
+    /**
+     * Updates the model with the {@code data} returned by {@link #readDataInBackground(Cursor,
+     * QueryEnum)} for {@code query}, on the main thread.
+     *
+     * @return whether the data was applied, as returned by {@link
+     * ModelWithLoaderManager#readDataFromCursor(Cursor, QueryEnum)}
+     */
+    public boolean applyData(Object data, Q query);
+}
@@ -15,6 +15,7 @@
 package com.google.samples.apps.iosched.archframework;
 
 import android.app.LoaderManager;
+import android.content.CursorLoader;
 import android.content.Loader;
 import android.database.Cursor;
 import android.os.Bundle;
@@ -46,6 +47,13 @@ public abstract class ModelWithLoaderManager<Q extends QueryEnum, UA extends Use
 
     private static final String TAG = makeLogTag(ModelWithLoaderManager.class);
 
+    /**
+     * Whether the queries of {@link BackgroundReadable#readsDataInBackground(QueryEnum)} read
+     * their data on the loader thread. Only turned off by tests, to compare with reading it on
+     * the main thread.
+     */
+    private static volatile boolean sBackgroundReadsEnabled = true;
+
     private LoaderManager mLoaderManager;
 
     private Q[] mQueries;
@@ -226,7 +234,15 @@ public abstract class ModelWithLoaderManager<Q extends QueryEnum, UA extends Use
 
     @Override
     public Loader<Cursor> onCreateLoader(int id, Bundle args) {
-        return createCursorLoader((Q) QueryEnumHelper.getQueryForId(id, mQueries), args);
+        Q query = (Q) QueryEnumHelper.getQueryForId(id, mQueries);
+        Loader<Cursor> loader = createCursorLoader(query, args);
+        if (sBackgroundReadsEnabled && this instanceof BackgroundReadable
+                && ((BackgroundReadable<Q>) this).readsDataInBackground(query)
+                && loader instanceof CursorLoader) {
+            return new BackgroundReadLoader<Q>((BackgroundReadable<Q>) this, query,
+                    (CursorLoader) loader);
+        }
+        return loader;
     }
 
     /**
@@ -242,6 +258,11 @@ public abstract class ModelWithLoaderManager<Q extends QueryEnum, UA extends Use
      */
     public abstract boolean readDataFromCursor(Cursor cursor, Q query);
 
+    @VisibleForTesting
+    public static void setBackgroundReadsEnabled(boolean enabled) {
+        sBackgroundReadsEnabled = enabled;
+    }
+
     @Override
     public void onLoadFinished(Loader<Cursor> loader, Cursor data) {
         Q query = (Q) QueryEnumHelper.getQueryForId(loader.getId(), mQueries);
@@ -254,7 +275,14 @@ public abstract class ModelWithLoaderManager<Q extends QueryEnum, UA extends Use
      */
     @VisibleForTesting
     public void onLoadFinished(Q query, Cursor data) {
-        boolean success = readDataFromCursor(data, query);
+        boolean success;
+        if (data instanceof BackgroundReadLoader.DataCursor
+                && this instanceof BackgroundReadable) {
+            success = ((BackgroundReadable<Q>) this).applyData(
+                    ((BackgroundReadLoader.DataCursor) data).getData(), query);
+        } else {
+            success = readDataFromCursor(data, query);
+        }
         if (mDataUpdateCallbacks.containsKey(query.getId())
                 && mUserActionsLaunchingQueries.containsKey(query.getId())) {
             UserActionCallback callback = mDataUpdateCallbacks.get(query.getId());
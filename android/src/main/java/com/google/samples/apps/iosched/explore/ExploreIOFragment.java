@@ -53,6 +53,7 @@ import com.google.samples.apps.iosched.explore.data.LiveStreamData;
 import com.google.samples.apps.iosched.explore.data.MessageData;
 import com.google.samples.apps.iosched.explore.data.SessionData;
 import com.google.samples.apps.iosched.injection.ModelProvider;
+import com.google.samples.apps.iosched.provider.DataChangeBus;
 import com.google.samples.apps.iosched.provider.ScheduleContract;
 import com.google.samples.apps.iosched.session.SessionDetailActivity;
 import com.google.samples.apps.iosched.settings.ConfMessageCardUtils;
@@ -62,7 +63,6 @@ import com.google.samples.apps.iosched.ui.widget.recyclerview.ItemMarginDecorati
 import com.google.samples.apps.iosched.ui.widget.recyclerview.UpdatableAdapter;
 import com.google.samples.apps.iosched.util.AccountUtils;
 import com.google.samples.apps.iosched.util.ImageLoader;
-import com.google.samples.apps.iosched.util.ThrottledContentObserver;
 import com.google.samples.apps.iosched.util.TimeUtils;
 import com.google.samples.apps.iosched.util.UIUtils;
 
@@ -72,6 +72,8 @@ import java.util.List;
 import static android.content.SharedPreferences.OnSharedPreferenceChangeListener;
 import static com.google.samples.apps.iosched.settings.ConfMessageCardUtils
         .ConferencePrefChangeListener;
+import static com.google.samples.apps.iosched.util.LogUtils.LOGD;
+import static com.google.samples.apps.iosched.util.LogUtils.makeLogTag;
 
 /**
  * Display the Explore I/O cards. There are three styles of cards, which are referred to as Groups
@@ -86,6 +88,8 @@ import static com.google.samples.apps.iosched.settings.ConfMessageCardUtils
 public class ExploreIOFragment extends Fragment
         implements UpdatableView<ExploreIOModel, ExploreIOQueryEnum, ExploreIOUserActionEnum> {
 
+    private static final String TAG = makeLogTag(ExploreIOFragment.class);
+
     /**
      * Used to load images asynchronously on a background thread.
      */
@@ -108,7 +112,24 @@ public class ExploreIOFragment extends Fragment
 
     private List<UserActionListener> mListeners = new ArrayList<>();
 
-    private ThrottledContentObserver mSessionsObserver, mTagsObserver;
+    // Tally of the sessions reloads caused by data changes (for statistical purposes).
+    private int mSessionsReloads = 0;
+
+    /**
+     * Reloads the sessions when they or the user's schedule changed, and the tags with them, as
+     * reloading the sessions drops the photos of the topics and themes. The tags loader reloads
+     * itself when only the tags changed.
+     */
+    private final DataChangeBus.Listener mDataChangeListener = new DataChangeBus.Listener() {
+        @Override
+        public void onDataChanged(DataChangeBus.DataChange change) {
+            mSessionsReloads++;
+            LOGD(TAG, "Reloading sessions for changes of " + change.getChangedPaths() + " ("
+                    + mSessionsReloads + " reloads so far).");
+            fireReloadEvent();
+            fireReloadTagsEvent();
+        }
+    };
 
     private ConferencePrefChangeListener mConfMessagesAnswerChangeListener =
             new ConferencePrefChangeListener() {
@@ -242,21 +263,10 @@ public class ExploreIOFragment extends Fragment
         SharedPreferences sp = PreferenceManager.getDefaultSharedPreferences(getContext());
         sp.registerOnSharedPreferenceChangeListener(mSettingsChangeListener);
 
-        // Register content observers
-        mSessionsObserver = new ThrottledContentObserver(new ThrottledContentObserver.Callbacks() {
-            @Override
-            public void onThrottledContentObserverFired() {
-                fireReloadEvent();
-                fireReloadTagsEvent();
-            }
-        });
-        mTagsObserver = new ThrottledContentObserver(new ThrottledContentObserver.Callbacks() {
-            @Override
-            public void onThrottledContentObserverFired() {
-                fireReloadTagsEvent();
-            }
-        });
-
+        // Subscribe to the changes of the tables the sessions are read from
+        DataChangeBus.getInstance().subscribe(mDataChangeListener,
+                ScheduleContract.Sessions.CONTENT_URI,
+                ScheduleContract.MySchedule.CONTENT_URI);
     }
 
     //取消对一些数据更改的监听
@@ -271,8 +281,7 @@ public class ExploreIOFragment extends Fragment
             SharedPreferences sp = PreferenceManager.getDefaultSharedPreferences(getContext());
             sp.unregisterOnSharedPreferenceChangeListener(mSettingsChangeListener);
         }
-        getActivity().getContentResolver().unregisterContentObserver(mSessionsObserver);
-        getActivity().getContentResolver().unregisterContentObserver(mTagsObserver);
+        DataChangeBus.getInstance().unsubscribe(mDataChangeListener);
     }
 
     /**
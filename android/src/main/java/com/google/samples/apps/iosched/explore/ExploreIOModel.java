@@ -30,6 +30,7 @@ import android.text.TextUtils;
 
 import com.google.samples.apps.iosched.Config;
 import com.google.samples.apps.iosched.R;
+import com.google.samples.apps.iosched.archframework.BackgroundReadable;
 import com.google.samples.apps.iosched.archframework.Model;
 import com.google.samples.apps.iosched.archframework.ModelWithLoaderManager;
 import com.google.samples.apps.iosched.archframework.QueryEnum;
@@ -67,7 +68,8 @@ import static com.google.samples.apps.iosched.util.LogUtils.makeLogTag;
  * the data needed to present the Explore I/O user interface.
  */
 public class ExploreIOModel extends ModelWithLoaderManager<ExploreIOModel.ExploreIOQueryEnum,
-        ExploreIOModel.ExploreIOUserActionEnum> {
+        ExploreIOModel.ExploreIOUserActionEnum>
+        implements BackgroundReadable<ExploreIOModel.ExploreIOQueryEnum> {
 
     private static final String TAG = makeLogTag(ExploreIOModel.class);
 
@@ -78,7 +80,11 @@ public class ExploreIOModel extends ModelWithLoaderManager<ExploreIOModel.Explor
     private LiveStreamData mLiveStreamData;
     private List<ItemGroup> mOrderedTracks;
     private Uri mSessionsUri;
-    private TagMetadata mTagMetadata;
+    /**
+     * Set on the main thread, and also read on the loader thread by {@link
+     * #readSessionsData(Cursor)}.
+     */
+    private volatile TagMetadata mTagMetadata;
     /**
      * Theme groups loaded from the database pre-randomly filtered and stored by topic name. Not
      * shown in current design.
@@ -261,7 +267,7 @@ public class ExploreIOModel extends ModelWithLoaderManager<ExploreIOModel.Explor
     public boolean readDataFromCursor(final Cursor cursor, final ExploreIOQueryEnum query) {
         switch (query) {
             case SESSIONS:
-                readDataFromSessionsCursor(cursor);
+                applySessionsData(readSessionsData(cursor));
                 return true;
             case TAGS:
                 readDataFromTagsCursor(cursor);
@@ -273,6 +279,26 @@ public class ExploreIOModel extends ModelWithLoaderManager<ExploreIOModel.Explor
         return false;
     }
 
+    /**
+     * The sessions are read on the loader thread, as there are many of them and they are grouped
+     * by track and theme as they are read.
+     */
+    @Override
+    public boolean readsDataInBackground(final ExploreIOQueryEnum query) {
+        return query == ExploreIOQueryEnum.SESSIONS;
+    }
+
+    @Override
+    public Object readDataInBackground(final Cursor cursor, final ExploreIOQueryEnum query) {
+        return readSessionsData(cursor);
+    }
+
+    @Override
+    public boolean applyData(final Object data, final ExploreIOQueryEnum query) {
+        applySessionsData((SessionsData) data);
+        return true;
+    }
+
     private void addPhotoUrlToTopicsAndThemes() {
         if (mTracks != null) {
             for (ItemGroup topic : mTracks.values()) {
@@ -359,11 +385,13 @@ public class ExploreIOModel extends ModelWithLoaderManager<ExploreIOModel.Explor
      * As we iterate through the list of sessions we are also watching out for the keynote and any
      * live sessions streaming right now.
      */
-    private void readDataFromSessionsCursor(Cursor cursor) {
+    private SessionsData readSessionsData(Cursor cursor) {
         LOGD(TAG, "Reading session data from cursor.");
 
         boolean atVenue = SettingsUtils.isAttendeeAtVenue(mContext);
+        TagMetadata tagMetadata = mTagMetadata;
 
+        SessionData keynoteData = null;
         LiveStreamData liveStreamData = new LiveStreamData();
         Map<String, ItemGroup> trackGroups = new HashMap<>();
         Map<String, ItemGroup> themeGroups = new HashMap<>();
@@ -388,10 +416,9 @@ public class ExploreIOModel extends ModelWithLoaderManager<ExploreIOModel.Explor
                 String tags = session.getTags();
 
                 if (Config.Tags.SPECIAL_KEYNOTE.equals(session.getMainTag())) {
-                    SessionData keynoteData = new SessionData();
+                    keynoteData = new SessionData();
                     populateSessionFromCursorRow(keynoteData, cursor);
                     rewriteKeynoteDetails(keynoteData);
-                    mKeynoteData = keynoteData;
                 } else if (session.isLiveStreamNow(mContext)) {
                     liveStreamData.addSessionData(session);
                 }
@@ -406,9 +433,9 @@ public class ExploreIOModel extends ModelWithLoaderManager<ExploreIOModel.Explor
                                 trackGroup = new ItemGroup();
                                 trackGroup.setTitleId(rawTag);
                                 trackGroup.setId(rawTag);
-                                if (mTagMetadata != null && mTagMetadata.getTag(rawTag) != null) {
+                                if (tagMetadata != null && tagMetadata.getTag(rawTag) != null) {
                                     trackGroup
-                                            .setPhotoUrl(mTagMetadata.getTag(rawTag).getPhotoUrl());
+                                            .setPhotoUrl(tagMetadata.getTag(rawTag).getPhotoUrl());
                                 }
                                 trackGroups.put(rawTag, trackGroup);
                             }
@@ -420,9 +447,9 @@ public class ExploreIOModel extends ModelWithLoaderManager<ExploreIOModel.Explor
                                 themeGroup = new ItemGroup();
                                 themeGroup.setTitleId(rawTag);
                                 themeGroup.setId(rawTag);
-                                if (mTagMetadata != null && mTagMetadata.getTag(rawTag) != null) {
+                                if (tagMetadata != null && tagMetadata.getTag(rawTag) != null) {
                                     themeGroup
-                                            .setPhotoUrl(mTagMetadata.getTag(rawTag).getPhotoUrl());
+                                            .setPhotoUrl(tagMetadata.getTag(rawTag).getPhotoUrl());
                                 }
                                 themeGroups.put(rawTag, themeGroup);
                             }
@@ -433,18 +460,32 @@ public class ExploreIOModel extends ModelWithLoaderManager<ExploreIOModel.Explor
             } while (cursor.moveToNext());
         }
 
-        if (liveStreamData.getSessions().size() > 0) {
-            mLiveStreamData = liveStreamData;
+        return new SessionsData(keynoteData,
+                liveStreamData.getSessions().size() > 0 ? liveStreamData : null,
+                themeGroups, trackGroups);
+    }
+
+    /**
+     * Replaces the sessions of the model with {@code data}, on the main thread.
+     */
+    private void applySessionsData(SessionsData data) {
+        if (data.mKeynoteData != null) {
+            mKeynoteData = data.mKeynoteData;
         }
-        mThemes = themeGroups;
-        mTracks = trackGroups;
+        if (data.mLiveStreamData != null) {
+            mLiveStreamData = data.mLiveStreamData;
+        }
+        mThemes = data.mThemes;
+        mTracks = data.mTracks;
         mOrderedTracks = null;
+        // The tags may have been loaded while the sessions were read.
+        addPhotoUrlToTopicsAndThemes();
     }
 
     private void readDataFromTagsCursor(Cursor cursor) {
         LOGD(TAG, "TAGS query loaded");
         if (cursor != null && cursor.moveToFirst()) {
-            mTagMetadata = new TagMetadata(cursor);
+            mTagMetadata = TagMetadata.fromCursor(cursor);
         }
 
         addPhotoUrlToTopicsAndThemes();
@@ -487,6 +528,35 @@ public class ExploreIOModel extends ModelWithLoaderManager<ExploreIOModel.Explor
                 !ConfMessageCardUtils.hasDismissedConfMessageCard(mContext, card);
     }
 
+    /**
+     * The sessions read from the cursor of {@link ExploreIOQueryEnum#SESSIONS}, before they are
+     * handed to the main thread. It is not changed once built.
+     */
+    private static final class SessionsData {
+
+        /**
+         * The keynote, or null if there is none.
+         */
+        private final SessionData mKeynoteData;
+
+        /**
+         * The sessions streaming right now, or null if there are none.
+         */
+        private final LiveStreamData mLiveStreamData;
+
+        private final Map<String, ItemGroup> mThemes;
+
+        private final Map<String, ItemGroup> mTracks;
+
+        private SessionsData(SessionData keynoteData, LiveStreamData liveStreamData,
+                Map<String, ItemGroup> themes, Map<String, ItemGroup> tracks) {
+            mKeynoteData = keynoteData;
+            mLiveStreamData = liveStreamData;
+            mThemes = themes;
+            mTracks = tracks;
+        }
+    }
+
     /**
      * Enumeration of the possible queries that can be done by this Model to retrieve data.
      */
@@ -256,7 +256,7 @@ public class ExploreSessionsActivity extends BaseActivity
     public void onLoadFinished(Loader<Cursor> loader, Cursor cursor) {
         switch (loader.getId()) {
             case TAG_METADATA_TOKEN:
-                mTagMetadata = new TagMetadata(cursor);
+                mTagMetadata = TagMetadata.fromCursor(cursor);
                 onTagMetadataLoaded();
                 break;
             default:
@@ -388,14 +388,12 @@ public class ExploreSessionsActivity extends BaseActivity
         Uri uri = mCurrentUri;
 
         if (uri == null) {
-            uri = ScheduleContract.Sessions.buildCategoryTagFilterUri(
+            uri = ScheduleContract.Sessions.buildTagFilterUri(
                     ScheduleContract.Sessions.CONTENT_URI,
-                    mTagFilterHolder.toStringArray(),
-                    mTagFilterHolder.getCategoryCount());
+                    mTagFilterHolder.toStringArray());
         } else { // build a uri with the specific filters
-            uri = ScheduleContract.Sessions.buildCategoryTagFilterUri(uri,
-                    mTagFilterHolder.toStringArray(),
-                    mTagFilterHolder.getCategoryCount());
+            uri = ScheduleContract.Sessions.buildTagFilterUri(uri,
+                    mTagFilterHolder.toStringArray());
         }
         setHeader();
         Intent intent = new Intent(Intent.ACTION_VIEW, uri);
@@ -178,7 +178,7 @@ public class ExploreSessionsFragment extends Fragment implements
                 reloadSessionData(cursor);
                 break;
             case TAG_METADATA_TOKEN:
-                mTagMetadata = new TagMetadata(cursor);
+                mTagMetadata = TagMetadata.fromCursor(cursor);
                 break;
             default:
                 cursor.close();
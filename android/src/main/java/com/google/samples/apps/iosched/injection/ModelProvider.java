@@ -89,4 +89,15 @@ public class ModelProvider {
         }
     }
 
+    /**
+     * Removes the stub models set by {@link #setStubModel(Model)}, so the real models are used.
+     */
+    public static void resetStubModels() {
+        stubSessionDetailModel = null;
+        stubMyScheduleModel = null;
+        stubSessionFeedbackModel = null;
+        stubVideoLibraryModel = null;
+        stubExploreIOModel = null;
+    }
+
 }
@@ -18,15 +18,14 @@ package com.google.samples.apps.iosched.io;
 
 import com.google.samples.apps.iosched.io.model.Block;
 import com.google.samples.apps.iosched.provider.ScheduleContract;
-import com.google.samples.apps.iosched.provider.ScheduleContractHelper;
 import com.google.samples.apps.iosched.util.ParserUtils;
-import com.google.gson.Gson;
-import com.google.gson.JsonElement;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
 
 import android.content.ContentProviderOperation;
 import android.content.Context;
-import android.net.Uri;
 
+import java.io.IOException;
 import java.util.ArrayList;
 
 import static com.google.samples.apps.iosched.util.LogUtils.LOGW;
@@ -43,25 +42,36 @@ public class BlocksHandler extends JSONHandler {
 
     @Override
     public void makeContentProviderOperations(ArrayList<ContentProviderOperation> list) {
-        Uri uri = ScheduleContractHelper.setUriAsCalledFromSyncAdapter(
-                ScheduleContract.Blocks.CONTENT_URI);
-        list.add(ContentProviderOperation.newDelete(uri).build());
+        TableDiff diff = loadTableDiff(ScheduleContract.Blocks.CONTENT_URI,
+                ScheduleContract.Blocks.BLOCK_ID, ScheduleContract.Blocks.BLOCK_IMPORT_HASHCODE);
         for (Block block : mBlocks) {
-            outputBlock(block, list);
+            outputBlock(block, diff, list);
         }
+        diff.addDeleteOperations(list);
     }
 
     @Override
-    public void process(JsonElement element) {
-        for (Block block : new Gson().fromJson(element, Block[].class)) {
+    public void process(JsonReader reader) throws IOException {
+        TypeAdapter<Block> adapter = getAdapter(Block.class);
+        reader.beginArray();
+        while (reader.hasNext()) {
+            Block block = adapter.read(reader);
             mBlocks.add(block);
         }
+        reader.endArray();
     }
 
-    private static void outputBlock(Block block, ArrayList<ContentProviderOperation> list) {
-        Uri uri = ScheduleContractHelper.setUriAsCalledFromSyncAdapter(
-                ScheduleContract.Blocks.CONTENT_URI);
-        ContentProviderOperation.Builder builder = ContentProviderOperation.newInsert(uri);
+    private static void outputBlock(Block block, TableDiff diff,
+            ArrayList<ContentProviderOperation> list) {
+        long startTimeL = ParserUtils.parseTime(block.start);
+        long endTimeL = ParserUtils.parseTime(block.end);
+        final String blockId = ScheduleContract.Blocks.generateBlockId(startTimeL, endTimeL);
+        ContentProviderOperation.Builder builder =
+                diff.newOperation(blockId, block.getImportHashcode());
+        if (builder == null) {
+            return;
+        }
+
         String title = block.title != null ? block.title : "";
         String meta = block.subtitle != null ? block.subtitle : "";
 
@@ -72,10 +82,6 @@ public class BlocksHandler extends JSONHandler {
             type = ScheduleContract.Blocks.BLOCK_TYPE_BREAK;
         }
 
-        long startTimeL = ParserUtils.parseTime(block.start);
-        long endTimeL = ParserUtils.parseTime(block.end);
-        final String blockId = ScheduleContract.Blocks.generateBlockId(startTimeL, endTimeL);
-        builder.withValue(ScheduleContract.Blocks.BLOCK_ID, blockId);
         builder.withValue(ScheduleContract.Blocks.BLOCK_TITLE, title);
         builder.withValue(ScheduleContract.Blocks.BLOCK_START, startTimeL);
         builder.withValue(ScheduleContract.Blocks.BLOCK_END, endTimeL);
@@ -16,14 +16,13 @@ package com.google.samples.apps.iosched.io;
 
 import android.content.ContentProviderOperation;
 import android.content.Context;
-import android.net.Uri;
 
-import com.google.gson.Gson;
-import com.google.gson.JsonElement;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
 import com.google.samples.apps.iosched.io.model.Card;
 import com.google.samples.apps.iosched.provider.ScheduleContract;
-import com.google.samples.apps.iosched.provider.ScheduleContractHelper;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.HashMap;
 
@@ -42,29 +41,33 @@ public class CardHandler extends JSONHandler {
     }
 
     @Override
-    public void process(JsonElement element) {
-        for (Card card : new Gson().fromJson(element, Card[].class)) {
+    public void process(JsonReader reader) throws IOException {
+        TypeAdapter<Card> adapter = getAdapter(Card.class);
+        reader.beginArray();
+        while (reader.hasNext()) {
+            Card card = adapter.read(reader);
             mCards.put(card.mId, card);
         }
+        reader.endArray();
     }
 
     @Override
     public void makeContentProviderOperations(ArrayList<ContentProviderOperation> list) {
         LOGI(TAG, "Creating content provider operations for cards: " + mCards.size());
-        Uri uri = ScheduleContractHelper.setUriAsCalledFromSyncAdapter(
-                ScheduleContract.Cards.CONTENT_URI);
-
-        // The list of cards is not large, so for simplicity we delete all of them and repopulate
-        list.add(ContentProviderOperation.newDelete(uri).build());
+        TableDiff diff = loadTableDiff(ScheduleContract.Cards.CONTENT_URI,
+                ScheduleContract.Cards.CARD_ID, ScheduleContract.Cards.CARD_IMPORT_HASHCODE);
         for (Card card : mCards.values()) {
-            ContentProviderOperation.Builder builder = ContentProviderOperation.newInsert(uri);
+            ContentProviderOperation.Builder builder =
+                    diff.newOperation(card.mId, card.getImportHashcode());
+            if (builder == null) {
+                continue;
+            }
             builder.withValue(ScheduleContract.Cards.ACTION_COLOR, card.mActionColor);
             builder.withValue(ScheduleContract.Cards.ACTION_TEXT, card.mActionText);
             builder.withValue(ScheduleContract.Cards.ACTION_URL, card.mActionUrl);
             builder.withValue(ScheduleContract.Cards.ACTION_TYPE, card.mActionType);
             builder.withValue(ScheduleContract.Cards.ACTION_EXTRA, card.mActionExtra);
             builder.withValue(ScheduleContract.Cards.BACKGROUND_COLOR, card.mBackgroundColor);
-            builder.withValue(ScheduleContract.Cards.CARD_ID, card.mId);
             try {
                 long startTime = Card.getEpochMillisFromTimeString(card.mValidFrom);
                 LOGI(TAG, "Processing card with epoch start time: " + startTime);
@@ -88,5 +91,6 @@ public class CardHandler extends JSONHandler {
             builder.withValue(ScheduleContract.Cards.TITLE, card.mTitle);
             list.add(builder.build());
         }
+        diff.addDeleteOperations(list);
     }
 }
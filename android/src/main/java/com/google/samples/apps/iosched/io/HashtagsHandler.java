@@ -19,14 +19,13 @@ package com.google.samples.apps.iosched.io;
 import android.content.ContentProviderOperation;
 import android.content.Context;
 import android.graphics.Color;
-import android.net.Uri;
 
 import com.google.samples.apps.iosched.io.model.Hashtag;
 import com.google.samples.apps.iosched.provider.ScheduleContract;
-import com.google.gson.Gson;
-import com.google.gson.JsonElement;
-import com.google.samples.apps.iosched.provider.ScheduleContractHelper;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.HashMap;
 
@@ -43,24 +42,29 @@ public class HashtagsHandler extends JSONHandler {
     }
 
     @Override
-    public void process(JsonElement element) {
+    public void process(JsonReader reader) throws IOException {
         LOGD(TAG, "process");
-        for (Hashtag hashtag : new Gson().fromJson(element, Hashtag[].class)) {
+        TypeAdapter<Hashtag> adapter = getAdapter(Hashtag.class);
+        reader.beginArray();
+        while (reader.hasNext()) {
+            Hashtag hashtag = adapter.read(reader);
             mHashtags.put(hashtag.name, hashtag);
         }
+        reader.endArray();
     }
 
     @Override
     public void makeContentProviderOperations(ArrayList<ContentProviderOperation> list) {
         LOGD(TAG, "makeContentProviderOperations");
-        Uri uri = ScheduleContractHelper.setUriAsCalledFromSyncAdapter(
-                ScheduleContract.Hashtags.CONTENT_URI);
-        // Remove all the current entries
-        list.add(ContentProviderOperation.newDelete(uri).build());
-        // Insert hashtags
+        TableDiff diff = loadTableDiff(ScheduleContract.Hashtags.CONTENT_URI,
+                ScheduleContract.Hashtags.HASHTAG_NAME,
+                ScheduleContract.Hashtags.HASHTAG_IMPORT_HASHCODE);
         for (Hashtag hashtag : mHashtags.values()) {
-            ContentProviderOperation.Builder builder = ContentProviderOperation.newInsert(uri);
-            builder.withValue(ScheduleContract.Hashtags.HASHTAG_NAME, hashtag.name);
+            ContentProviderOperation.Builder builder =
+                    diff.newOperation(hashtag.name, hashtag.getImportHashcode());
+            if (builder == null) {
+                continue;
+            }
             builder.withValue(ScheduleContract.Hashtags.HASHTAG_DESCRIPTION, hashtag.description);
             try {
                 builder.withValue(ScheduleContract.Hashtags.HASHTAG_COLOR,
@@ -71,6 +75,7 @@ public class HashtagsHandler extends JSONHandler {
             builder.withValue(ScheduleContract.Hashtags.HASHTAG_ORDER, hashtag.order);
             list.add(builder.build());
         }
+        diff.addDeleteOperations(list);
         LOGD(TAG, "Hashtags: " + mHashtags.size());
     }
 
@@ -17,23 +17,35 @@
 package com.google.samples.apps.iosched.io;
 
 import com.google.common.base.Charsets;
-import com.google.gson.JsonElement;
+import com.google.gson.Gson;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
 
 import android.content.ContentProviderOperation;
 import android.content.Context;
+import android.database.Cursor;
+import android.net.Uri;
 
+import com.google.samples.apps.iosched.provider.ScheduleContractHelper;
+
+import java.io.BufferedInputStream;
 import java.io.BufferedReader;
+import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.Reader;
-import java.io.StringWriter;
-import java.io.Writer;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import static com.google.samples.apps.iosched.util.LogUtils.LOGE;
+import static com.google.samples.apps.iosched.util.LogUtils.makeLogTag;
 
 /**
- * Json 数据的解析类，包括两个抽象方法，第一个是处理Json数据对应的JsonElement ；
+ * Json 数据的解析类，包括两个抽象方法，第一个是流式处理Json数据（JsonReader）；
  * 第二个是将数据存储到ContentProvider中<P>
  *
  * 每个Bean都有自己的一个对应的JSONHandler<P>
@@ -42,9 +54,19 @@ import java.util.ArrayList;
  *
  * */
 public abstract class JSONHandler {
+    private static final String TAG = makeLogTag(JSONHandler.class);
 
     protected static Context mContext;
 
+    // Shared Gson instance. Gson caches the TypeAdapter it builds for each model class, so
+    // sharing it means the reflective binding work is only done once per entity type.
+    private static final Gson sGson = new Gson();
+
+    /**
+     * The diffs of the tables this handler writes, in the order they were loaded.
+     */
+    private final ArrayList<TableDiff> mTableDiffs = new ArrayList<>();
+
     public JSONHandler(Context context) {
         mContext = context;
     }
@@ -53,83 +75,101 @@ public abstract class JSONHandler {
     // 之后就可以使用被此方法加工完的List来向ContentProvider中添加数据了
     public abstract void makeContentProviderOperations(ArrayList<ContentProviderOperation> list);
 
-    public abstract void process(JsonElement element);
+    /**
+     * Processes the JSON value the given reader is positioned on (the value of this handler's
+     * top-level key). Implementations should bind entities one at a time with
+     * {@link #getAdapter(Class)} rather than materializing the whole value as a tree, so that
+     * only a single entity is held in its intermediate form at any time.
+     */
+    public abstract void process(JsonReader reader) throws IOException;
 
     /**
-     * Loads a raw resource and returns its content as a String.
+     * Loads the ID and fingerprint of every row of a table, so that
+     * {@link #makeContentProviderOperations} can only write the rows whose entity changed. The
+     * diff is kept, for {@link #getTableDiffs()} to report what the import changed.
      *
-     * @throws IOException If any error was encountered, such as an incorrect resource ID, or
-     *                     inaccessible file.
+     * @param contentUri The URI of the whole table.
+     * @param idColumn The column identifying the imported entity of each row.
+     * @param fingerprintColumn The column holding the fingerprint of each row's entity, or null if
+     *                          the row holds nothing but the ID.
      */
-    public static String parseResource(Context context, int resource) throws IOException {
-        InputStream stream = null;
-        String data;
-        try {
-            stream = context.getResources().openRawResource(resource);
-            data = parseStream(stream);
-        } finally {
-            if (stream != null) {
-                try {
-                    stream.close();
-                } catch (IOException e) {
-                    // Ignore exceptions during stream close, other exceptions thrown earlier will
-                    // be handled by the calling methods
+    protected TableDiff loadTableDiff(Uri contentUri, String idColumn, String fingerprintColumn) {
+        Uri uri = ScheduleContractHelper.setUriAsCalledFromSyncAdapter(contentUri);
+        String tableName = contentUri.getLastPathSegment();
+        String[] projection = fingerprintColumn == null ? new String[]{idColumn}
+                : new String[]{idColumn, fingerprintColumn};
+        HashMap<String, String> fingerprints = new HashMap<>();
+        Cursor cursor = mContext.getContentResolver().query(uri, projection, null, null, null);
+        if (cursor == null) {
+            // Written as if the table was empty: the inserts replace the rows with the same ID.
+            LOGE(TAG, "Error querying " + tableName + " fingerprints (got null cursor)");
+        } else {
+            try {
+                while (cursor.moveToNext()) {
+                    String fingerprint = fingerprintColumn == null ? null : cursor.getString(1);
+                    fingerprints.put(cursor.getString(0), fingerprint == null ? "" : fingerprint);
                 }
+            } finally {
+                cursor.close();
             }
         }
-
-        return data;
+        TableDiff diff = new TableDiff(tableName, uri, idColumn, fingerprintColumn, fingerprints);
+        mTableDiffs.add(diff);
+        return diff;
     }
 
     /**
-     * Loads a file and returns its content as a String.
-     *
-     * @throws IOException If any error was encountered, such as an incorrect resource ID, or
-     *                     inaccessible file.
+     * @return The diffs of the tables written by {@link #makeContentProviderOperations}, with the
+     * number of rows it inserts, updates and deletes in each.
      */
-    public static String parseFile(String filePath) throws IOException {
-        InputStream stream = null;
-        String data;
-        try {
-            stream = new FileInputStream(filePath);
-            data = parseStream(stream);
-        } finally {
-            if (stream != null) {
-                try {
-                    stream.close();
-                } catch (IOException e) {
-                    // Ignore exceptions during stream close, other exceptions thrown earlier will
-                    // be handled by the calling methods
-                }
-            }
-        }
+    public List<TableDiff> getTableDiffs() {
+        return mTableDiffs;
+    }
 
-        return data;
+    /**
+     * Returns the shared, cached {@link TypeAdapter} for the given model class.
+     */
+    protected static <T> TypeAdapter<T> getAdapter(Class<T> type) {
+        return sGson.getAdapter(type);
     }
 
-    private static String parseStream(final InputStream stream) throws IOException {
-        Reader reader = null;
-        Writer writer = new StringWriter();
-        char[] buffer = new char[1024];
+    /**
+     * Opens a raw resource as a buffered UTF-8 {@link Reader}, so it can be streamed into the
+     * import without loading it into a String first. The caller is responsible for closing it.
+     */
+    public static Reader openResource(Context context, int resource) {
+        return new BufferedReader(new InputStreamReader(
+                context.getResources().openRawResource(resource), Charsets.UTF_8));
+    }
 
-        // IO errors are passed up to the calling method and must be caught there.
+    /**
+     * Opens a file as a buffered UTF-8 {@link Reader}. Gzip compressed files are decompressed as
+     * they are read. The caller is responsible for closing it.
+     *
+     * @throws IOException If the file could not be opened.
+     */
+    public static Reader openFile(File file) throws IOException {
+        InputStream stream = new BufferedInputStream(new FileInputStream(file));
         try {
-            reader = new BufferedReader(new InputStreamReader(stream, Charsets.UTF_8));
-            int n;
-            while ((n = reader.read(buffer)) != -1) {
-                writer.write(buffer, 0, n);
-            }
-        } finally {
-            if (reader != null) {
-                try {
-                    reader.close();
-                } catch (IOException e) {
-                    // Ignore exceptions during stream close, other exceptions thrown earlier will
-                    // be handled by the calling methods
-                }
+            if (isGzipped(stream)) {
+                stream = new GZIPInputStream(stream);
             }
+        } catch (IOException ex) {
+            stream.close();
+            throw ex;
         }
+        return new BufferedReader(new InputStreamReader(stream, Charsets.UTF_8));
+    }
 
-        return writer.toString();
+    /**
+     * Returns whether the given stream starts with the gzip magic number, without consuming it.
+     */
+    private static boolean isGzipped(InputStream stream) throws IOException {
+        stream.mark(2);
+        int first = stream.read();
+        int second = stream.read();
+        stream.reset();
+        return first == (GZIPInputStream.GZIP_MAGIC & 0xff)
+                && second == (GZIPInputStream.GZIP_MAGIC >> 8);
     }
 }
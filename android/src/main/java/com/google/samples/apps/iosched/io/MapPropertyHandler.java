@@ -27,9 +27,10 @@ import com.google.samples.apps.iosched.io.map.model.Marker;
 import com.google.samples.apps.iosched.io.map.model.Tile;
 import com.google.samples.apps.iosched.provider.ScheduleContract;
 import com.google.samples.apps.iosched.provider.ScheduleContractHelper;
-import com.google.gson.Gson;
-import com.google.gson.JsonElement;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
@@ -49,8 +50,11 @@ public class MapPropertyHandler extends JSONHandler {
     }
 
     @Override
-    public void process(JsonElement element) {
-        for (MapData mapData : new Gson().fromJson(element, MapData[].class)) {
+    public void process(JsonReader reader) throws IOException {
+        TypeAdapter<MapData> adapter = getAdapter(MapData.class);
+        reader.beginArray();
+        while (reader.hasNext()) {
+            MapData mapData = adapter.read(reader);
             if (mapData.tiles != null) {
                 processTileOverlays(mapData.tiles);
             }
@@ -58,6 +62,7 @@ public class MapPropertyHandler extends JSONHandler {
                 processMarkers(mapData.markers);
             }
         }
+        reader.endArray();
     }
 
     public Collection<Tile> getTileOverlays() {
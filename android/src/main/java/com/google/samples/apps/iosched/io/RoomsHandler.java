@@ -18,14 +18,13 @@ package com.google.samples.apps.iosched.io;
 
 import com.google.samples.apps.iosched.io.model.Room;
 import com.google.samples.apps.iosched.provider.ScheduleContract;
-import com.google.gson.Gson;
-import com.google.gson.JsonElement;
-import com.google.samples.apps.iosched.provider.ScheduleContractHelper;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
 
 import android.content.ContentProviderOperation;
 import android.content.Context;
-import android.net.Uri;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.HashMap;
 
@@ -42,25 +41,30 @@ public class RoomsHandler extends JSONHandler {
     }
 
     @Override
-    public void process(JsonElement element) {
-        for (Room room : new Gson().fromJson(element, Room[].class)) {
+    public void process(JsonReader reader) throws IOException {
+        TypeAdapter<Room> adapter = getAdapter(Room.class);
+        reader.beginArray();
+        while (reader.hasNext()) {
+            Room room = adapter.read(reader);
             mRooms.put(room.id, room);
         }
+        reader.endArray();
     }
 
     @Override
     public void makeContentProviderOperations(ArrayList<ContentProviderOperation> list) {
-        Uri uri = ScheduleContractHelper.setUriAsCalledFromSyncAdapter(
-                ScheduleContract.Rooms.CONTENT_URI);
-
-        // The list of rooms is not large, so for simplicity we delete all of them and repopulate
-        list.add(ContentProviderOperation.newDelete(uri).build());
+        TableDiff diff = loadTableDiff(ScheduleContract.Rooms.CONTENT_URI,
+                ScheduleContract.Rooms.ROOM_ID, ScheduleContract.Rooms.ROOM_IMPORT_HASHCODE);
         for (Room room : mRooms.values()) {
-            ContentProviderOperation.Builder builder = ContentProviderOperation.newInsert(uri);
-            builder.withValue(ScheduleContract.Rooms.ROOM_ID, room.id);
+            ContentProviderOperation.Builder builder =
+                    diff.newOperation(room.id, room.getImportHashcode());
+            if (builder == null) {
+                continue;
+            }
             builder.withValue(ScheduleContract.Rooms.ROOM_NAME, room.name);
             builder.withValue(ScheduleContract.Rooms.ROOM_FLOOR, room.floor);
             list.add(builder.build());
         }
+        diff.addDeleteOperations(list);
     }
 }
@@ -17,15 +17,14 @@
 package com.google.samples.apps.iosched.io;
 
 import com.google.samples.apps.iosched.provider.ScheduleContract;
-import com.google.gson.Gson;
-import com.google.gson.JsonElement;
-import com.google.samples.apps.iosched.provider.ScheduleContractHelper;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
 
 import android.app.SearchManager;
 import android.content.ContentProviderOperation;
 import android.content.Context;
-import android.net.Uri;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.HashSet;
 
@@ -41,22 +40,27 @@ public class SearchSuggestHandler extends JSONHandler {
     }
 
     @Override
-    public void process(JsonElement element) {
-        for (String word : new Gson().fromJson(element, String[].class)) {
+    public void process(JsonReader reader) throws IOException {
+        TypeAdapter<String> adapter = getAdapter(String.class);
+        reader.beginArray();
+        while (reader.hasNext()) {
+            String word = adapter.read(reader);
             mSuggestions.add(word);
         }
+        reader.endArray();
     }
 
     @Override
     public void makeContentProviderOperations(ArrayList<ContentProviderOperation> list) {
-        Uri uri = ScheduleContractHelper.setUriAsCalledFromSyncAdapter(
-                ScheduleContract.SearchSuggest.CONTENT_URI);
-
-        list.add(ContentProviderOperation.newDelete(uri).build());
+        // A word is its own ID, so existing words never need an update.
+        TableDiff diff = loadTableDiff(ScheduleContract.SearchSuggest.CONTENT_URI,
+                SearchManager.SUGGEST_COLUMN_TEXT_1, null);
         for (String word : mSuggestions) {
-            list.add(ContentProviderOperation.newInsert(uri)
-                .withValue(SearchManager.SUGGEST_COLUMN_TEXT_1, word)
-                .build());
+            ContentProviderOperation.Builder builder = diff.newOperation(word, null);
+            if (builder != null) {
+                list.add(builder.build());
+            }
         }
+        diff.addDeleteOperations(list);
     }
 }
@@ -18,10 +18,8 @@ package com.google.samples.apps.iosched.io;
 
 import android.content.ContentProviderOperation;
 import android.content.Context;
-import android.database.Cursor;
 import android.graphics.Color;
 import android.net.Uri;
-import android.provider.BaseColumns;
 import android.support.v4.content.ContextCompat;
 import android.text.TextUtils;
 
@@ -34,18 +32,19 @@ import com.google.samples.apps.iosched.provider.ScheduleContract;
 import com.google.samples.apps.iosched.provider.ScheduleContractHelper;
 import com.google.samples.apps.iosched.provider.ScheduleDatabase;
 import com.google.samples.apps.iosched.util.TimeUtils;
-import com.google.gson.Gson;
-import com.google.gson.JsonElement;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.List;
 
 import static com.google.samples.apps.iosched.util.LogUtils.*;
 
 public class SessionsHandler extends JSONHandler {
     private static final String TAG = makeLogTag(SessionsHandler.class);
+
     private HashMap<String, Session> mSessions = new HashMap<String, Session>();
     private HashMap<String, Tag> mTagMap = null;
     private HashMap<String, Speaker> mSpeakerMap = null;
@@ -58,47 +57,33 @@ public class SessionsHandler extends JSONHandler {
     }
 
     @Override
-    public void process(JsonElement element) {
-        for (Session session : new Gson().fromJson(element, Session[].class)) {
+    public void process(JsonReader reader) throws IOException {
+        TypeAdapter<Session> adapter = getAdapter(Session.class);
+        reader.beginArray();
+        while (reader.hasNext()) {
+            Session session = adapter.read(reader);
             mSessions.put(session.id, session);
         }
+        reader.endArray();
     }
 
     @Override
     public void makeContentProviderOperations(ArrayList<ContentProviderOperation> list) {
-        Uri uri = ScheduleContractHelper.setUriAsCalledFromSyncAdapter(
-                ScheduleContract.Sessions.CONTENT_URI);
-
-        // build a map of session to session import hashcode so we know what to update,
-        // what to insert, and what to delete
-        HashMap<String, String> sessionHashCodes = loadSessionHashCodes();
-        boolean incrementalUpdate = (sessionHashCodes != null) && (sessionHashCodes.size() > 0);
-
-        // set of sessions that we want to keep after the sync
-        HashSet<String> sessionsToKeep = new HashSet<String>();
-
-        if (incrementalUpdate) {
-            LOGD(TAG, "Doing incremental update for sessions.");
-        } else {
-            LOGD(TAG, "Doing full (non-incremental) update for sessions.");
-            list.add(ContentProviderOperation.newDelete(uri).build());
-        }
+        TableDiff diff = loadTableDiff(ScheduleContract.Sessions.CONTENT_URI,
+                ScheduleContract.Sessions.SESSION_ID,
+                ScheduleContract.Sessions.SESSION_IMPORT_HASHCODE);
 
-        int updatedSessions = 0;
         for (Session session : mSessions.values()) {
             // Set the session grouping order in the object, so it can be used in hash calculation
             session.groupingOrder = computeTypeOrder(session);
 
             // compute the incoming session's hashcode to figure out if we need to update
-            String hashCode = session.getImportHashCode();
-            sessionsToKeep.add(session.id);
+            String hashCode = session.getImportHashCode(mSpeakerMap);
+            ContentProviderOperation.Builder builder = diff.newOperation(session.id, hashCode);
 
             // add session, if necessary
-            if (!incrementalUpdate || !sessionHashCodes.containsKey(session.id) ||
-                        !sessionHashCodes.get(session.id).equals(hashCode)) {
-                ++updatedSessions;
-                boolean isNew = !incrementalUpdate || !sessionHashCodes.containsKey(session.id);
-                buildSession(isNew, session, list);
+            if (builder != null) {
+                buildSession(builder, session, list);
 
                 // add relationships to speakers and track
                 buildSessionSpeakerMapping(session, list);
@@ -106,73 +91,16 @@ public class SessionsHandler extends JSONHandler {
             }
         }
 
-        int deletedSessions = 0;
-        if (incrementalUpdate) {
-            for (String sessionId : sessionHashCodes.keySet()) {
-                if (!sessionsToKeep.contains(sessionId)) {
-                    buildDeleteOperation(sessionId, list);
-                    ++deletedSessions;
-                }
-            }
-        }
+        // The mappings of deleted sessions are dropped along with them.
+        diff.addDeleteOperations(list);
 
-        LOGD(TAG, "Sessions: " + (incrementalUpdate ? "INCREMENTAL" : "FULL") + " update. " +
-                updatedSessions + " to update, " + deletedSessions + " to delete. New total: " +
-                mSessions.size());
-    }
-
-    private void buildDeleteOperation(String sessionId, List<ContentProviderOperation> list) {
-        Uri sessionUri = ScheduleContractHelper.setUriAsCalledFromSyncAdapter(
-                ScheduleContract.Sessions.buildSessionUri(sessionId));
-        list.add(ContentProviderOperation.newDelete(sessionUri).build());
-    }
-
-    private HashMap<String, String> loadSessionHashCodes() {
-        Uri uri = ScheduleContractHelper.setUriAsCalledFromSyncAdapter(
-                ScheduleContract.Sessions.CONTENT_URI);
-        LOGD(TAG, "Loading session hashcodes for session import optimization.");
-        Cursor cursor = null;
-        try {
-            cursor = mContext.getContentResolver().query(uri, SessionHashcodeQuery.PROJECTION,
-                    null, null, null);
-            if (cursor == null || cursor.getCount() < 1) {
-                LOGW(TAG, "Warning: failed to load session hashcodes. Not optimizing session import.");
-                return null;
-            }
-            HashMap<String, String> hashcodeMap = new HashMap<String, String>();
-            if (cursor.moveToFirst()) {
-                do {
-                    String sessionId = cursor.getString(SessionHashcodeQuery.SESSION_ID);
-                    String hashcode = cursor.getString(SessionHashcodeQuery.SESSION_IMPORT_HASHCODE);
-                    hashcodeMap.put(sessionId, hashcode == null ? "" : hashcode);
-                } while (cursor.moveToNext());
-            }
-            LOGD(TAG, "Session hashcodes loaded for " + hashcodeMap.size() + " sessions.");
-            return hashcodeMap;
-        } finally {
-            if (cursor != null) {
-                cursor.close();
-            }
-        }
+        LOGD(TAG, diff + ". New total: " + mSessions.size());
     }
 
     StringBuilder mStringBuilder = new StringBuilder();
 
-    private void buildSession(boolean isInsert,
-                              Session session, ArrayList<ContentProviderOperation> list) {
-        ContentProviderOperation.Builder builder;
-        Uri allSessionsUri = ScheduleContractHelper
-                .setUriAsCalledFromSyncAdapter(ScheduleContract.Sessions.CONTENT_URI);
-        Uri thisSessionUri = ScheduleContractHelper
-                .setUriAsCalledFromSyncAdapter(ScheduleContract.Sessions.buildSessionUri(
-                        session.id));
-
-        if (isInsert) {
-            builder = ContentProviderOperation.newInsert(allSessionsUri);
-        } else {
-            builder = ContentProviderOperation.newUpdate(thisSessionUri);
-        }
-
+    private void buildSession(ContentProviderOperation.Builder builder, Session session,
+                              ArrayList<ContentProviderOperation> list) {
         String speakerNames = "";
         if (mSpeakerMap != null) {
             // build human-readable list of speakers
@@ -205,7 +133,6 @@ public class SessionsHandler extends JSONHandler {
         }
 
         builder.withValue(ScheduleContract.SyncColumns.UPDATED, System.currentTimeMillis())
-                .withValue(ScheduleContract.Sessions.SESSION_ID, session.id)
                 .withValue(ScheduleContract.Sessions.SESSION_LEVEL, null)            // Not available
                 .withValue(ScheduleContract.Sessions.SESSION_TITLE, session.title)
                 .withValue(ScheduleContract.Sessions.SESSION_ABSTRACT, session.description)
@@ -235,8 +162,6 @@ public class SessionsHandler extends JSONHandler {
                 .withValue(ScheduleContract.Sessions.SESSION_NOTES_URL, null)        // Not available
                 .withValue(ScheduleContract.Sessions.ROOM_ID, session.room)
                 .withValue(ScheduleContract.Sessions.SESSION_GROUPING_ORDER, session.groupingOrder)
-                .withValue(ScheduleContract.Sessions.SESSION_IMPORT_HASHCODE,
-                        session.getImportHashCode())
                 .withValue(ScheduleContract.Sessions.SESSION_MAIN_TAG, session.mainTag)
                 .withValue(ScheduleContract.Sessions.SESSION_CAPTIONS_URL, session.captionsUrl)
                 .withValue(ScheduleContract.Sessions.SESSION_PHOTO_URL, session.photoUrl)
@@ -318,15 +243,4 @@ public class SessionsHandler extends JSONHandler {
     public void setSpeakerMap(HashMap<String, Speaker> speakerMap) {
         mSpeakerMap = speakerMap;
     }
-
-    private interface SessionHashcodeQuery {
-        String[] PROJECTION = {
-                BaseColumns._ID,
-                ScheduleContract.Sessions.SESSION_ID,
-                ScheduleContract.Sessions.SESSION_IMPORT_HASHCODE
-        };
-        int _ID = 0;
-        int SESSION_ID = 1;
-        int SESSION_IMPORT_HASHCODE = 2;
-    };
 }
@@ -18,19 +18,15 @@ package com.google.samples.apps.iosched.io;
 
 import android.content.ContentProviderOperation;
 import android.content.Context;
-import android.database.Cursor;
-import android.net.Uri;
-import android.provider.BaseColumns;
 
 import com.google.samples.apps.iosched.io.model.Speaker;
 import com.google.samples.apps.iosched.provider.ScheduleContract;
-import com.google.gson.Gson;
-import com.google.gson.JsonElement;
-import com.google.samples.apps.iosched.provider.ScheduleContractHelper;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.HashMap;
-import java.util.HashSet;
 
 import static com.google.samples.apps.iosched.util.LogUtils.*;
 
@@ -43,132 +39,48 @@ public class SpeakersHandler extends JSONHandler {
     }
 
     @Override
-    public void process(JsonElement element) {
-        for (Speaker speaker : new Gson().fromJson(element, Speaker[].class)) {
+    public void process(JsonReader reader) throws IOException {
+        TypeAdapter<Speaker> adapter = getAdapter(Speaker.class);
+        reader.beginArray();
+        while (reader.hasNext()) {
+            Speaker speaker = adapter.read(reader);
             mSpeakers.put(speaker.id, speaker);
         }
+        reader.endArray();
     }
 
     @Override
     public void makeContentProviderOperations(ArrayList<ContentProviderOperation> list) {
-        Uri uri = ScheduleContractHelper.setUriAsCalledFromSyncAdapter(
-                ScheduleContract.Speakers.CONTENT_URI);
-        HashMap<String, String> speakerHashcodes = loadSpeakerHashcodes();
-        HashSet<String> speakersToKeep = new HashSet<String>();
-        boolean isIncrementalUpdate = speakerHashcodes != null && speakerHashcodes.size() > 0;
-
-        if (isIncrementalUpdate) {
-            LOGD(TAG, "Doing incremental update for speakers.");
-        } else {
-            LOGD(TAG, "Doing FULL (non incremental) update for speakers.");
-            list.add(ContentProviderOperation.newDelete(uri).build());
-        }
-
-        int updatedSpeakers = 0;
+        TableDiff diff = loadTableDiff(ScheduleContract.Speakers.CONTENT_URI,
+                ScheduleContract.Speakers.SPEAKER_ID,
+                ScheduleContract.Speakers.SPEAKER_IMPORT_HASHCODE);
         for (Speaker speaker : mSpeakers.values()) {
-            String hashCode = speaker.getImportHashcode();
-            speakersToKeep.add(speaker.id);
-
-            // add speaker, if necessary
-            if (!isIncrementalUpdate || !speakerHashcodes.containsKey(speaker.id) ||
-                    !speakerHashcodes.get(speaker.id).equals(hashCode)) {
-                ++updatedSpeakers;
-                boolean isNew = !isIncrementalUpdate || !speakerHashcodes.containsKey(speaker.id);
-                buildSpeaker(isNew, speaker, list);
-            }
+            buildSpeaker(diff, speaker, list);
         }
-
-        int deletedSpeakers = 0;
-        if (isIncrementalUpdate) {
-            for (String speakerId : speakerHashcodes.keySet()) {
-                if (!speakersToKeep.contains(speakerId)) {
-                    buildDeleteOperation(speakerId, list);
-                    ++deletedSpeakers;
-                }
-            }
-        }
-
-        LOGD(TAG, "Speakers: " + (isIncrementalUpdate ? "INCREMENTAL" : "FULL") + " update. " +
-                updatedSpeakers + " to update, " + deletedSpeakers + " to delete. New total: " +
-                mSpeakers.size());
+        diff.addDeleteOperations(list);
+        LOGD(TAG, diff + ". New total: " + mSpeakers.size());
     }
 
-    private void buildSpeaker(boolean isInsert, Speaker speaker,
+    private void buildSpeaker(TableDiff diff, Speaker speaker,
                               ArrayList<ContentProviderOperation> list) {
-        Uri allSpeakersUri = ScheduleContractHelper.setUriAsCalledFromSyncAdapter(
-                ScheduleContract.Speakers.CONTENT_URI);
-        Uri thisSpeakerUri = ScheduleContractHelper.setUriAsCalledFromSyncAdapter(
-                ScheduleContract.Speakers.buildSpeakerUri(speaker.id));
-
-        ContentProviderOperation.Builder builder;
-        if (isInsert) {
-            builder = ContentProviderOperation.newInsert(allSpeakersUri);
-        } else {
-            builder = ContentProviderOperation.newUpdate(thisSpeakerUri);
+        ContentProviderOperation.Builder builder =
+                diff.newOperation(speaker.id, speaker.getImportHashcode());
+        if (builder == null) {
+            return;
         }
 
-        list.add(builder.withValue(ScheduleContract.SyncColumns.UPDATED, System.currentTimeMillis())
-                .withValue(ScheduleContract.Speakers.SPEAKER_ID, speaker.id)
+        list.add(builder
+                .withValue(ScheduleContract.SyncColumns.UPDATED, System.currentTimeMillis())
                 .withValue(ScheduleContract.Speakers.SPEAKER_NAME, speaker.name)
                 .withValue(ScheduleContract.Speakers.SPEAKER_ABSTRACT, speaker.bio)
                 .withValue(ScheduleContract.Speakers.SPEAKER_COMPANY, speaker.company)
                 .withValue(ScheduleContract.Speakers.SPEAKER_IMAGE_URL, speaker.thumbnailUrl)
                 .withValue(ScheduleContract.Speakers.SPEAKER_PLUSONE_URL, speaker.plusoneUrl)
                 .withValue(ScheduleContract.Speakers.SPEAKER_TWITTER_URL, speaker.twitterUrl)
-                .withValue(ScheduleContract.Speakers.SPEAKER_IMPORT_HASHCODE,
-                        speaker.getImportHashcode())
                 .build());
     }
 
-    private void buildDeleteOperation(String speakerId, ArrayList<ContentProviderOperation> list) {
-        Uri speakerUri = ScheduleContractHelper.setUriAsCalledFromSyncAdapter(
-                ScheduleContract.Speakers.buildSpeakerUri(speakerId));
-        list.add(ContentProviderOperation.newDelete(speakerUri).build());
-    }
-
-    private HashMap<String, String> loadSpeakerHashcodes() {
-        Uri uri = ScheduleContractHelper.setUriAsCalledFromSyncAdapter(
-                ScheduleContract.Speakers.CONTENT_URI);
-        Cursor cursor = null;
-        try {
-            cursor = mContext.getContentResolver().query(uri, SpeakerHashcodeQuery.PROJECTION,
-                    null, null, null);
-            if (cursor == null) {
-                LOGE(TAG, "Error querying speaker hashcodes (got null cursor)");
-                return null;
-            }
-            if (cursor.getCount() < 1) {
-                LOGE(TAG, "Error querying speaker hashcodes (no records returned)");
-                return null;
-            }
-            HashMap<String, String> result = new HashMap<String, String>();
-            if (cursor.moveToFirst()) {
-                do {
-                    String speakerId = cursor.getString(SpeakerHashcodeQuery.SPEAKER_ID);
-                    String hashcode = cursor.getString(SpeakerHashcodeQuery.SPEAKER_IMPORT_HASHCODE);
-                    result.put(speakerId, hashcode == null ? "" : hashcode);
-                } while (cursor.moveToNext());
-            }
-            return result;
-        } finally {
-            if (cursor != null) {
-                cursor.close();
-            }
-        }
-    }
-
     public HashMap<String, Speaker> getSpeakerMap() {
         return mSpeakers;
     }
-
-    private interface SpeakerHashcodeQuery {
-        String[] PROJECTION = {
-                BaseColumns._ID,
-                ScheduleContract.Speakers.SPEAKER_ID,
-                ScheduleContract.Speakers.SPEAKER_IMPORT_HASHCODE
-        };
-        final int _ID = 0;
-        final int SPEAKER_ID = 1;
-        final int SPEAKER_IMPORT_HASHCODE = 2;
-    }
 }
@@ -0,0 +1,167 @@
+/*
+ * Copyright 2016 Google Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.samples.apps.iosched.io;
+
+import android.content.ContentProviderOperation;
+import android.net.Uri;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+
+import static com.google.samples.apps.iosched.util.LogUtils.LOGW;
+import static com.google.samples.apps.iosched.util.LogUtils.makeLogTag;
+
+/**
+ * Works out the operations that bring a table in line with the imported entities, from the ID and
+ * fingerprint of the rows already in it, so an import only writes the rows that changed instead
+ * of deleting the whole table and inserting it again.
+ * <p>
+ * Obtained from {@link JSONHandler#loadTableDiff}. The handler calls {@link #newOperation} for
+ * each imported entity, then {@link #addDeleteOperations} once all of them have been seen.
+ */
+public class TableDiff {
+    private static final String TAG = makeLogTag(TableDiff.class);
+
+    private final String mTableName;
+    private final Uri mUri;
+    private final String mIdColumn;
+    private final String mFingerprintColumn;
+
+    /**
+     * The fingerprint of each row in the table before the import, by ID.
+     */
+    private final HashMap<String, String> mFingerprints;
+
+    private final HashSet<String> mImportedIds = new HashSet<>();
+
+    private int mInsertCount;
+    private int mUpdateCount;
+    private int mDeleteCount;
+    private int mUnchangedCount;
+
+    /**
+     * @param uri The sync adapter URI of the table.
+     * @param fingerprintColumn The column holding each row's fingerprint, or null if the table
+     *                          only holds its ID, in which case existing rows never change.
+     * @param fingerprints The fingerprint of each row in the table, by ID.
+     */
+    TableDiff(String tableName, Uri uri, String idColumn, String fingerprintColumn,
+            HashMap<String, String> fingerprints) {
+        mTableName = tableName;
+        mUri = uri;
+        mIdColumn = idColumn;
+        mFingerprintColumn = fingerprintColumn;
+        mFingerprints = fingerprints;
+    }
+
+    /**
+     * @return Whether the table held rows before the import, as opposed to being filled for the
+     * first time.
+     */
+    public boolean isIncremental() {
+        return !mFingerprints.isEmpty();
+    }
+
+    /**
+     * Returns the operation writing the row of an imported entity, with its ID and fingerprint
+     * already set, or null if the row is already up to date. The caller sets the other values and
+     * adds the operation to its list.
+     *
+     * @param fingerprint The fingerprint of the entity, ignored if the table has no fingerprint
+     *                    column.
+     */
+    public ContentProviderOperation.Builder newOperation(String id, String fingerprint) {
+        if (!mImportedIds.add(id)) {
+            LOGW(TAG, "Ignoring duplicate " + mTableName + " ID " + id);
+            return null;
+        }
+        String oldFingerprint = mFingerprints.get(id);
+        ContentProviderOperation.Builder builder;
+        if (oldFingerprint == null) {
+            ++mInsertCount;
+            builder = ContentProviderOperation.newInsert(mUri)
+                    .withValue(mIdColumn, id);
+        } else if (mFingerprintColumn == null || oldFingerprint.equals(fingerprint)) {
+            ++mUnchangedCount;
+            return null;
+        } else {
+            ++mUpdateCount;
+            builder = ContentProviderOperation.newUpdate(mUri)
+                    .withSelection(mIdColumn + "=?", new String[]{id});
+        }
+        if (mFingerprintColumn != null) {
+            builder.withValue(mFingerprintColumn, fingerprint);
+        }
+        return builder;
+    }
+
+    /**
+     * Adds the operations deleting the rows of the entities that were not imported.
+     */
+    public void addDeleteOperations(List<ContentProviderOperation> list) {
+        for (Map.Entry<String, String> row : mFingerprints.entrySet()) {
+            if (!mImportedIds.contains(row.getKey())) {
+                ++mDeleteCount;
+                list.add(ContentProviderOperation.newDelete(mUri)
+                        .withSelection(mIdColumn + "=?", new String[]{row.getKey()})
+                        .build());
+            }
+        }
+    }
+
+    public String getTableName() {
+        return mTableName;
+    }
+
+    /**
+     * @return The sync adapter URI of the table.
+     */
+    public Uri getUri() {
+        return mUri;
+    }
+
+    public int getInsertCount() {
+        return mInsertCount;
+    }
+
+    public int getUpdateCount() {
+        return mUpdateCount;
+    }
+
+    public int getDeleteCount() {
+        return mDeleteCount;
+    }
+
+    public int getUnchangedCount() {
+        return mUnchangedCount;
+    }
+
+    /**
+     * @return Whether the import writes to the table at all.
+     */
+    public boolean hasChanges() {
+        return mInsertCount + mUpdateCount + mDeleteCount > 0;
+    }
+
+    @Override
+    public String toString() {
+        return mTableName + ": " + mInsertCount + " inserted, " + mUpdateCount + " updated, "
+                + mDeleteCount + " deleted, " + mUnchangedCount + " unchanged";
+    }
+}
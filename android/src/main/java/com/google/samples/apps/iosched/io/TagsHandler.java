@@ -19,14 +19,14 @@ package com.google.samples.apps.iosched.io;
 import android.content.ContentProviderOperation;
 import android.content.Context;
 import android.graphics.Color;
-import android.net.Uri;
 
 import com.google.samples.apps.iosched.io.model.Tag;
+import com.google.samples.apps.iosched.model.TagMetadata;
 import com.google.samples.apps.iosched.provider.ScheduleContract;
-import com.google.gson.Gson;
-import com.google.gson.JsonElement;
-import com.google.samples.apps.iosched.provider.ScheduleContractHelper;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.HashMap;
 
@@ -37,27 +37,34 @@ public class TagsHandler extends JSONHandler {
 
     private HashMap<String, Tag> mTags = new HashMap<String, Tag>();
 
+    private TableDiff mDiff;
+
     public TagsHandler(Context context) {
         super(context);
     }
 
     @Override
-    public void process(JsonElement element) {
-        for (Tag tag : new Gson().fromJson(element, Tag[].class)) {
+    public void process(JsonReader reader) throws IOException {
+        TypeAdapter<Tag> adapter = getAdapter(Tag.class);
+        reader.beginArray();
+        while (reader.hasNext()) {
+            Tag tag = adapter.read(reader);
             mTags.put(tag.tag, tag);
         }
+        reader.endArray();
     }
 
     @Override
     public void makeContentProviderOperations(ArrayList<ContentProviderOperation> list) {
-        Uri uri = ScheduleContractHelper.setUriAsCalledFromSyncAdapter(
-                ScheduleContract.Tags.CONTENT_URI);
-
-        // since the number of tags is very small, for simplicity we delete them all and reinsert
-        list.add(ContentProviderOperation.newDelete(uri).build());
+        TableDiff diff = loadTableDiff(ScheduleContract.Tags.CONTENT_URI,
+                ScheduleContract.Tags.TAG_ID, ScheduleContract.Tags.TAG_IMPORT_HASHCODE);
+        mDiff = diff;
         for (Tag tag : mTags.values()) {
-            ContentProviderOperation.Builder builder = ContentProviderOperation.newInsert(uri);
-            builder.withValue(ScheduleContract.Tags.TAG_ID, tag.tag);
+            ContentProviderOperation.Builder builder =
+                    diff.newOperation(tag.tag, tag.getImportHashcode());
+            if (builder == null) {
+                continue;
+            }
             builder.withValue(ScheduleContract.Tags.TAG_CATEGORY, tag.category);
             builder.withValue(ScheduleContract.Tags.TAG_NAME, tag.name);
             builder.withValue(ScheduleContract.Tags.TAG_ORDER_IN_CATEGORY, tag.order_in_category);
@@ -67,6 +74,17 @@ public class TagsHandler extends JSONHandler {
             builder.withValue(ScheduleContract.Tags.TAG_PHOTO_URL, tag.photoUrl);
             list.add(builder.build());
         }
+        diff.addDeleteOperations(list);
+    }
+
+    /**
+     * Called once the operations of {@link #makeContentProviderOperations} are applied. If they
+     * changed the tags, the tag metadata shared by the screens is dropped so it is read again.
+     */
+    public void onOperationsApplied() {
+        if (mDiff != null && mDiff.hasChanges()) {
+            TagMetadata.invalidateCache();
+        }
     }
 
     public HashMap<String, Tag> getTagMap() {
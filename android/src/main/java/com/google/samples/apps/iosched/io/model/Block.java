@@ -16,12 +16,22 @@
 
 package com.google.samples.apps.iosched.io.model;
 
+import com.google.samples.apps.iosched.util.FingerprintBuilder;
+
 public class Block {
     public String title;
     public String subtitle;
     public String start;
     public String end;
     public String type;
-}
-
 
+    public String getImportHashcode() {
+        return new FingerprintBuilder()
+                .add(title)
+                .add(subtitle)
+                .add(start)
+                .add(end)
+                .add(type)
+                .build();
+    }
+}
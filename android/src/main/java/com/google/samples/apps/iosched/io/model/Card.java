@@ -15,6 +15,7 @@
 package com.google.samples.apps.iosched.io.model;
 
 import com.google.gson.annotations.SerializedName;
+import com.google.samples.apps.iosched.util.FingerprintBuilder;
 
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
@@ -83,6 +84,24 @@ public class Card {
                 '}';
     }
 
+    public String getImportHashcode() {
+        return new FingerprintBuilder()
+                .add(mId)
+                .add(mTitle)
+                .add(mMessage)
+                .add(mShortMessage)
+                .add(mActionUrl)
+                .add(mBackgroundColor)
+                .add(mTextColor)
+                .add(mActionColor)
+                .add(mActionText)
+                .add(mActionExtra)
+                .add(mActionType)
+                .add(mValidFrom)
+                .add(mValidUntil)
+                .build();
+    }
+
     /**
      * Returns millis since epoch of the time represented by the {@code formattedTime}. The input
      * must be in the acceptable time format or an Exception will be thrown.
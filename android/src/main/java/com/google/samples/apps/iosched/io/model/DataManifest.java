@@ -19,6 +19,17 @@ package com.google.samples.apps.iosched.io.model;
 public class DataManifest {
     public String format;
     public String[] data_files;
+    // Only listed by manifests in the chunked format.
+    public Chunk[] chunks;
+
+    /**
+     * A part of the data of a single entity type, named after the SHA-1 hash of its contents.
+     */
+    public static class Chunk {
+        public String type;
+        public String hash;
+        public String url;
+    }
 }
 
 
@@ -16,9 +16,20 @@
 
 package com.google.samples.apps.iosched.io.model;
 
+import com.google.samples.apps.iosched.util.FingerprintBuilder;
+
 public class Hashtag {
     public String name;
     public String description;
     public String color;
     public int order;
+
+    public String getImportHashcode() {
+        return new FingerprintBuilder()
+                .add(name)
+                .add(description)
+                .add(color)
+                .add(order)
+                .build();
+    }
 }
@@ -16,8 +16,18 @@
 
 package com.google.samples.apps.iosched.io.model;
 
+import com.google.samples.apps.iosched.util.FingerprintBuilder;
+
 public class Room {
     public String id;
     public String name;
     public String floor;
+
+    public String getImportHashcode() {
+        return new FingerprintBuilder()
+                .add(id)
+                .add(name)
+                .add(floor)
+                .build();
+    }
 }
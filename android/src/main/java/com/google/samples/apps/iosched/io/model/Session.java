@@ -16,9 +16,9 @@
 
 package com.google.samples.apps.iosched.io.model;
 
-import com.google.samples.apps.iosched.util.HashUtils;
+import com.google.samples.apps.iosched.util.FingerprintBuilder;
 
-import java.util.Random;
+import java.util.Map;
 
 public class Session {
     public String id;
@@ -54,34 +54,47 @@ public class Session {
         }
     }
 
-    public String getImportHashCode() {
-        return (new Random()).nextLong()+"";
-/*        StringBuilder sb = new StringBuilder();
-        sb.append("id").append(id == null ? "" : id)
-                .append("description").append(description == null ? "" : description)
-                .append("title").append(title == null ? "" : title)
-                .append("url").append(url == null ? "" : url)
-                .append("startTimestamp").append(startTimestamp == null ? "" : startTimestamp)
-                .append("endTimestamp").append(endTimestamp == null ? "" : endTimestamp)
-                .append("youtubeUrl").append(youtubeUrl == null ? "" : youtubeUrl)
-                .append("subtype").append(subtype == null ? "" : subtype)
-                .append("room").append(room == null ? "" : room)
-                .append("hashtag").append(hashtag == null ? "" : hashtag)
-                .append("isLivestream").append(isLivestream ? "true" : "false")
-                .append("mainTag").append(mainTag)
-                .append("captionsUrl").append(captionsUrl)
-                .append("photoUrl").append(photoUrl)
-                .append("relatedContent").append(relatedContent)
-                .append("color").append(color)
-                .append("groupingOrder").append(groupingOrder);
-        for (String tag : tags) {
-            sb.append("tag").append(tag);
+    /**
+     * Returns the fingerprint of the session's row and its speaker and tag mappings. The row also
+     * holds the names of the session's speakers, so those are part of the fingerprint as well.
+     *
+     * @param speakerMap The speakers, by ID.
+     */
+    public String getImportHashCode(Map<String, Speaker> speakerMap) {
+        FingerprintBuilder builder = new FingerprintBuilder()
+                .add(id)
+                .add(description)
+                .add(title)
+                .add(url)
+                .add(startTimestamp)
+                .add(endTimestamp)
+                .add(youtubeUrl)
+                .add(subtype)
+                .add(room)
+                .add(hashtag)
+                .add(isLivestream)
+                .add(mainTag)
+                .add(captionsUrl)
+                .add(photoUrl)
+                .add(color)
+                .add(groupingOrder)
+                .add(tags)
+                .add(speakers);
+        if (speakers != null) {
+            for (String speakerId : speakers) {
+                Speaker speaker = speakerMap == null ? null : speakerMap.get(speakerId);
+                builder.add(speaker == null ? null : speaker.name);
+            }
         }
-        for (String speaker : speakers) {
-            sb.append("speaker").append(speaker);
+        if (relatedContent == null) {
+            builder.add(-1);
+        } else {
+            builder.add(relatedContent.length);
+            for (RelatedContent content : relatedContent) {
+                builder.add(content.id).add(content.name);
+            }
         }
-        return HashUtils.computeWeakHash(sb.toString());
-*/
+        return builder.build();
     }
 
     public String makeTagsList() {
@@ -16,7 +16,7 @@
 
 package com.google.samples.apps.iosched.io.model;
 
-import com.google.samples.apps.iosched.util.HashUtils;
+import com.google.samples.apps.iosched.util.FingerprintBuilder;
 
 public class Speaker {
     public String id;
@@ -29,15 +29,15 @@ public class Speaker {
     public String thumbnailUrl;
 
     public String getImportHashcode() {
-        StringBuilder sb = new StringBuilder();
-        sb.append("id").append(id == null ? "" : id)
-                .append("publicPlusId").append(publicPlusId == null ? "" : publicPlusId)
-                .append("bio").append(bio == null ? "" : bio)
-                .append("name").append(name == null ? "" : name)
-                .append("company").append(company== null ? "" : company)
-                .append("plusoneUrl").append(plusoneUrl == null ? "" : plusoneUrl)
-                .append("twitterUrl").append(twitterUrl == null ? "" : twitterUrl)
-                .append("thumbnailUrl").append(thumbnailUrl == null ? "" : thumbnailUrl);
-        return HashUtils.computeWeakHash(sb.toString());
+        return new FingerprintBuilder()
+                .add(id)
+                .add(publicPlusId)
+                .add(bio)
+                .add(name)
+                .add(company)
+                .add(plusoneUrl)
+                .add(twitterUrl)
+                .add(thumbnailUrl)
+                .build();
     }
 }
@@ -17,6 +17,7 @@
 package com.google.samples.apps.iosched.io.model;
 
 import com.google.gson.annotations.SerializedName;
+import com.google.samples.apps.iosched.util.FingerprintBuilder;
 
 public class Tag {
     public String tag;
@@ -27,4 +28,16 @@ public class Tag {
     public String _abstract;
     public int order_in_category;
     public String photoUrl;
+
+    public String getImportHashcode() {
+        return new FingerprintBuilder()
+                .add(tag)
+                .add(name)
+                .add(category)
+                .add(color)
+                .add(_abstract)
+                .add(order_in_category)
+                .add(photoUrl)
+                .build();
+    }
 }
@@ -16,7 +16,7 @@
 
 package com.google.samples.apps.iosched.io.model;
 
-import com.google.samples.apps.iosched.util.HashUtils;
+import com.google.samples.apps.iosched.util.FingerprintBuilder;
 
 public class Video {
     public String id;
@@ -29,16 +29,16 @@ public class Video {
     public String thumbnailUrl;
 
     public String getImportHashcode() {
-        StringBuilder sb = new StringBuilder();
-        sb.append("id").append(id == null ? "" : id)
-                .append("year").append(year)
-                .append("title").append(title == null ? "" : title)
-                .append("desc").append(desc == null ? "" : desc)
-                .append("vid").append(vid == null ? "" : vid)
-                .append("topic").append(topic == null ? "" : topic)
-                .append("speakers").append(speakers == null ? "" : speakers)
-                .append("thumbnailUrl").append(thumbnailUrl == null ? "" : thumbnailUrl);
-        return HashUtils.computeWeakHash(sb.toString());
+        return new FingerprintBuilder()
+                .add(id)
+                .add(year)
+                .add(title)
+                .add(desc)
+                .add(vid)
+                .add(topic)
+                .add(speakers)
+                .add(thumbnailUrl)
+                .build();
     }
 }
 
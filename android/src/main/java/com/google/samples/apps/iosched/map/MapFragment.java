@@ -20,12 +20,9 @@ import android.app.Activity;
 import android.app.LoaderManager;
 import android.app.LoaderManager.LoaderCallbacks;
 import android.content.Loader;
-import android.database.ContentObserver;
 import android.database.Cursor;
 import android.graphics.Rect;
-import android.net.Uri;
 import android.os.Bundle;
-import android.os.Handler;
 import android.util.SparseArray;
 import android.view.LayoutInflater;
 import android.view.View;
@@ -50,6 +47,8 @@ import com.google.samples.apps.iosched.map.util.CachedTileProvider;
 import com.google.samples.apps.iosched.map.util.MarkerLoadingTask;
 import com.google.samples.apps.iosched.map.util.MarkerModel;
 import com.google.samples.apps.iosched.map.util.TileLoadingTask;
+import com.google.samples.apps.iosched.map.util.TileMemoryCache;
+import com.google.samples.apps.iosched.provider.DataChangeBus;
 import com.google.samples.apps.iosched.provider.ScheduleContract;
 import com.google.samples.apps.iosched.util.AnalyticsHelper;
 import com.google.samples.apps.iosched.util.MapUtils;
@@ -297,11 +296,19 @@ public class MapFragment extends com.google.android.gms.maps.MapFragment impleme
         mMap.setMyLocationEnabled(mMyLocationEnabled);
     }
 
+    @Override
+    public void onStart() {
+        super.onStart();
+
+        TileMemoryCache.getInstance(getActivity()).acquire(getActivity());
+    }
+
     @Override
     public void onStop() {
         super.onStop();
 
         closeTileCache();
+        TileMemoryCache.getInstance(getActivity()).release(getActivity());
     }
 
     /**
@@ -399,10 +406,8 @@ public class MapFragment extends com.google.android.gms.maps.MapFragment impleme
 
         mCallbacks = (Callbacks) activity;
 
-        activity.getContentResolver().registerContentObserver(
-                ScheduleContract.MapMarkers.CONTENT_URI, true, mObserver);
-        activity.getContentResolver().registerContentObserver(
-                ScheduleContract.MapTiles.CONTENT_URI, true, mObserver);
+        DataChangeBus.getInstance().subscribe(mDataChangeListener,
+                ScheduleContract.MapMarkers.CONTENT_URI, ScheduleContract.MapTiles.CONTENT_URI);
     }
 
     @Override
@@ -410,7 +415,7 @@ public class MapFragment extends com.google.android.gms.maps.MapFragment impleme
         super.onDetach();
         mCallbacks = sDummyCallbacks;
 
-        getActivity().getContentResolver().unregisterContentObserver(mObserver);
+        DataChangeBus.getInstance().unsubscribe(mDataChangeListener);
     }
 
     @Override
@@ -678,7 +683,7 @@ public class MapFragment extends com.google.android.gms.maps.MapFragment impleme
             // the map.
             for (TileLoadingTask.TileEntry entry : list) {
                 TileOverlayOptions tileOverlay = new TileOverlayOptions()
-                        .tileProvider(entry.provider).visible(false);
+                        .tileProvider(entry.tileProvider).visible(false);
 
                 // Store the tile overlay and provider
                 mTileProviders.put(entry.floor, entry.provider);
@@ -689,15 +694,10 @@ public class MapFragment extends com.google.android.gms.maps.MapFragment impleme
         enableMapElements();
     }
 
-    private final ContentObserver mObserver = new ContentObserver(new Handler()) {
-
-        @Override
-        public void onChange(boolean selfChange) {
-            onChange(selfChange, null);
-        }
+    private final DataChangeBus.Listener mDataChangeListener = new DataChangeBus.Listener() {
 
         @Override
-        public void onChange(final boolean selfChange, final Uri uri) {
+        public void onDataChanged(DataChangeBus.DataChange change) {
             if (!isAdded()) {
                 return;
             }
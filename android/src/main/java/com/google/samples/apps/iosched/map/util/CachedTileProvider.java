@@ -20,7 +20,6 @@ import com.google.android.gms.maps.model.TileProvider;
 
 import com.jakewharton.disklrucache.DiskLruCache;
 
-import java.io.ByteArrayOutputStream;
 import java.io.DataInputStream;
 import java.io.DataOutputStream;
 import java.io.IOException;
@@ -31,7 +30,8 @@ import static com.google.samples.apps.iosched.util.LogUtils.LOGD;
 import static com.google.samples.apps.iosched.util.LogUtils.makeLogTag;
 
 /**
- * Wrapper that provides a disk-based LRU cache for a TileProvider.
+ * Wrapper that provides a disk-based LRU cache for a TileProvider, optionally behind a
+ * {@link TileMemoryCache}.
  *
  * @see com.jakewharton.disklrucache.DiskLruCache
  */
@@ -50,6 +50,7 @@ public class CachedTileProvider implements TileProvider {
     private final String mKeyTag;
     private final TileProvider mTileProvider;
     private final DiskLruCache mCache;
+    private final TileMemoryCache mMemoryCache;
 
     /**
      * TileProvider that wraps another TileProvider and caches all Tiles in a DiskLruCache.
@@ -68,22 +69,40 @@ public class CachedTileProvider implements TileProvider {
      * @param cache        the cache used to store tiles
      */
     public CachedTileProvider(String keyTag, TileProvider tileProvider, DiskLruCache cache) {
+        this(keyTag, tileProvider, cache, null);
+    }
+
+    /**
+     * TileProvider that wraps another TileProvider and caches all Tiles in memory and in a
+     * DiskLruCache. Tiles are looked up in memory first, then on disk.
+     *
+     * @param memoryCache the in-memory cache in front of {@code cache}, or null for none. Like
+     *                    the disk cache, it can be shared by several instances.
+     * @see #CachedTileProvider(String, TileProvider, DiskLruCache)
+     */
+    public CachedTileProvider(String keyTag, TileProvider tileProvider, DiskLruCache cache,
+            TileMemoryCache memoryCache) {
         mKeyTag = keyTag;
         mTileProvider = tileProvider;
         mCache = cache;
+        mMemoryCache = memoryCache;
     }
 
     /**
      * Load a tile.
-     * If cached, the data for the tile is read from the underlying cache, otherwise the tile is
-     * generated by the {@link com.google.android.gms.maps.model.TileProvider} and added to the
-     * cache.
+     * If cached, the data for the tile is read from the memory cache or the underlying cache,
+     * otherwise the tile is generated by the
+     * {@link com.google.android.gms.maps.model.TileProvider} and added to the caches.
      */
     @Override
     public Tile getTile(int x, int y, int zoom) {
         final String key = CachedTileProvider.generateKey(x, y, zoom, mKeyTag);
-        Tile tile = getCachedTile(key);
+        Tile tile = mMemoryCache != null ? mMemoryCache.get(key) : null;
+        if (tile != null) {
+            return tile;
+        }
 
+        tile = getCachedTile(key);
         if (tile == null) {
             // tile not cached, load from provider and then cache
             tile = mTileProvider.getTile(x, y, zoom);
@@ -91,6 +110,9 @@ public class CachedTileProvider implements TileProvider {
                 LOGD(TAG, "Added tile to cache " + key);
             }
         }
+        if (mMemoryCache != null) {
+            mMemoryCache.put(key, tile);
+        }
         return tile;
     }
 
@@ -102,23 +124,27 @@ public class CachedTileProvider implements TileProvider {
         if (mCache.isClosed()) {
             return null;
         }
+        DiskLruCache.Snapshot snapshot = null;
         try {
-            DiskLruCache.Snapshot snapshot = mCache.get(key);
+            snapshot = mCache.get(key);
             if (snapshot == null) {
                 // tile is not in cache
                 return null;
             }
 
-            final byte[] data = readStreamAsByteArray(snapshot.getInputStream(INDEX_DATA));
+            final byte[] data = readStreamAsByteArray(snapshot.getInputStream(INDEX_DATA),
+                    snapshot.getLength(INDEX_DATA));
             final int height = readStreamAsInt(snapshot.getInputStream(INDEX_HEIGHT));
             final int width = readStreamAsInt(snapshot.getInputStream(INDEX_WIDTH));
-            if (data != null) {
-                LOGD(TAG, "Cache hit for tile " + key);
-                return new Tile(width, height, data);
-            }
+            LOGD(TAG, "Cache hit for tile " + key);
+            return new Tile(width, height, data);
 
         } catch (IOException e) {
             // ignore error
+        } finally {
+            if (snapshot != null) {
+                snapshot.close();
+            }
         }
         return null;
     }
@@ -175,28 +201,29 @@ public class CachedTileProvider implements TileProvider {
         }
     }
 
-    private static byte[] readStreamAsByteArray(InputStream inputStream) throws IOException {
-        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
-        int read = 0;
-        byte[] data = new byte[1024];
+    /**
+     * Reads the {@code length} bytes of a cache entry stream into an array of that size.
+     */
+    private static byte[] readStreamAsByteArray(InputStream inputStream, long length)
+            throws IOException {
+        byte[] data = new byte[(int) length];
         try {
-            while ((read = inputStream.read(data, 0, data.length)) != -1) {
-                buffer.write(data, 0, read);
-            }
+            new DataInputStream(inputStream).readFully(data);
         } finally {
             inputStream.close();
         }
-        return buffer.toByteArray();
+        return data;
     }
 
 
+    /**
+     * Reads an int written by {@link #writeIntToStream(int, OutputStream)}, with a single read of
+     * the unbuffered stream rather than one per byte.
+     */
     private static int readStreamAsInt(InputStream inputStream) throws IOException {
-        DataInputStream buffer = new DataInputStream(inputStream);
-        try {
-            return buffer.readInt();
-        } finally {
-            inputStream.close();
-        }
+        byte[] data = readStreamAsByteArray(inputStream, 4);
+        return (data[0] & 0xff) << 24 | (data[1] & 0xff) << 16 | (data[2] & 0xff) << 8
+                | (data[3] & 0xff);
     }
 
 }
@@ -26,6 +26,7 @@ import java.io.*;
 import java.util.concurrent.ConcurrentLinkedQueue;
 
 import com.google.samples.apps.iosched.BuildConfig;
+import com.larvalabs.svgandroid.DisplayList;
 import com.larvalabs.svgandroid.SVG;
 import com.larvalabs.svgandroid.SVGBuilder;
 
@@ -34,7 +35,8 @@ import static com.google.samples.apps.iosched.util.LogUtils.makeLogTag;
 public class SVGTileProvider implements TileProvider {
     private static final String TAG = makeLogTag(SVGTileProvider.class);
 
-    private static final int POOL_MAX_SIZE = 5;
+    private static final int POOL_MAX_SIZE =
+            Math.max(5, Runtime.getRuntime().availableProcessors());
     private static final int BASE_TILE_SIZE = 256;
 
     private final TileGeneratorPool mPool;
@@ -45,18 +47,25 @@ public class SVGTileProvider implements TileProvider {
     private final int mDimension;
 
     /**
-     * NOTE: must use a synchronize block when using {@link android.graphics.Picture#draw(android.graphics.Canvas)}
+     * The bounds of the SVG, in world coordinates: the 256 units wide square covering the world
+     * at zoom level 0.
      */
-    private final Picture mSvgPicture;
+    private final RectF mWorldBounds;
+
+    /**
+     * The parsed SVG. A display list is immutable, so all {@link TileGenerator}s replay it at
+     * once, each onto its own canvas.
+     */
+    private final DisplayList mDisplayList;
 
     public SVGTileProvider(File file, float dpi) throws IOException {
-        mScale = Math.round(dpi + .3f); // Make it look nice on N7 (1.3 dpi)
+        mScale = getScale(dpi);
         mDimension = BASE_TILE_SIZE * mScale;
 
         mPool = new TileGeneratorPool(POOL_MAX_SIZE);
 
         SVG svg = new SVGBuilder().readFromInputStream(new FileInputStream(file)).build();
-        mSvgPicture = svg.getPicture();
+        mDisplayList = svg.getDisplayList();
         RectF limits = svg.getLimits();
 
         // These values map the SVG file to world coordinates.
@@ -69,6 +78,38 @@ public class SVGTileProvider implements TileProvider {
                         limits.width(), limits.height() // South-East
                 }, 0, BuildConfig.MAP_FLOORPLAN_MAPPING, 0, 3
         );
+        mWorldBounds = new RectF(0, 0, limits.width(), limits.height());
+        mBaseMatrix.mapRect(mWorldBounds);
+    }
+
+    /**
+     * @return The width and height of the tiles, in pixels.
+     */
+    public int getTileSize() {
+        return mDimension;
+    }
+
+    /**
+     * @return The width and height of the tiles rendered for {@code dpi}, in pixels.
+     */
+    public static int getTileSize(float dpi) {
+        return BASE_TILE_SIZE * getScale(dpi);
+    }
+
+    private static int getScale(float dpi) {
+        return Math.round(dpi + .3f); // Make it look nice on N7 (1.3 dpi)
+    }
+
+    /**
+     * @return The range of tiles of {@code zoom} covering the SVG. The right and bottom bounds
+     * are inclusive.
+     */
+    public Rect getTileBounds(int zoom) {
+        float tilesPerUnit = (float) Math.pow(2, zoom) / BASE_TILE_SIZE;
+        return new Rect((int) Math.floor(mWorldBounds.left * tilesPerUnit),
+                (int) Math.floor(mWorldBounds.top * tilesPerUnit),
+                (int) Math.floor(mWorldBounds.right * tilesPerUnit),
+                (int) Math.floor(mWorldBounds.bottom * tilesPerUnit));
     }
 
     @Override
@@ -126,10 +167,7 @@ public class SVGTileProvider implements TileProvider {
             Canvas c = new Canvas(mBitmap);
             c.setMatrix(matrix);
 
-            // NOTE: Picture is not thread-safe.
-            synchronized (mSvgPicture) {
-                mSvgPicture.draw(c);
-            }
+            mDisplayList.draw(c);
 
             BufferedOutputStream stream = new BufferedOutputStream(mStream);
             mBitmap.compress(Bitmap.CompressFormat.PNG, 0, stream);
@@ -16,15 +16,14 @@
 
 package com.google.samples.apps.iosched.map.util;
 
-import com.google.samples.apps.iosched.provider.ScheduleContract;
+import com.google.android.gms.maps.model.TileProvider;
 import com.google.samples.apps.iosched.util.MapUtils;
 
 import com.jakewharton.disklrucache.DiskLruCache;
 
 import android.content.AsyncTaskLoader;
 import android.content.Context;
-import android.database.Cursor;
-import android.net.Uri;
+import android.util.SparseArray;
 
 import java.io.File;
 import java.io.IOException;
@@ -32,7 +31,6 @@ import java.util.ArrayList;
 import java.util.List;
 
 import static com.google.samples.apps.iosched.util.LogUtils.LOGD;
-import static com.google.samples.apps.iosched.util.LogUtils.LOGE;
 import static com.google.samples.apps.iosched.util.LogUtils.makeLogTag;
 
 /**
@@ -40,7 +38,10 @@ import static com.google.samples.apps.iosched.util.LogUtils.makeLogTag;
  * {@link com.google.android.gms.maps.model.TileOverlay}s
  * for addition to the map.
  * A tile overlay is always tied to a floor in the venue and is loaded directly from an SVG file.
- * A {@link DiskLruCache} is used to create a {@link CachedTileProvider} for each overlay.
+ * A {@link DiskLruCache} is used to create a {@link CachedTileProvider} for each overlay, behind
+ * the {@link TileMemoryCache} shared by all overlays.
+ * Tiles pre-rendered by the {@link TilePyramidRenderer} are served from its {@link TilePack}
+ * instead; if the pack is missing or out of date, it is rendered again in the background.
  * <p>Note: The CachedTileProvider <b>must</b> be closed when the encapsulating map is stopped.
  * (See
  * {@link CachedTileProvider#closeCache()}
@@ -60,73 +61,60 @@ public class TileLoadingTask extends AsyncTaskLoader<List<TileLoadingTask.TileEn
 
     @Override
     public List<TileEntry> loadInBackground() {
-        List<TileEntry> list = null;
-        // Create a URI to get a cursor for all map tile entries.
-        final Uri uri = ScheduleContract.MapTiles.buildUri();
-        Cursor cursor = getContext().getContentResolver().query(uri,
-                OverlayQuery.PROJECTION, null, null, null);
-
-        if (cursor != null) {
-            // Create a TileProvider for each entry in the cursor
-            final int count = cursor.getCount();
-
-            // Initialise the tile cache that is reused for all TileProviders.
-            // Note that the cache *MUST* be closed when the encapsulating Fragment is stopped.
-            DiskLruCache tileCache = MapUtils.openDiskCache(getContext());
-
-            list = new ArrayList<>(count);
-            cursor.moveToFirst();
-            while (!cursor.isAfterLast()) {
-                final int floor = cursor.getInt(OverlayQuery.TILE_FLOOR);
-                final String file = cursor.getString(OverlayQuery.TILE_FILE);
-
-                File f = MapUtils.getTileFile(getContext().getApplicationContext(), file);
-                if (f == null || !f.exists()) {
-                    // Skip the file if it is invalid or does not exist.
-                    LOGE(TAG, "Tile file not found for floor " + floor);
-                    break;
-                }
-
-                CachedTileProvider provider;
-                try {
-                    SVGTileProvider svgProvider = new SVGTileProvider(f, mDPI);
-                    // Wrap the SVGTileProvider in a CachedTileProvider for caching on disk.
-                    provider = new CachedTileProvider(Integer.toString(floor), svgProvider,
-                            tileCache);
-                } catch (IOException e) {
-                    LOGD(TAG, "Could not create Tile Provider.");
-                    break;
-                }
-                list.add(new TileEntry(floor, provider));
-                cursor.moveToNext();
-            }
+        // Get the overlay file of each floor.
+        SparseArray<File> files = TilePyramidRenderer.queryTileFiles(getContext());
+
+        TilePack tilePack = TilePyramidRenderer.openTilePack(getContext(), files, mDPI);
+        if (tilePack == null) {
+            // Render the tiles for the next time the map is opened, and render them on demand
+            // until then.
+            TilePyramidRenderer.renderInBackground(getContext());
+        }
 
-            cursor.close();
+        // Initialise the tile cache that is reused for all TileProviders.
+        // Note that the cache *MUST* be closed when the encapsulating Fragment is stopped.
+        DiskLruCache tileCache = MapUtils.openDiskCache(getContext());
+        TileMemoryCache memoryCache = TileMemoryCache.getInstance(getContext());
+
+        // Create a TileProvider for each floor
+        List<TileEntry> list = new ArrayList<>(files.size());
+        for (int i = 0; i < files.size(); i++) {
+            final int floor = files.keyAt(i);
+            CachedTileProvider provider;
+            try {
+                SVGTileProvider svgProvider = new SVGTileProvider(files.valueAt(i), mDPI);
+                // Wrap the SVGTileProvider in a CachedTileProvider for caching in memory and on
+                // disk.
+                provider = new CachedTileProvider(Integer.toString(floor), svgProvider,
+                        tileCache, memoryCache);
+            } catch (IOException e) {
+                LOGD(TAG, "Could not create Tile Provider.");
+                break;
+            }
+            TileProvider tileProvider = tilePack == null ? provider
+                    : new TilePackTileProvider(tilePack, floor, provider);
+            list.add(new TileEntry(floor, provider, tileProvider));
         }
 
         return list;
     }
 
-
-    private interface OverlayQuery {
-
-        String[] PROJECTION = {
-                ScheduleContract.MapTiles.TILE_FLOOR,
-                ScheduleContract.MapTiles.TILE_FILE
-        };
-
-        int TILE_FLOOR = 0;
-        int TILE_FILE = 1;
-    }
-
     public class TileEntry {
 
+        /**
+         * The provider of the tiles that are not pre-rendered, whose cache must be closed.
+         */
         public CachedTileProvider provider;
+        /**
+         * The provider of all tiles of the floor, for the tile overlay.
+         */
+        public TileProvider tileProvider;
         public int floor;
 
-        TileEntry(int floor, CachedTileProvider provider) {
+        TileEntry(int floor, CachedTileProvider provider, TileProvider tileProvider) {
             this.floor = floor;
             this.provider = provider;
+            this.tileProvider = tileProvider;
         }
     }
 
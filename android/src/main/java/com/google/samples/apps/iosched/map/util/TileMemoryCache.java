@@ -0,0 +1,177 @@
+/*
+ * Copyright 2016 Google Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.samples.apps.iosched.map.util;
+
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+import android.content.res.Configuration;
+import android.support.v4.util.LruCache;
+
+import com.bumptech.glide.Glide;
+import com.bumptech.glide.MemoryCategory;
+import com.bumptech.glide.load.engine.cache.MemorySizeCalculator;
+import com.google.android.gms.maps.model.Tile;
+
+import static com.google.samples.apps.iosched.util.LogUtils.LOGD;
+import static com.google.samples.apps.iosched.util.LogUtils.makeLogTag;
+
+/**
+ * In-memory LRU cache of encoded map tiles, in front of the disk cache of the
+ * {@link CachedTileProvider}s, so that zooming back and forth over a floor does not read the same
+ * tiles from disk again. The cache is bounded by the total size of the tiles' data.
+ * <p>
+ * The budget is taken from Glide's memory cache: while the map is shown, between
+ * {@link #acquire(Context)} and {@link #release(Context)}, Glide's memory cache shrinks to
+ * {@link MemoryCategory#LOW} and the tiles get the memory it gave up. Once the map is gone, the
+ * tiles are dropped and Glide gets its memory back. The cache is also trimmed when the system runs
+ * low on memory.
+ */
+public class TileMemoryCache implements ComponentCallbacks2 {
+
+    private static final String TAG = makeLogTag(TileMemoryCache.class);
+
+    /**
+     * The category of Glide's memory cache while the map is shown.
+     */
+    private static final MemoryCategory GLIDE_MEMORY_CATEGORY = MemoryCategory.LOW;
+
+    private static TileMemoryCache sInstance;
+
+    private final LruCache<String, Tile> mCache;
+
+    /**
+     * The number of maps shown, guarded by this.
+     */
+    private int mUsers;
+
+    /**
+     * Returns the cache shared by all tile providers, creating it if needed.
+     */
+    public static synchronized TileMemoryCache getInstance(Context context) {
+        if (sInstance == null) {
+            Context appContext = context.getApplicationContext();
+            int glideBytes = new MemorySizeCalculator(appContext).getMemoryCacheSize();
+            int maxBytes = (int) (glideBytes * (1 - GLIDE_MEMORY_CATEGORY.getMultiplier()));
+            sInstance = new TileMemoryCache(maxBytes);
+            appContext.registerComponentCallbacks(sInstance);
+            LOGD(TAG, "Tile memory cache of " + maxBytes + " bytes");
+        }
+        return sInstance;
+    }
+
+    /**
+     * @param maxBytes The maximum total size of the tiles' data.
+     */
+    TileMemoryCache(int maxBytes) {
+        mCache = new LruCache<String, Tile>(maxBytes) {
+            @Override
+            protected int sizeOf(String key, Tile tile) {
+                return tile.data.length;
+            }
+        };
+    }
+
+    /**
+     * @return The tile cached for {@code key}, or null if it is not cached.
+     */
+    public Tile get(String key) {
+        return mCache.get(key);
+    }
+
+    /**
+     * Caches {@code tile}, which must not be modified afterwards. Empty tiles are not cached.
+     */
+    public void put(String key, Tile tile) {
+        if (tile != null && tile.data != null) {
+            mCache.put(key, tile);
+        }
+    }
+
+    /**
+     * Drops every cached tile, for when the tiles change.
+     */
+    public void evictAll() {
+        mCache.evictAll();
+    }
+
+    /**
+     * Called when a map starts showing tiles. Makes room for them in Glide's memory cache.
+     */
+    public synchronized void acquire(Context context) {
+        if (mUsers++ == 0) {
+            Glide.get(context).setMemoryCategory(GLIDE_MEMORY_CATEGORY);
+        }
+    }
+
+    /**
+     * Called when a map stops showing tiles. Once no map is shown, drops the tiles and gives the
+     * memory back to Glide.
+     */
+    public synchronized void release(Context context) {
+        if (mUsers > 0 && --mUsers == 0) {
+            LOGD(TAG, "Tile memory cache: " + mCache);
+            mCache.evictAll();
+            Glide.get(context).setMemoryCategory(MemoryCategory.NORMAL);
+        }
+    }
+
+    public int getHitCount() {
+        return mCache.hitCount();
+    }
+
+    public int getMissCount() {
+        return mCache.missCount();
+    }
+
+    /**
+     * @return The share of lookups that found their tile, between 0 and 1.
+     */
+    public float getHitRate() {
+        int hits = mCache.hitCount();
+        int lookups = hits + mCache.missCount();
+        return lookups == 0 ? 0 : (float) hits / lookups;
+    }
+
+    /**
+     * @return The total size of the cached tiles' data.
+     */
+    public int size() {
+        return mCache.size();
+    }
+
+    public int maxSize() {
+        return mCache.maxSize();
+    }
+
+    @Override
+    public void onTrimMemory(int level) {
+        if (level >= TRIM_MEMORY_MODERATE || level == TRIM_MEMORY_RUNNING_CRITICAL) {
+            mCache.evictAll();
+        } else if (level >= TRIM_MEMORY_RUNNING_LOW) {
+            mCache.trimToSize(mCache.maxSize() / 2);
+        }
+    }
+
+    @Override
+    public void onLowMemory() {
+        mCache.evictAll();
+    }
+
+    @Override
+    public void onConfigurationChanged(Configuration newConfig) {
+    }
+}
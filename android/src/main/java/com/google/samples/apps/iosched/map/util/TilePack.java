@@ -0,0 +1,281 @@
+/*
+ * Copyright 2016 Google Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.samples.apps.iosched.map.util;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * A single file holding the encoded tiles of several floors and zoom levels, read through a
+ * memory mapping.
+ * <p>
+ * The file starts with a header, followed by the tile data, an index of the tiles sorted by
+ * (floor, zoom, x, y) and a footer locating the index. Looking a tile up is a binary search over
+ * the mapped index, and returns a slice of the mapped file: nothing is read or copied until the
+ * caller reads the slice, and the pages of tiles that are never requested are never loaded.
+ * <p>
+ * Packs are written once by a {@link Writer} and are immutable afterwards, so a pack can be read
+ * from any number of threads.
+ */
+public class TilePack {
+
+    private static final int MAGIC = 0x54504b31; // "TPK1"
+
+    private static final int HEADER_SIZE = 4;
+
+    private static final int INDEX_ENTRY_SIZE = 16; // key (long), offset (int), length (int)
+
+    // source key length, tile size, min zoom, max zoom, tile count, index offset, magic
+    private static final int FOOTER_SIZE = 7 * 4;
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    private final ByteBuffer mBuffer;
+
+    private final int mIndexOffset;
+
+    private final int mTileCount;
+
+    private final int mTileSize;
+
+    private final int mMinZoom;
+
+    private final int mMaxZoom;
+
+    private final String mSourceKey;
+
+    private TilePack(ByteBuffer buffer) throws IOException {
+        mBuffer = buffer;
+        int footer = buffer.limit() - FOOTER_SIZE;
+        if (footer < HEADER_SIZE || buffer.getInt(0) != MAGIC
+                || buffer.getInt(footer + 6 * 4) != MAGIC) {
+            throw new IOException("Not a tile pack");
+        }
+        int sourceKeyLength = buffer.getInt(footer);
+        mTileSize = buffer.getInt(footer + 4);
+        mMinZoom = buffer.getInt(footer + 2 * 4);
+        mMaxZoom = buffer.getInt(footer + 3 * 4);
+        mTileCount = buffer.getInt(footer + 4 * 4);
+        mIndexOffset = buffer.getInt(footer + 5 * 4);
+        int sourceKeyOffset = mIndexOffset + mTileCount * INDEX_ENTRY_SIZE;
+        if (mIndexOffset < HEADER_SIZE || sourceKeyOffset + sourceKeyLength != footer) {
+            throw new IOException("Corrupt tile pack");
+        }
+        byte[] sourceKey = new byte[sourceKeyLength];
+        ByteBuffer sourceKeyBuffer = buffer.duplicate();
+        sourceKeyBuffer.position(sourceKeyOffset);
+        sourceKeyBuffer.get(sourceKey);
+        mSourceKey = new String(sourceKey, UTF8);
+    }
+
+    /**
+     * Maps the pack stored in {@code file}.
+     *
+     * @throws IOException If the file cannot be read or is not a complete pack.
+     */
+    public static TilePack open(File file) throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try {
+            FileChannel channel = raf.getChannel();
+            // The mapping stays valid once the file is closed.
+            return new TilePack(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        } finally {
+            raf.close();
+        }
+    }
+
+    /**
+     * @return The key identifying the sources the tiles were rendered from, as passed to the
+     * {@link Writer}.
+     */
+    public String getSourceKey() {
+        return mSourceKey;
+    }
+
+    /**
+     * @return The width and height of the tiles, in pixels.
+     */
+    public int getTileSize() {
+        return mTileSize;
+    }
+
+    public int getTileCount() {
+        return mTileCount;
+    }
+
+    /**
+     * @return Whether the pack holds every non-empty tile of this zoom level. Tiles of such a zoom
+     * level that are not in the pack are empty.
+     */
+    public boolean isZoomComplete(int zoom) {
+        return zoom >= mMinZoom && zoom <= mMaxZoom;
+    }
+
+    /**
+     * Looks up the encoded data of a tile.
+     *
+     * @return A read only buffer holding the tile's data, which shares the pack's memory, or null
+     * if the pack does not hold the tile.
+     */
+    public ByteBuffer getTileData(int floor, int x, int y, int zoom) {
+        long key = getKey(floor, x, y, zoom);
+        int low = 0;
+        int high = mTileCount - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int entry = mIndexOffset + middle * INDEX_ENTRY_SIZE;
+            long middleKey = mBuffer.getLong(entry);
+            if (middleKey < key) {
+                low = middle + 1;
+            } else if (middleKey > key) {
+                high = middle - 1;
+            } else {
+                int offset = mBuffer.getInt(entry + 8);
+                int length = mBuffer.getInt(entry + 12);
+                ByteBuffer data = mBuffer.duplicate();
+                data.limit(offset + length);
+                data.position(offset);
+                return data.slice().asReadOnlyBuffer();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Packs a tile's coordinates so that keys sort by floor, zoom, x and y.
+     */
+    static long getKey(int floor, int x, int y, int zoom) {
+        return ((long) (floor & 0xff) << 56) | ((long) (zoom & 0xff) << 48)
+                | ((long) (x & 0xffffff) << 24) | (y & 0xffffff);
+    }
+
+    /**
+     * Writes a pack. Tiles may be added from several threads, in any order. The pack is written
+     * to a temporary file, which only replaces the pack file once {@link #commit()} succeeded.
+     */
+    public static class Writer implements Closeable {
+
+        private final File mFile;
+
+        private final File mTempFile;
+
+        private final FileOutputStream mFileStream;
+
+        private final DataOutputStream mStream;
+
+        private final String mSourceKey;
+
+        private final int mTileSize;
+
+        private final int mMinZoom;
+
+        private final int mMaxZoom;
+
+        private final List<long[]> mIndex = new ArrayList<long[]>();
+
+        private boolean mClosed;
+
+        /**
+         * @param sourceKey Identifies the sources of the tiles, see {@link #getSourceKey()}.
+         * @param tileSize The width and height of the tiles, in pixels.
+         * @param minZoom The lowest zoom level of which every non-empty tile will be added.
+         * @param maxZoom The highest zoom level of which every non-empty tile will be added.
+         */
+        public Writer(File file, String sourceKey, int tileSize, int minZoom, int maxZoom)
+                throws IOException {
+            mFile = file;
+            mTempFile = new File(file.getPath() + ".tmp");
+            mFileStream = new FileOutputStream(mTempFile);
+            mStream = new DataOutputStream(new BufferedOutputStream(mFileStream, 64 * 1024));
+            mSourceKey = sourceKey;
+            mTileSize = tileSize;
+            mMinZoom = minZoom;
+            mMaxZoom = maxZoom;
+            mStream.writeInt(MAGIC);
+        }
+
+        public synchronized void add(int floor, int x, int y, int zoom, byte[] data)
+                throws IOException {
+            if (mClosed) {
+                throw new IOException("Writer is closed");
+            }
+            mIndex.add(new long[]{getKey(floor, x, y, zoom), mStream.size(), data.length});
+            mStream.write(data);
+        }
+
+        /**
+         * Writes the index and replaces the pack file with the new pack.
+         */
+        public synchronized void commit() throws IOException {
+            if (mClosed) {
+                throw new IOException("Writer is closed");
+            }
+            Collections.sort(mIndex, new Comparator<long[]>() {
+                @Override
+                public int compare(long[] lhs, long[] rhs) {
+                    return lhs[0] < rhs[0] ? -1 : (lhs[0] == rhs[0] ? 0 : 1);
+                }
+            });
+            int indexOffset = mStream.size();
+            for (long[] entry : mIndex) {
+                mStream.writeLong(entry[0]);
+                mStream.writeInt((int) entry[1]);
+                mStream.writeInt((int) entry[2]);
+            }
+            byte[] sourceKey = mSourceKey.getBytes(UTF8);
+            mStream.write(sourceKey);
+            mStream.writeInt(sourceKey.length);
+            mStream.writeInt(mTileSize);
+            mStream.writeInt(mMinZoom);
+            mStream.writeInt(mMaxZoom);
+            mStream.writeInt(mIndex.size());
+            mStream.writeInt(indexOffset);
+            mStream.writeInt(MAGIC);
+            mStream.flush();
+            mFileStream.getFD().sync();
+            mClosed = true;
+            mStream.close();
+            if (!mTempFile.renameTo(mFile)) {
+                throw new IOException("Failed renaming " + mTempFile + " to " + mFile);
+            }
+        }
+
+        /**
+         * Discards the pack, unless it was committed.
+         */
+        @Override
+        public synchronized void close() throws IOException {
+            if (!mClosed) {
+                mClosed = true;
+                mStream.close();
+                mTempFile.delete();
+            }
+        }
+    }
+}
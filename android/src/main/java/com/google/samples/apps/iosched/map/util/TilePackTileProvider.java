@@ -0,0 +1,57 @@
+/*
+ * Copyright 2016 Google Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.samples.apps.iosched.map.util;
+
+import com.google.android.gms.maps.model.Tile;
+import com.google.android.gms.maps.model.TileProvider;
+
+import java.nio.ByteBuffer;
+
+/**
+ * TileProvider serving the tiles of a floor from a {@link TilePack} rendered ahead of time by the
+ * {@link TilePyramidRenderer}, and the tiles the pack does not hold from another TileProvider.
+ */
+public class TilePackTileProvider implements TileProvider {
+
+    private final TilePack mTilePack;
+    private final int mFloor;
+    private final TileProvider mTileProvider;
+
+    /**
+     * @param tilePack     the pack holding the pre-rendered tiles
+     * @param floor        the floor whose tiles are served
+     * @param tileProvider provides the tiles of the zoom levels that were not pre-rendered
+     */
+    public TilePackTileProvider(TilePack tilePack, int floor, TileProvider tileProvider) {
+        mTilePack = tilePack;
+        mFloor = floor;
+        mTileProvider = tileProvider;
+    }
+
+    @Override
+    public Tile getTile(int x, int y, int zoom) {
+        ByteBuffer data = mTilePack.getTileData(mFloor, x, y, zoom);
+        if (data == null) {
+            // Every tile covering the floor plan was pre-rendered, the others are empty.
+            return mTilePack.isZoomComplete(zoom) ? NO_TILE : mTileProvider.getTile(x, y, zoom);
+        }
+        // The only copy out of the pack: Tile requires its data in an array.
+        byte[] bytes = new byte[data.remaining()];
+        data.get(bytes);
+        return new Tile(mTilePack.getTileSize(), mTilePack.getTileSize(), bytes);
+    }
+}
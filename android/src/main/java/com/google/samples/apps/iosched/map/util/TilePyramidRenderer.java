@@ -0,0 +1,257 @@
+/*
+ * Copyright 2016 Google Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.samples.apps.iosched.map.util;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.graphics.Rect;
+import android.os.Process;
+import android.util.SparseArray;
+
+import com.google.android.gms.maps.model.Tile;
+import com.google.common.base.Throwables;
+import com.google.common.util.concurrent.Uninterruptibles;
+import com.google.samples.apps.iosched.BuildConfig;
+import com.google.samples.apps.iosched.provider.ScheduleContract;
+import com.google.samples.apps.iosched.util.MapUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static com.google.samples.apps.iosched.util.LogUtils.LOGD;
+import static com.google.samples.apps.iosched.util.LogUtils.LOGE;
+import static com.google.samples.apps.iosched.util.LogUtils.LOGI;
+import static com.google.samples.apps.iosched.util.LogUtils.LOGW;
+import static com.google.samples.apps.iosched.util.LogUtils.makeLogTag;
+
+/**
+ * Renders the tiles of every floor's map overlay, from {@link #MIN_ZOOM} to {@link #MAX_ZOOM},
+ * into a {@link TilePack}, so that the map serves them without rendering when it is opened.
+ * <p>
+ * Tiles are rendered in parallel, all threads replaying the same floor plan. The
+ * pack records the overlay files and screen density it was rendered for, and is rendered again
+ * when either changes.
+ */
+public class TilePyramidRenderer {
+
+    private static final String TAG = makeLogTag(TilePyramidRenderer.class);
+
+    /**
+     * The lowest pre-rendered zoom level, from which the map shows the venue's floor plan.
+     */
+    public static final int MIN_ZOOM = (int) BuildConfig.MAP_MAXRENDERED_ZOOM;
+
+    /**
+     * The highest pre-rendered zoom level. Each zoom level has four times the tiles of the
+     * previous one; tiles of higher zoom levels are rendered when the map requests them.
+     */
+    public static final int MAX_ZOOM = 19;
+
+    private static final String TILE_PACK_FILE = "tiles.pack";
+
+    // Bump when the rendering changes, to render packs again.
+    private static final int RENDER_VERSION = 1;
+
+    private static final int RENDER_THREADS =
+            Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors()));
+
+    private static final AtomicBoolean sRendering = new AtomicBoolean();
+
+    private TilePyramidRenderer() {
+    }
+
+    /**
+     * Renders the tile pack in a background thread if it is missing or out of date. Does nothing
+     * if a render is already running.
+     */
+    public static void renderInBackground(Context context) {
+        if (!sRendering.compareAndSet(false, true)) {
+            LOGD(TAG, "Tile pack is already being rendered.");
+            return;
+        }
+        final Context appContext = context.getApplicationContext();
+        new Thread(new Runnable() {
+            @Override
+            public void run() {
+                Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                try {
+                    SparseArray<File> files = queryTileFiles(appContext);
+                    float dpi = getDpi(appContext);
+                    if (files.size() > 0 && openTilePack(appContext, files, dpi) == null) {
+                        render(files, dpi, getTilePackFile(appContext));
+                    }
+                } catch (IOException e) {
+                    LOGE(TAG, "Failed rendering tile pack.", e);
+                } finally {
+                    sRendering.set(false);
+                }
+            }
+        }, TAG).start();
+    }
+
+    /**
+     * Opens the tile pack, if it was rendered from {@code files} for {@code dpi}.
+     *
+     * @param files The overlay file of each floor.
+     * @return The tile pack, or null if it is missing or was rendered from other files.
+     */
+    public static TilePack openTilePack(Context context, SparseArray<File> files, float dpi) {
+        File packFile = getTilePackFile(context);
+        if (!packFile.exists()) {
+            return null;
+        }
+        try {
+            TilePack pack = TilePack.open(packFile);
+            if (pack.getSourceKey().equals(getSourceKey(files, dpi))) {
+                return pack;
+            }
+            LOGD(TAG, "Tile pack is out of date.");
+        } catch (IOException e) {
+            LOGW(TAG, "Failed opening tile pack: " + e.getMessage());
+        }
+        return null;
+    }
+
+    /**
+     * Renders the tiles of every floor into a tile pack, replacing {@code packFile} once done.
+     *
+     * @param files The overlay file of each floor.
+     */
+    public static void render(SparseArray<File> files, float dpi, File packFile)
+            throws IOException {
+        long start = System.currentTimeMillis();
+        ExecutorService executor = Executors.newFixedThreadPool(RENDER_THREADS);
+        TilePack.Writer writer = new TilePack.Writer(packFile, getSourceKey(files, dpi),
+                SVGTileProvider.getTileSize(dpi), MIN_ZOOM, MAX_ZOOM);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < files.size(); i++) {
+                SVGTileProvider provider = new SVGTileProvider(files.valueAt(i), dpi);
+                for (int zoom = MIN_ZOOM; zoom <= MAX_ZOOM; zoom++) {
+                    Rect bounds = provider.getTileBounds(zoom);
+                    for (int x = bounds.left; x <= bounds.right; x++) {
+                        for (int y = bounds.top; y <= bounds.bottom; y++) {
+                            futures.add(executor.submit(new RenderTask(provider, writer,
+                                    files.keyAt(i), x, y, zoom)));
+                        }
+                    }
+                }
+            }
+            for (Future<?> future : futures) {
+                Uninterruptibles.getUninterruptibly(future);
+            }
+            writer.commit();
+
+            long elapsed = Math.max(1, System.currentTimeMillis() - start);
+            LOGI(TAG, "Rendered " + futures.size() + " tiles of " + files.size() + " floors in "
+                    + elapsed + "ms (" + (futures.size() * 1000L / elapsed) + " tiles/sec), "
+                    + packFile.length() / 1024 + "kB.");
+        } catch (ExecutionException ex) {
+            Throwables.propagateIfInstanceOf(ex.getCause(), IOException.class);
+            Throwables.propagateIfPossible(ex.getCause());
+            throw new IOException("Error rendering tiles", ex.getCause());
+        } finally {
+            executor.shutdownNow();
+            writer.close();
+        }
+    }
+
+    /**
+     * @return The overlay file of each floor, as stored by the last data import.
+     */
+    public static SparseArray<File> queryTileFiles(Context context) {
+        SparseArray<File> files = new SparseArray<>();
+        Cursor cursor = context.getContentResolver().query(ScheduleContract.MapTiles.buildUri(),
+                new String[]{ScheduleContract.MapTiles.TILE_FLOOR,
+                        ScheduleContract.MapTiles.TILE_FILE}, null, null, null);
+        if (cursor == null) {
+            return files;
+        }
+        try {
+            while (cursor.moveToNext()) {
+                int floor = cursor.getInt(0);
+                File file = MapUtils.getTileFile(context.getApplicationContext(),
+                        cursor.getString(1));
+                if (file.exists()) {
+                    files.put(floor, file);
+                } else {
+                    LOGE(TAG, "Tile file not found for floor " + floor);
+                }
+            }
+        } finally {
+            cursor.close();
+        }
+        return files;
+    }
+
+    public static File getTilePackFile(Context context) {
+        return new File(context.getCacheDir(), TILE_PACK_FILE);
+    }
+
+    /**
+     * @return The density the map renders its tiles for, see
+     * {@link com.google.samples.apps.iosched.map.MapFragment}.
+     */
+    static float getDpi(Context context) {
+        return context.getResources().getDisplayMetrics().densityDpi / 160f;
+    }
+
+    private static String getSourceKey(SparseArray<File> files, float dpi) {
+        StringBuilder key = new StringBuilder();
+        key.append(RENDER_VERSION).append(';').append(SVGTileProvider.getTileSize(dpi));
+        for (int i = 0; i < files.size(); i++) {
+            File file = files.valueAt(i);
+            key.append(';').append(files.keyAt(i)).append(':').append(file.getName())
+                    .append(':').append(file.length()).append(':').append(file.lastModified());
+        }
+        return key.toString();
+    }
+
+    private static class RenderTask implements Callable<Void> {
+        private final SVGTileProvider mProvider;
+        private final TilePack.Writer mWriter;
+        private final int mFloor;
+        private final int mX;
+        private final int mY;
+        private final int mZoom;
+
+        RenderTask(SVGTileProvider provider, TilePack.Writer writer, int floor, int x, int y,
+                int zoom) {
+            mProvider = provider;
+            mWriter = writer;
+            mFloor = floor;
+            mX = x;
+            mY = y;
+            mZoom = zoom;
+        }
+
+        @Override
+        public Void call() throws IOException {
+            Tile tile = mProvider.getTile(mX, mY, mZoom);
+            mWriter.add(mFloor, mX, mY, mZoom, tile.data);
+            return null;
+        }
+    }
+}
@@ -18,10 +18,12 @@ package com.google.samples.apps.iosched.model;
 import android.content.Context;
 import android.database.Cursor;
 import android.os.AsyncTask;
+import android.support.annotation.Nullable;
 import android.text.TextUtils;
 import android.util.Log;
 
 import com.google.samples.apps.iosched.BuildConfig;
+import com.google.samples.apps.iosched.Config;
 import com.google.samples.apps.iosched.R;
 import com.google.samples.apps.iosched.myschedule.MyScheduleModel;
 import com.google.samples.apps.iosched.provider.ScheduleContract;
@@ -35,7 +37,9 @@ import com.google.samples.apps.iosched.util.UIUtils;
 
 import java.util.ArrayList;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Locale;
 
 import static com.google.samples.apps.iosched.util.LogUtils.LOGD;
@@ -59,37 +63,174 @@ public class ScheduleHelper {
         addSessions(start, end, mutableItems, immutableItems);
 
         ArrayList<ScheduleItem> result = ScheduleItemHelper.processItems(mutableItems, immutableItems);
+        logConflicts(result);
+
+        setSessionCounters(result, start, end);
+        return result;
+    }
+
+    /**
+     * Returns the schedule of each day of {@code days}, keyed by the index of the day in {@code
+     * days}. If {@code sessionIds} is not null, only the days in which one of those sessions starts
+     * are returned.
+     * <p/>
+     * Blocks, sessions and session counters are read once for all the returned days, instead of
+     * once per day as {@link #getScheduleData(long, long)} would.
+     *
+     * @param days       The start and end of each day, as in {@link Config#CONFERENCE_DAYS}
+     * @param sessionIds The sessions that changed, or null to return all days
+     */
+    public HashMap<Integer, ArrayList<ScheduleItem>> getScheduleData(long[][] days,
+            @Nullable String[] sessionIds) {
+        HashMap<Integer, ArrayList<ScheduleItem>> result =
+                new HashMap<Integer, ArrayList<ScheduleItem>>();
+        List<Integer> dayIndexes = sessionIds == null
+                ? getAllDayIndexes(days) : getDayIndexesOfSessions(days, sessionIds);
+        if (dayIndexes.isEmpty()) {
+            return result;
+        }
+
+        long start = Long.MAX_VALUE;
+        long end = Long.MIN_VALUE;
+        for (int dayIndex : dayIndexes) {
+            start = Math.min(start, days[dayIndex][0]);
+            end = Math.max(end, days[dayIndex][1]);
+        }
+
+        ArrayList<ScheduleItem> mutableItems = new ArrayList<ScheduleItem>();
+        ArrayList<ScheduleItem> immutableItems = new ArrayList<ScheduleItem>();
+        addBlocks(start, end, mutableItems, immutableItems);
+        addSessions(start, end, mutableItems, immutableItems);
+
+        List<long[]> counters = null;
+        for (int dayIndex : dayIndexes) {
+            long dayStart = days[dayIndex][0];
+            long dayEnd = days[dayIndex][1];
+            ArrayList<ScheduleItem> dayItems = ScheduleItemHelper.processItems(
+                    getItemsStartingIn(mutableItems, dayStart, dayEnd),
+                    getItemsStartingIn(immutableItems, dayStart, dayEnd));
+            logConflicts(dayItems);
+
+            if (hasFreeItems(dayItems)) {
+                if (counters == null) {
+                    counters = querySessionCounters(start, end);
+                }
+                applySessionCounters(dayItems, counters);
+            }
+            result.put(dayIndex, dayItems);
+        }
+        return result;
+    }
+
+    private void logConflicts(ArrayList<ScheduleItem> items) {
         if (BuildConfig.DEBUG || Log.isLoggable(TAG, Log.DEBUG)) {
             ScheduleItem previous = null;
-            for (ScheduleItem item: result) {
+            for (ScheduleItem item: items) {
                 if ((item.flags & ScheduleItem.FLAG_CONFLICTS_WITH_PREVIOUS) != 0) {
                     Log.d(TAG, "Schedule Item conflicts with previous. item="+item+" previous="+previous);
                 }
                 previous = item;
             }
         }
+    }
 
-        setSessionCounters(result, start, end);
-        return result;
+    private static List<Integer> getAllDayIndexes(long[][] days) {
+        List<Integer> dayIndexes = new ArrayList<Integer>(days.length);
+        for (int i = 0; i < days.length; i++) {
+            dayIndexes.add(i);
+        }
+        return dayIndexes;
     }
 
     /**
-     * Fill the number of sessions for FREE blocks:
+     * Returns the indexes of the days of {@code days} in which at least one of {@code sessionIds}
+     * starts, in ascending order.
      */
-    protected void setSessionCounters(ArrayList<ScheduleItem> items, long dayStart, long dayEnd) {
-        ArrayList<ScheduleItem> free = new ArrayList<ScheduleItem>();
+    private List<Integer> getDayIndexesOfSessions(long[][] days, String[] sessionIds) {
+        List<Integer> dayIndexes = new ArrayList<Integer>();
+        if (sessionIds.length == 0) {
+            return dayIndexes;
+        }
 
-        for (ScheduleItem item: items) {
+        StringBuilder selection = new StringBuilder(Sessions.SESSION_ID).append(" IN (");
+        for (int i = 0; i < sessionIds.length; i++) {
+            selection.append(i == 0 ? "?" : ",?");
+        }
+        selection.append(")");
+
+        boolean[] changedDays = new boolean[days.length];
+        Cursor cursor = null;
+        try {
+            cursor = mContext.getContentResolver().query(Sessions.CONTENT_URI,
+                    new String[]{Sessions.SESSION_START}, selection.toString(), sessionIds, null);
+            while (cursor != null && cursor.moveToNext()) {
+                int dayIndex = getDayIndex(days, cursor.getLong(0));
+                if (dayIndex >= 0) {
+                    changedDays[dayIndex] = true;
+                }
+            }
+        } finally {
+            if (cursor != null) {
+                cursor.close();
+            }
+        }
+
+        for (int i = 0; i < changedDays.length; i++) {
+            if (changedDays[i]) {
+                dayIndexes.add(i);
+            }
+        }
+        return dayIndexes;
+    }
+
+    /**
+     * Returns the index of the day of {@code days} in which {@code time} is, or -1 if none.
+     */
+    private static int getDayIndex(long[][] days, long time) {
+        for (int i = 0; i < days.length; i++) {
+            if (days[i][0] <= time && time <= days[i][1]) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static ArrayList<ScheduleItem> getItemsStartingIn(ArrayList<ScheduleItem> items,
+            long start, long end) {
+        ArrayList<ScheduleItem> result = new ArrayList<ScheduleItem>();
+        for (ScheduleItem item : items) {
+            if (start <= item.startTime && item.startTime <= end) {
+                result.add(item);
+            }
+        }
+        return result;
+    }
+
+    private static boolean hasFreeItems(ArrayList<ScheduleItem> items) {
+        for (ScheduleItem item : items) {
             if (item.type == ScheduleItem.FREE) {
-                free.add(item);
+                return true;
             }
         }
+        return false;
+    }
 
-        if (free.isEmpty()) {
+    /**
+     * Fill the number of sessions for FREE blocks:
+     */
+    protected void setSessionCounters(ArrayList<ScheduleItem> items, long dayStart, long dayEnd) {
+        if (!hasFreeItems(items)) {
             return;
         }
+        applySessionCounters(items, querySessionCounters(dayStart, dayEnd));
+    }
 
-        // Count number of start/end pairs for sessions that are between dayStart and dayEnd and
+    /**
+     * Returns the start and number of the sessions not in my schedule for each start/end pair
+     * between {@code start} and {@code end}.
+     */
+    private List<long[]> querySessionCounters(long start, long end) {
+        // Count number of start/end pairs for sessions that are between start and end and
         // are not in my schedule:
         String liveStreamedOnlySelection = UIUtils.shouldShowLiveSessionsOnly(mContext)
                 ? "AND IFNULL(" + ScheduleContract.Sessions.SESSION_LIVESTREAM_ID + ",'')!=''"
@@ -100,22 +241,28 @@ public class ScheduleHelper {
                 SessionsCounterQuery.PROJECTION,
                 Sessions.SESSION_START + ">=? AND "+Sessions.SESSION_START + "<=? AND "+
                 Sessions.SESSION_IN_MY_SCHEDULE + " = 0 "+liveStreamedOnlySelection,
-                new String[]{String.valueOf(dayStart), String.valueOf(dayEnd)},
-                null);
+                new String[]{String.valueOf(start), String.valueOf(end)},
+                Sessions.SESSION_START);
 
+        List<long[]> counters = new ArrayList<long[]>();
         while (cursor.moveToNext()) {
-            long start = cursor.getLong(SessionsCounterQuery.SESSION_INTERVAL_START);
-            int counter = cursor.getInt(SessionsCounterQuery.SESSION_INTERVAL_COUNT);
-
-            // Find blocks that this interval applies.
-            for (ScheduleItem item: free) {
-                // If grouped sessions starts and ends inside the free block, it is considered in it:
-                if (item.startTime <= start && start < item.endTime) {
-                    item.numOfSessions += counter;
-                }
-            }
+            counters.add(new long[]{cursor.getLong(SessionsCounterQuery.SESSION_INTERVAL_START),
+                    cursor.getInt(SessionsCounterQuery.SESSION_INTERVAL_COUNT)});
         }
         cursor.close();
+        return counters;
+    }
+
+    private void applySessionCounters(ArrayList<ScheduleItem> items, List<long[]> counters) {
+        ArrayList<ScheduleItem> free = new ArrayList<ScheduleItem>();
+
+        for (ScheduleItem item: items) {
+            if (item.type == ScheduleItem.FREE) {
+                free.add(item);
+            }
+        }
+
+        ScheduleItemHelper.addSessionCounts(free, counters);
 
         // remove free blocks that have no available sessions or that are in the past
         long now = TimeUtils.getCurrentTime(mContext);
@@ -138,27 +285,30 @@ public class ScheduleHelper {
         }
     }
 
+    /**
+     * Loads {@link #getScheduleData(long[][], String[])} in the background and passes it to {@code
+     * callback} on the main thread.
+     */
     public void getScheduleDataAsync(final MyScheduleModel.LoadScheduleDataListener callback,
-            long start, long end) {
-        AsyncTask<Long, Void, ArrayList<ScheduleItem>> task
-                = new AsyncTask<Long, Void, ArrayList<ScheduleItem>>() {
+            final long[][] days, @Nullable final String[] sessionIds) {
+        AsyncTask<Void, Void, HashMap<Integer, ArrayList<ScheduleItem>>> task
+                = new AsyncTask<Void, Void, HashMap<Integer, ArrayList<ScheduleItem>>>() {
             @Override
-            protected ArrayList<ScheduleItem> doInBackground(Long... params) {
-                Long start = params[0];
-                Long end = params[1];
-                return getScheduleData(start, end);
+            protected HashMap<Integer, ArrayList<ScheduleItem>> doInBackground(Void... params) {
+                return getScheduleData(days, sessionIds);
             }
 
             @Override
-            protected void onPostExecute(ArrayList<ScheduleItem> scheduleItems) {
-                callback.onDataLoaded(scheduleItems);
+            protected void onPostExecute(
+                    HashMap<Integer, ArrayList<ScheduleItem>> scheduleItemsByDay) {
+                callback.onDataLoaded(scheduleItemsByDay);
             }
         };
         // On honeycomb and above, AsyncTasks are by default executed one by one. We are using a
         // thread pool instead here, because we want this to be executed independently from other
         // AsyncTasks. See the URL below for detail.
         // http://developer.android.com/reference/android/os/AsyncTask.html#execute(Params...)
-        task.executeOnExecutor(AsyncTask.THREAD_POOL_EXECUTOR, start, end);
+        task.executeOnExecutor(AsyncTask.THREAD_POOL_EXECUTOR);
     }
 
     protected void addSessions(long start, long end,
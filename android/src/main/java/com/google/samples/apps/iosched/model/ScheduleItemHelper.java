@@ -16,7 +16,12 @@
 
 package com.google.samples.apps.iosched.model;
 
-import java.util.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.ListIterator;
 
 public class ScheduleItemHelper {
 
@@ -40,12 +45,8 @@ public class ScheduleItemHelper {
         result.addAll(immutableItems);
         result.addAll(mutableItems);
 
-        Collections.sort(result, new Comparator<ScheduleItem>() {
-            @Override
-            public int compare(ScheduleItem lhs, ScheduleItem rhs) {
-                return lhs.startTime < rhs.startTime ? -1 : 1;
-            }
-        });
+        // Items starting at the same time keep their order.
+        Collections.sort(result);
 
         return result;
     }
@@ -69,51 +70,143 @@ public class ScheduleItemHelper {
         }
     }
 
+    /**
+     * Moves or splits the mutable items overlapping an immutable one, or removes them if too
+     * short to remain.
+     * <p/>
+     * Each mutable item only ever shrinks, so it is only adjusted by the immutable items it
+     * overlaps at first. These are found through an {@link IntervalIndex}, then applied in their
+     * original order, which keeps the result of processing every pair.
+     */
     static protected void moveMutables(ArrayList<ScheduleItem> mutableItems, ArrayList<ScheduleItem> immutableItems) {
-        Iterator<ScheduleItem> immutableIt = immutableItems.iterator();
+        ArrayList<ScheduleItem> movable = new ArrayList<ScheduleItem>();
+        for (ScheduleItem immutableItem : immutableItems) {
+            // Breaks (lunch, after hours, etc) should not make free blocks to move
+            if (immutableItem.type != ScheduleItem.BREAK) {
+                movable.add(immutableItem);
+            }
+        }
+        if (movable.isEmpty() || mutableItems.isEmpty()) {
+            return;
+        }
+        IntervalIndex index = new IntervalIndex(movable);
 
-        while (immutableIt.hasNext()) {
-            ScheduleItem immutableItem = immutableIt.next();
-            if (immutableItem.type == ScheduleItem.BREAK) {
-                // Breaks (lunch, after hours, etc) should not make free blocks to move
-                continue;
+        ArrayList<ScheduleItem> result = new ArrayList<ScheduleItem>(mutableItems.size());
+        ArrayList<ScheduleItem> pieces = new ArrayList<ScheduleItem>();
+        for (ScheduleItem mutableItem : mutableItems) {
+            pieces.clear();
+            pieces.add(mutableItem);
+            for (int position : index.findIntersecting(mutableItem)) {
+                if (pieces.isEmpty()) {
+                    break;
+                }
+                moveMutables(pieces, movable.get(position));
             }
-            ListIterator<ScheduleItem> mutableIt = mutableItems.listIterator();
-            while (mutableIt.hasNext()) {
-                ScheduleItem mutableItem = mutableIt.next();
-                ScheduleItem split = null;
-
-                // If mutable item is overlapping the immutable one
-                if (intersect(immutableItem, mutableItem, true)) {
-                    if (isContainedInto(mutableItem, immutableItem)) {
-                        // if mutable is entirely contained into immutable, just remove it
-                        mutableIt.remove();
-                        continue;
-                    } else if (isContainedInto(immutableItem, mutableItem)) {
-                        // if immutable is entirely contained into mutable, split mutable if necessary:
-                        if (isIntervalLongEnough(immutableItem.endTime, mutableItem.endTime)) {
-                            split = (ScheduleItem) mutableItem.clone();
-                            split.startTime = immutableItem.endTime;
-                        }
-                        mutableItem.endTime = immutableItem.startTime;
-                    } else if (mutableItem.startTime < immutableItem.endTime) {
-                        // Adjust the start of the mutable
-                        mutableItem.startTime = immutableItem.endTime;
-                    } else if (mutableItem.endTime > immutableItem.startTime) {
-                        // Adjust the end of the mutable
-                        mutableItem.endTime = immutableItem.startTime;
-                    }
+            result.addAll(pieces);
+        }
+        mutableItems.clear();
+        mutableItems.addAll(result);
+    }
 
-                    if (!isIntervalLongEnough(mutableItem.startTime, mutableItem.endTime)) {
-                        mutableIt.remove();
-                    }
-                    if (split != null) {
-                        mutableIt.add(split);
+    static private void moveMutables(ArrayList<ScheduleItem> mutableItems, ScheduleItem immutableItem) {
+        ListIterator<ScheduleItem> mutableIt = mutableItems.listIterator();
+        while (mutableIt.hasNext()) {
+            ScheduleItem mutableItem = mutableIt.next();
+            ScheduleItem split = null;
+
+            // If mutable item is overlapping the immutable one
+            if (intersect(immutableItem, mutableItem, true)) {
+                if (isContainedInto(mutableItem, immutableItem)) {
+                    // if mutable is entirely contained into immutable, just remove it
+                    mutableIt.remove();
+                    continue;
+                } else if (isContainedInto(immutableItem, mutableItem)) {
+                    // if immutable is entirely contained into mutable, split mutable if necessary:
+                    if (isIntervalLongEnough(immutableItem.endTime, mutableItem.endTime)) {
+                        split = (ScheduleItem) mutableItem.clone();
+                        split.startTime = immutableItem.endTime;
                     }
+                    mutableItem.endTime = immutableItem.startTime;
+                } else if (mutableItem.startTime < immutableItem.endTime) {
+                    // Adjust the start of the mutable
+                    mutableItem.startTime = immutableItem.endTime;
+                } else if (mutableItem.endTime > immutableItem.startTime) {
+                    // Adjust the end of the mutable
+                    mutableItem.endTime = immutableItem.startTime;
+                }
+
+                if (!isIntervalLongEnough(mutableItem.startTime, mutableItem.endTime)) {
+                    mutableIt.remove();
+                }
+                if (split != null) {
+                    mutableIt.add(split);
                 }
             }
         }
+    }
+
+    /**
+     * Adds to the {@link ScheduleItem#numOfSessions} of each of {@code freeItems} the number of
+     * sessions of the {@code counters} starting in it.
+     *
+     * @param counters The start time and number of sessions of each group of sessions
+     */
+    static public void addSessionCounts(List<ScheduleItem> freeItems, List<long[]> counters) {
+        if (freeItems.isEmpty() || counters.isEmpty()) {
+            return;
+        }
+        long[][] sortedCounters = counters.toArray(new long[counters.size()][]);
+        if (!isSortedByStart(sortedCounters)) {
+            Arrays.sort(sortedCounters, new Comparator<long[]>() {
+                @Override
+                public int compare(long[] lhs, long[] rhs) {
+                    return lhs[0] < rhs[0] ? -1 : (lhs[0] == rhs[0] ? 0 : 1);
+                }
+            });
+        }
+        long[] starts = new long[sortedCounters.length];
+        // sessionsBefore[i] is the number of sessions of the first i groups.
+        long[] sessionsBefore = new long[sortedCounters.length + 1];
+        for (int i = 0; i < sortedCounters.length; i++) {
+            starts[i] = sortedCounters[i][0];
+            sessionsBefore[i + 1] = sessionsBefore[i] + sortedCounters[i][1];
+        }
 
+        for (ScheduleItem item : freeItems) {
+            // If grouped sessions starts inside the free block, it is considered in it:
+            int first = firstIndexAtLeast(starts, item.startTime);
+            int last = firstIndexAtLeast(starts, item.endTime);
+            if (last > first) {
+                item.numOfSessions += (int) (sessionsBefore[last] - sessionsBefore[first]);
+            }
+        }
+    }
+
+    static private boolean isSortedByStart(long[][] counters) {
+        for (int i = 1; i < counters.length; i++) {
+            if (counters[i - 1][0] > counters[i][0]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the index of the first value of the sorted {@code values} at least {@code value},
+     * or the length of {@code values} if none.
+     */
+    static private int firstIndexAtLeast(long[] values, long value) {
+        int low = 0;
+        int high = values.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (values[middle] < value) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
     }
 
     static private boolean isIntervalLongEnough(long start, long end) {
@@ -129,5 +222,91 @@ public class ScheduleItemHelper {
                 contained.endTime <= container.endTime;
     }
 
+    /**
+     * Finds the items of a list overlapping a given item by more than {@link #ALLOWED_OVERLAP}.
+     * The items are sorted by start time along with the running maximum of their end time, so a
+     * lookup costs O(log n) plus the number of items it passes.
+     */
+    static private class IntervalIndex {
+
+        private final List<ScheduleItem> mItems;
+
+        // The positions of the items sorted by start time, or null if they are in that order.
+        private final int[] mOrder;
 
+        private final long[] mStarts;
+
+        // mMaxEnds[i] is the latest end time of the first i + 1 sorted items.
+        private final long[] mMaxEnds;
+
+        private int[] mFound = new int[16];
+
+        IntervalIndex(final List<ScheduleItem> items) {
+            mItems = items;
+            int size = items.size();
+            boolean sorted = true;
+            for (int i = 1; i < size && sorted; i++) {
+                sorted = items.get(i - 1).startTime <= items.get(i).startTime;
+            }
+            // Items are usually given in start time order already.
+            if (sorted) {
+                mOrder = null;
+            } else {
+                Integer[] positions = new Integer[size];
+                for (int i = 0; i < size; i++) {
+                    positions[i] = i;
+                }
+                Arrays.sort(positions, new Comparator<Integer>() {
+                    @Override
+                    public int compare(Integer lhs, Integer rhs) {
+                        long lhsStart = items.get(lhs).startTime;
+                        long rhsStart = items.get(rhs).startTime;
+                        return lhsStart < rhsStart ? -1 : (lhsStart == rhsStart ? 0 : 1);
+                    }
+                });
+                mOrder = new int[size];
+                for (int i = 0; i < size; i++) {
+                    mOrder[i] = positions[i];
+                }
+            }
+
+            mStarts = new long[size];
+            mMaxEnds = new long[size];
+            for (int i = 0; i < size; i++) {
+                ScheduleItem item = items.get(mOrder == null ? i : mOrder[i]);
+                mStarts[i] = item.startTime;
+                mMaxEnds[i] = Math.max(i > 0 ? mMaxEnds[i - 1] : Long.MIN_VALUE, item.endTime);
+            }
+        }
+
+        /**
+         * Returns the positions in the indexed list of the items intersecting {@code item}, in
+         * ascending order.
+         */
+        int[] findIntersecting(ScheduleItem item) {
+            // Items starting this late can't intersect item.
+            int end = firstIndexAtLeast(mStarts, item.endTime - ALLOWED_OVERLAP);
+            int count = 0;
+            for (int i = end - 1; i >= 0 && mMaxEnds[i] > item.startTime + ALLOWED_OVERLAP;
+                    i--) {
+                int position = mOrder == null ? i : mOrder[i];
+                if (intersect(mItems.get(position), item, true)) {
+                    if (count == mFound.length) {
+                        mFound = Arrays.copyOf(mFound, count * 2);
+                    }
+                    mFound[count++] = position;
+                }
+            }
+
+            int[] found = new int[count];
+            for (int i = 0; i < count; i++) {
+                // The sorted items were walked backwards.
+                found[i] = mFound[count - 1 - i];
+            }
+            if (mOrder != null) {
+                Arrays.sort(found);
+            }
+            return found;
+        }
+    }
 }
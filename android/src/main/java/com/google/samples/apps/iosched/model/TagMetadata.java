@@ -32,20 +32,84 @@ import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 
+/**
+ * The tags of the conference, by ID, by name and by category. A TagMetadata is not changed once
+ * built, so a single one is shared by every screen: the loader of {@link #createCursorLoader}
+ * only queries the tags table when it changed since the last query, see {@link
+ * #invalidateCache()}.
+ */
 public class TagMetadata {
 
+    /**
+     * The tag metadata read at {@link #sGeneration}, or null if it hasn't been read since the
+     * tags last changed.
+     */
+    private static TagMetadata sCache;
+
+    /**
+     * The generation of the tags table, incremented each time it changes.
+     */
+    private static int sGeneration;
+
+    // All tags, in the order they were read.
+    private final ArrayList<Tag> mTags = new ArrayList<Tag>();
+
     // List of tags in each category, sorted by the category sort order.
-    private HashMap<String, ArrayList<Tag>> mTagsInCategory = new HashMap<String, ArrayList<Tag>>();
+    private final HashMap<String, ArrayList<Tag>> mTagsInCategory =
+            new HashMap<String, ArrayList<Tag>>();
 
     // Hash map from tag ID to tag.
-    private HashMap<String, Tag> mTagsById = new HashMap<String, Tag>();
+    private final HashMap<String, Tag> mTagsById = new HashMap<String, Tag>();
 
     // Hash map from tag name to tag id.
-    private HashMap<String, String> mTagsByName = new HashMap<String, String>();
+    private final HashMap<String, String> mTagsByName = new HashMap<String, String>();
 
+    /**
+     * Returns a loader of the tags, whose cursor should be read with {@link #fromCursor(Cursor)}.
+     * The loader serves the shared tag metadata if it is current, without querying the tags
+     * table.
+     */
     public static CursorLoader createCursorLoader(Context context) {
-        return new CursorLoader(context, ScheduleContract.Tags.CONTENT_URI,
-                TagsQueryEnum.TAG.getProjection(), null, null, null);
+        return new TagMetadataLoader(context);
+    }
+
+    /**
+     * Returns the tag metadata of a cursor of the tags table. If the cursor was loaded by the
+     * loader of {@link #createCursorLoader}, this is the shared tag metadata it was loaded from,
+     * otherwise it is read from the cursor.
+     */
+    public static TagMetadata fromCursor(Cursor cursor) {
+        if (cursor instanceof TagMetadataLoader.TagMetadataCursor) {
+            return ((TagMetadataLoader.TagMetadataCursor) cursor).getTagMetadata();
+        }
+        return new TagMetadata(cursor);
+    }
+
+    /**
+     * Drops the shared tag metadata, so the next load reads the tags table again. This must be
+     * called after each change to the tags table, before content observers are notified of it.
+     */
+    public static synchronized void invalidateCache() {
+        sGeneration++;
+        sCache = null;
+    }
+
+    static synchronized TagMetadata getCache() {
+        return sCache;
+    }
+
+    static synchronized int getCacheGeneration() {
+        return sGeneration;
+    }
+
+    /**
+     * Shares {@code tagMetadata}, read from the tags table at {@code generation}, unless the
+     * table changed since.
+     */
+    static synchronized void putCache(TagMetadata tagMetadata, int generation) {
+        if (generation == sGeneration) {
+            sCache = tagMetadata;
+        }
     }
 
     protected TagMetadata() {
@@ -67,6 +131,7 @@ public class TagMetadata {
                     cursor.getString(cursor.getColumnIndex(ScheduleContract.Tags.TAG_ABSTRACT)),
                     cursor.getInt(cursor.getColumnIndex(ScheduleContract.Tags.TAG_COLOR)),
                     cursor.getString(cursor.getColumnIndex(ScheduleContract.Tags.TAG_PHOTO_URL)));
+            mTags.add(tag);
             mTagsById.put(tag.getId(), tag);
             mTagsByName.put(tag.getName(), tag.getId());
             if (!mTagsInCategory.containsKey(tag.getCategory())) {
@@ -80,6 +145,13 @@ public class TagMetadata {
         }
     }
 
+    /**
+     * @return all tags, in the order they were read.
+     */
+    List<Tag> getTags() {
+        return Collections.unmodifiableList(mTags);
+    }
+
     /**
      * @return the tag with the {@code tagId}, if found.
      */
@@ -0,0 +1,137 @@
+/*
+ * Copyright 2016 Google Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.samples.apps.iosched.model;
+
+import android.content.Context;
+import android.content.CursorLoader;
+import android.database.Cursor;
+import android.database.MatrixCursor;
+
+import com.google.samples.apps.iosched.provider.DataChangeBus;
+import com.google.samples.apps.iosched.provider.ScheduleContract;
+
+import java.util.List;
+
+import static com.google.samples.apps.iosched.util.LogUtils.LOGD;
+import static com.google.samples.apps.iosched.util.LogUtils.makeLogTag;
+
+/**
+ * Loads the shared {@link TagMetadata}, only querying the tags table if it changed since the last
+ * query. The loaded cursor holds the tags of the metadata, in the columns of {@link
+ * TagMetadata.TagsQueryEnum#TAG}, and is turned back into the metadata by {@link
+ * TagMetadata#fromCursor(Cursor)} without being read again.
+ * <p/>
+ * The loader reloads when the {@link DataChangeBus} delivers a change of the tags table, rather
+ * than on every content observer notification of the sync adapter.
+ */
+class TagMetadataLoader extends CursorLoader {
+
+    private static final String TAG = makeLogTag(TagMetadataLoader.class);
+
+    // Tally of loads and of the queries they made (for statistical purposes).
+    private static int sLoads = 0;
+
+    private static int sQueries = 0;
+
+    private final DataChangeBus.Listener mDataChangeListener = new DataChangeBus.Listener() {
+        @Override
+        public void onDataChanged(DataChangeBus.DataChange change) {
+            onContentChanged();
+        }
+    };
+
+    TagMetadataLoader(Context context) {
+        super(context, ScheduleContract.Tags.CONTENT_URI,
+                TagMetadata.TagsQueryEnum.TAG.getProjection(), null, null, null);
+    }
+
+    @Override
+    public Cursor loadInBackground() {
+        long start = System.currentTimeMillis();
+        TagMetadata tagMetadata = TagMetadata.getCache();
+        boolean queried = tagMetadata == null;
+        if (queried) {
+            int generation = TagMetadata.getCacheGeneration();
+            Cursor cursor = getContext().getContentResolver().query(getUri(), getProjection(),
+                    null, null, null);
+            if (cursor == null) {
+                return null;
+            }
+            try {
+                tagMetadata = new TagMetadata(cursor);
+            } finally {
+                cursor.close();
+            }
+            TagMetadata.putCache(tagMetadata, generation);
+        }
+        countLoad(queried);
+
+        Cursor cursor = new TagMetadataCursor(tagMetadata);
+        LOGD(TAG, (queried ? "Queried " : "Reused ") + tagMetadata + " in "
+                + (System.currentTimeMillis() - start) + "ms.");
+        return cursor;
+    }
+
+    @Override
+    protected void onStartLoading() {
+        // A stopped loader stays subscribed until reset, so don't subscribe it twice.
+        DataChangeBus bus = DataChangeBus.getInstance();
+        bus.unsubscribe(mDataChangeListener);
+        bus.subscribe(mDataChangeListener, getUri());
+        super.onStartLoading();
+    }
+
+    @Override
+    protected void onReset() {
+        super.onReset();
+        DataChangeBus.getInstance().unsubscribe(mDataChangeListener);
+    }
+
+    private static synchronized void countLoad(boolean queried) {
+        sLoads++;
+        if (queried) {
+            sQueries++;
+        }
+        LOGD(TAG, sQueries + " tags queries for " + sLoads + " loads so far.");
+    }
+
+    /**
+     * A cursor over the tags of a {@link TagMetadata}, which keeps the metadata.
+     */
+    static class TagMetadataCursor extends MatrixCursor {
+
+        private final TagMetadata mTagMetadata;
+
+        TagMetadataCursor(TagMetadata tagMetadata) {
+            super(TagMetadata.TagsQueryEnum.TAG.getProjection(), tagMetadata.getTags().size());
+            mTagMetadata = tagMetadata;
+            List<TagMetadata.Tag> tags = tagMetadata.getTags();
+            for (int i = 0; i < tags.size(); i++) {
+                TagMetadata.Tag tag = tags.get(i);
+                // In the order of the columns of TagsQueryEnum.TAG. The row ID is not kept by
+                // TagMetadata, so the position stands in for it.
+                addRow(new Object[]{i, tag.getId(), tag.getName(), tag.getCategory(),
+                        tag.getOrderInCategory(), tag.getAbstract(), tag.getColor(),
+                        tag.getPhotoUrl()});
+            }
+        }
+
+        TagMetadata getTagMetadata() {
+            return mTagMetadata;
+        }
+    }
+}
@@ -18,6 +18,7 @@ package com.google.samples.apps.iosched.myschedule;
 
 import android.content.Context;
 import android.content.SharedPreferences;
+import android.net.Uri;
 import android.os.Bundle;
 import android.preference.PreferenceManager;
 import android.support.annotation.NonNull;
@@ -32,15 +33,18 @@ import com.google.samples.apps.iosched.archframework.QueryEnum;
 import com.google.samples.apps.iosched.archframework.UserActionEnum;
 import com.google.samples.apps.iosched.model.ScheduleHelper;
 import com.google.samples.apps.iosched.model.ScheduleItem;
+import com.google.samples.apps.iosched.provider.DataChangeBus;
 import com.google.samples.apps.iosched.provider.ScheduleContract;
 import com.google.samples.apps.iosched.settings.SettingsUtils;
 import com.google.samples.apps.iosched.util.AnalyticsHelper;
 import com.google.samples.apps.iosched.util.ParserUtils;
-import com.google.samples.apps.iosched.util.ThrottledContentObserver;
 
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 import static com.google.samples.apps.iosched.util.LogUtils.LOGD;
@@ -151,18 +155,23 @@ public class MyScheduleModel implements Model<MyScheduleModel.MyScheduleQueryEnu
             };
 
     /**
-     * Observe changes on base uri and in shared preferences
+     * Observe changes of the tables the schedule is built from and in shared preferences
      */
     private void addDataObservers() {
-        mContext.getContentResolver().registerContentObserver(
-                ScheduleContract.BASE_CONTENT_URI, true, mObserver);
+        DataChangeBus.getInstance().subscribe(mDataChangeListener,
+                ScheduleContract.Blocks.CONTENT_URI,
+                ScheduleContract.Sessions.CONTENT_URI,
+                ScheduleContract.Rooms.CONTENT_URI,
+                ScheduleContract.Tags.CONTENT_URI,
+                ScheduleContract.MySchedule.CONTENT_URI,
+                ScheduleContract.MyFeedbackSubmitted.CONTENT_URI);
 
         SharedPreferences sp = PreferenceManager.getDefaultSharedPreferences(mContext);
         sp.registerOnSharedPreferenceChangeListener(mPrefChangeListener);
     }
 
     private void removeDataObservers() {
-        mContext.getContentResolver().unregisterContentObserver(mObserver);
+        DataChangeBus.getInstance().unsubscribe(mDataChangeListener);
 
         SharedPreferences sp = PreferenceManager.getDefaultSharedPreferences(mContext);
         sp.unregisterOnSharedPreferenceChangeListener(mPrefChangeListener);
@@ -170,17 +179,52 @@ public class MyScheduleModel implements Model<MyScheduleModel.MyScheduleQueryEnu
 
     /**
      * Visible for classes extending this model, so UI tests can be written to simulate the system
-     * firing this observer.
+     * firing this listener.
      */
     @VisibleForTesting
-    protected final ThrottledContentObserver mObserver = new ThrottledContentObserver(
-            new ThrottledContentObserver.Callbacks() {
-                @Override
-                public void onThrottledContentObserverFired() {
-                    LOGD(TAG, "content may be changed, reloading data");
-                    updateData(mScheduleDataQueryCallback);
-                }
-            });
+    protected final DataChangeBus.Listener mDataChangeListener = new DataChangeBus.Listener() {
+        @Override
+        public void onDataChanged(DataChangeBus.DataChange change) {
+            String[] sessionIds = getChangedSessionIds(change);
+            if (sessionIds == null) {
+                LOGD(TAG, "content may be changed, reloading data");
+                updateData(mScheduleDataQueryCallback);
+            } else {
+                LOGD(TAG, sessionIds.length + " sessions changed, reloading their days");
+                updateDays(sessionIds, mScheduleDataQueryCallback);
+            }
+        }
+    };
+
+    /**
+     * Returns the ids of the sessions {@code change} is limited to, as when starring a session or
+     * submitting feedback for it. Returns null if anything else may have changed, or if not all
+     * days are cached yet, in which case all days should be reloaded.
+     */
+    @Nullable
+    private String[] getChangedSessionIds(DataChangeBus.DataChange change) {
+        for (int i = 0; i < Config.CONFERENCE_DAYS.length; i++) {
+            if (!mScheduleData.containsKey(i + 1)) {
+                return null;
+            }
+        }
+
+        Uri[] sessionTables = {ScheduleContract.Sessions.CONTENT_URI,
+                ScheduleContract.MySchedule.CONTENT_URI,
+                ScheduleContract.MyFeedbackSubmitted.CONTENT_URI};
+        if (!change.isLimitedTo(sessionTables)) {
+            return null;
+        }
+        Set<String> sessionIds = new HashSet<String>();
+        for (Uri sessionTable : sessionTables) {
+            Set<String> ids = change.getChangedIds(sessionTable);
+            if (ids == null) {
+                return null;
+            }
+            sessionIds.addAll(ids);
+        }
+        return sessionIds.isEmpty() ? null : sessionIds.toArray(new String[sessionIds.size()]);
+    }
 
     @Override
     public MyScheduleQueryEnum[] getQueries() {
@@ -288,35 +332,29 @@ public class MyScheduleModel implements Model<MyScheduleModel.MyScheduleQueryEnu
     }
 
     /**
-     * This updates the data, by calling {@link ScheduleHelper#getScheduleDataAsync
-     * (LoadScheduleDataListener, long, long)} for each day. It is protected and not private, to
-     * allow us to extend this class and use mock data in UI tests (refer {@code
+     * This updates the data of all days, by calling {@link ScheduleHelper#getScheduleDataAsync
+     * (LoadScheduleDataListener, long[][], String[])} once for all of them. It is protected and
+     * not private, to allow us to extend this class and use mock data in UI tests (refer {@code
      * StubMyScheduleModel} in {@code androidTest}).
      */
     protected void updateData(final DataQueryCallback callback) {
-        for (int i = 0; i < Config.CONFERENCE_DAYS.length; i++) {
-            /**
-             * The key in {@link #mScheduleData} is 1 for the first day, 2 for the second etc
-             */
-            final int dayId = i + 1;
-
-            // Immediately use cached data if available
-            if (mScheduleData.containsKey(dayId)) {
-                if (callback != null) {
-                    callback.onModelUpdated(this, MyScheduleQueryEnum.SCHEDULE);
-                }
-            }
-
-            // Update cached data
-            mScheduleHelper.getScheduleDataAsync(
-                    new LoadScheduleDataListener() {
-                        @Override
-                        public void onDataLoaded(ArrayList<ScheduleItem> scheduleItems) {
-                            updateCache(dayId, scheduleItems, callback);
-                        }
-                    },
-                    Config.CONFERENCE_DAYS[i][0], Config.CONFERENCE_DAYS[i][1]);
+        // Immediately use cached data if available
+        if (!mScheduleData.isEmpty() && callback != null) {
+            callback.onModelUpdated(this, MyScheduleQueryEnum.SCHEDULE);
         }
+
+        // Update cached data
+        mScheduleHelper.getScheduleDataAsync(new DaysLoadedListener(callback),
+                Config.CONFERENCE_DAYS, null);
+    }
+
+    /**
+     * This updates the data of the days in which one of {@code sessionIds} starts, leaving the
+     * cached data of the other days as is.
+     */
+    private void updateDays(String[] sessionIds, final DataQueryCallback callback) {
+        mScheduleHelper.getScheduleDataAsync(new DaysLoadedListener(callback),
+                Config.CONFERENCE_DAYS, sessionIds);
     }
 
     /**
@@ -379,7 +417,33 @@ public class MyScheduleModel implements Model<MyScheduleModel.MyScheduleQueryEnu
     }
 
     public interface LoadScheduleDataListener {
-        void onDataLoaded(ArrayList<ScheduleItem> scheduleItems);
+        /**
+         * @param scheduleItemsByDay The items of each loaded day, keyed by the index of the day in
+         *                           {@link Config#CONFERENCE_DAYS}
+         */
+        void onDataLoaded(HashMap<Integer, ArrayList<ScheduleItem>> scheduleItemsByDay);
+    }
+
+    /**
+     * Updates the cached data of each loaded day.
+     */
+    private class DaysLoadedListener implements LoadScheduleDataListener {
+
+        private final DataQueryCallback mCallback;
+
+        DaysLoadedListener(DataQueryCallback callback) {
+            mCallback = callback;
+        }
+
+        @Override
+        public void onDataLoaded(HashMap<Integer, ArrayList<ScheduleItem>> scheduleItemsByDay) {
+            for (Map.Entry<Integer, ArrayList<ScheduleItem>> day : scheduleItemsByDay.entrySet()) {
+                /**
+                 * The key in {@link #mScheduleData} is 1 for the first day, 2 for the second etc
+                 */
+                updateCache(day.getKey() + 1, day.getValue(), mCallback);
+            }
+        }
     }
 
 }
@@ -0,0 +1,107 @@
+/*
+ * Copyright 2016 Google Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.samples.apps.iosched.provider;
+
+import android.content.ContentValues;
+import android.database.DatabaseUtils;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Inserts rows through precompiled {@link SQLiteStatement}s, one per table and column set. The
+ * sync adapter inserts thousands of rows of the same shape when importing conference data, and
+ * this avoids building and compiling an INSERT statement for each of them.
+ * <p/>
+ * An instance is bound to one database and is not thread safe. Call {@link #close()} once done.
+ */
+class BulkInsertHelper {
+
+    private final SQLiteDatabase mDb;
+
+    // Maps "table,column1,column2,..." to the statement inserting those columns in that order.
+    private final HashMap<String, SQLiteStatement> mStatements =
+            new HashMap<String, SQLiteStatement>();
+
+    private final StringBuilder mKeyBuilder = new StringBuilder();
+
+    BulkInsertHelper(SQLiteDatabase db) {
+        mDb = db;
+    }
+
+    /**
+     * Inserts the given values into {@code table}, with the same semantics as
+     * {@link SQLiteDatabase#insertOrThrow(String, String, ContentValues)}.
+     *
+     * @return The row ID of the newly inserted row.
+     */
+    long insert(String table, ContentValues values) {
+        if (values.size() == 0) {
+            return mDb.insertOrThrow(table, null, values);
+        }
+        Set<Map.Entry<String, Object>> entries = values.valueSet();
+
+        mKeyBuilder.setLength(0);
+        mKeyBuilder.append(table);
+        for (Map.Entry<String, Object> entry : entries) {
+            mKeyBuilder.append(',').append(entry.getKey());
+        }
+        String key = mKeyBuilder.toString();
+
+        SQLiteStatement statement = mStatements.get(key);
+        if (statement == null) {
+            statement = mDb.compileStatement(buildInsertSql(table, entries));
+            mStatements.put(key, statement);
+        }
+
+        int index = 1;
+        for (Map.Entry<String, Object> entry : entries) {
+            DatabaseUtils.bindObjectToProgram(statement, index++, entry.getValue());
+        }
+        try {
+            return statement.executeInsert();
+        } finally {
+            statement.clearBindings();
+        }
+    }
+
+    /**
+     * Releases all the compiled statements.
+     */
+    void close() {
+        for (SQLiteStatement statement : mStatements.values()) {
+            statement.close();
+        }
+        mStatements.clear();
+    }
+
+    private static String buildInsertSql(String table, Set<Map.Entry<String, Object>> entries) {
+        StringBuilder sql = new StringBuilder("INSERT INTO ").append(table).append(" (");
+        int count = 0;
+        for (Map.Entry<String, Object> entry : entries) {
+            sql.append(count++ > 0 ? "," : "").append(entry.getKey());
+        }
+        sql.append(") VALUES (?");
+        for (int i = 1; i < count; i++) {
+            sql.append(",?");
+        }
+        return sql.append(')').toString();
+    }
+}
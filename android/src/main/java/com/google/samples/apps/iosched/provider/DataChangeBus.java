@@ -0,0 +1,318 @@
+/*
+ * Copyright 2016 Google Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.samples.apps.iosched.provider;
+
+import android.net.Uri;
+import android.os.Handler;
+import android.os.Looper;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import com.google.common.annotations.VisibleForTesting;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static com.google.samples.apps.iosched.util.LogUtils.LOGD;
+import static com.google.samples.apps.iosched.util.LogUtils.makeLogTag;
+
+/**
+ * Tells the parts of the app rendering conference and user data which of it changed: the top
+ * level paths of {@link ScheduleContract} whose tables changed and, where known, the ids of the
+ * changed rows.
+ * <p/>
+ * Unlike a {@link android.database.ContentObserver} registered on {@link
+ * ScheduleContract#BASE_CONTENT_URI}, a {@link Listener} is only told about the paths it
+ * subscribed to, and the changes posted within {@link #DELIVERY_DELAY} are delivered together
+ * in a single {@link DataChange}. Changes are posted by the {@link ScheduleProvider} for each
+ * write not made by the sync adapter, and by the sync adapter once an import is done.
+ * <p/>
+ * Content observers are still notified, so cursor loaders keep working unchanged, but the sync
+ * adapter only notifies those of the tables it wrote to.
+ */
+public class DataChangeBus {
+
+    private static final String TAG = makeLogTag(DataChangeBus.class);
+
+    /**
+     * How long changes are collected before being delivered to a listener, in milliseconds.
+     */
+    @VisibleForTesting
+    static final long DELIVERY_DELAY = 300;
+
+    private static DataChangeBus sInstance;
+
+    private final Handler mHandler;
+
+    private final List<Subscription> mSubscriptions = new ArrayList<Subscription>();
+
+    // Tally of posted changes and of what became of them (for statistical purposes).
+    private int mPostedChanges = 0;
+
+    private int mIgnoredChanges = 0;
+
+    private int mCoalescedChanges = 0;
+
+    private int mDeliveries = 0;
+
+    public interface Listener {
+
+        /**
+         * Called on the main thread with the changes made to the subscribed paths since the last
+         * call.
+         */
+        void onDataChanged(DataChange change);
+    }
+
+    /**
+     * Returns the bus of the app, which delivers changes on the main thread.
+     */
+    public static synchronized DataChangeBus getInstance() {
+        if (sInstance == null) {
+            sInstance = new DataChangeBus(new Handler(Looper.getMainLooper()));
+        }
+        return sInstance;
+    }
+
+    /**
+     * @return How long changes are collected before being delivered, in milliseconds.
+     */
+    public static long getDeliveryDelay() {
+        return DELIVERY_DELAY;
+    }
+
+    @VisibleForTesting
+    DataChangeBus(Handler handler) {
+        mHandler = handler;
+    }
+
+    /**
+     * Subscribes {@code listener} to the changes of the tables of {@code contentUris}.
+     */
+    public void subscribe(Listener listener, Uri... contentUris) {
+        String[] paths = new String[contentUris.length];
+        for (int i = 0; i < contentUris.length; i++) {
+            paths[i] = getPath(contentUris[i]);
+        }
+        subscribe(listener, paths);
+    }
+
+    @VisibleForTesting
+    synchronized void subscribe(Listener listener, String... paths) {
+        Subscription subscription = new Subscription(listener);
+        Collections.addAll(subscription.mPaths, paths);
+        mSubscriptions.add(subscription);
+    }
+
+    /**
+     * Unsubscribes {@code listener}, dropping any change not yet delivered to it.
+     */
+    public synchronized void unsubscribe(Listener listener) {
+        for (int i = mSubscriptions.size() - 1; i >= 0; i--) {
+            Subscription subscription = mSubscriptions.get(i);
+            if (subscription.mListener == listener) {
+                mHandler.removeCallbacks(subscription);
+                mSubscriptions.remove(i);
+            }
+        }
+    }
+
+    /**
+     * Posts a change of the table of {@code uri}. A uri without path, such as {@link
+     * ScheduleContract#BASE_CONTENT_URI}, changes every table.
+     *
+     * @param id The id of the changed row, or null if any row may have changed
+     */
+    public void notifyChange(Uri uri, @Nullable String id) {
+        notifyChange(getPath(uri), id);
+    }
+
+    /**
+     * Posts a change of any row of the tables of each of {@code uris}.
+     */
+    public void notifyChange(Uri... uris) {
+        for (Uri uri : uris) {
+            notifyChange(getPath(uri), null);
+        }
+    }
+
+    @VisibleForTesting
+    synchronized void notifyChange(@Nullable String path, @Nullable String id) {
+        mPostedChanges++;
+        boolean subscribed = false;
+        for (Subscription subscription : mSubscriptions) {
+            if (path != null && !subscription.mPaths.contains(path)) {
+                continue;
+            }
+            subscribed = true;
+            if (subscription.mPending == null) {
+                subscription.mPending = new DataChange();
+                mHandler.postDelayed(subscription, DELIVERY_DELAY);
+            } else {
+                mCoalescedChanges++;
+            }
+            if (path != null) {
+                subscription.mPending.add(path, id);
+            } else {
+                for (String subscribedPath : subscription.mPaths) {
+                    subscription.mPending.add(subscribedPath, null);
+                }
+            }
+        }
+        if (!subscribed) {
+            mIgnoredChanges++;
+        }
+    }
+
+    @VisibleForTesting
+    synchronized int getPostedChanges() {
+        return mPostedChanges;
+    }
+
+    @VisibleForTesting
+    synchronized int getIgnoredChanges() {
+        return mIgnoredChanges;
+    }
+
+    @VisibleForTesting
+    synchronized int getCoalescedChanges() {
+        return mCoalescedChanges;
+    }
+
+    @VisibleForTesting
+    synchronized int getDeliveries() {
+        return mDeliveries;
+    }
+
+    @Nullable
+    private static String getPath(Uri uri) {
+        List<String> segments = uri.getPathSegments();
+        return segments.isEmpty() ? null : segments.get(0);
+    }
+
+    private class Subscription implements Runnable {
+
+        private final Listener mListener;
+
+        private final Set<String> mPaths = new HashSet<String>();
+
+        // The changes not yet delivered, or null if none.
+        private DataChange mPending;
+
+        Subscription(Listener listener) {
+            mListener = listener;
+        }
+
+        @Override
+        public void run() {
+            DataChange change;
+            synchronized (DataChangeBus.this) {
+                change = mPending;
+                mPending = null;
+                if (change == null) {
+                    return;
+                }
+                mDeliveries++;
+                LOGD(TAG, "Delivering changes of " + change.mChangedIds.keySet() + " ("
+                        + mPostedChanges + " posted, " + mIgnoredChanges + " ignored, "
+                        + mCoalescedChanges + " coalesced, " + mDeliveries + " delivered).");
+            }
+            mListener.onDataChanged(change);
+        }
+    }
+
+    /**
+     * The changes delivered to a {@link Listener} at once.
+     */
+    public static class DataChange {
+
+        // The ids of the changed rows of each changed path, or null if any row may have changed.
+        private final HashMap<String, Set<String>> mChangedIds =
+                new HashMap<String, Set<String>>();
+
+        /**
+         * Returns a change of any row of the tables of {@code contentUris}.
+         */
+        public static DataChange forTables(Uri... contentUris) {
+            DataChange change = new DataChange();
+            for (Uri contentUri : contentUris) {
+                change.add(getPath(contentUri), null);
+            }
+            return change;
+        }
+
+        @VisibleForTesting
+        void add(String path, @Nullable String id) {
+            if (mChangedIds.containsKey(path) && mChangedIds.get(path) == null) {
+                // Any row of the path may have changed already.
+                return;
+            }
+            if (id == null) {
+                mChangedIds.put(path, null);
+            } else {
+                Set<String> ids = mChangedIds.get(path);
+                if (ids == null) {
+                    ids = new HashSet<String>();
+                    mChangedIds.put(path, ids);
+                }
+                ids.add(id);
+            }
+        }
+
+        /**
+         * Returns the paths of the changed tables.
+         */
+        @NonNull
+        public Set<String> getChangedPaths() {
+            return Collections.unmodifiableSet(mChangedIds.keySet());
+        }
+
+        /**
+         * Returns whether all the changed tables are among the tables of {@code contentUris}.
+         */
+        public boolean isLimitedTo(Uri... contentUris) {
+            Set<String> paths = new HashSet<String>();
+            for (Uri contentUri : contentUris) {
+                paths.add(getPath(contentUri));
+            }
+            return paths.containsAll(mChangedIds.keySet());
+        }
+
+        /**
+         * Returns the ids of the changed rows of the table of {@code contentUri}, an empty set if
+         * the table didn't change, or null if any of its rows may have changed.
+         */
+        @Nullable
+        public Set<String> getChangedIds(Uri contentUri) {
+            return getChangedIds(getPath(contentUri));
+        }
+
+        @VisibleForTesting
+        @Nullable
+        Set<String> getChangedIds(String path) {
+            if (!mChangedIds.containsKey(path)) {
+                return Collections.emptySet();
+            }
+            Set<String> ids = mChangedIds.get(path);
+            return ids == null ? null : Collections.unmodifiableSet(ids);
+        }
+    }
+}
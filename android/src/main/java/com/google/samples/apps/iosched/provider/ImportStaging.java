@@ -0,0 +1,147 @@
+/*
+ * Copyright 2016 Google Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.samples.apps.iosched.provider;
+
+import android.database.DatabaseUtils;
+import android.database.sqlite.SQLiteDatabase;
+import android.provider.BaseColumns;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+import static com.google.samples.apps.iosched.util.LogUtils.LOGD;
+import static com.google.samples.apps.iosched.util.LogUtils.makeLogTag;
+
+/**
+ * Stages the writes of a conference data import in temporary copies of the tables it writes, so
+ * the import can be committed in small transactions without readers ever seeing part of it. Once
+ * all of its writes are staged, {@link #merge()} applies them to the live tables in a single
+ * transaction that only writes the rows that differ.
+ * <p/>
+ * The copies are SQLite temporary tables, which are private to the connection that writes them
+ * and never stored in the database file. The import must not be interleaved with other writes to
+ * the same tables, as the merge reverts them.
+ * <p/>
+ * An instance is bound to one database and is not thread safe. Call {@link #drop()} once done.
+ */
+class ImportStaging {
+    private static final String TAG = makeLogTag(ImportStaging.class);
+
+    private static final String STAGING_TABLE_PREFIX = "import_";
+
+    private final SQLiteDatabase mDb;
+
+    /**
+     * The staged tables, in {@link ScheduleDatabase#CONFERENCE_DATA_TABLES} order.
+     */
+    private final List<String> mTables = new ArrayList<String>();
+
+    /**
+     * @param tables The tables to stage, which must be {@link #canStage(String) stageable}.
+     */
+    ImportStaging(SQLiteDatabase db, Collection<String> tables) {
+        mDb = db;
+        for (String table : ScheduleDatabase.CONFERENCE_DATA_TABLES) {
+            if (tables.contains(table)) {
+                mTables.add(table);
+            }
+        }
+    }
+
+    /**
+     * @return Whether the writes to {@code table} can be staged.
+     */
+    static boolean canStage(String table) {
+        return Arrays.asList(ScheduleDatabase.CONFERENCE_DATA_TABLES).contains(table);
+    }
+
+    /**
+     * Creates the copy of each staged table, in its own transaction. The copies have the columns
+     * and constraints of the tables, but none of their triggers.
+     */
+    void create() {
+        mDb.beginTransactionNonExclusive();
+        try {
+            for (String table : mTables) {
+                String stagingTable = STAGING_TABLE_PREFIX + table;
+                String sql = DatabaseUtils.stringForQuery(mDb, "SELECT sql FROM main.sqlite_master"
+                        + " WHERE type='table' AND name=?", new String[]{table});
+                mDb.execSQL("DROP TABLE IF EXISTS temp." + stagingTable);
+                mDb.execSQL("CREATE TEMP TABLE " + stagingTable + " "
+                        + sql.substring(sql.indexOf('(')));
+                // Carry the AUTOINCREMENT sequence over, so staged rows never take the ID of a
+                // row that was deleted from the live table.
+                mDb.execSQL("INSERT INTO temp.sqlite_sequence(name,seq) SELECT ?,seq"
+                        + " FROM main.sqlite_sequence WHERE name=?",
+                        new Object[]{stagingTable, table});
+                mDb.execSQL("INSERT INTO temp." + stagingTable + " SELECT * FROM main." + table);
+            }
+            mDb.setTransactionSuccessful();
+        } finally {
+            mDb.endTransaction();
+        }
+    }
+
+    /**
+     * @return The table the writes to {@code table} go to: its copy if it is staged.
+     */
+    String getTable(String table) {
+        return mTables.contains(table) ? STAGING_TABLE_PREFIX + table : table;
+    }
+
+    /**
+     * Makes each staged table hold the same rows as its copy, in a single transaction. Rows are
+     * matched by {@link BaseColumns#_ID}: the rows missing from the copy are deleted, and the
+     * rows that are new or differ are written with INSERT OR REPLACE, so that only the triggers
+     * of the rows the import changed fire.
+     * <p/>
+     * The tables are merged in the reverse of {@link ScheduleDatabase#CONFERENCE_DATA_TABLES}
+     * order, so that the sessions come after their speaker and tag mappings: the mappings of a
+     * deleted session are left in the copies, which have no triggers, and are only dropped once
+     * deleting the session fires the triggers of the live table.
+     */
+    void merge() {
+        long start = System.currentTimeMillis();
+        mDb.beginTransaction();
+        try {
+            for (int i = mTables.size() - 1; i >= 0; i--) {
+                String table = "main." + mTables.get(i);
+                String stagingTable = "temp." + STAGING_TABLE_PREFIX + mTables.get(i);
+                mDb.execSQL("DELETE FROM " + table + " WHERE " + BaseColumns._ID + " NOT IN"
+                        + " (SELECT " + BaseColumns._ID + " FROM " + stagingTable + ")");
+                mDb.execSQL("INSERT OR REPLACE INTO " + table + " SELECT * FROM " + stagingTable
+                        + " EXCEPT SELECT * FROM " + table);
+            }
+            mDb.setTransactionSuccessful();
+        } finally {
+            mDb.endTransaction();
+        }
+        LOGD(TAG, "Merged " + mTables.size() + " staged tables in "
+                + (System.currentTimeMillis() - start) + "ms.");
+    }
+
+    /**
+     * Drops the copy of each staged table.
+     */
+    void drop() {
+        for (String table : mTables) {
+            mDb.execSQL("DROP TABLE IF EXISTS temp." + STAGING_TABLE_PREFIX + table);
+        }
+    }
+}
@@ -24,6 +24,7 @@ import android.text.format.DateUtils;
 
 import com.google.samples.apps.iosched.util.ParserUtils;
 
+import java.util.Arrays;
 import java.util.List;
 
 /**
@@ -66,6 +67,8 @@ public final class ScheduleContract {
         String BLOCK_TYPE = "block_type";
         /** Extra subtitle for the block. */
         String BLOCK_SUBTITLE = "block_subtitle";
+        /** The hashcode of the data used to create this record. */
+        String BLOCK_IMPORT_HASHCODE = "block_import_hashcode";
     }
 
     interface TagsColumns {
@@ -88,6 +91,8 @@ public final class ScheduleContract {
         String TAG_ABSTRACT = "tag_abstract";
         /** The tag's photo Url. */
         String TAG_PHOTO_URL = "tag_photo_url";
+        /** The hashcode of the data used to create this record. */
+        String TAG_IMPORT_HASHCODE = "tag_import_hashcode";
     }
 
     interface RoomsColumns {
@@ -98,6 +103,8 @@ public final class ScheduleContract {
         String ROOM_NAME = "room_name";
         /** Building floor this room exists on. */
         String ROOM_FLOOR = "room_floor";
+        /** The hashcode of the data used to create this record. */
+        String ROOM_IMPORT_HASHCODE = "room_import_hashcode";
     }
 
     interface MyScheduleColumns {
@@ -246,6 +253,8 @@ public final class ScheduleContract {
         String ACTION_TEXT = "action_text";
         String ACTION_TYPE = "action_type";
         String ACTION_EXTRA = "action_extra";
+        /** The hashcode of the data used to create this record. */
+        String CARD_IMPORT_HASHCODE = "card_import_hashcode";
     }
 
     interface MapMarkerColumns {
@@ -295,6 +304,8 @@ public final class ScheduleContract {
         String HASHTAG_COLOR = "hashtag_color";
         /** Ordering of this hashtag. */
         String HASHTAG_ORDER = "hashtag_order";
+        /** The hashcode of the data used to create this record. */
+        String HASHTAG_IMPORT_HASHCODE = "hashtag_import_hashcode";
     }
 
     interface VideoColumns {
@@ -323,6 +334,18 @@ public final class ScheduleContract {
 
     public static final Uri BASE_CONTENT_URI = Uri.parse("content://" + CONTENT_AUTHORITY);
 
+    /**
+     * {@link android.content.ContentResolver#call} method replacing the conference data with the
+     * data of a bootstrap snapshot database, whose path is the call's argument. The timestamp of
+     * the data the snapshot should hold is passed as {@link #EXTRA_DATA_TIMESTAMP}, and whether the
+     * data was copied is returned as {@link #EXTRA_RESULT}. Only callable from this app's process.
+     */
+    public static final String METHOD_COPY_SNAPSHOT = "copy_snapshot";
+
+    public static final String EXTRA_DATA_TIMESTAMP = "data_timestamp";
+
+    public static final String EXTRA_RESULT = "result";
+
     private static final String PATH_BLOCKS = "blocks";
 
     private static final String PATH_AFTER = "after";
@@ -395,6 +418,37 @@ public final class ScheduleContract {
             PATH_MY_SCHEDULE
     };
 
+    /**
+     * The top-level paths of the sessions and of the data read along with them.
+     */
+    private static final List<String> SESSION_DATA_PATHS = Arrays.asList(
+            PATH_BLOCKS,
+            PATH_ROOMS,
+            PATH_SESSIONS,
+            PATH_SPEAKERS,
+            PATH_TAGS
+    );
+
+    /**
+     * The top-level paths whose queries join the tables of {@link #SESSION_DATA_PATHS}.
+     */
+    private static final String[] SESSION_JOINING_PATHS = {
+            PATH_SESSIONS,
+            PATH_MY_SCHEDULE
+    };
+
+    /**
+     * Returns the top-level paths whose queries join the tables of the top-level {@code path}, such
+     * as the sessions, which are read along with their room, blocks, speakers and tags. A change
+     * to the tables of {@code path} is also a change to the data of these paths, so their
+     * observers must be notified of it too.
+     *
+     * @return The joining paths, which may include {@code path} itself.
+     */
+    public static String[] getJoiningPaths(String path) {
+        return SESSION_DATA_PATHS.contains(path) ? SESSION_JOINING_PATHS.clone() : new String[0];
+    }
+
     public static String makeContentType(String id) {
         if (id != null) {
             return CONTENT_TYPE_BASE + id;
@@ -617,7 +671,7 @@ public final class ScheduleContract {
             SyncColumns, BaseColumns {
 
         public static final String QUERY_PARAMETER_TAG_FILTER = "filter";
-        public static final String QUERY_PARAMETER_CATEGORIES = "categories";
+        public static final String QUERY_PARAMETER_LIMIT = "limit";
 
         public static final Uri CONTENT_URI =
                 BASE_CONTENT_URI.buildUpon().appendPath(PATH_SESSIONS).build();
@@ -710,6 +764,20 @@ public final class ScheduleContract {
                     .appendPath(PATH_SEARCH).appendPath(query).build();
         }
 
+        /**
+         * Build {@link Uri} that references at most {@code limit} sessions that match the query.
+         * When queried without a sort order, the best matches are returned first, and search
+         * snippets are only computed for the sessions returned.
+         *
+         * @param query The query. Can be multiple words separated by spaces.
+         * @param limit The maximum number of sessions to return.
+         * @return {@link Uri} to the sessions
+         */
+        public static Uri buildSearchUri(String query, int limit) {
+            return buildSearchUri(query).buildUpon()
+                    .appendQueryParameter(QUERY_PARAMETER_LIMIT, String.valueOf(limit)).build();
+        }
+
         public static boolean isSearchUri(Uri uri) {
             List<String> pathSegments = uri.getPathSegments();
             return pathSegments.size() >= 2 && PATH_SEARCH.equals(pathSegments.get(1));
@@ -786,38 +854,34 @@ public final class ScheduleContract {
             return null;
         }
 
-        public static boolean hasFilterParam(Uri uri) {
-            return uri != null && uri.getQueryParameter(QUERY_PARAMETER_TAG_FILTER) != null;
-        }
-
         /**
-         * Build {@link Uri} that references all sessions that have ALL of the indicated tags.
-         * @param contentUri The base Uri that is used for adding the required tags.
-         * @param requiredTags The tags that are used for creating the query parameter.
-         * @return uri The uri updated to include the indicated tags.
+         * Read the maximum number of sessions to return from a search {@link Uri}, or 0 if there
+         * is no limit. A limit that is not a positive integer is ignored.
          */
-        @Deprecated
-        public static Uri buildTagFilterUri(Uri contentUri, String[] requiredTags) {
-            return buildCategoryTagFilterUri(contentUri, requiredTags,
-                    requiredTags == null ? 0 : requiredTags.length);
+        public static int getSearchLimit(Uri uri) {
+            String limit = uri.getQueryParameter(QUERY_PARAMETER_LIMIT);
+            if (TextUtils.isEmpty(limit)) {
+                return 0;
+            }
+            try {
+                return Math.max(0, Integer.parseInt(limit));
+            } catch (NumberFormatException e) {
+                return 0;
+            }
         }
 
-        /** Build {@link Uri} that references all sessions that have ALL of the indicated tags. */
-        @Deprecated
-        public static Uri buildTagFilterUri(String[] requiredTags) {
-            return buildTagFilterUri(CONTENT_URI, requiredTags);
+        public static boolean hasFilterParam(Uri uri) {
+            return uri != null && uri.getQueryParameter(QUERY_PARAMETER_TAG_FILTER) != null;
         }
 
         /**
-         * Build {@link Uri} that references all sessions that have the following tags and
-         * satisfy the requirement of containing ALL the categories
-         * @param contentUri The base Uri that is used for adding the query parameters.
+         * Build {@link Uri} that references all sessions that match the indicated tags: a session
+         * matches if it has at least one of the given tags of each category they belong to.
+         * @param contentUri The base Uri that is used for adding the query parameter.
          * @param tags The various tags that can include topics, themes as well as types.
-         * @param categories The number of categories that are required. At most this can be 3,
-         *                   since a session can belong only to one type + topic + theme.
-         * @return Uri representing the query parameters for the filter as well as the categories.
+         * @return Uri representing the query parameter for the filter.
          */
-        public static Uri buildCategoryTagFilterUri(Uri contentUri, String[] tags, int categories) {
+        public static Uri buildTagFilterUri(Uri contentUri, String[] tags) {
             StringBuilder sb = new StringBuilder();
             for (String tag : tags) {
                 if (TextUtils.isEmpty(tag)) {
@@ -833,12 +897,15 @@ public final class ScheduleContract {
             } else {
                 return contentUri.buildUpon()
                         .appendQueryParameter(QUERY_PARAMETER_TAG_FILTER, sb.toString())
-                        .appendQueryParameter(QUERY_PARAMETER_CATEGORIES,
-                                String.valueOf(categories))
                         .build();
             }
         }
 
+        /** Build {@link Uri} that references all sessions that match the indicated tags. */
+        public static Uri buildTagFilterUri(String[] tags) {
+            return buildTagFilterUri(CONTENT_URI, tags);
+        }
+
         /** Build {@link Uri} that counts sessions by start/end intervals. */
         public static Uri buildCounterByIntervalUri() {
             return CONTENT_URI.buildUpon().appendPath(PATH_SESSIONS_COUNTER).build();
@@ -20,9 +20,12 @@ import android.accounts.Account;
 import android.app.SearchManager;
 import android.content.ContentResolver;
 import android.content.Context;
+import android.database.Cursor;
+import android.database.DatabaseUtils;
 import android.database.sqlite.SQLiteDatabase;
 import android.database.sqlite.SQLiteOpenHelper;
 import android.provider.BaseColumns;
+import android.text.TextUtils;
 
 import com.google.samples.apps.iosched.provider.ScheduleContract.AnnouncementsColumns;
 import com.google.samples.apps.iosched.provider.ScheduleContract.Blocks;
@@ -51,6 +54,10 @@ import com.google.samples.apps.iosched.sync.ConferenceDataHandler;
 import com.google.samples.apps.iosched.sync.SyncHelper;
 import com.google.samples.apps.iosched.util.AccountUtils;
 
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
 import static com.google.samples.apps.iosched.util.LogUtils.LOGD;
 import static com.google.samples.apps.iosched.util.LogUtils.LOGI;
 import static com.google.samples.apps.iosched.util.LogUtils.LOGW;
@@ -74,7 +81,10 @@ public class ScheduleDatabase extends SQLiteOpenHelper {
     private static final int VER_2015_RELEASE_B = 210;
     private static final int VER_2016_RELEASE_A = 211;
     private static final int VER_2016_RELEASE_B = 212;
-    private static final int CUR_DATABASE_VERSION = VER_2016_RELEASE_B;
+    private static final int VER_2016_RELEASE_C = 213;
+    private static final int VER_2016_RELEASE_D = 214;
+    private static final int VER_2016_RELEASE_E = 215;
+    private static final int CUR_DATABASE_VERSION = VER_2016_RELEASE_E;
 
     private final Context mContext;
 
@@ -135,7 +145,7 @@ public class ScheduleDatabase extends SQLiteOpenHelper {
                 + "LEFT OUTER JOIN rooms ON sessions.room_id=rooms.room_id";
 
         String SESSIONS_SEARCH_JOIN_SESSIONS_ROOMS = "sessions_search "
-                + "LEFT OUTER JOIN sessions ON sessions_search.session_id=sessions.session_id "
+                + "INNER JOIN sessions ON sessions_search.docid=sessions._id "
                 + "LEFT OUTER JOIN myschedule ON sessions.session_id=myschedule.session_id "
                 + "AND myschedule.account_name=? "
                 + "LEFT OUTER JOIN rooms ON sessions.room_id=rooms.room_id";
@@ -165,6 +175,12 @@ public class ScheduleDatabase extends SQLiteOpenHelper {
         String SESSIONS_MY_SCHEDULE_DELETE = "sessions_myschedule_delete";
         String SESSIONS_FEEDBACK_DELETE = "sessions_feedback_delete";
 
+        // Keep the full-text search index in step with the sessions table.
+        String SESSIONS_SEARCH_BEFORE_INSERT = "sessions_search_before_insert";
+        String SESSIONS_SEARCH_AFTER_INSERT = "sessions_search_after_insert";
+        String SESSIONS_SEARCH_AFTER_UPDATE = "sessions_search_after_update";
+        String SESSIONS_SEARCH_DELETE = "sessions_search_delete";
+
         // When triggers get deprecated, add them to this list (so they get correctly deleted
         // on database upgrades).
         interface DeprecatedTriggers {
@@ -172,6 +188,25 @@ public class ScheduleDatabase extends SQLiteOpenHelper {
         };
     }
 
+    /**
+     * Secondary indexes serving the joins and selections of the {@link ScheduleProvider} queries.
+     * Unique constraints already index the ID columns of each table.
+     */
+    private interface Indexes {
+        String SESSIONS_START_END = "sessions_start_end_index";
+        String SESSIONS_ROOM_START = "sessions_room_start_index";
+        String SESSIONS_TAGS_TAG = "sessions_tags_tag_index";
+        String SESSIONS_SPEAKERS_SPEAKER = "sessions_speakers_speaker_index";
+        String MY_SCHEDULE_SESSION_ACCOUNT = "myschedule_session_account_index";
+        String MY_SCHEDULE_ACCOUNT = "myschedule_account_index";
+        String MY_FEEDBACK_SUBMITTED_ACCOUNT = "myfeedbacksubmitted_account_index";
+        String MY_VIEWED_VIDEOS_ACCOUNT = "myviewedvideos_account_index";
+        String FEEDBACK_SESSION = "feedback_session_index";
+        String BLOCKS_START = "blocks_start_index";
+        String ANNOUNCEMENTS_ANNOUNCEMENT_ID = "announcements_announcement_id_index";
+        String MAPMARKERS_FLOOR = "mapmarkers_floor_index";
+    }
+
     public interface SessionsSpeakers {
         String SESSION_ID = "session_id";
         String SPEAKER_ID = "speaker_id";
@@ -182,15 +217,22 @@ public class ScheduleDatabase extends SQLiteOpenHelper {
         String TAG_ID = "tag_id";
     }
 
+    /**
+     * Columns of the {@link Tables#SESSIONS_SEARCH} full-text index. Each row's docid is the
+     * {@link BaseColumns#_ID} of the session it indexes. The columns are named apart from the
+     * {@link Tables#SESSIONS} ones they copy so that joins of the two tables stay unambiguous.
+     */
     interface SessionsSearchColumns {
-        String SESSION_ID = "session_id";
-        String BODY = "body";
+        String TITLE = "search_title";
+        String ABSTRACT = "search_abstract";
+        String SPEAKER_NAMES = "search_speaker_names";
     }
 
     /** Fully-qualified field names. */
     private interface Qualified {
-        String SESSIONS_SEARCH = Tables.SESSIONS_SEARCH + "(" + SessionsSearchColumns.SESSION_ID
-                + "," + SessionsSearchColumns.BODY + ")";
+        String SESSIONS_SEARCH = Tables.SESSIONS_SEARCH + "(docid,"
+                + SessionsSearchColumns.TITLE + "," + SessionsSearchColumns.ABSTRACT + ","
+                + SessionsSearchColumns.SPEAKER_NAMES + ")";
 
         String SESSIONS_TAGS_SESSION_ID = Tables.SESSIONS_TAGS + "."
                 + SessionsTags.SESSION_ID;
@@ -379,15 +421,7 @@ public class ScheduleDatabase extends SQLiteOpenHelper {
                 + VideoColumns.VIDEO_IMPORT_HASHCODE + " TEXT NOT NULL,"
                 + "UNIQUE (" + VideoColumns.VIDEO_ID + ") ON CONFLICT REPLACE)");
 
-        // Full-text search index. Update using updateSessionSearchIndex method.
-        // Use the porter tokenizer for simple stemming, so that "frustration" matches "frustrated."
-        db.execSQL("CREATE VIRTUAL TABLE " + Tables.SESSIONS_SEARCH + " USING fts3("
-                + BaseColumns._ID + " INTEGER PRIMARY KEY AUTOINCREMENT,"
-                + SessionsSearchColumns.BODY + " TEXT NOT NULL,"
-                + SessionsSearchColumns.SESSION_ID
-                + " TEXT NOT NULL " + References.SESSION_ID + ","
-                + "UNIQUE (" + SessionsSearchColumns.SESSION_ID + ") ON CONFLICT REPLACE,"
-                + "tokenize=porter)");
+        // The full-text search index is created in upgradeFrom2016Bto2016C.
 
         // Search suggestions
         db.execSQL("CREATE TABLE " + Tables.SEARCH_SUGGEST + " ("
@@ -415,6 +449,9 @@ public class ScheduleDatabase extends SQLiteOpenHelper {
         upgradeFrom2015Ato2015B(db);
         upgradeFrom2015Bto2016A(db);
         upgradeFrom2016Ato2016B(db);
+        upgradeFrom2016Bto2016C(db);
+        upgradeFrom2016Cto2016D(db);
+        upgradeFrom2016Dto2016E(db);
     }
 
     private void upgradeFrom2014Cto2015A(SQLiteDatabase db) {
@@ -473,37 +510,242 @@ public class ScheduleDatabase extends SQLiteOpenHelper {
                 + "UNIQUE (" + Cards.CARD_ID + ") ON CONFLICT REPLACE)");
     }
 
+    private void upgradeFrom2016Bto2016C(SQLiteDatabase db) {
+        // Replace the fts3 index, which had to be regenerated with a grouped join over speakers
+        // after every sync, with an fts4 index that triggers keep in step with the sessions table.
+        // An import only writes the sessions it changes, so only their entries are rewritten.
+        db.execSQL("DROP TABLE IF EXISTS " + Tables.SESSIONS_SEARCH);
+
+        // Use the porter tokenizer for simple stemming, so that "frustration" matches "frustrated."
+        // The prefix indexes serve the short prefix queries issued while the user is typing.
+        db.execSQL("CREATE VIRTUAL TABLE " + Tables.SESSIONS_SEARCH + " USING fts4("
+                + SessionsSearchColumns.TITLE + ","
+                + SessionsSearchColumns.ABSTRACT + ","
+                + SessionsSearchColumns.SPEAKER_NAMES + ","
+                + "prefix=\"1,2,3\","
+                + "tokenize=porter)");
+
+        createSessionSearchTriggers(db);
+
+        // Index the sessions we already have.
+        updateSessionSearchIndex(db);
+    }
+
+    /**
+     * Creates the triggers that keep the session search index in step with the sessions table.
+     */
+    private static void createSessionSearchTriggers(SQLiteDatabase db) {
+        String indexedColumns = SessionsColumns.SESSION_TITLE + ","
+                + SessionsColumns.SESSION_ABSTRACT + "," + SessionsColumns.SESSION_SPEAKER_NAMES;
+        String deleteOld = "DELETE FROM " + Tables.SESSIONS_SEARCH
+                + " WHERE docid=old." + BaseColumns._ID + ";";
+        String insertNew = "INSERT INTO " + Qualified.SESSIONS_SEARCH + " VALUES(new."
+                + BaseColumns._ID + ",new." + SessionsColumns.SESSION_TITLE
+                + ",new." + SessionsColumns.SESSION_ABSTRACT
+                + ",new." + SessionsColumns.SESSION_SPEAKER_NAMES + ");";
+
+        // Sessions are written with ON CONFLICT REPLACE, which deletes the old row without firing
+        // delete triggers, so drop the index entry of the row an insert is about to replace.
+        db.execSQL("CREATE TRIGGER " + Triggers.SESSIONS_SEARCH_BEFORE_INSERT
+                + " BEFORE INSERT ON " + Tables.SESSIONS
+                + " BEGIN DELETE FROM " + Tables.SESSIONS_SEARCH + " WHERE docid IN (SELECT "
+                + BaseColumns._ID + " FROM " + Tables.SESSIONS + " WHERE "
+                + Sessions.SESSION_ID + "=new." + Sessions.SESSION_ID + "); END;");
+        db.execSQL("CREATE TRIGGER " + Triggers.SESSIONS_SEARCH_AFTER_INSERT
+                + " AFTER INSERT ON " + Tables.SESSIONS + " BEGIN " + insertNew + " END;");
+        db.execSQL("CREATE TRIGGER " + Triggers.SESSIONS_SEARCH_AFTER_UPDATE
+                + " AFTER UPDATE OF " + indexedColumns + " ON " + Tables.SESSIONS
+                + " BEGIN " + deleteOld + insertNew + " END;");
+        db.execSQL("CREATE TRIGGER " + Triggers.SESSIONS_SEARCH_DELETE
+                + " AFTER DELETE ON " + Tables.SESSIONS + " BEGIN " + deleteOld + " END;");
+    }
+
+    private static void dropSessionSearchTriggers(SQLiteDatabase db) {
+        db.execSQL("DROP TRIGGER IF EXISTS " + Triggers.SESSIONS_SEARCH_BEFORE_INSERT);
+        db.execSQL("DROP TRIGGER IF EXISTS " + Triggers.SESSIONS_SEARCH_AFTER_INSERT);
+        db.execSQL("DROP TRIGGER IF EXISTS " + Triggers.SESSIONS_SEARCH_AFTER_UPDATE);
+        db.execSQL("DROP TRIGGER IF EXISTS " + Triggers.SESSIONS_SEARCH_DELETE);
+    }
+
+    private void upgradeFrom2016Cto2016D(SQLiteDatabase db) {
+        // Session time ranges, for the sessions at, after or within a given time.
+        db.execSQL("CREATE INDEX " + Indexes.SESSIONS_START_END + " ON " + Tables.SESSIONS + "("
+                + Sessions.SESSION_START + "," + Sessions.SESSION_END + ")");
+        db.execSQL("CREATE INDEX " + Indexes.SESSIONS_ROOM_START + " ON " + Tables.SESSIONS + "("
+                + Sessions.ROOM_ID + "," + Sessions.SESSION_START + ")");
+
+        // The reverse direction of the session mappings, for the tag filters and the sessions of
+        // a speaker. Both cover the mapping, so the tables themselves aren't read.
+        db.execSQL("CREATE INDEX " + Indexes.SESSIONS_TAGS_TAG + " ON " + Tables.SESSIONS_TAGS
+                + "(" + SessionsTags.TAG_ID + "," + SessionsTags.SESSION_ID + ")");
+        db.execSQL("CREATE INDEX " + Indexes.SESSIONS_SPEAKERS_SPEAKER + " ON "
+                + Tables.SESSIONS_SPEAKERS + "(" + SessionsSpeakers.SPEAKER_ID + ","
+                + SessionsSpeakers.SESSION_ID + ")");
+
+        // Covers the my schedule join made by nearly every session query, which only needs to
+        // know whether the session is in the schedule.
+        db.execSQL("CREATE INDEX " + Indexes.MY_SCHEDULE_SESSION_ACCOUNT + " ON "
+                + Tables.MY_SCHEDULE + "(" + MySchedule.SESSION_ID + ","
+                + MySchedule.MY_SCHEDULE_ACCOUNT_NAME + "," + MySchedule.MY_SCHEDULE_IN_SCHEDULE
+                + ")");
+
+        // Per account data is always selected by account.
+        db.execSQL("CREATE INDEX " + Indexes.MY_SCHEDULE_ACCOUNT + " ON " + Tables.MY_SCHEDULE
+                + "(" + MySchedule.MY_SCHEDULE_ACCOUNT_NAME + ")");
+        db.execSQL("CREATE INDEX " + Indexes.MY_FEEDBACK_SUBMITTED_ACCOUNT + " ON "
+                + Tables.MY_FEEDBACK_SUBMITTED + "("
+                + MyFeedbackSubmitted.MY_FEEDBACK_SUBMITTED_ACCOUNT_NAME + ")");
+        db.execSQL("CREATE INDEX " + Indexes.MY_VIEWED_VIDEOS_ACCOUNT + " ON "
+                + Tables.MY_VIEWED_VIDEO + "(" + MyViewedVideos.MY_VIEWED_VIDEOS_ACCOUNT_NAME
+                + ")");
+
+        db.execSQL("CREATE INDEX " + Indexes.FEEDBACK_SESSION + " ON " + Tables.FEEDBACK + "("
+                + Sessions.SESSION_ID + ")");
+        db.execSQL("CREATE INDEX " + Indexes.BLOCKS_START + " ON " + Tables.BLOCKS + "("
+                + BlocksColumns.BLOCK_START + ")");
+        db.execSQL("CREATE INDEX " + Indexes.ANNOUNCEMENTS_ANNOUNCEMENT_ID + " ON "
+                + Tables.ANNOUNCEMENTS + "(" + AnnouncementsColumns.ANNOUNCEMENT_ID + ")");
+        db.execSQL("CREATE INDEX " + Indexes.MAPMARKERS_FLOOR + " ON " + Tables.MAPMARKERS + "("
+                + MapMarkerColumns.MARKER_FLOOR + ")");
+    }
+
+    private void upgradeFrom2016Dto2016E(SQLiteDatabase db) {
+        // Fingerprints of the imported rows, so that an import only writes the rows that changed.
+        // Existing rows get an empty fingerprint, so the next import rewrites them once.
+        db.execSQL("ALTER TABLE " + Tables.BLOCKS + " ADD COLUMN "
+                + BlocksColumns.BLOCK_IMPORT_HASHCODE + " TEXT NOT NULL DEFAULT ''");
+        db.execSQL("ALTER TABLE " + Tables.TAGS + " ADD COLUMN "
+                + TagsColumns.TAG_IMPORT_HASHCODE + " TEXT NOT NULL DEFAULT ''");
+        db.execSQL("ALTER TABLE " + Tables.ROOMS + " ADD COLUMN "
+                + RoomsColumns.ROOM_IMPORT_HASHCODE + " TEXT NOT NULL DEFAULT ''");
+        db.execSQL("ALTER TABLE " + Tables.CARDS + " ADD COLUMN "
+                + Cards.CARD_IMPORT_HASHCODE + " TEXT NOT NULL DEFAULT ''");
+        db.execSQL("ALTER TABLE " + Tables.HASHTAGS + " ADD COLUMN "
+                + HashtagColumns.HASHTAG_IMPORT_HASHCODE + " TEXT NOT NULL DEFAULT ''");
+    }
+
     /**
-     * Updates the session search index. This should be done sparingly, as the queries are rather
-     * complex.
+     * Rebuilds the session search index from the sessions table. Triggers keep the index up to
+     * date as sessions are written, so this is only needed when the index is created, or to
+     * repair it.
      */
     static void updateSessionSearchIndex(SQLiteDatabase db) {
+        long start = System.currentTimeMillis();
         db.execSQL("DELETE FROM " + Tables.SESSIONS_SEARCH);
+        db.execSQL("INSERT INTO " + Qualified.SESSIONS_SEARCH + " SELECT " + BaseColumns._ID + ","
+                + Sessions.SESSION_TITLE + "," + Sessions.SESSION_ABSTRACT + ","
+                + Sessions.SESSION_SPEAKER_NAMES + " FROM " + Tables.SESSIONS);
+        // Merge the segments the rebuild left behind, so queries read a single b-tree.
+        db.execSQL("INSERT INTO " + Tables.SESSIONS_SEARCH + "(" + Tables.SESSIONS_SEARCH
+                + ") VALUES('optimize')");
+        LOGD(TAG, "Rebuilt session search index in " + (System.currentTimeMillis() - start)
+                + "ms.");
+    }
+
+    /**
+     * The tables written by the conference data import, in the order of their dependencies. They
+     * are staged by {@link ImportStaging}, and copied from a bootstrap snapshot along with the
+     * tables backing the session search index.
+     */
+    static final String[] CONFERENCE_DATA_TABLES = {
+            Tables.BLOCKS, Tables.CARDS, Tables.TAGS, Tables.ROOMS, Tables.SESSIONS,
+            Tables.SPEAKERS, Tables.SESSIONS_TAGS, Tables.SESSIONS_SPEAKERS, Tables.MAPMARKERS,
+            Tables.MAPTILES, Tables.HASHTAGS, Tables.VIDEOS, Tables.SEARCH_SUGGEST};
+
+    /**
+     * Table of a bootstrap snapshot holding the timestamp of the data it was built from, in its
+     * {@link #SNAPSHOT_DATA_TIMESTAMP} column.
+     */
+    static final String SNAPSHOT_METADATA_TABLE = "snapshot_metadata";
+
+    static final String SNAPSHOT_DATA_TIMESTAMP = "data_timestamp";
 
-        db.execSQL("INSERT INTO " + Qualified.SESSIONS_SEARCH
-                + " SELECT s." + Sessions.SESSION_ID + ",("
-
-                // Full text body
-                + Sessions.SESSION_TITLE + "||'; '||"
-                + Sessions.SESSION_ABSTRACT + "||'; '||"
-                + "IFNULL(GROUP_CONCAT(t." + Speakers.SPEAKER_NAME + ",' '),'')||'; '||"
-                + "'')"
-
-                + " FROM " + Tables.SESSIONS + " s "
-                + " LEFT OUTER JOIN"
-
-                // Subquery resulting in session_id, speaker_id, speaker_name
-                + "(SELECT " + Sessions.SESSION_ID + "," + Qualified.SPEAKERS_SPEAKER_ID
-                + "," + Speakers.SPEAKER_NAME
-                + " FROM " + Tables.SESSIONS_SPEAKERS
-                + " INNER JOIN " + Tables.SPEAKERS
-                + " ON " + Qualified.SESSIONS_SPEAKERS_SPEAKER_ID + "="
-                + Qualified.SPEAKERS_SPEAKER_ID
-                + ") t"
-
-                // Grand finale
-                + " ON s." + Sessions.SESSION_ID + "=t." + Sessions.SESSION_ID
-                + " GROUP BY s." + Sessions.SESSION_ID);
+    /**
+     * Replaces the conference data with the data of a bootstrap snapshot: a copy of this
+     * database, made after importing the bootstrap data. The snapshot is attached and its tables
+     * copied in a single transaction, session search index included, so none of the parsing,
+     * content provider operations or indexing of the import is repeated. The session search
+     * triggers are dropped during the copy, so the copied sessions aren't indexed a second time.
+     *
+     * @param snapshotFile The snapshot database file.
+     * @param dataTimestamp The timestamp of the data the snapshot should hold.
+     * @return Whether the data was copied. It is not if the snapshot was made for another
+     * version of the database or of the data, or if conference data was already imported.
+     */
+    static boolean copySnapshot(SQLiteDatabase db, File snapshotFile, String dataTimestamp) {
+        long start = System.currentTimeMillis();
+        db.execSQL("ATTACH DATABASE ? AS snapshot", new Object[]{snapshotFile.getPath()});
+        try {
+            long version = DatabaseUtils.longForQuery(db, "PRAGMA snapshot.user_version", null);
+            if (version != CUR_DATABASE_VERSION) {
+                LOGW(TAG, "Ignoring snapshot of database version " + version);
+                return false;
+            }
+            String snapshotTimestamp = DatabaseUtils.stringForQuery(db, "SELECT "
+                    + SNAPSHOT_DATA_TIMESTAMP + " FROM snapshot." + SNAPSHOT_METADATA_TABLE, null);
+            if (!TextUtils.equals(snapshotTimestamp, dataTimestamp)) {
+                LOGW(TAG, "Ignoring snapshot of data " + snapshotTimestamp);
+                return false;
+            }
+            // Deleting sessions would cascade into the user's schedule and feedback, so only
+            // ever copy into a database that holds no conference data yet.
+            if (DatabaseUtils.queryNumEntries(db, "main." + Tables.SESSIONS) > 0) {
+                LOGW(TAG, "Ignoring snapshot, conference data was already imported.");
+                return false;
+            }
+
+            List<String> tables = new ArrayList<String>();
+            for (String table : CONFERENCE_DATA_TABLES) {
+                tables.add(table);
+            }
+            // The search index is a virtual table, stored in shadow tables that can be copied as
+            // they are.
+            Cursor cursor = db.rawQuery("SELECT name FROM snapshot.sqlite_master WHERE type='table'"
+                    + " AND name LIKE '" + Tables.SESSIONS_SEARCH + "\\_%' ESCAPE '\\'", null);
+            try {
+                while (cursor.moveToNext()) {
+                    tables.add(cursor.getString(0));
+                }
+            } finally {
+                cursor.close();
+            }
+
+            db.beginTransaction();
+            try {
+                // The index is copied, so the triggers must not build it again from the sessions
+                // copied. They are recreated within the transaction, before any other write.
+                dropSessionSearchTriggers(db);
+                for (String table : tables) {
+                    String columns = TextUtils.join(",", getColumns(db, table));
+                    db.execSQL("DELETE FROM main." + table);
+                    db.execSQL("INSERT INTO main." + table + "(" + columns + ") SELECT " + columns
+                            + " FROM snapshot." + table);
+                }
+                createSessionSearchTriggers(db);
+                db.setTransactionSuccessful();
+            } finally {
+                db.endTransaction();
+            }
+            LOGI(TAG, "Copied " + tables.size() + " tables from snapshot in "
+                    + (System.currentTimeMillis() - start) + "ms.");
+            return true;
+        } finally {
+            db.execSQL("DETACH DATABASE snapshot");
+        }
+    }
+
+    private static List<String> getColumns(SQLiteDatabase db, String table) {
+        List<String> columns = new ArrayList<String>();
+        Cursor cursor = db.rawQuery("PRAGMA main.table_info(" + table + ")", null);
+        try {
+            int nameColumn = cursor.getColumnIndexOrThrow("name");
+            while (cursor.moveToNext()) {
+                columns.add(cursor.getString(nameColumn));
+            }
+        } finally {
+            cursor.close();
+        }
+        return columns;
     }
 
     @Override
@@ -554,6 +796,27 @@ public class ScheduleDatabase extends SQLiteOpenHelper {
             version = VER_2016_RELEASE_B;
         }
 
+        // Check if we can upgrade from release 2016 B to release 2016 C.
+        if (version == VER_2016_RELEASE_B) {
+            LOGD(TAG, "Upgrading database from 2016 release B to 2016 release C.");
+            upgradeFrom2016Bto2016C(db);
+            version = VER_2016_RELEASE_C;
+        }
+
+        // Check if we can upgrade from release 2016 C to release 2016 D.
+        if (version == VER_2016_RELEASE_C) {
+            LOGD(TAG, "Upgrading database from 2016 release C to 2016 release D.");
+            upgradeFrom2016Cto2016D(db);
+            version = VER_2016_RELEASE_D;
+        }
+
+        // Check if we can upgrade from release 2016 D to release 2016 E.
+        if (version == VER_2016_RELEASE_D) {
+            LOGD(TAG, "Upgrading database from 2016 release D to 2016 release E.");
+            upgradeFrom2016Dto2016E(db);
+            version = VER_2016_RELEASE_E;
+        }
+
         LOGD(TAG, "After upgrade logic, at version " + version);
 
         // Drop tables that have been deprecated.
@@ -571,6 +834,10 @@ public class ScheduleDatabase extends SQLiteOpenHelper {
             db.execSQL("DROP TRIGGER IF EXISTS " + Triggers.SESSIONS_FEEDBACK_DELETE);
             db.execSQL("DROP TRIGGER IF EXISTS " + Triggers.SESSIONS_MY_SCHEDULE_DELETE);
             db.execSQL("DROP TRIGGER IF EXISTS " + Triggers.DeprecatedTriggers.SESSIONS_TRACKS_DELETE);
+            db.execSQL("DROP TRIGGER IF EXISTS " + Triggers.SESSIONS_SEARCH_BEFORE_INSERT);
+            db.execSQL("DROP TRIGGER IF EXISTS " + Triggers.SESSIONS_SEARCH_AFTER_INSERT);
+            db.execSQL("DROP TRIGGER IF EXISTS " + Triggers.SESSIONS_SEARCH_AFTER_UPDATE);
+            db.execSQL("DROP TRIGGER IF EXISTS " + Triggers.SESSIONS_SEARCH_DELETE);
 
             db.execSQL("DROP TABLE IF EXISTS " + Tables.BLOCKS);
             db.execSQL("DROP TABLE IF EXISTS " + Tables.ROOMS);
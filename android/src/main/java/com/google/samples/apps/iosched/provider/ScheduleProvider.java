@@ -18,6 +18,7 @@ package com.google.samples.apps.iosched.provider;
 
 import com.google.samples.apps.iosched.Config;
 import com.google.samples.apps.iosched.appwidget.ScheduleWidgetProvider;
+import com.google.samples.apps.iosched.model.TagMetadata;
 import com.google.samples.apps.iosched.provider.ScheduleContract.Announcements;
 import com.google.samples.apps.iosched.provider.ScheduleContract.Blocks;
 import com.google.samples.apps.iosched.provider.ScheduleContract.Feedback;
@@ -37,12 +38,12 @@ import com.google.samples.apps.iosched.provider.ScheduleContract.Speakers;
 import com.google.samples.apps.iosched.provider.ScheduleContract.Tags;
 import com.google.samples.apps.iosched.provider.ScheduleContract.VideoColumns;
 import com.google.samples.apps.iosched.provider.ScheduleContract.Videos;
-import com.google.samples.apps.iosched.provider.ScheduleDatabase.SessionsSearchColumns;
 import com.google.samples.apps.iosched.provider.ScheduleDatabase.SessionsSpeakers;
 import com.google.samples.apps.iosched.provider.ScheduleDatabase.Tables;
 import com.google.samples.apps.iosched.settings.SettingsUtils;
 import com.google.samples.apps.iosched.util.AccountUtils;
 import com.google.samples.apps.iosched.util.SelectionBuilder;
+import com.google.common.annotations.VisibleForTesting;
 
 import android.app.SearchManager;
 import android.content.ContentProvider;
@@ -56,20 +57,26 @@ import android.database.MatrixCursor;
 import android.database.sqlite.SQLiteConstraintException;
 import android.database.sqlite.SQLiteDatabase;
 import android.net.Uri;
+import android.os.Binder;
+import android.os.Bundle;
 import android.os.ParcelFileDescriptor;
+import android.os.Process;
 import android.provider.BaseColumns;
 import android.text.TextUtils;
 import android.util.Log;
 
+import java.io.File;
 import java.io.FileDescriptor;
 import java.io.FileNotFoundException;
 import java.io.PrintWriter;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 import static com.google.samples.apps.iosched.util.LogUtils.LOGD;
-import static com.google.samples.apps.iosched.util.LogUtils.LOGE;
 import static com.google.samples.apps.iosched.util.LogUtils.LOGV;
 import static com.google.samples.apps.iosched.util.LogUtils.LOGW;
 import static com.google.samples.apps.iosched.util.LogUtils.makeLogTag;
@@ -83,10 +90,48 @@ public class ScheduleProvider extends ContentProvider {
 
     private static final String TAG = makeLogTag(ScheduleProvider.class);
 
+    /**
+     * Maximum number of operations of a staged import that {@link #applyBatch} applies in one
+     * transaction.
+     */
+    private static final int MAX_OPERATIONS_PER_TRANSACTION = 500;
+
+    /**
+     * Ranks session search matches. A hit in the title counts for more than one in the speaker
+     * names, which in turn counts for more than one in the abstract.
+     */
+    private static final SearchRanker SESSIONS_SEARCH_RANKER = new SearchRanker(
+            4.0 /* title */, 1.0 /* abstract */, 2.0 /* speaker names */);
+
     private ScheduleDatabase mOpenHelper;
 
     private ScheduleProviderUriMatcher mUriMatcher;
 
+    /**
+     * Compiled insert statements of the {@link #applyBatch} running on the current thread, if
+     * any. Sync adapter inserts that are part of the batch go through them.
+     */
+    private final ThreadLocal<BulkInsertHelper> mBulkInsertHelper =
+            new ThreadLocal<BulkInsertHelper>();
+
+    /**
+     * Staged tables of the import {@link #applyBatch} is running on the current thread, if any.
+     * Sync adapter writes that are part of the batch go to them.
+     */
+    private final ThreadLocal<ImportStaging> mImportStaging = new ThreadLocal<ImportStaging>();
+
+    /**
+     * The tags of each session, for tag filtered session queries. Null until the first such query,
+     * and dropped whenever sessions or tags are written. Guarded by this when written.
+     */
+    private volatile TagFilterIndex mTagFilterIndex;
+
+    /**
+     * Incremented whenever {@link #mTagFilterIndex} is dropped, so that an index loaded while
+     * sessions or tags were being written is not kept. Guarded by this.
+     */
+    private int mTagFilterIndexGeneration;
+
     /**
      * Providing important state information to be included in bug reports.
      *
@@ -132,6 +177,8 @@ public class ScheduleProvider extends ContentProvider {
         Context context = getContext();
         ScheduleDatabase.deleteDatabase(context);
         mOpenHelper = new ScheduleDatabase(getContext());
+        invalidateTagFilterIndex();
+        TagMetadata.invalidateCache();
     }
 
     /** {@inheritDoc} */
@@ -141,55 +188,76 @@ public class ScheduleProvider extends ContentProvider {
         return matchingUriEnum.contentType;
     }
 
-    /**
-     * Returns a tuple of question marks. For example, if {@code count} is 3, returns "(?,?,?)".
-     */
-    private String makeQuestionMarkTuple(int count) {
-        if (count < 1) {
-            return "()";
-        }
-        StringBuilder stringBuilder = new StringBuilder();
-        stringBuilder.append("(?");
-        for (int i = 1; i < count; i++) {
-            stringBuilder.append(",?");
-        }
-        stringBuilder.append(")");
-        return stringBuilder.toString();
-    }
-
     /**
      * Adds the {@code tagsFilter} query parameter to the given {@code builder}. This query
      * parameter is used by the {@link com.google.samples.apps.iosched.explore.ExploreSessionsActivity}
      * when the user makes a selection containing multiple filters.
+     * <p/>
+     * The matching sessions are found in the {@link TagFilterIndex} and selected by row ID, so the
+     * query does not need to filter and count the rows of the sessions_tags join. A session
+     * matches if it has at least one of the tags of each category in the filter.
      */
-    private void addTagsFilter(SelectionBuilder builder, String tagsFilter, String numCategories) {
-        // Note: for context, remember that session queries are done on a join of sessions
-        // and the sessions_tags relationship table, and are GROUP'ed BY the session ID.
+    private void addTagsFilter(SQLiteDatabase db, SelectionBuilder builder, String tagsFilter) {
         String[] requiredTags = tagsFilter.split(",");
         if (requiredTags.length == 0) {
             // filtering by 0 tags -- no-op
             return;
-        } else if (requiredTags.length == 1) {
-            // filtering by only one tag, so a simple WHERE clause suffices
-            builder.where(Tags.TAG_ID + "=?", requiredTags[0]);
-        } else {
-            // Filtering by multiple tags, so we must add a WHERE clause with an IN operator,
-            // and add a HAVING statement to exclude groups that fall short of the number
-            // of required tags. For example, if requiredTags is { "X", "Y", "Z" }, and a certain
-            // session only has tags "X" and "Y", it will be excluded by the HAVING statement.
-            int categories = 1;
-            if (numCategories != null && TextUtils.isDigitsOnly(numCategories)) {
-                try {
-                    categories = Integer.parseInt(numCategories);
-                    LOGD(TAG, "Categories being used " + categories);
-                } catch (Exception ex) {
-                    LOGE(TAG, "exception parsing categories ", ex);
-                }
+        }
+        long[] sessionIds = getTagFilterIndex(db).findSessions(requiredTags);
+        StringBuilder selection = new StringBuilder(Qualified.SESSIONS_ID).append(" IN (");
+        for (int i = 0; i < sessionIds.length; i++) {
+            if (i > 0) {
+                selection.append(',');
             }
-            String questionMarkTuple = makeQuestionMarkTuple(requiredTags.length);
-            builder.where(Tags.TAG_ID + " IN " + questionMarkTuple, requiredTags);
-            builder.having(
-                    "COUNT(" + Qualified.SESSIONS_SESSION_ID + ") >= " + categories);
+            selection.append(sessionIds[i]);
+        }
+        builder.where(selection.append(')').toString());
+    }
+
+    /**
+     * Returns the tags of each session, loading them from {@code db} if they changed since they
+     * were last loaded.
+     */
+    private TagFilterIndex getTagFilterIndex(SQLiteDatabase db) {
+        TagFilterIndex index = mTagFilterIndex;
+        if (index != null) {
+            return index;
+        }
+        int generation = getTagFilterIndexGeneration();
+        index = TagFilterIndex.load(db);
+        synchronized (this) {
+            if (generation == mTagFilterIndexGeneration) {
+                mTagFilterIndex = index;
+            }
+        }
+        return index;
+    }
+
+    private synchronized int getTagFilterIndexGeneration() {
+        return mTagFilterIndexGeneration;
+    }
+
+    /**
+     * Drops the tags of each session, for when sessions or tags are written.
+     */
+    private synchronized void invalidateTagFilterIndex() {
+        mTagFilterIndex = null;
+        mTagFilterIndexGeneration++;
+    }
+
+    /**
+     * Drops the tags of each session if {@code matchingUriEnum} writes sessions, their tags, or
+     * tags.
+     */
+    private void onTableWritten(ScheduleUriEnum matchingUriEnum) {
+        switch (matchingUriEnum) {
+            case SESSIONS:
+            case SESSIONS_ID:
+            case SESSIONS_ID_TAGS:
+            case TAGS:
+            case TAGS_ID:
+                invalidateTagFilterIndex();
+                break;
         }
     }
 
@@ -200,7 +268,6 @@ public class ScheduleProvider extends ContentProvider {
         final SQLiteDatabase db = mOpenHelper.getReadableDatabase();
 
         String tagsFilter = uri.getQueryParameter(Sessions.QUERY_PARAMETER_TAG_FILTER);
-        String categories = uri.getQueryParameter(Sessions.QUERY_PARAMETER_CATEGORIES);
 
         ScheduleUriEnum matchingUriEnum = mUriMatcher.matchUri(uri);
 
@@ -217,8 +284,8 @@ public class ScheduleProvider extends ContentProvider {
                 final SelectionBuilder builder = buildExpandedSelection(uri, matchingUriEnum.code);
 
                 // If a special filter was specified, try to apply it.
-                if (!TextUtils.isEmpty(tagsFilter) && !TextUtils.isEmpty(categories)) {
-                    addTagsFilter(builder, tagsFilter, categories);
+                if (!TextUtils.isEmpty(tagsFilter)) {
+                    addTagsFilter(db, builder, tagsFilter);
                 }
 
                 boolean distinct = ScheduleContractHelper.isQueryDistinct(uri);
@@ -233,7 +300,38 @@ public class ScheduleProvider extends ContentProvider {
                 }
                 return cursor;
             }
+            case SESSIONS_SEARCH: {
+                final SelectionBuilder builder = buildExpandedSelection(uri, matchingUriEnum.code);
+                if (!TextUtils.isEmpty(tagsFilter)) {
+                    addTagsFilter(db, builder, tagsFilter);
+                }
+                builder.where(selection, selectionArgs);
+
+                int limit = Sessions.getSearchLimit(uri);
+                if (TextUtils.isEmpty(sortOrder)) {
+                    // Order by relevance. The ranking restricts the selection to the page of
+                    // sessions returned, so snippets are only computed for those.
+                    sortOrder = rankSearchMatches(db, builder, Sessions.getSearchQuery(uri), limit);
+                }
+
+                boolean distinct = ScheduleContractHelper.isQueryDistinct(uri);
+
+                Cursor cursor = builder.query(db, distinct, projection, sortOrder,
+                        limit > 0 ? String.valueOf(limit) : null);
+
+                Context context = getContext();
+                if (null != context) {
+                    cursor.setNotificationUri(context.getContentResolver(), uri);
+                }
+                return cursor;
+            }
             case SEARCH_SUGGEST: {
+                if (selectionArgs == null || selectionArgs.length == 0) {
+                    // Not a search, but the import listing the words it already has.
+                    return buildSimpleSelection(uri)
+                            .where(selection, selectionArgs)
+                            .query(db, false, projection, sortOrder, null);
+                }
                 final SelectionBuilder builder = new SelectionBuilder();
 
                 // Adjust incoming query to become SQL text match.
@@ -266,10 +364,10 @@ public class ScheduleProvider extends ContentProvider {
                 // the given keywords.
                 Cursor search = null;
                 if (selectionArgs[0] != null) { // dont query if there was no selectionArg.
+                    // No sort order, so that the best matches come first.
                     search = query(ScheduleContract.Sessions.buildSearchUri(selectionArg),
                             SearchTopicsSessions.SEARCH_SESSIONS_PROJECTION,
-                            null, null,
-                            ScheduleContract.Sessions.SORT_BY_TYPE_THEN_TIME);
+                            null, null, null);
                 }
                 // Now that we have two cursors, we merge the cursors and return a unified view
                 // of the two result sets.
@@ -278,6 +376,94 @@ public class ScheduleProvider extends ContentProvider {
         }
     }
 
+    /**
+     * Scores the sessions matching {@code query} and restricts {@code builder} to the best
+     * {@code limit} of them that also match its selection.
+     *
+     * @param limit The maximum number of sessions to keep, or 0 to keep all of them.
+     * @return The ORDER BY clause listing the matching sessions from best to worst match.
+     */
+    private String rankSearchMatches(SQLiteDatabase db, SelectionBuilder builder, String query,
+            int limit) {
+        long start = System.currentTimeMillis();
+        List<SearchMatch> matches = new ArrayList<>();
+        Cursor cursor = db.rawQuery("SELECT docid,matchinfo(" + Tables.SESSIONS_SEARCH + ",'"
+                + SearchRanker.MATCHINFO_FORMAT + "') FROM " + Tables.SESSIONS_SEARCH
+                + " WHERE " + Tables.SESSIONS_SEARCH + " MATCH ?", new String[]{query});
+        try {
+            while (cursor.moveToNext()) {
+                matches.add(new SearchMatch(cursor.getLong(0), SESSIONS_SEARCH_RANKER.score(
+                        SearchRanker.toIntArray(cursor.getBlob(1)))));
+            }
+        } finally {
+            cursor.close();
+        }
+        int matchCount = matches.size();
+        Collections.sort(matches);
+        if (limit > 0 && limit < matches.size()) {
+            // The tags filter and the selection of the caller may exclude some of the best
+            // matches, so only truncate the matches they keep.
+            matches = keepSelectedMatches(db, builder, matches, limit);
+        }
+
+        StringBuilder ids = new StringBuilder();
+        StringBuilder orderBy = new StringBuilder("CASE ").append(Qualified.SESSIONS_ID);
+        for (int i = 0; i < matches.size(); i++) {
+            long id = matches.get(i).mId;
+            ids.append(i > 0 ? "," : "").append(id);
+            orderBy.append(" WHEN ").append(id).append(" THEN ").append(i);
+        }
+        orderBy.append(" END");
+        builder.where(Qualified.SESSIONS_ID + " IN (" + ids + ")");
+
+        LOGD(TAG, "Ranked " + matchCount + " matches of '" + query + "' in "
+                + (System.currentTimeMillis() - start) + "ms");
+        return matches.isEmpty() ? null : orderBy.toString();
+    }
+
+    /**
+     * @return The first {@code limit} of {@code matches} selected by {@code builder}, in the same
+     * order.
+     */
+    private static List<SearchMatch> keepSelectedMatches(SQLiteDatabase db,
+            SelectionBuilder builder, List<SearchMatch> matches, int limit) {
+        HashSet<Long> selectedIds = new HashSet<>();
+        // Only the IDs are read, so neither snippets nor other columns are computed.
+        Cursor cursor = builder.query(db, false, new String[]{Sessions._ID}, null, null);
+        try {
+            while (cursor.moveToNext()) {
+                selectedIds.add(cursor.getLong(0));
+            }
+        } finally {
+            cursor.close();
+        }
+        List<SearchMatch> selectedMatches = new ArrayList<>(limit);
+        for (int i = 0; i < matches.size() && selectedMatches.size() < limit; i++) {
+            if (selectedIds.contains(matches.get(i).mId)) {
+                selectedMatches.add(matches.get(i));
+            }
+        }
+        return selectedMatches;
+    }
+
+    /**
+     * A session matching a search, ordered from best to worst match.
+     */
+    private static class SearchMatch implements Comparable<SearchMatch> {
+        final long mId;
+        final double mScore;
+
+        SearchMatch(long id, double score) {
+            mId = id;
+            mScore = score;
+        }
+
+        @Override
+        public int compareTo(SearchMatch another) {
+            return Double.compare(another.mScore, mScore);
+        }
+    }
+
     /**
      * Create a {@link MatrixCursor} given the tags and search cursors.
      * @param tags Cursor with the projection {@link SearchTopicsSessions#TOPIC_TAG_PROJECTION}.
@@ -321,19 +507,33 @@ public class ScheduleProvider extends ContentProvider {
     /** {@inheritDoc} */
     @Override
     public Uri insert(Uri uri, ContentValues values) {
-        LOGV(TAG, "insert(uri=" + uri + ", values=" + values.toString()
-                + ", account=" + getCurrentAccountName(uri, false) + ")");
+        // Avoid the string concatenation and account lookup below if not loggable, since the
+        // sync adapter calls this for every imported row.
+        if (Log.isLoggable(TAG, Log.VERBOSE)) {
+            LOGV(TAG, "insert(uri=" + uri + ", values=" + values.toString()
+                    + ", account=" + getCurrentAccountName(uri, false) + ")");
+        }
         final SQLiteDatabase db = mOpenHelper.getWritableDatabase();
         ScheduleUriEnum matchingUriEnum = mUriMatcher.matchUri(uri);
         if (matchingUriEnum.table != null) {
             try {
-                db.insertOrThrow(matchingUriEnum.table, null, values);
-                notifyChange(uri);
+                BulkInsertHelper bulkInsertHelper = mBulkInsertHelper.get();
+                String table = getWriteTable(uri, matchingUriEnum.table);
+                if (bulkInsertHelper != null
+                        && ScheduleContractHelper.isUriCalledFromSyncAdapter(uri)) {
+                    // Inside a batch from the sync adapter: reuse the compiled statement. No
+                    // notification is needed as notifyChange() skips sync adapter uris anyway.
+                    bulkInsertHelper.insert(table, values);
+                } else {
+                    db.insertOrThrow(table, null, values);
+                    notifyChange(uri);
+                }
             } catch (SQLiteConstraintException exception) {
                 // Leaving this here as it's handy to to breakpoint on this throw when debugging a
                 // bootstrap file issue.
                 throw exception;
             }
+            onTableWritten(matchingUriEnum);
         }
 
         switch (matchingUriEnum) {
@@ -362,10 +562,10 @@ public class ScheduleProvider extends ContentProvider {
             case MY_SCHEDULE: {
                 values.put(MySchedule.MY_SCHEDULE_ACCOUNT_NAME, getCurrentAccountName(uri, false));
                 db.insertOrThrow(Tables.MY_SCHEDULE, null, values);
-                notifyChange(uri);
-                Uri sessionUri = Sessions.buildSessionUri(
-                        values.getAsString(MyScheduleColumns.SESSION_ID));
-                notifyChange(sessionUri);
+                String sessionId = values.getAsString(MyScheduleColumns.SESSION_ID);
+                notifyChange(uri, sessionId);
+                Uri sessionUri = Sessions.buildSessionUri(sessionId);
+                notifyChange(sessionUri, sessionId);
                 return sessionUri;
             }
             case MY_VIEWED_VIDEOS: {
@@ -382,10 +582,10 @@ public class ScheduleProvider extends ContentProvider {
                 values.put(MyFeedbackSubmitted.MY_FEEDBACK_SUBMITTED_ACCOUNT_NAME,
                         getCurrentAccountName(uri, false));
                 db.insertOrThrow(Tables.MY_FEEDBACK_SUBMITTED, null, values);
-                notifyChange(uri);
-                Uri sessionUri = Sessions.buildSessionUri(
-                        values.getAsString(MyFeedbackSubmitted.SESSION_ID));
-                notifyChange(sessionUri);
+                String sessionId = values.getAsString(MyFeedbackSubmitted.SESSION_ID);
+                notifyChange(uri, sessionId);
+                Uri sessionUri = Sessions.buildSessionUri(sessionId);
+                notifyChange(sessionUri, sessionId);
                 return sessionUri;
             }
             case SPEAKERS: {
@@ -435,6 +635,7 @@ public class ScheduleProvider extends ContentProvider {
         }
 
         final SelectionBuilder builder = buildSimpleSelection(uri);
+        builder.table(getWriteTable(uri, builder.getTable()));
         if (matchingUriEnum == ScheduleUriEnum.MY_SCHEDULE) {
             values.remove(MySchedule.MY_SCHEDULE_ACCOUNT_NAME);
             builder.where(MySchedule.MY_SCHEDULE_ACCOUNT_NAME + "=?", accountName);
@@ -450,6 +651,7 @@ public class ScheduleProvider extends ContentProvider {
         }
 
         int retVal = builder.where(selection, selectionArgs).update(db, values);
+        onTableWritten(matchingUriEnum);
         notifyChange(uri);
         return retVal;
     }
@@ -467,6 +669,7 @@ public class ScheduleProvider extends ContentProvider {
         }
         final SQLiteDatabase db = mOpenHelper.getWritableDatabase();
         final SelectionBuilder builder = buildSimpleSelection(uri);
+        builder.table(getWriteTable(uri, builder.getTable()));
         ScheduleUriEnum matchingUriEnum = mUriMatcher.matchUri(uri);
         if (matchingUriEnum == ScheduleUriEnum.MY_SCHEDULE) {
             builder.where(MySchedule.MY_SCHEDULE_ACCOUNT_NAME + "=?", accountName);
@@ -480,6 +683,7 @@ public class ScheduleProvider extends ContentProvider {
         }
 
         int retVal = builder.where(selection, selectionArgs).delete(db);
+        onTableWritten(matchingUriEnum);
         notifyChange(uri);
         return retVal;
     }
@@ -495,9 +699,20 @@ public class ScheduleProvider extends ContentProvider {
      * user data related paths once the user data sync is done.
      */
     private void notifyChange(Uri uri) {
+        notifyChange(uri, null);
+    }
+
+    /**
+     * Notifies the system that the given {@code uri} data has changed, and posts the change to the
+     * {@link DataChangeBus}.
+     *
+     * @param id The id of the changed row of the table of {@code uri}, or null if unknown
+     */
+    private void notifyChange(Uri uri, String id) {
         if (!ScheduleContractHelper.isUriCalledFromSyncAdapter(uri)) {
             Context context = getContext();
             context.getContentResolver().notifyChange(uri, null);
+            DataChangeBus.getInstance().notifyChange(uri, id);
 
             // Widgets can't register content observers so we refresh widgets separately.
             context.sendBroadcast(ScheduleWidgetProvider.getRefreshBroadcastIntent(context, false));
@@ -506,27 +721,129 @@ public class ScheduleProvider extends ContentProvider {
 
     /**
      * Apply the given set of {@link ContentProviderOperation}, executing inside
-     * a {@link SQLiteDatabase} transaction. All changes will be rolled back if
-     * any single one fails.
+     * a {@link SQLiteDatabase} transaction. All changes will be rolled back if any single one
+     * fails.
+     * <p/>
+     * A batch made only of sync adapter writes to the conference data tables is an import, such
+     * as the one of {@link com.google.samples.apps.iosched.sync.ConferenceDataHandler}. Its writes
+     * are staged in copies of the tables (see {@link ImportStaging}), committed every
+     * {@link #MAX_OPERATIONS_PER_TRANSACTION} operations so that a large import never holds the
+     * database for long, then merged into the tables in one transaction. Readers see the import
+     * either before or after it is applied as a whole, and a failed import leaves the tables as
+     * they were.
      */
     @Override
     public ContentProviderResult[] applyBatch(ArrayList<ContentProviderOperation> operations)
             throws OperationApplicationException {
         final SQLiteDatabase db = mOpenHelper.getWritableDatabase();
-        db.beginTransaction();
+        final long startTime = System.currentTimeMillis();
+        final int numOperations = operations.size();
+        Set<String> importTables = getImportTables(operations);
+        ImportStaging staging = importTables == null ? null : new ImportStaging(db, importTables);
+        int transactions = 0;
+        boolean applied = false;
+        int tagFilterIndexGeneration = getTagFilterIndexGeneration();
+        mBulkInsertHelper.set(new BulkInsertHelper(db));
+        mImportStaging.set(staging);
         try {
-            final int numOperations = operations.size();
             final ContentProviderResult[] results = new ContentProviderResult[numOperations];
-            for (int i = 0; i < numOperations; i++) {
+            if (staging == null) {
+                applyOperations(db, operations, 0, numOperations, results);
+                transactions++;
+            } else {
+                staging.create();
+                for (int start = 0; start < numOperations;
+                        start += MAX_OPERATIONS_PER_TRANSACTION) {
+                    applyOperations(db, operations, start,
+                            Math.min(numOperations, start + MAX_OPERATIONS_PER_TRANSACTION),
+                            results);
+                    transactions++;
+                }
+                staging.merge();
+                transactions++;
+            }
+            applied = true;
+            return results;
+        } finally {
+            mBulkInsertHelper.get().close();
+            mBulkInsertHelper.remove();
+            mImportStaging.remove();
+            if (staging != null) {
+                staging.drop();
+            }
+            if (tagFilterIndexGeneration != getTagFilterIndexGeneration()) {
+                // The batch wrote sessions or tags. Drop any index loaded before they were
+                // committed, and load it again now, off the UI, rather than on the next filter.
+                invalidateTagFilterIndex();
+                if (applied) {
+                    getTagFilterIndex(db);
+                }
+            }
+            if (numOperations > 1) {
+                long elapsed = Math.max(1, System.currentTimeMillis() - startTime);
+                LOGD(TAG, "applyBatch: " + numOperations + " operations in " + elapsed + "ms ("
+                        + (numOperations * 1000L / elapsed) + " ops/sec), " + transactions
+                        + " transactions.");
+            }
+        }
+    }
+
+    /**
+     * Applies the operations from {@code start} (inclusive) to {@code end} (exclusive) in one
+     * transaction. Staged imports only write their copies of the tables, so their transactions
+     * leave the database readable.
+     */
+    private void applyOperations(SQLiteDatabase db, ArrayList<ContentProviderOperation> operations,
+            int start, int end, ContentProviderResult[] results)
+            throws OperationApplicationException {
+        if (mImportStaging.get() != null) {
+            db.beginTransactionNonExclusive();
+        } else {
+            db.beginTransaction();
+        }
+        try {
+            for (int i = start; i < end; i++) {
                 results[i] = operations.get(i).apply(this, results, i);
             }
             db.setTransactionSuccessful();
-            return results;
         } finally {
             db.endTransaction();
         }
     }
 
+    /**
+     * Returns the tables written by {@code operations} if they are an import, or null otherwise.
+     * They are an import if they are all sync adapter writes to tables that {@link ImportStaging}
+     * can stage.
+     */
+    private Set<String> getImportTables(ArrayList<ContentProviderOperation> operations) {
+        Set<String> tables = new HashSet<String>();
+        for (ContentProviderOperation operation : operations) {
+            Uri uri = operation.getUri();
+            if (!ScheduleContractHelper.isUriCalledFromSyncAdapter(uri)) {
+                return null;
+            }
+            String table = buildSimpleSelection(uri).getTable();
+            if (!ImportStaging.canStage(table)) {
+                return null;
+            }
+            tables.add(table);
+        }
+        return tables.isEmpty() ? null : tables;
+    }
+
+    /**
+     * Returns the table the writes of {@code uri} to {@code table} go to: its staged copy if they
+     * are part of the import {@link #applyBatch} is running on this thread.
+     */
+    private String getWriteTable(Uri uri, String table) {
+        ImportStaging staging = mImportStaging.get();
+        if (staging != null && ScheduleContractHelper.isUriCalledFromSyncAdapter(uri)) {
+            return staging.getTable(table);
+        }
+        return table;
+    }
+
     /**
      * Build a simple {@link SelectionBuilder} to match the requested
      * {@link Uri}. This is usually enough to support {@link #insert},
@@ -666,7 +983,8 @@ public class ScheduleProvider extends ContentProvider {
      * {@link Uri}. This is usually only used by {@link #query}, since it
      * performs table joins useful for {@link Cursor} data.
      */
-    private SelectionBuilder buildExpandedSelection(Uri uri, int match) {
+    @VisibleForTesting
+    SelectionBuilder buildExpandedSelection(Uri uri, int match) {
         final SelectionBuilder builder = new SelectionBuilder();
         ScheduleUriEnum matchingUriEnum = mUriMatcher.matchCode(match);
         if (matchingUriEnum == null) {
@@ -771,7 +1089,7 @@ public class ScheduleProvider extends ContentProvider {
                         .mapToTable(Sessions.SESSION_ID, Tables.SESSIONS)
                         .mapToTable(Sessions.ROOM_ID, Tables.SESSIONS)
                         .map(Sessions.SESSION_IN_MY_SCHEDULE, "IFNULL(in_schedule, 0)")
-                        .where(SessionsSearchColumns.BODY + " MATCH ?", query);
+                        .where(Tables.SESSIONS_SEARCH + " MATCH ?", query);
             }
             case SESSIONS_AT: {
                 final List<String> segments = uri.getPathSegments();
@@ -934,6 +1252,26 @@ public class ScheduleProvider extends ContentProvider {
         }
     }
 
+    @Override
+    public Bundle call(String method, String arg, Bundle extras) {
+        if (!ScheduleContract.METHOD_COPY_SNAPSHOT.equals(method)) {
+            return super.call(method, arg, extras);
+        }
+        // The provider is exported, but only the app itself may point it at a database file.
+        if (Binder.getCallingUid() != Process.myUid()) {
+            throw new SecurityException("Method " + method + " is not available to other apps");
+        }
+        String dataTimestamp = extras == null ? null
+                : extras.getString(ScheduleContract.EXTRA_DATA_TIMESTAMP);
+        boolean copied = ScheduleDatabase.copySnapshot(mOpenHelper.getWritableDatabase(),
+                new File(arg), dataTimestamp);
+        invalidateTagFilterIndex();
+        TagMetadata.invalidateCache();
+        Bundle result = new Bundle();
+        result.putBoolean(ScheduleContract.EXTRA_RESULT, copied);
+        return result;
+    }
+
     @Override
     public ParcelFileDescriptor openFile(Uri uri, String mode) throws FileNotFoundException {
         throw new UnsupportedOperationException("openFile is not supported for " + uri);
@@ -952,6 +1290,7 @@ public class ScheduleProvider extends ContentProvider {
      * parent {@link Tables}. Used when needed to work around SQL ambiguity.
      */
     private interface Qualified {
+        String SESSIONS_ID = Tables.SESSIONS + "." + Sessions._ID;
         String SESSIONS_SESSION_ID = Tables.SESSIONS + "." + Sessions.SESSION_ID;
         String SESSIONS_ROOM_ID = Tables.SESSIONS + "." + Sessions.ROOM_ID;
         String SESSIONS_TAGS_SESSION_ID = Tables.SESSIONS_TAGS + "."
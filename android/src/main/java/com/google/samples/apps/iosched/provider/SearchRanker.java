@@ -0,0 +1,101 @@
+/*
+ * Copyright 2016 Google Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.samples.apps.iosched.provider;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+
+/**
+ * Scores full-text search matches with Okapi BM25. The platform SQLite has no fts5 and thus no
+ * built-in {@code bm25()}, so the score is computed from the statistics fts4 returns through
+ * {@code matchinfo(table, 'pcnalx')}; see {@link #MATCHINFO_FORMAT}.
+ */
+class SearchRanker {
+
+    /**
+     * The {@code matchinfo} format the scores are computed from: the number of phrases and
+     * columns, the number of rows, the average and current number of tokens per column, and the
+     * phrase hit counts per column.
+     */
+    static final String MATCHINFO_FORMAT = "pcnalx";
+
+    /** Term frequency saturation. */
+    private static final double K1 = 1.2;
+
+    /** Strength of the document length normalization. */
+    private static final double B = 0.75;
+
+    /**
+     * Lower bound of a phrase's inverse document frequency, so that phrases found in more than
+     * half the rows still add a little to the score instead of taking from it.
+     */
+    private static final double MIN_IDF = 1e-6;
+
+    private final double[] mColumnWeights;
+
+    /**
+     * @param columnWeights The weight of each column of the full-text table, in declaration order.
+     */
+    SearchRanker(double... columnWeights) {
+        mColumnWeights = columnWeights;
+    }
+
+    /**
+     * Returns the BM25 score of a row given its {@link #MATCHINFO_FORMAT} matchinfo. Higher is a
+     * better match.
+     */
+    double score(int[] matchinfo) {
+        final int phraseCount = matchinfo[0];
+        final int columnCount = matchinfo[1];
+        final int rowCount = matchinfo[2];
+        final int averageLengthOffset = 3;
+        final int lengthOffset = averageLengthOffset + columnCount;
+        final int hitsOffset = lengthOffset + columnCount;
+
+        double score = 0;
+        for (int phrase = 0; phrase < phraseCount; phrase++) {
+            for (int column = 0; column < columnCount; column++) {
+                double weight = column < mColumnWeights.length ? mColumnWeights[column] : 1;
+                int hits = hitsOffset + 3 * (phrase * columnCount + column);
+                int hitsInRow = matchinfo[hits];
+                if (weight == 0 || hitsInRow == 0) {
+                    continue;
+                }
+                int rowsWithHits = matchinfo[hits + 2];
+                double idf = Math.max(MIN_IDF,
+                        Math.log((rowCount - rowsWithHits + 0.5) / (rowsWithHits + 0.5)));
+                double averageLength = Math.max(1, matchinfo[averageLengthOffset + column]);
+                double length = matchinfo[lengthOffset + column];
+                score += weight * idf * (hitsInRow * (K1 + 1))
+                        / (hitsInRow + K1 * (1 - B + B * length / averageLength));
+            }
+        }
+        return score;
+    }
+
+    /**
+     * Converts the blob returned by {@code matchinfo} into the unsigned integers it holds, which
+     * SQLite writes in the machine's byte order.
+     */
+    static int[] toIntArray(byte[] matchinfo) {
+        IntBuffer buffer = ByteBuffer.wrap(matchinfo).order(ByteOrder.nativeOrder()).asIntBuffer();
+        int[] values = new int[buffer.remaining()];
+        buffer.get(values);
+        return values;
+    }
+}
@@ -0,0 +1,183 @@
+/*
+ * Copyright 2016 Google Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.samples.apps.iosched.provider;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+
+import com.google.samples.apps.iosched.provider.ScheduleContract.Sessions;
+import com.google.samples.apps.iosched.provider.ScheduleContract.Tags;
+import com.google.samples.apps.iosched.provider.ScheduleDatabase.SessionsTags;
+import com.google.samples.apps.iosched.provider.ScheduleDatabase.Tables;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+
+import static com.google.samples.apps.iosched.util.LogUtils.LOGD;
+import static com.google.samples.apps.iosched.util.LogUtils.makeLogTag;
+
+/**
+ * In-memory index of the tags of each session, for filtering sessions by tags without a GROUP BY
+ * query over the sessions_tags table. Each tag is given a bit, and each session has the bitset of
+ * its tags. A session matches a filter if it has at least one of the filter's tags in each of the
+ * filter's tag categories, which takes one bitset intersection per category.
+ * <p/>
+ * An index is filled by {@link #load(SQLiteDatabase)} and not changed afterwards, so it can be
+ * shared between threads once published. The provider drops it when sessions or tags change.
+ */
+class TagFilterIndex {
+
+    private static final String TAG = makeLogTag(TagFilterIndex.class);
+
+    private static final String TAGS_SQL = "SELECT " + Tags.TAG_ID + "," + Tags.TAG_CATEGORY
+            + " FROM " + Tables.TAGS;
+
+    private static final String SESSIONS_TAGS_SQL = "SELECT "
+            + Tables.SESSIONS + "." + Sessions._ID + ","
+            + Tables.SESSIONS_TAGS + "." + SessionsTags.TAG_ID
+            + " FROM " + Tables.SESSIONS_TAGS + " INNER JOIN " + Tables.SESSIONS + " ON "
+            + Tables.SESSIONS_TAGS + "." + SessionsTags.SESSION_ID + "="
+            + Tables.SESSIONS + "." + Sessions.SESSION_ID
+            + " ORDER BY " + Tables.SESSIONS + "." + Sessions._ID;
+
+    /**
+     * The bit of each tag, by tag ID.
+     */
+    private final HashMap<String, Integer> mTagBits = new HashMap<>();
+
+    /**
+     * The category of each tag, by tag ID.
+     */
+    private final HashMap<String, String> mTagCategories = new HashMap<>();
+
+    /**
+     * The row IDs of the sessions that have tags, in ascending order.
+     */
+    private long[] mSessionIds = new long[64];
+
+    /**
+     * The tags of each session of {@link #mSessionIds}, at the same index.
+     */
+    private BitSet[] mSessionTags = new BitSet[64];
+
+    private int mSessionCount;
+
+    /**
+     * Reads the tags and the tags of each session from {@code db} into a new index.
+     */
+    static TagFilterIndex load(SQLiteDatabase db) {
+        long start = System.currentTimeMillis();
+        TagFilterIndex index = new TagFilterIndex();
+        Cursor cursor = db.rawQuery(TAGS_SQL, null);
+        try {
+            while (cursor.moveToNext()) {
+                index.addTag(cursor.getString(0), cursor.getString(1));
+            }
+        } finally {
+            cursor.close();
+        }
+        cursor = db.rawQuery(SESSIONS_TAGS_SQL, null);
+        try {
+            while (cursor.moveToNext()) {
+                index.addSessionTag(cursor.getLong(0), cursor.getString(1));
+            }
+        } finally {
+            cursor.close();
+        }
+        LOGD(TAG, "Indexed " + index.mTagBits.size() + " tags of " + index.mSessionCount
+                + " sessions in " + (System.currentTimeMillis() - start) + "ms.");
+        return index;
+    }
+
+    /**
+     * Adds a tag and its category.
+     */
+    void addTag(String tagId, String category) {
+        getTagBit(tagId);
+        mTagCategories.put(tagId, category);
+    }
+
+    /**
+     * Adds a tag of a session. The tags of a session must be added one after the other, and
+     * sessions in ascending order of row ID.
+     */
+    void addSessionTag(long sessionId, String tagId) {
+        if (mSessionCount == 0 || mSessionIds[mSessionCount - 1] != sessionId) {
+            if (mSessionCount == mSessionIds.length) {
+                mSessionIds = Arrays.copyOf(mSessionIds, mSessionCount * 2);
+                mSessionTags = Arrays.copyOf(mSessionTags, mSessionCount * 2);
+            }
+            mSessionIds[mSessionCount] = sessionId;
+            mSessionTags[mSessionCount] = new BitSet();
+            mSessionCount++;
+        }
+        mSessionTags[mSessionCount - 1].set(getTagBit(tagId));
+    }
+
+    private int getTagBit(String tagId) {
+        Integer bit = mTagBits.get(tagId);
+        if (bit == null) {
+            bit = mTagBits.size();
+            mTagBits.put(tagId, bit);
+        }
+        return bit;
+    }
+
+    /**
+     * Returns the row IDs of the sessions that have at least one of {@code tagIds} in each of
+     * their categories, in ascending order. A tag whose category is unknown is a category of its
+     * own, so the sessions must have it.
+     */
+    long[] findSessions(String[] tagIds) {
+        // The tags required in each category, ORed together. The categories are ANDed.
+        HashMap<String, BitSet> masksByCategory = new HashMap<>();
+        ArrayList<BitSet> masks = new ArrayList<>();
+        for (String tagId : tagIds) {
+            String category = mTagCategories.get(tagId);
+            BitSet mask = category == null ? null : masksByCategory.get(category);
+            if (mask == null) {
+                mask = new BitSet();
+                masks.add(mask);
+                if (category != null) {
+                    masksByCategory.put(category, mask);
+                }
+            }
+            Integer bit = mTagBits.get(tagId);
+            if (bit != null) {
+                mask.set(bit);
+            }
+        }
+
+        int maskCount = masks.size();
+        BitSet[] required = masks.toArray(new BitSet[maskCount]);
+        long[] matches = new long[mSessionCount];
+        int matchCount = 0;
+        for (int i = 0; i < mSessionCount; i++) {
+            BitSet sessionTags = mSessionTags[i];
+            int m = 0;
+            while (m < maskCount && sessionTags.intersects(required[m])) {
+                m++;
+            }
+            if (m == maskCount) {
+                matches[matchCount++] = mSessionIds[i];
+            }
+        }
+        return Arrays.copyOf(matches, matchCount);
+    }
+}
@@ -20,6 +20,7 @@ import android.content.Context;
 import android.content.Intent;
 import android.net.Uri;
 
+import com.google.common.annotations.VisibleForTesting;
 import com.google.samples.apps.iosched.BuildConfig;
 import com.google.samples.apps.iosched.R;
 import com.google.samples.apps.iosched.io.JSONHandler;
@@ -29,7 +30,13 @@ import com.google.samples.apps.iosched.sync.ConferenceDataHandler;
 import com.google.samples.apps.iosched.sync.SyncHelper;
 import com.google.samples.apps.iosched.util.LogUtils;
 
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Reader;
 
 import static com.google.samples.apps.iosched.util.LogUtils.LOGD;
 import static com.google.samples.apps.iosched.util.LogUtils.LOGE;
@@ -40,11 +47,24 @@ import static com.google.samples.apps.iosched.util.LogUtils.LOGW;
  * An {@code IntentService} that performs the one-time data bootstrap. It takes the prepackaged
  * conference data from the R.raw.bootstrap_data resource, and populates the database. This data
  * contains the sessions, speakers, etc.
+ * <p>
+ * When the app ships a {@link #SNAPSHOT_ASSET}, a copy of the database made after importing the
+ * same data at build time, its tables are copied into the database instead, which skips parsing
+ * the data and applying it row by row. The JSON import remains the fallback whenever the snapshot
+ * is missing or does not match the database version or the bootstrap data.
  */
 public class DataBootstrapService extends IntentService {
 
     private static final String TAG = LogUtils.makeLogTag(DataBootstrapService.class);
 
+    /**
+     * Asset holding the bootstrap snapshot. It is stored uncompressed (see the aaptOptions of the
+     * build), so it can be copied out of the APK in a single pass.
+     */
+    public static final String SNAPSHOT_ASSET = "bootstrap_snapshot.db";
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
     /**
      * Start the {@link DataBootstrapService} if the bootstrap is either not done or complete yet.
      *
@@ -74,18 +94,22 @@ public class DataBootstrapService extends IntentService {
             LOGD(TAG, "Data bootstrap already done.");
             return;
         }
+        Reader bootstrapJson = null;
         try {
             LOGD(TAG, "Starting data bootstrap process.");
-            // Load data from bootstrap raw resource.
-            String bootstrapJson = JSONHandler
-                    .parseResource(appContext, R.raw.bootstrap_data);
-
-            // 将raw下的数据写入到数据库中，这样就可以使用ContentProvider来读取本地数据了，如果不写入的话，
-            // 当使用的时候都需要从raw中读取，而且没有数据库的查询那么方便.
-            // Apply the data we read to the database with the help of the ConferenceDataHandler.
+            long start = System.currentTimeMillis();
             ConferenceDataHandler dataHandler = new ConferenceDataHandler(appContext);
-            dataHandler.applyConferenceData(new String[]{bootstrapJson},
-                    BuildConfig.BOOTSTRAP_DATA_TIMESTAMP, false);
+            if (!applySnapshot(appContext, dataHandler)) {
+                // Stream data from bootstrap raw resource.
+                bootstrapJson = JSONHandler.openResource(appContext, R.raw.bootstrap_data);
+
+                // 将raw下的数据写入到数据库中，这样就可以使用ContentProvider来读取本地数据了，如果不写入的话，
+                // 当使用的时候都需要从raw中读取，而且没有数据库的查询那么方便.
+                // Apply the data we read to the database with the help of the ConferenceDataHandler.
+                dataHandler.applyConferenceData(new Reader[]{bootstrapJson},
+                        BuildConfig.BOOTSTRAP_DATA_TIMESTAMP, false);
+            }
+            LOGI(TAG, "Bootstrap data applied in " + (System.currentTimeMillis() - start) + "ms.");
 
             SyncHelper.performPostSyncChores(appContext);
 
@@ -106,9 +130,63 @@ public class DataBootstrapService extends IntentService {
                     "Applying fallback -- marking boostrap as done; sync might fix problem.");
             SettingsUtils.markDataBootstrapDone(appContext);
         } finally {
+            if (bootstrapJson != null) {
+                try {
+                    bootstrapJson.close();
+                } catch (IOException e) {
+                    // Ignore exceptions during stream close, the import is already done
+                }
+            }
             // Request a manual sync immediately after the bootstrapping process, in case we
             // have an active connection. Otherwise, the scheduled sync could take a while.
             SyncHelper.requestManualSync();
         }
     }
+
+    /**
+     * Applies the bootstrap data from the {@link #SNAPSHOT_ASSET}, if the app ships one.
+     *
+     * @return Whether the data was applied.
+     */
+    @VisibleForTesting
+    public static boolean applySnapshot(Context context, ConferenceDataHandler dataHandler) {
+        InputStream asset;
+        try {
+            asset = context.getAssets().open(SNAPSHOT_ASSET);
+        } catch (FileNotFoundException ex) {
+            LOGD(TAG, "No bootstrap snapshot, importing bootstrap data.");
+            return false;
+        } catch (IOException ex) {
+            LOGE(TAG, "Failed opening bootstrap snapshot.", ex);
+            return false;
+        }
+
+        // SQLite can only attach a file, so the asset is first copied out of the APK.
+        File snapshotFile = new File(context.getCacheDir(), SNAPSHOT_ASSET);
+        try {
+            OutputStream out = new FileOutputStream(snapshotFile);
+            try {
+                byte[] buffer = new byte[BUFFER_SIZE];
+                int read;
+                while ((read = asset.read(buffer)) != -1) {
+                    out.write(buffer, 0, read);
+                }
+            } finally {
+                out.close();
+            }
+            return dataHandler.applySnapshot(snapshotFile, BuildConfig.BOOTSTRAP_DATA_TIMESTAMP);
+        } catch (IOException | RuntimeException ex) {
+            LOGE(TAG, "Failed applying bootstrap snapshot, importing bootstrap data.", ex);
+            return false;
+        } finally {
+            try {
+                asset.close();
+            } catch (IOException e) {
+                // Ignore exceptions during stream close, the snapshot was read or failed already
+            }
+            if (!snapshotFile.delete()) {
+                LOGW(TAG, "Failed deleting " + snapshotFile);
+            }
+        }
+    }
 }
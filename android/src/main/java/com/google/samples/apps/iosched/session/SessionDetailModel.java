@@ -523,7 +523,7 @@ public class SessionDetailModel
     }
 
     private void readDataFromTagMetadataCursor(Cursor cursor) {
-        mTagMetadata = new TagMetadata(cursor);
+        mTagMetadata = TagMetadata.fromCursor(cursor);
     }
 
     private void readDataFromFeedbackCursor(Cursor cursor) {
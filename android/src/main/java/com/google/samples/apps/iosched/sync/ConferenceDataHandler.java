@@ -20,26 +20,39 @@ import android.content.ContentProviderOperation;
 import android.content.ContentResolver;
 import android.content.Context;
 import android.content.OperationApplicationException;
+import android.database.Cursor;
 import android.net.Uri;
+import android.os.Bundle;
 import android.os.RemoteException;
 import android.preference.PreferenceManager;
 import android.text.TextUtils;
 
+import com.google.common.base.Throwables;
+import com.google.common.util.concurrent.Uninterruptibles;
 import com.google.samples.apps.iosched.io.*;
 import com.google.samples.apps.iosched.io.map.model.Tile;
+import com.google.samples.apps.iosched.provider.DataChangeBus;
 import com.google.samples.apps.iosched.provider.ScheduleContract;
 import com.google.samples.apps.iosched.util.IOUtils;
 import com.google.samples.apps.iosched.util.MapUtils;
-import com.google.gson.JsonParser;
 import com.google.gson.stream.JsonReader;
 
 import java.io.*;
 import java.net.HttpURLConnection;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
-import com.larvalabs.svgandroid.SVG;
 import com.larvalabs.svgandroid.SVGBuilder;
 import com.larvalabs.svgandroid.SVGParseException;
 import com.turbomanage.httpclient.BasicHttpClient;
@@ -93,6 +106,10 @@ public class ConferenceDataHandler {
             DATA_KEY_VIDEOS
     };
 
+    // Number of worker threads used to build content provider operations in parallel.
+    private static final int OPERATION_BUILDER_THREADS =
+            Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors()));
+
     Context mContext = null;
 
     // Handlers for each entity type:
@@ -114,22 +131,56 @@ public class ConferenceDataHandler {
     // Tally of total content provider operations we carried out (for statistical purposes)
     private int mContentProviderOperationsDone = 0;
 
+    // Highest heap usage sampled while parsing the last import (for statistical purposes)
+    private long mPeakHeapBytes = 0;
+
     public ConferenceDataHandler(Context ctx) {
         mContext = ctx;
     }
 
+    /**
+     * Parses the conference data in the given files and imports the data into the content
+     * provider. Each file is streamed straight into the import; it is never loaded into memory
+     * as a whole.
+     *
+     * @param dataFiles The files containing the JSON objects to parse and import.
+     * @param dataTimestamp The timestamp of the data. This should be in RFC1123 format.
+     * @param downloadsAllowed Whether or not we are supposed to download data from the internet if needed.
+     * @throws IOException If there is a problem reading or parsing the data.
+     */
+    public void applyConferenceData(File[] dataFiles, String dataTimestamp,
+            boolean downloadsAllowed) throws IOException {
+        Reader[] dataReaders = new Reader[dataFiles.length];
+        try {
+            for (int i = 0; i < dataFiles.length; i++) {
+                dataReaders[i] = JSONHandler.openFile(dataFiles[i]);
+            }
+            applyConferenceData(dataReaders, dataTimestamp, downloadsAllowed);
+        } finally {
+            for (Reader reader : dataReaders) {
+                if (reader != null) {
+                    reader.close();
+                }
+            }
+        }
+    }
+
     /**
      * Parses the conference data in the given objects and imports the data into the
      * content provider. The format of the data is documented at https://code.google.com/p/iosched.
+     * <p>
+     * The data is streamed: each handler binds its entities one at a time from the reader, so
+     * neither the raw JSON text nor a full JSON tree is ever held in memory.
      *
-     * @param dataBodies The collection of JSON objects to parse and import.
+     * @param dataReaders The readers of the JSON objects to parse and import. They are not closed
+     *                    by this method.
      * @param dataTimestamp The timestamp of the data. This should be in RFC1123 format.
      * @param downloadsAllowed Whether or not we are supposed to download data from the internet if needed.
      * @throws IOException If there is a problem parsing the data.
      */
-    public void applyConferenceData(String[] dataBodies, String dataTimestamp,
+    public void applyConferenceData(Reader[] dataReaders, String dataTimestamp,
             boolean downloadsAllowed) throws IOException {
-        LOGD(TAG, "Applying data from " + dataBodies.length + " files, timestamp " + dataTimestamp);
+        LOGD(TAG, "Applying data from " + dataReaders.length + " files, timestamp " + dataTimestamp);
 
         // 根据不同会议类型来创建具体的处理Handler
         // create handlers for each data type
@@ -147,11 +198,16 @@ public class ConferenceDataHandler {
 
         // process the jsons. This will call each of the handlers when appropriate to deal
         // with the objects we see in the data.
-        LOGD(TAG, "Processing " + dataBodies.length + " JSON objects.");
-        for (int i = 0; i < dataBodies.length; i++) {
-            LOGD(TAG, "Processing json object #" + (i + 1) + " of " + dataBodies.length);
-            processDataBody(dataBodies[i]);
+        LOGD(TAG, "Processing " + dataReaders.length + " JSON objects.");
+        long parseStart = System.currentTimeMillis();
+        mPeakHeapBytes = getUsedHeapBytes();
+        for (int i = 0; i < dataReaders.length; i++) {
+            LOGD(TAG, "Processing json object #" + (i + 1) + " of " + dataReaders.length);
+            processDataBody(dataReaders[i]);
         }
+        LOGI(TAG, "Parsed " + dataReaders.length + " JSON objects in "
+                + (System.currentTimeMillis() - parseStart) + "ms, peak heap in use "
+                + (mPeakHeapBytes / 1024) + "KB.");
 
         // 调用SessionsHandler独有的方法，来给其设置其它Handler解析出的数据，一边SessionsHandler来加工处理自己的数据。
         // the sessions handler needs to know the tag and speaker maps to process sessions
@@ -160,12 +216,7 @@ public class ConferenceDataHandler {
 
         // 生成Content Provider需要的数据操作
         // produce the necessary content provider operations
-        ArrayList<ContentProviderOperation> batch = new ArrayList<ContentProviderOperation>();
-        for (String key : DATA_KEYS_IN_ORDER) {
-            LOGI(TAG, "Building content provider operations for: " + key);
-            mHandlerForKey.get(key).makeContentProviderOperations(batch);
-            LOGI(TAG, "Content provider operations so far: " + batch.size());
-        }
+        ArrayList<ContentProviderOperation> batch = makeContentProviderOperations();
         LOGD(TAG, "Total content provider operations: " + batch.size());
 
         // 下载或者解析本地 SVG地图覆盖文件
@@ -175,13 +226,21 @@ public class ConferenceDataHandler {
 
         // finally, push the changes into the Content Provider
         LOGI(TAG, "Applying " + batch.size() + " content provider operations.");
+        // The provider stages the batch and commits it in small transactions, then applies it
+        // to the tables in one, so readers never see part of it. The import only counts as done
+        // once the data timestamp below is updated; if the batch fails, the tables are left as
+        // they were and the next sync re-applies the full data set.
         try {
             int operations = batch.size();
+            long applyStart = System.currentTimeMillis();
             if (operations > 0) {
                 mContext.getContentResolver().applyBatch(ScheduleContract.CONTENT_AUTHORITY, batch);
             }
-            LOGD(TAG, "Successfully applied " + operations + " content provider operations.");
+            long applyTime = Math.max(1, System.currentTimeMillis() - applyStart);
+            LOGD(TAG, "Successfully applied " + operations + " content provider operations in "
+                    + applyTime + "ms (" + (operations * 1000L / applyTime) + " ops/sec).");
             mContentProviderOperationsDone += operations;
+            mTagsHandler.onOperationsApplied();
         } catch (RemoteException ex) {
             LOGE(TAG, "RemoteException while applying content provider operations.");
             throw new RuntimeException("Error executing content provider batch operation", ex);
@@ -194,13 +253,18 @@ public class ConferenceDataHandler {
         // 上面的异步数据处理还没有完成，造成数据无法展示的问题。如果进入界面时没有数据，那么当此处调用了
         // ContentResolver的更新方法后，会再次触发CursorLoader的onLoaded()方法。
 
-        // notify all top-level paths
-        LOGD(TAG, "Notifying changes on all top-level paths on Content Resolver.");
-        ContentResolver resolver = mContext.getContentResolver();
-        // 通知所有关注的界面来更新他们的数据
-        for (String path : ScheduleContract.TOP_LEVEL_PATHS) {
-            Uri uri = ScheduleContract.BASE_CONTENT_URI.buildUpon().appendPath(path).build();
-            resolver.notifyChange(uri, null);
+        if (!batch.isEmpty()) {
+            // Only notify the observers of the tables whose rows changed, on the Content Resolver
+            // and on the data change bus.
+            Uri[] changedTableUris = getChangedTableUris(batch);
+            LOGD(TAG, "Notifying changes on " + changedTableUris.length + " of "
+                    + ScheduleContract.TOP_LEVEL_PATHS.length + " top-level paths.");
+            ContentResolver resolver = mContext.getContentResolver();
+            // 通知所有关注的界面来更新他们的数据
+            for (Uri uri : changedTableUris) {
+                resolver.notifyChange(uri, null);
+            }
+            DataChangeBus.getInstance().notifyChange(changedTableUris);
         }
 
 
@@ -209,6 +273,154 @@ public class ConferenceDataHandler {
         LOGD(TAG, "Done applying conference data.");
     }
 
+    /**
+     * Replaces the conference data in the content provider with the data of a bootstrap snapshot,
+     * a database built from the same data by importing it ahead of time. The snapshot's tables,
+     * search index included, are copied by the provider in a single transaction, which replaces
+     * parsing the data and applying its content provider operations.
+     *
+     * @param snapshotFile The snapshot database file.
+     * @param dataTimestamp The timestamp of the data. This should be in RFC1123 format.
+     * @return Whether the data was applied. It is not if the snapshot does not hold the data of
+     * this timestamp, or was made for another version of the database; the caller should then
+     * import the data with {@link #applyConferenceData}.
+     * @throws IOException If there is a problem copying the map overlay files.
+     */
+    public boolean applySnapshot(File snapshotFile, String dataTimestamp) throws IOException {
+        LOGD(TAG, "Applying snapshot " + snapshotFile + ", timestamp " + dataTimestamp);
+        long start = System.currentTimeMillis();
+        ContentResolver resolver = mContext.getContentResolver();
+        Bundle extras = new Bundle();
+        extras.putString(ScheduleContract.EXTRA_DATA_TIMESTAMP, dataTimestamp);
+        Bundle result = resolver.call(ScheduleContract.BASE_CONTENT_URI,
+                ScheduleContract.METHOD_COPY_SNAPSHOT, snapshotFile.getPath(), extras);
+        if (result == null || !result.getBoolean(ScheduleContract.EXTRA_RESULT)) {
+            LOGW(TAG, "Snapshot " + snapshotFile + " was not applied.");
+            return false;
+        }
+
+        // The map overlay files are not part of the database; copy the ones the snapshot uses.
+        Collection<Tile> tiles = new ArrayList<Tile>();
+        Cursor cursor = resolver.query(ScheduleContract.MapTiles.buildUri(),
+                new String[]{ScheduleContract.MapTiles.TILE_FILE,
+                        ScheduleContract.MapTiles.TILE_URL}, null, null, null);
+        if (cursor != null) {
+            try {
+                while (cursor.moveToNext()) {
+                    Tile tile = new Tile();
+                    tile.filename = cursor.getString(0);
+                    tile.url = cursor.getString(1);
+                    tiles.add(tile);
+                }
+            } finally {
+                cursor.close();
+            }
+        }
+        processMapOverlayFiles(tiles, false);
+
+        for (String path : ScheduleContract.TOP_LEVEL_PATHS) {
+            resolver.notifyChange(
+                    ScheduleContract.BASE_CONTENT_URI.buildUpon().appendPath(path).build(), null);
+        }
+        DataChangeBus.getInstance().notifyChange(ScheduleContract.BASE_CONTENT_URI);
+
+        setDataTimestamp(dataTimestamp);
+        LOGI(TAG, "Applied snapshot in " + (System.currentTimeMillis() - start) + "ms.");
+        return true;
+    }
+
+    /**
+     * Builds the content provider operations of every handler and concatenates them in
+     * {@link #DATA_KEYS_IN_ORDER}.
+     * <p>
+     * Once parsing is done the handlers are independent of each other (the sessions handler only
+     * reads the tag and speaker maps, which are complete by then), so each handler builds its
+     * operations into its own list on a small worker pool. Each handler still runs on a single
+     * thread, and the lists are joined in the same fixed order, so the resulting batch is identical
+     * to the one built serially. The number of rows each handler inserts, updates and deletes in
+     * each of its tables is logged.
+     */
+    private ArrayList<ContentProviderOperation> makeContentProviderOperations() {
+        long start = System.currentTimeMillis();
+        ExecutorService executor = Executors.newFixedThreadPool(OPERATION_BUILDER_THREADS);
+        try {
+            ArrayList<Future<ArrayList<ContentProviderOperation>>> futures =
+                    new ArrayList<Future<ArrayList<ContentProviderOperation>>>();
+            for (final String key : DATA_KEYS_IN_ORDER) {
+                final JSONHandler handler = mHandlerForKey.get(key);
+                futures.add(executor.submit(new Callable<ArrayList<ContentProviderOperation>>() {
+                    @Override
+                    public ArrayList<ContentProviderOperation> call() {
+                        LOGI(TAG, "Building content provider operations for: " + key);
+                        ArrayList<ContentProviderOperation> list =
+                                new ArrayList<ContentProviderOperation>();
+                        handler.makeContentProviderOperations(list);
+                        LOGI(TAG, "Content provider operations for " + key + ": " + list.size());
+                        for (TableDiff diff : handler.getTableDiffs()) {
+                            LOGI(TAG, "Changes to " + diff);
+                        }
+                        return list;
+                    }
+                }));
+            }
+
+            ArrayList<ContentProviderOperation> batch = new ArrayList<ContentProviderOperation>();
+            for (Future<ArrayList<ContentProviderOperation>> future : futures) {
+                batch.addAll(Uninterruptibles.getUninterruptibly(future));
+            }
+            LOGD(TAG, "Built " + batch.size() + " content provider operations in "
+                    + (System.currentTimeMillis() - start) + "ms.");
+            return batch;
+        } catch (ExecutionException ex) {
+            LOGE(TAG, "Error while building content provider operations.");
+            Throwables.propagateIfPossible(ex.getCause());
+            throw new RuntimeException("Error building content provider operations", ex);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Returns the content uri of each table whose rows the import changed. The tables of a
+     * handler that diffs them with a {@link TableDiff} are only included if
+     * {@link TableDiff#hasChanges()}; the tables of a handler that rewrites them whole, such as the
+     * map, are included if {@code batch} writes to them. The paths whose queries join the changed
+     * tables, as given by {@link ScheduleContract#getJoiningPaths(String)}, are included too.
+     */
+    private Uri[] getChangedTableUris(ArrayList<ContentProviderOperation> batch) {
+        Set<String> diffedPaths = new HashSet<String>();
+        Set<String> paths = new LinkedHashSet<String>();
+        for (String key : DATA_KEYS_IN_ORDER) {
+            for (TableDiff diff : mHandlerForKey.get(key).getTableDiffs()) {
+                String path = getTopLevelPath(diff.getUri());
+                diffedPaths.add(path);
+                if (diff.hasChanges()) {
+                    paths.add(path);
+                }
+            }
+        }
+        for (ContentProviderOperation operation : batch) {
+            String path = getTopLevelPath(operation.getUri());
+            if (path != null && !diffedPaths.contains(path)) {
+                paths.add(path);
+            }
+        }
+        for (String path : new ArrayList<String>(paths)) {
+            Collections.addAll(paths, ScheduleContract.getJoiningPaths(path));
+        }
+        Uri[] uris = new Uri[paths.size()];
+        int i = 0;
+        for (String path : paths) {
+            uris[i++] = ScheduleContract.BASE_CONTENT_URI.buildUpon().appendPath(path).build();
+        }
+        return uris;
+    }
+
+    private static String getTopLevelPath(Uri uri) {
+        List<String> segments = uri.getPathSegments();
+        return segments.isEmpty() ? null : segments.get(0);
+    }
+
     public int getContentProviderOperationsDone() {
         return mContentProviderOperationsDone;
     }
@@ -217,34 +429,36 @@ public class ConferenceDataHandler {
      * Processes a conference data body and calls the appropriate data type handlers
      * to process each of the objects represented therein.
      *
-     * @param dataBody The body of data to process
+     * @param dataBody The reader of the body of data to process. It is not closed by this method.
      * @throws IOException If there is an error parsing the data.
      */
-    private void processDataBody(String dataBody) throws IOException {
-        JsonReader reader = new JsonReader(new StringReader(dataBody));
-        JsonParser parser = new JsonParser();
-        try {
-            reader.setLenient(true); // To err is human
-
-            // the whole file is a single JSON object
-            reader.beginObject();
-
-            while (reader.hasNext()) {
-                // the key is "rooms", "speakers", "tracks", etc.
-                String key = reader.nextName();
-                if (mHandlerForKey.containsKey(key)) {
-                    LOGD(TAG, "Processing key in conference data json: " + key);
-                    // pass the value to the corresponding handler
-                    mHandlerForKey.get(key).process(parser.parse(reader));
-                } else {
-                    LOGW(TAG, "Skipping unknown key in conference data json: " + key);
-                    reader.skipValue();
-                }
+    private void processDataBody(Reader dataBody) throws IOException {
+        JsonReader reader = new JsonReader(dataBody);
+        reader.setLenient(true); // To err is human
+
+        // the whole file is a single JSON object
+        reader.beginObject();
+
+        while (reader.hasNext()) {
+            // the key is "rooms", "speakers", "tracks", etc.
+            String key = reader.nextName();
+            if (mHandlerForKey.containsKey(key)) {
+                LOGD(TAG, "Processing key in conference data json: " + key);
+                // let the corresponding handler stream the value
+                mHandlerForKey.get(key).process(reader);
+                mPeakHeapBytes = Math.max(mPeakHeapBytes, getUsedHeapBytes());
+            } else {
+                LOGW(TAG, "Skipping unknown key in conference data json: " + key);
+                reader.skipValue();
             }
-            reader.endObject();
-        } finally {
-            reader.close();
         }
+        reader.endObject();
+    }
+
+    // Approximate number of bytes currently in use on the Java heap.
+    private static long getUsedHeapBytes() {
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
     }
 
     /**
@@ -282,9 +496,9 @@ public class ConferenceDataHandler {
                         HttpResponse httpResponse = httpClient.get(url, null);
                         IOUtils.writeToFile(httpResponse.getBody(), tileFile);
 
-                        // ensure the file is valid SVG
+                        // ensure the file is valid SVG, without rendering it
                         InputStream is = new FileInputStream(tileFile);
-                        SVG svg = new SVGBuilder().readFromInputStream(is).build();
+                        new SVGBuilder().readFromInputStream(is).validate();
                         is.close();
                     } catch (IOException ex) {
                         LOGE(TAG, "FAILED downloading map overlay tile "+url+
@@ -17,10 +17,14 @@
 package com.google.samples.apps.iosched.sync;
 
 import android.content.Context;
+import android.support.annotation.Nullable;
 import android.text.TextUtils;
 
+import com.google.common.base.Throwables;
+import com.google.common.util.concurrent.Uninterruptibles;
 import com.google.gson.Gson;
 import com.google.samples.apps.iosched.BuildConfig;
+import com.google.samples.apps.iosched.io.JSONHandler;
 import com.google.samples.apps.iosched.io.model.DataManifest;
 import com.google.samples.apps.iosched.util.AccountUtils;
 import com.google.samples.apps.iosched.util.HashUtils;
@@ -32,10 +36,31 @@ import com.turbomanage.httpclient.HttpResponse;
 import com.turbomanage.httpclient.RequestLogger;
 
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.net.HttpURLConnection;
+import java.net.URL;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Locale;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
 
 import static com.google.samples.apps.iosched.util.LogUtils.LOGD;
 import static com.google.samples.apps.iosched.util.LogUtils.LOGE;
@@ -51,6 +76,25 @@ public class RemoteConferenceDataFetcher {
     // The directory under which we cache our downloaded files
     private static String CACHE_DIR = "data_cache";
 
+    // Suffix of the file holding the validators of a cache file, used to revalidate it
+    private static final String VALIDATORS_SUFFIX = ".validators";
+
+    // Suffix of the file a download is written to before replacing its cache file
+    private static final String DOWNLOAD_SUFFIX = ".download";
+
+    // The maximum number of data files downloaded at the same time
+    private static final int DOWNLOAD_THREADS = 4;
+
+    private static final int CONNECT_TIMEOUT = 10000;
+
+    private static final int READ_TIMEOUT = 30000;
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private static final String HEADER_ETAG = "ETag";
+
+    private static final String HEADER_LAST_MODIFIED = "Last-Modified";
+
     private Context mContext = null;
 
     // name of URL override file used for debug purposes
@@ -62,14 +106,15 @@ public class RemoteConferenceDataFetcher {
     // timestamp of the manifest file on the server
     private String mServerTimestamp = null;
 
-    // the set of cache files we have used -- we use this for cache cleanup.
-    private HashSet<String> mCacheFilesToKeep = new HashSet<String>();
+    // the set of cache files we have used -- we use this for cache cleanup. Data files are
+    // fetched in parallel, so this is synchronized.
+    private Set<String> mCacheFilesToKeep = Collections.synchronizedSet(new HashSet<String>());
 
-    // total # of bytes downloaded (approximate)
-    private long mBytesDownloaded = 0;
+    // total # of bytes downloaded during the last fetch, as sent over the wire (approximate)
+    private final AtomicLong mBytesDownloaded = new AtomicLong();
 
-    // total # of bytes read from cache hits (approximate)
-    private long mBytesReadFromCache = 0;
+    // total # of bytes read from cache hits during the last fetch, as stored on disk (approximate)
+    private final AtomicLong mBytesReadFromCache = new AtomicLong();
 
     public RemoteConferenceDataFetcher(Context context) {
         mContext = context;
@@ -82,15 +127,20 @@ public class RemoteConferenceDataFetcher {
      * @param refTimestamp The timestamp of the data to use as a reference; if the remote data is
      *                     not newer than this timestamp, no data will be downloaded and this method
      *                     will return null.
-     * @return The data downloaded, or null if there is no data to download
+     * @return The cache files holding the data downloaded, or null if there is no data to
+     * download
      * @throws IOException if an error occurred during download.
      */
-    public String[] fetchConferenceDataIfNewer(String refTimestamp) throws IOException {
+    public File[] fetchConferenceDataIfNewer(String refTimestamp) throws IOException {
         if (TextUtils.isEmpty(mManifestUrl)) {
             LOGW(TAG, "Manifest URL is empty (remote sync disabled!).");
             return null;
         }
 
+        mBytesDownloaded.set(0);
+        mBytesReadFromCache.set(0);
+        mCacheFilesToKeep.clear();
+
         BasicHttpClient httpClient = new BasicHttpClient();
         httpClient.setRequestLogger(mQuietLogger);
 
@@ -128,7 +178,7 @@ public class RemoteConferenceDataFetcher {
                 throw new IOException("Error fetching conference data manifest: no data.");
             }
             LOGD(TAG, "Manifest " + mManifestUrl + " read, contents: " + body);
-            mBytesDownloaded += body.getBytes().length;
+            mBytesDownloaded.addAndGet(body.getBytes().length);
             return processManifest(body);
         } else if (status == HttpURLConnection.HTTP_NOT_MODIFIED) {
             // data on the server is not newer than our data
@@ -173,15 +223,22 @@ public class RemoteConferenceDataFetcher {
 
     /**
      * Fetches a file from the cache/network, from an absolute or relative URL. If the file is
-     * available in our cache, we read it from there; if not, we will download it from the network
-     * and cache it.
+     * available in our cache along with the validators (ETag, Last-Modified) it was served with, it
+     * is revalidated through a conditional GET, and only downloaded again if it changed on the
+     * server. Files cached without validators, and content addressed files, are used from there
+     * as before. Either way the contents are not read here; the caller streams them from the
+     * returned cache file.
+     * <p/>
+     * This is called from several download threads at once, for different URLs.
      *
      * @param url The URL to fetch the file from. The URL may be absolute or relative; if relative,
      *            it will be considered to be relative to the manifest URL.
-     * @return The contents of the file.
-     * @throws IOException If an error occurs.
+     * @param contentHash The SHA-1 hash of the contents of a content addressed file, whose
+     *                    contents never change for a given URL, or null.
+     * @return The cache file holding the contents of the URL.
+     * @throws IOException If an error occurs, or the contents don't match {@code contentHash}.
      */
-    private String fetchFile(String url) throws IOException {
+    private File fetchFile(String url, @Nullable String contentHash) throws IOException {
         // If this is a relative url, consider it relative to the manifest URL
         if (!url.contains("://")) {
             if (TextUtils.isEmpty(mManifestUrl) || !mManifestUrl.contains("/")) {
@@ -195,50 +252,83 @@ public class RemoteConferenceDataFetcher {
         LOGD(TAG, "Attempting to fetch: " + sanitizeUrl(url));
 
         // Check if we have it in our cache first
-        String body;
-        try {
-            body = loadFromCache(url);
-            if (!TextUtils.isEmpty(body)) {
-                // cache hit
-                mBytesReadFromCache += body.getBytes().length;
+        File cacheFile = loadFromCache(url);
+        Properties validators = null;
+        if (cacheFile != null) {
+            validators = contentHash == null ? readValidators(url) : null;
+            if (validators == null) {
+                // cache hit, with nothing to revalidate it with
+                mBytesReadFromCache.addAndGet(cacheFile.length());
                 mCacheFilesToKeep.add(getCacheKey(url));
-                return body;
+                return cacheFile;
             }
-        } catch (IOException ex) {
-            ex.printStackTrace();
-            LOGE(TAG, "IOException getting file from cache.");
-            // proceed anyway to attempt to download it from the network
         }
 
-        BasicHttpClient client = new BasicHttpClient();
-        IOUtils.authorizeHttpClient(mContext, client);
-        client.setRequestLogger(mQuietLogger);
-
-        // We don't have the file on cache, so download it
-        LOGD(TAG, "Cache miss. Downloading from network: " + sanitizeUrl(url));
-        HttpResponse response = client.get(url, null);
-
-        if (response == null) {
-            throw new IOException(
-                    "Request for URL " + sanitizeUrl(url) + " returned null response.");
+        HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+        connection.setConnectTimeout(CONNECT_TIMEOUT);
+        connection.setReadTimeout(READ_TIMEOUT);
+        connection.setUseCaches(false);
+        // Asking for gzip explicitly turns off the transparent decompression of the connection,
+        // so compressed responses can be cached as they are.
+        connection.setRequestProperty("Accept-Encoding", "gzip");
+        IOUtils.authorizeHttpConnection(mContext, connection);
+        if (validators != null) {
+            LOGD(TAG, "Cache hit. Revalidating with network: " + sanitizeUrl(url));
+            String etag = validators.getProperty(HEADER_ETAG);
+            if (etag != null) {
+                connection.setRequestProperty("If-None-Match", etag);
+            }
+            String lastModified = validators.getProperty(HEADER_LAST_MODIFIED);
+            if (lastModified != null) {
+                connection.setRequestProperty("If-Modified-Since", lastModified);
+            }
+        } else {
+            LOGD(TAG, "Cache miss. Downloading from network: " + sanitizeUrl(url));
         }
 
-        LOGD(TAG, "HTTP response " + response.getStatus());
-        if (response.getStatus() == HttpURLConnection.HTTP_OK) {
-            body = response.getBodyAsString();
-            if (TextUtils.isEmpty(body)) {
-                throw new IOException("Got empty response when attempting to fetch " +
-                        sanitizeUrl(url) + url);
+        boolean done = false;
+        try {
+            int status = connection.getResponseCode();
+            LOGD(TAG, "HTTP response " + status);
+            if (status == HttpURLConnection.HTTP_NOT_MODIFIED && cacheFile != null) {
+                LOGD(TAG, "Not modified, using cache: " + sanitizeUrl(url));
+                mBytesReadFromCache.addAndGet(cacheFile.length());
+                mCacheFilesToKeep.add(getCacheKey(url));
+                mCacheFilesToKeep.add(getCacheKey(url) + VALIDATORS_SUFFIX);
+                done = true;
+                return cacheFile;
+            } else if (status == HttpURLConnection.HTTP_OK) {
+                boolean gzipped = "gzip".equalsIgnoreCase(connection.getContentEncoding());
+                long bytes = writeToCache(url, connection.getInputStream(), gzipped);
+                if (bytes == 0) {
+                    throw new IOException("Got empty response when attempting to fetch " +
+                            sanitizeUrl(url));
+                }
+                if (contentHash != null
+                        && !contentHash.equalsIgnoreCase(computeContentHash(getCacheFile(url)))) {
+                    getCacheFile(url).delete();
+                    throw new IOException("Contents of " + sanitizeUrl(url)
+                            + " don't match their hash");
+                }
+                LOGD(TAG, "Successfully downloaded from network: " + sanitizeUrl(url));
+                mBytesDownloaded.addAndGet(bytes);
+                if (contentHash == null) {
+                    writeValidators(url, connection);
+                }
+                mCacheFilesToKeep.add(getCacheKey(url));
+                done = true;
+                return getCacheFile(url);
+            } else {
+                LOGE(TAG, "Failed to fetch from network: " + sanitizeUrl(url));
+                throw new IOException("Request for URL " + sanitizeUrl(url) +
+                        " failed with HTTP error " + status);
+            }
+        } finally {
+            // Responses read in full leave their connection to be reused by the next request;
+            // the connection of a failed one is closed.
+            if (!done) {
+                connection.disconnect();
             }
-            LOGD(TAG, "Successfully downloaded from network: " + sanitizeUrl(url));
-            mBytesDownloaded += body.getBytes().length;
-            writeToCache(url, body);
-            mCacheFilesToKeep.add(getCacheKey(url));
-            return body;
-        } else {
-            LOGE(TAG, "Failed to fetch from network: " + sanitizeUrl(url));
-            throw new IOException("Request for URL " + sanitizeUrl(url) +
-                    " failed with HTTP error " + response.getStatus());
         }
     }
 
@@ -264,19 +354,18 @@ public class RemoteConferenceDataFetcher {
 
 
     /**
-     * Loads our cached content corresponding to the given URL.
+     * Looks up our cached content corresponding to the given URL.
      *
-     * @param url The URL for which to load the cached response.
-     * @return The cached response corresponding to the URL; or null if the given URL does not exist
-     * in our cache.
-     * @throws IOException If there is an error reading the cache.
+     * @param url The URL for which to look up the cached response.
+     * @return The cache file holding the response corresponding to the URL; or null if the given
+     * URL does not exist (or is empty) in our cache.
      */
-    private String loadFromCache(String url) throws IOException {
+    private File loadFromCache(String url) {
         String cacheKey = getCacheKey(url);
         File cacheFile = getCacheFile(url);
-        if (cacheFile.exists()) {
+        if (cacheFile.exists() && cacheFile.length() > 0) {
             LOGD(TAG, "Cache hit " + cacheKey + " for " + sanitizeUrl(url));
-            return IOUtils.readFileAsString(cacheFile);
+            return cacheFile;
         } else {
             LOGD(TAG, "Cache miss " + cacheKey + " for " + sanitizeUrl(url));
             return null;
@@ -284,18 +373,147 @@ public class RemoteConferenceDataFetcher {
     }
 
     /**
-     * Writes a file to the cache.
+     * Writes a file to the cache, as it is read from {@code body}. Cache files are gzip
+     * compressed: a compressed body is written as it is, any other is compressed on the way. The
+     * import decompresses them as it reads them (see {@link JSONHandler#openFile(File)}). The file
+     * only replaces the cached one once it is complete, so a failed download leaves no partial
+     * file behind.
      *
-     * @param url  The URL from which the contents were retrieved.
-     * @param body The contents retrieved from the given URL.
-     * @throws IOException If there is a problem writing the file.
+     * @param url     The URL from which the contents are retrieved.
+     * @param body    The contents retrieved from the given URL. This method closes it.
+     * @param gzipped Whether {@code body} is gzip compressed.
+     * @return The number of bytes read from {@code body}.
+     * @throws IOException If there is a problem reading the contents or writing the file.
      */
-    private void writeToCache(String url, String body) throws IOException {
+    private long writeToCache(String url, InputStream body, boolean gzipped) throws IOException {
         String cacheKey = getCacheKey(url);
         File cacheFile = getCacheFile(url);
+        File downloadFile = new File(cacheFile.getPath() + DOWNLOAD_SUFFIX);
         createCacheDir();
-        IOUtils.writeToFile(body, cacheFile);
-        LOGD(TAG, "Wrote to cache " + cacheKey + " --> " + sanitizeUrl(url));
+        long bytes = 0;
+        FileOutputStream fileStream = null;
+        OutputStream os = null;
+        try {
+            fileStream = new FileOutputStream(downloadFile);
+            os = gzipped ? fileStream : new GZIPOutputStream(fileStream, BUFFER_SIZE);
+            byte[] buffer = new byte[BUFFER_SIZE];
+            int read;
+            while ((read = body.read(buffer)) != -1) {
+                os.write(buffer, 0, read);
+                bytes += read;
+            }
+            if (os instanceof GZIPOutputStream) {
+                ((GZIPOutputStream) os).finish();
+            }
+            os.flush();
+            // Perform an fsync on the FileOutputStream.
+            fileStream.getFD().sync();
+        } finally {
+            body.close();
+            if (os != null) {
+                os.close();
+            } else if (fileStream != null) {
+                fileStream.close();
+            }
+        }
+        // Validators of a previous version of the file no longer apply to it.
+        new File(cacheFile.getPath() + VALIDATORS_SUFFIX).delete();
+        if (!downloadFile.renameTo(cacheFile)) {
+            downloadFile.delete();
+            throw new IOException("Failed to rename " + downloadFile + " to " + cacheFile);
+        }
+        LOGD(TAG, "Wrote " + bytes + " bytes to cache " + cacheKey + " --> " + sanitizeUrl(url));
+        return bytes;
+    }
+
+    /**
+     * Returns the validators the cache file of the given URL was served with, or null if there
+     * are none.
+     */
+    private Properties readValidators(String url) {
+        File validatorsFile = new File(getCacheFile(url).getPath() + VALIDATORS_SUFFIX);
+        if (!validatorsFile.exists()) {
+            return null;
+        }
+        Properties validators = new Properties();
+        InputStream is = null;
+        try {
+            is = new FileInputStream(validatorsFile);
+            validators.load(is);
+        } catch (IOException ex) {
+            LOGW(TAG, "Could not read validators of " + sanitizeUrl(url));
+            return null;
+        } finally {
+            if (is != null) {
+                try {
+                    is.close();
+                } catch (IOException ignored) {
+                }
+            }
+        }
+        return validators.isEmpty() ? null : validators;
+    }
+
+    /**
+     * Stores the validators of the response of {@code connection}, if it has any, so the cache
+     * file of the given URL can be revalidated by the next fetch.
+     */
+    private void writeValidators(String url, HttpURLConnection connection) throws IOException {
+        Properties validators = new Properties();
+        String etag = connection.getHeaderField(HEADER_ETAG);
+        if (!TextUtils.isEmpty(etag)) {
+            validators.setProperty(HEADER_ETAG, etag);
+        }
+        String lastModified = connection.getHeaderField(HEADER_LAST_MODIFIED);
+        if (!TextUtils.isEmpty(lastModified)
+                && TimeUtils.isValidFormatForIfModifiedSinceHeader(lastModified)) {
+            validators.setProperty(HEADER_LAST_MODIFIED, lastModified);
+        }
+        if (validators.isEmpty()) {
+            return;
+        }
+        File validatorsFile = new File(getCacheFile(url).getPath() + VALIDATORS_SUFFIX);
+        FileOutputStream os = null;
+        try {
+            os = new FileOutputStream(validatorsFile);
+            validators.store(os, null);
+        } finally {
+            if (os != null) {
+                os.close();
+            }
+        }
+        mCacheFilesToKeep.add(validatorsFile.getName());
+    }
+
+    /**
+     * Returns the SHA-1 hash of the uncompressed contents of a cache file, in hex.
+     */
+    private static String computeContentHash(File cacheFile) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-1");
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IOException("SHA-1 is not available", ex);
+        }
+        InputStream is = new DigestInputStream(
+                new GZIPInputStream(new FileInputStream(cacheFile), BUFFER_SIZE), digest);
+        try {
+            byte[] buffer = new byte[BUFFER_SIZE];
+            while (is.read(buffer) != -1) {
+                // The digest is updated as the contents are read.
+            }
+        } finally {
+            is.close();
+        }
+        return toHex(digest.digest());
+    }
+
+    private static String toHex(byte[] bytes) {
+        StringBuilder hex = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            hex.append(String.format(Locale.US, "%02x", b & 0xff));
+        }
+        return hex.toString();
     }
 
     /**
@@ -322,41 +540,91 @@ public class RemoteConferenceDataFetcher {
 
     private static final String MANIFEST_FORMAT = "iosched-json-v1";
 
+    // Same as MANIFEST_FORMAT, with the data split into chunks named after their contents, so
+    // only the chunks that changed since the last sync are downloaded.
+    private static final String MANIFEST_FORMAT_CHUNKED = "iosched-json-v2";
+
     /**
      * Process the data manifest and download data files referenced from it.
      *
      * @param manifestJson The JSON of the manifest file.
-     * @return The contents of the set of files referenced from the manifest, or null if none could
-     * be retrieved.
+     * @return The cache files of the set of files referenced from the manifest, or null if none
+     * could be retrieved.
      * @throws IOException If an error occurs while retrieving information.
      */
-    private String[] processManifest(String manifestJson) throws IOException {
+    private File[] processManifest(String manifestJson) throws IOException {
         LOGD(TAG, "Processing data manifest, length " + manifestJson.length());
 
         DataManifest manifest = new Gson().fromJson(manifestJson, DataManifest.class);
-        if (manifest.format == null || !manifest.format.equals(MANIFEST_FORMAT)) {
+        if (manifest.format == null || !(manifest.format.equals(MANIFEST_FORMAT)
+                || manifest.format.equals(MANIFEST_FORMAT_CHUNKED))) {
             LOGE(TAG, "Manifest has invalid format spec: " + manifest.format);
             throw new IOException("Invalid format spec on manifest:" + manifest.format);
         }
 
-        if (manifest.data_files == null || manifest.data_files.length == 0) {
+        // The urls of the files to fetch, and the hash of the contents of each, if known.
+        final List<String> urls = new ArrayList<String>();
+        final List<String> hashes = new ArrayList<String>();
+        if (manifest.data_files != null) {
+            for (String url : manifest.data_files) {
+                urls.add(url);
+                hashes.add(null);
+            }
+        }
+        if (manifest.format.equals(MANIFEST_FORMAT_CHUNKED) && manifest.chunks != null) {
+            for (DataManifest.Chunk chunk : manifest.chunks) {
+                if (TextUtils.isEmpty(chunk.url) || TextUtils.isEmpty(chunk.hash)) {
+                    LOGE(TAG, "Manifest lists an invalid chunk of " + chunk.type);
+                    throw new IOException("Invalid chunk on manifest: " + chunk.type);
+                }
+                urls.add(chunk.url);
+                hashes.add(chunk.hash);
+            }
+        }
+
+        if (urls.isEmpty()) {
             LOGW(TAG, "Manifest does not list any files. Nothing done.");
             return null;
         }
 
-        LOGD(TAG, "Manifest lists " + manifest.data_files.length + " data files.");
-        String[] jsons = new String[manifest.data_files.length];
-        for (int i = 0; i < manifest.data_files.length; i++) {
-            String url = manifest.data_files[i];
-            LOGD(TAG, "Processing data file: " + sanitizeUrl(url));
-            jsons[i] = fetchFile(url);
-            if (TextUtils.isEmpty(jsons[i])) {
-                LOGE(TAG, "Failed to fetch data file: " + sanitizeUrl(url));
-                throw new IOException("Failed to fetch data file " + sanitizeUrl(url));
+        LOGD(TAG, "Manifest lists " + urls.size() + " data files.");
+        long start = System.currentTimeMillis();
+        File[] jsons = new File[urls.size()];
+        ExecutorService executor = Executors.newFixedThreadPool(
+                Math.min(DOWNLOAD_THREADS, urls.size()));
+        try {
+            List<Future<File>> futures = new ArrayList<Future<File>>();
+            for (int i = 0; i < urls.size(); i++) {
+                final String url = urls.get(i);
+                final String hash = hashes.get(i);
+                LOGD(TAG, "Processing data file: " + sanitizeUrl(url));
+                futures.add(executor.submit(new Callable<File>() {
+                    @Override
+                    public File call() throws IOException {
+                        return fetchFile(url, hash);
+                    }
+                }));
+            }
+            for (int i = 0; i < jsons.length; i++) {
+                jsons[i] = Uninterruptibles.getUninterruptibly(futures.get(i));
+                if (jsons[i] == null) {
+                    String url = urls.get(i);
+                    LOGE(TAG, "Failed to fetch data file: " + sanitizeUrl(url));
+                    throw new IOException("Failed to fetch data file " + sanitizeUrl(url));
+                }
             }
+        } catch (ExecutionException ex) {
+            LOGE(TAG, "Error while fetching data files.");
+            Throwables.propagateIfInstanceOf(ex.getCause(), IOException.class);
+            Throwables.propagateIfPossible(ex.getCause());
+            throw new IOException("Error fetching data files", ex.getCause());
+        } finally {
+            executor.shutdownNow();
         }
 
-        LOGD(TAG, "Got " + jsons.length + " data files.");
+        LOGD(TAG, "Got " + jsons.length + " data files in "
+                + (System.currentTimeMillis() - start) + "ms (" + (mBytesDownloaded.get() / 1024)
+                + "kB downloaded, " + (mBytesReadFromCache.get() / 1024) + "kB from cache).");
         cleanUpCache();
         return jsons;
     }
@@ -385,12 +653,20 @@ public class RemoteConferenceDataFetcher {
         LOGD(TAG, "End of cache cleanup. " + kept + " files kept, " + deleted + " deleted.");
     }
 
+    /**
+     * Returns the number of bytes downloaded by the last call to {@link
+     * #fetchConferenceDataIfNewer(String)}.
+     */
     public long getTotalBytesDownloaded() {
-        return mBytesDownloaded;
+        return mBytesDownloaded.get();
     }
 
+    /**
+     * Returns the number of bytes of cached files used by the last call to {@link
+     * #fetchConferenceDataIfNewer(String)}.
+     */
     public long getTotalBytesReadFromCache() {
-        return mBytesReadFromCache;
+        return mBytesReadFromCache.get();
     }
 
     private String getLastModified(HttpResponse resp) {
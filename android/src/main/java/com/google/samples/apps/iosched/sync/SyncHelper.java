@@ -25,6 +25,7 @@ import com.google.samples.apps.iosched.BuildConfig;
 import com.google.samples.apps.iosched.Config;
 import com.google.samples.apps.iosched.feedback.FeedbackApiHelper;
 import com.google.samples.apps.iosched.feedback.FeedbackSyncHelper;
+import com.google.samples.apps.iosched.map.util.TilePyramidRenderer;
 import com.google.samples.apps.iosched.provider.ScheduleContract;
 import com.google.samples.apps.iosched.service.DataBootstrapService;
 import com.google.samples.apps.iosched.service.SessionAlarmService;
@@ -40,6 +41,7 @@ import com.turbomanage.httpclient.BasicHttpClient;
 import com.turbomanage.httpclient.HttpResponse;
 import com.turbomanage.httpclient.RequestLogger;
 
+import java.io.File;
 import java.io.IOException;
 import java.net.HttpURLConnection;
 import java.net.URL;
@@ -237,14 +239,15 @@ public class SyncHelper {
     }
 
     public static void performPostSyncChores(final Context context) {
-        // Update search index.
-        LOGD(TAG, "Updating search index.");
-        context.getContentResolver().update(ScheduleContract.SearchIndex.CONTENT_URI,
-                new ContentValues(), null, null);
+        // Note: the search index is kept up to date by database triggers, as the data import
+        // writes the sessions it changes.
 
         // Sync calendar.
         LOGD(TAG, "Session data changed. Syncing starred sessions with Calendar.");
         syncCalendar(context);
+
+        // Pre-render the map tiles, if the map overlays changed.
+        TilePyramidRenderer.renderInBackground(context);
     }
 
     private static void syncCalendar(Context context) {
@@ -275,7 +278,7 @@ public class SyncHelper {
         LOGD(TAG, "Starting remote sync.");
 
         // Fetch the remote data files via RemoteConferenceDataFetcher.
-        String[] dataFiles = mRemoteDataFetcher.fetchConferenceDataIfNewer(
+        File[] dataFiles = mRemoteDataFetcher.fetchConferenceDataIfNewer(
                 mConferenceDataHandler.getDataTimestamp());
 
         if (dataFiles != null) {
@@ -24,6 +24,7 @@ import android.util.Log;
 import com.google.samples.apps.iosched.appwidget.ScheduleWidgetProvider;
 import com.google.samples.apps.iosched.archframework.QueryEnum;
 import com.google.samples.apps.iosched.gcm.ServerUtilities;
+import com.google.samples.apps.iosched.provider.DataChangeBus;
 import com.google.samples.apps.iosched.provider.ScheduleContract;
 import com.google.samples.apps.iosched.provider.ScheduleContract.MySchedule;
 import com.google.samples.apps.iosched.provider.ScheduleContract.MyFeedbackSubmitted;
@@ -179,6 +180,7 @@ public abstract class AbstractUserDataSyncHelper {
             for (String path : ScheduleContract.USER_DATA_RELATED_PATHS) {
                 Uri uri = ScheduleContract.BASE_CONTENT_URI.buildUpon().appendPath(path).build();
                 resolver.notifyChange(uri, null);
+                DataChangeBus.getInstance().notifyChange(uri, null);
             }
             mContext.sendBroadcast(ScheduleWidgetProvider.getRefreshBroadcastIntent(mContext, false));
         }
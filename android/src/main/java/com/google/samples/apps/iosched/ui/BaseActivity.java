@@ -50,6 +50,7 @@ import com.google.samples.apps.iosched.login.LoginStateListener;
 import com.google.samples.apps.iosched.messaging.MessagingRegistration;
 import com.google.samples.apps.iosched.navigation.AppNavigationViewAsDrawerImpl;
 import com.google.samples.apps.iosched.navigation.NavigationModel.NavigationItemEnum;
+import com.google.samples.apps.iosched.provider.DataChangeBus;
 import com.google.samples.apps.iosched.provider.ScheduleContract;
 import com.google.samples.apps.iosched.service.DataBootstrapService;
 import com.google.samples.apps.iosched.sync.SyncHelper;
@@ -562,6 +563,9 @@ public abstract class BaseActivity extends AppCompatActivity implements
         getContentResolver().notifyChange(ScheduleContract.MyViewedVideos.CONTENT_URI, null, false);
         getContentResolver().notifyChange(
                 ScheduleContract.MyFeedbackSubmitted.CONTENT_URI, null, false);
+        DataChangeBus.getInstance().notifyChange(ScheduleContract.MySchedule.CONTENT_URI,
+                ScheduleContract.MyViewedVideos.CONTENT_URI,
+                ScheduleContract.MyFeedbackSubmitted.CONTENT_URI);
     }
 
     protected void retryAuth() {
@@ -0,0 +1,84 @@
+/*
+ * Copyright 2016 Google Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.samples.apps.iosched.util;
+
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+
+/**
+ * Computes the fingerprint of an imported entity from its fields, so the import can tell which
+ * rows changed since the last sync and skip the others.
+ * <p>
+ * The fields are streamed into a 128-bit murmur3 hash, without building a string of the whole
+ * entity. Each string is preceded by its length, and null by a length of -1, so values can't
+ * run into each other: ("ab", "c") and ("a", "bc") have different fingerprints, and so do null
+ * and "". The fields are not named, so an entity must always add them in the same order; adding
+ * or reordering fields changes every fingerprint, which only costs one full import.
+ */
+public class FingerprintBuilder {
+
+    private static final HashFunction HASH_FUNCTION = Hashing.murmur3_128();
+
+    private static final int NULL_LENGTH = -1;
+
+    private final Hasher mHasher = HASH_FUNCTION.newHasher();
+
+    public FingerprintBuilder add(String value) {
+        if (value == null) {
+            mHasher.putInt(NULL_LENGTH);
+        } else {
+            mHasher.putInt(value.length()).putUnencodedChars(value);
+        }
+        return this;
+    }
+
+    public FingerprintBuilder add(String[] values) {
+        if (values == null) {
+            mHasher.putInt(NULL_LENGTH);
+        } else {
+            mHasher.putInt(values.length);
+            for (String value : values) {
+                add(value);
+            }
+        }
+        return this;
+    }
+
+    public FingerprintBuilder add(int value) {
+        mHasher.putInt(value);
+        return this;
+    }
+
+    public FingerprintBuilder add(long value) {
+        mHasher.putLong(value);
+        return this;
+    }
+
+    public FingerprintBuilder add(boolean value) {
+        mHasher.putBoolean(value);
+        return this;
+    }
+
+    /**
+     * @return The fingerprint of the fields added so far, as 32 hex digits. The builder can't be
+     * used afterwards.
+     */
+    public String build() {
+        return mHasher.hash().toString();
+    }
+}
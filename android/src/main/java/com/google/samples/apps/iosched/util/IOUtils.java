@@ -33,6 +33,7 @@ import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.OutputStream;
 import java.io.OutputStreamWriter;
+import java.net.HttpURLConnection;
 
 /**
  * Utility methods and constants used for writing and reading to from streams and files.
@@ -151,4 +152,21 @@ public class IOUtils {
                     BEARER_PREFIX + AccountUtils.getAuthToken(context));
         }
     }
+
+    /**
+     * Same as {@link #authorizeHttpClient(Context, BasicHttpClient)}, for a request made through
+     * a {@link HttpURLConnection} that is not yet connected.
+     *
+     * @param context Context used to retrieve auth token from SharedPreferences.
+     * @param connection Connection to which the authorization header will be added.
+     */
+    public static void authorizeHttpConnection(Context context, HttpURLConnection connection) {
+        if (connection == null || AccountUtils.getAuthToken(context) == null) {
+            return;
+        }
+        if (AUTHORIZATION_TO_BACKEND_REQUIRED) {
+            connection.setRequestProperty(AUTHORIZATION_HEADER,
+                    BEARER_PREFIX + AccountUtils.getAuthToken(context));
+        }
+    }
 }
@@ -23,6 +23,8 @@ import com.google.android.gms.maps.model.MarkerOptions;
 import com.google.maps.android.ui.IconGenerator;
 import com.google.samples.apps.iosched.R;
 import com.google.samples.apps.iosched.map.util.MarkerModel;
+import com.google.samples.apps.iosched.map.util.TileMemoryCache;
+import com.google.samples.apps.iosched.map.util.TilePyramidRenderer;
 
 import com.jakewharton.disklrucache.DiskLruCache;
 
@@ -316,10 +318,17 @@ public class MapUtils {
 
     private static final int MAX_DISK_CACHE_BYTES = 1024 * 1024 * 2; // 2MB
 
+    /**
+     * The number of threads expected to use the disk cache at once: the map requests tiles from
+     * several threads, and the cache is shared by the tile providers of all floors.
+     */
+    private static final int DISK_CACHE_CONCURRENCY_LEVEL = 4;
+
     public static DiskLruCache openDiskCache(Context c) {
         File cacheDir = new File(c.getCacheDir(), "tiles");
         try {
-            return DiskLruCache.open(cacheDir, 1, 3, MAX_DISK_CACHE_BYTES);
+            return DiskLruCache.open(cacheDir, 1, 3, MAX_DISK_CACHE_BYTES,
+                    DISK_CACHE_CONCURRENCY_LEVEL);
         } catch (IOException e) {
             LOGE(TAG, "Couldn't open disk cache.");
 
@@ -328,6 +337,11 @@ public class MapUtils {
     }
 
     public static void clearDiskCache(Context c) {
+        File tilePack = TilePyramidRenderer.getTilePackFile(c);
+        if (tilePack.exists() && !tilePack.delete()) {
+            LOGE(TAG, "Couldn't delete tile pack.");
+        }
+        TileMemoryCache.getInstance(c).evictAll();
         DiskLruCache cache = openDiskCache(c);
         if (cache != null) {
             try {
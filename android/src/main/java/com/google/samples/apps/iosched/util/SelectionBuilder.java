@@ -25,6 +25,7 @@ package com.google.samples.apps.iosched.util;
 import android.content.ContentValues;
 import android.database.Cursor;
 import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteQueryBuilder;
 import android.text.TextUtils;
 
 import java.util.ArrayList;
@@ -123,6 +124,10 @@ public class SelectionBuilder {
         return this;
     }
 
+    public String getTable() {
+        return mTable;
+    }
+
     private void assertTable() {
         if (mTable == null) {
             throw new IllegalStateException("Table not specified");
@@ -193,6 +198,17 @@ public class SelectionBuilder {
                 mHaving, orderBy, limit);
     }
 
+    /**
+     * Build the SQL statement {@link #query(SQLiteDatabase, boolean, String[], String, String)}
+     * would execute, for instance to inspect its query plan.
+     */
+    public String buildQuery(boolean distinct, String[] columns, String orderBy, String limit) {
+        assertTable();
+        if (columns != null) mapColumns(columns);
+        return SQLiteQueryBuilder.buildQueryString(distinct, mTable, columns, getSelection(),
+                mGroupBy, mHaving, orderBy, limit);
+    }
+
     /**
      * Execute update using the current internal state as {@code WHERE} clause.
      */
@@ -1,77 +0,0 @@
-/*
- * Copyright 2014 Google Inc. All rights reserved.
- *
- * Licensed under the Apache License, Version 2.0 (the "License");
- * you may not use this file except in compliance with the License.
- * You may obtain a copy of the License at
- *
- *      http://www.apache.org/licenses/LICENSE-2.0
- *
- * Unless required by applicable law or agreed to in writing, software
- * distributed under the License is distributed on an "AS IS" BASIS,
- * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
- * See the License for the specific language governing permissions and
- * limitations under the License.
- */
-
-package com.google.samples.apps.iosched.util;
-
-import android.database.ContentObserver;
-import android.net.Uri;
-import android.os.Handler;
-
-/**
- * A ContentObserver that bundles multiple consecutive changes in a short time period into one.
- * This can be used in place of a regular ContentObserver to protect against getting
- * too many consecutive change events as a result of data changes. This observer will wait
- * a while before firing, so if multiple requests come in in quick succession, they will
- * cause it to fire only once.
- */
-public class ThrottledContentObserver extends ContentObserver {
-    Handler mMyHandler;
-    Runnable mScheduledRun = null;
-    private static final int THROTTLE_DELAY = 1000;
-    Callbacks mCallback = null;
-
-    public interface Callbacks {
-        public void onThrottledContentObserverFired();
-    }
-
-    public ThrottledContentObserver(Callbacks callback) {
-        super(null);
-        mMyHandler = new Handler();
-        mCallback = callback;
-    }
-
-    @Override
-    public void onChange(boolean selfChange) {
-        if (mScheduledRun != null) {
-            mMyHandler.removeCallbacks(mScheduledRun);
-        } else {
-            mScheduledRun = new Runnable() {
-                @Override
-                public void run() {
-                    if (mCallback != null) {
-                        mCallback.onThrottledContentObserverFired();
-                    }
-                }
-            };
-        }
-        mMyHandler.postDelayed(mScheduledRun, THROTTLE_DELAY);
-    }
-
-    public void cancelPendingCallback() {
-        if (mScheduledRun != null) {
-            mMyHandler.removeCallbacks(mScheduledRun);
-        }
-    }
-
-    @Override
-    public void onChange(boolean selfChange, Uri uri) {
-        onChange(selfChange);
-    }
-
-    public static int getThrottleDelay() {
-        return THROTTLE_DELAY;
-    }
-}
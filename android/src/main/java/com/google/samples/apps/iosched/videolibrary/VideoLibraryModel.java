@@ -406,7 +406,7 @@ public class VideoLibraryModel
                 Collections.sort(mTopics);
                 return true;
             case TAGS:
-                mTagMetadata = new TagMetadata(cursor);
+                mTagMetadata = TagMetadata.fromCursor(cursor);
                 addImageUrlToVideoTracksIfAvailable();
                 return true;
             default:
@@ -14,7 +14,6 @@
 package com.google.samples.apps.iosched.service;
 
 import com.google.samples.apps.iosched.BuildConfig;
-import com.google.samples.apps.iosched.io.JSONHandler;
 import com.google.samples.apps.iosched.provider.ScheduleContract;
 import com.google.samples.apps.iosched.settings.SettingsUtils;
 import com.google.samples.apps.iosched.sync.ConferenceDataHandler;
@@ -85,12 +84,10 @@ public class LocalRefreshingBootstrapService extends IntentService {
                 LOGE(TAG, "File " + BOOTSTRAP_FILE + " could not be read. No bootstrap possible.");
             }
 
-            String bootstrapJson = JSONHandler.parseFile(BOOTSTRAP_FILE);
-
             // Apply the data we read to the database with the help of the ConferenceDataHandler.
             ConferenceDataHandler dataHandler = new ConferenceDataHandler(appContext);
 
-            dataHandler.applyConferenceData(new String[]{bootstrapJson},
+            dataHandler.applyConferenceData(new File[]{new File(BOOTSTRAP_FILE)},
                     BuildConfig.BOOTSTRAP_DATA_TIMESTAMP, false);
 
             SyncHelper.performPostSyncChores(appContext);
@@ -0,0 +1,128 @@
+/*
+ * Copyright 2016 Google Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.samples.apps.iosched.model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.ListIterator;
+
+/**
+ * The former implementation of {@link ScheduleItemHelper}, comparing every pair of items. Used as
+ * the reference the interval based implementation must match.
+ */
+class PairwiseScheduleItemHelper {
+
+    private static final long FREE_BLOCK_MINIMUM_LENGTH = 10 * 60 * 1000; // 10 minutes
+
+    static ArrayList<ScheduleItem> processItems(ArrayList<ScheduleItem> mutableItems,
+            ArrayList<ScheduleItem> immutableItems) {
+        moveMutables(mutableItems, immutableItems);
+        markConflicting(immutableItems);
+
+        ArrayList<ScheduleItem> result = new ArrayList<ScheduleItem>();
+        result.addAll(immutableItems);
+        result.addAll(mutableItems);
+
+        Collections.sort(result);
+
+        return result;
+    }
+
+    static void markConflicting(ArrayList<ScheduleItem> items) {
+        for (int i = 0; i < items.size(); i++) {
+            ScheduleItem item = items.get(i);
+            if (item.type == ScheduleItem.SESSION) {
+                for (int j = i + 1; j < items.size(); j++) {
+                    ScheduleItem other = items.get(j);
+                    if (intersect(other, item)) {
+                        other.flags |= ScheduleItem.FLAG_CONFLICTS_WITH_PREVIOUS;
+                        item.flags |= ScheduleItem.FLAG_CONFLICTS_WITH_NEXT;
+                    } else {
+                        break;
+                    }
+                }
+            }
+        }
+    }
+
+    static void moveMutables(ArrayList<ScheduleItem> mutableItems,
+            ArrayList<ScheduleItem> immutableItems) {
+        Iterator<ScheduleItem> immutableIt = immutableItems.iterator();
+
+        while (immutableIt.hasNext()) {
+            ScheduleItem immutableItem = immutableIt.next();
+            if (immutableItem.type == ScheduleItem.BREAK) {
+                continue;
+            }
+            ListIterator<ScheduleItem> mutableIt = mutableItems.listIterator();
+            while (mutableIt.hasNext()) {
+                ScheduleItem mutableItem = mutableIt.next();
+                ScheduleItem split = null;
+
+                if (intersect(immutableItem, mutableItem)) {
+                    if (isContainedInto(mutableItem, immutableItem)) {
+                        mutableIt.remove();
+                        continue;
+                    } else if (isContainedInto(immutableItem, mutableItem)) {
+                        if (isIntervalLongEnough(immutableItem.endTime, mutableItem.endTime)) {
+                            split = (ScheduleItem) mutableItem.clone();
+                            split.startTime = immutableItem.endTime;
+                        }
+                        mutableItem.endTime = immutableItem.startTime;
+                    } else if (mutableItem.startTime < immutableItem.endTime) {
+                        mutableItem.startTime = immutableItem.endTime;
+                    } else if (mutableItem.endTime > immutableItem.startTime) {
+                        mutableItem.endTime = immutableItem.startTime;
+                    }
+
+                    if (!isIntervalLongEnough(mutableItem.startTime, mutableItem.endTime)) {
+                        mutableIt.remove();
+                    }
+                    if (split != null) {
+                        mutableIt.add(split);
+                    }
+                }
+            }
+        }
+    }
+
+    static void addSessionCounts(List<ScheduleItem> freeItems, List<long[]> counters) {
+        for (long[] counter : counters) {
+            for (ScheduleItem item : freeItems) {
+                if (item.startTime <= counter[0] && counter[0] < item.endTime) {
+                    item.numOfSessions += (int) counter[1];
+                }
+            }
+        }
+    }
+
+    private static boolean isIntervalLongEnough(long start, long end) {
+        return (end - start) >= FREE_BLOCK_MINIMUM_LENGTH;
+    }
+
+    private static boolean intersect(ScheduleItem block1, ScheduleItem block2) {
+        return block2.endTime > (block1.startTime + ScheduleItemHelper.ALLOWED_OVERLAP)
+                && (block2.startTime + ScheduleItemHelper.ALLOWED_OVERLAP) < block1.endTime;
+    }
+
+    private static boolean isContainedInto(ScheduleItem contained, ScheduleItem container) {
+        return contained.startTime >= container.startTime
+                && contained.endTime <= container.endTime;
+    }
+}
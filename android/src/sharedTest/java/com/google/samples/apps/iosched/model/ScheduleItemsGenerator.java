@@ -0,0 +1,97 @@
+/*
+ * Copyright 2016 Google Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.samples.apps.iosched.model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Generates random schedule items laid out like those of a conference day: free blocks, breaks
+ * and overlapping sessions, starting on the quarter hour.
+ */
+class ScheduleItemsGenerator {
+
+    private static final long MINUTE = 60 * 1000;
+
+    private static final long DAY_LENGTH = 12 * 60 * MINUTE;
+
+    private final Random mRandom;
+
+    ScheduleItemsGenerator(long seed) {
+        mRandom = new Random(seed);
+    }
+
+    /**
+     * Returns {@code count} items of {@code type}, sorted by start time.
+     */
+    ArrayList<ScheduleItem> items(int count, int type, long maxLength) {
+        ArrayList<ScheduleItem> items = new ArrayList<ScheduleItem>(count);
+        for (int i = 0; i < count; i++) {
+            ScheduleItem item = new ScheduleItem();
+            item.type = type;
+            item.sessionId = type + "-" + i;
+            item.startTime = (mRandom.nextInt((int) (DAY_LENGTH / (15 * MINUTE)))) * 15 * MINUTE;
+            item.endTime = item.startTime + 5 * MINUTE
+                    + mRandom.nextInt((int) (maxLength / MINUTE)) * MINUTE;
+            items.add(item);
+        }
+        Collections.sort(items);
+        return items;
+    }
+
+    /**
+     * Returns {@code count} session counters, as start time and number of sessions pairs. If
+     * {@code sorted}, they are ordered by start time as {@link ScheduleHelper} queries them.
+     */
+    List<long[]> counters(int count, boolean sorted) {
+        List<long[]> counters = new ArrayList<long[]>(count);
+        for (int i = 0; i < count; i++) {
+            long start = mRandom.nextInt((int) (DAY_LENGTH / (15 * MINUTE))) * 15 * MINUTE;
+            counters.add(new long[]{start, 1 + mRandom.nextInt(5)});
+        }
+        if (sorted) {
+            Collections.sort(counters, new Comparator<long[]>() {
+                @Override
+                public int compare(long[] lhs, long[] rhs) {
+                    return lhs[0] < rhs[0] ? -1 : (lhs[0] == rhs[0] ? 0 : 1);
+                }
+            });
+        }
+        return counters;
+    }
+
+    /**
+     * Returns the immutable items of a day as {@link ScheduleHelper} reads them: breaks, then
+     * sessions, each sorted by start time.
+     */
+    ArrayList<ScheduleItem> immutableItems(int breaks, int sessions) {
+        ArrayList<ScheduleItem> items = items(breaks, ScheduleItem.BREAK, 60 * MINUTE);
+        items.addAll(items(sessions, ScheduleItem.SESSION, 90 * MINUTE));
+        return items;
+    }
+
+    static ArrayList<ScheduleItem> copy(List<ScheduleItem> items) {
+        ArrayList<ScheduleItem> copy = new ArrayList<ScheduleItem>(items.size());
+        for (ScheduleItem item : items) {
+            copy.add((ScheduleItem) item.clone());
+        }
+        return copy;
+    }
+}
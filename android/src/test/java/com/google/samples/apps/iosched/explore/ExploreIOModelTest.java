@@ -250,6 +250,35 @@ public class ExploreIOModelTest {
         assertThat(mExploreIOModel.getOrderedTracks().size(), is(2));
     }
 
+    @Test
+    public void readDataInBackground_SessionsQuery_ModelUnchangedUntilDataApplied() {
+        // Given a mock cursor with fake sessions and tags data
+        initMockCursorWithSessionsData(mMockSessionCursor);
+        initMockCursorWithTagsData(mMockTagsCursor);
+
+        // When the session query is read as on the loader thread
+        Object data = mExploreIOModel.readDataInBackground(
+                mMockSessionCursor, ExploreIOModel.ExploreIOQueryEnum.SESSIONS);
+
+        // Then the model doesn't have the session data yet
+        assertNull(mExploreIOModel.getKeynoteData());
+        assertNull(mExploreIOModel.getLiveStreamData());
+
+        // When the data read is applied, and tags data is available
+        boolean success = mExploreIOModel.applyData(
+                data, ExploreIOModel.ExploreIOQueryEnum.SESSIONS);
+        mExploreIOModel.readDataFromCursor(
+                mMockTagsCursor, ExploreIOModel.ExploreIOQueryEnum.TAGS);
+
+        // Then the model has correctly ordered session data
+        assertThat(success, is(true));
+        assertThat(mExploreIOModel.getKeynoteData().getSessionName(),
+                is(FAKE_SESSION_TITLE_2_KEYNOTE));
+        assertThat(mExploreIOModel.getLiveStreamData().getSessions().get(0).getSessionName(),
+                is(FAKE_SESSION_TITLE_1_LIVESTREAM));
+        assertThat(mExploreIOModel.getOrderedTracks().size(), is(2));
+    }
+
     @Test
     public void orderedTracks_MissingTitle_MissingTitleTrackIsLast() {
         // Given a mock cursor with fake sessions and tags data
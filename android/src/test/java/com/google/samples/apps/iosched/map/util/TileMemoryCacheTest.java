@@ -0,0 +1,121 @@
+/*
+ * Copyright 2016 Google Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.samples.apps.iosched.map.util;
+
+import android.content.ComponentCallbacks2;
+import android.test.suitebuilder.annotation.SmallTest;
+
+import com.google.android.gms.maps.model.Tile;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsNull.nullValue;
+import static org.hamcrest.core.IsSame.sameInstance;
+import static org.junit.Assert.assertThat;
+
+@SmallTest
+public class TileMemoryCacheTest {
+
+    private static final int FAKE_MAX_BYTES = 100;
+
+    private static final int FAKE_TILE_BYTES = 40;
+
+    private TileMemoryCache mCache;
+
+    @Before
+    public void setUp() {
+        mCache = new TileMemoryCache(FAKE_MAX_BYTES);
+    }
+
+    @Test
+    public void get_CachedAndMissingTiles_CountsHitsAndMisses() {
+        // Given a cached tile
+        Tile tile = createTile();
+        mCache.put("1_2_17_0", tile);
+
+        // When it and another tile are looked up
+        Tile cached = mCache.get("1_2_17_0");
+        Tile missing = mCache.get("1_3_17_0");
+
+        // Then only the cached tile is found, and each lookup is counted
+        assertThat(cached, sameInstance(tile));
+        assertThat(missing, is(nullValue()));
+        assertThat(mCache.getHitCount(), is(1));
+        assertThat(mCache.getMissCount(), is(1));
+        assertThat(mCache.getHitRate(), is(0.5f));
+    }
+
+    @Test
+    public void put_OverBudget_EvictsLeastRecentlyUsedTile() {
+        // Given two cached tiles, the first one used last
+        mCache.put("a", createTile());
+        mCache.put("b", createTile());
+        mCache.get("a");
+
+        // When a third tile does not fit in the budget
+        mCache.put("c", createTile());
+
+        // Then the least recently used tile is evicted
+        assertThat(mCache.get("b"), is(nullValue()));
+        assertThat(mCache.get("a") != null, is(true));
+        assertThat(mCache.get("c") != null, is(true));
+        assertThat(mCache.size(), is(2 * FAKE_TILE_BYTES));
+    }
+
+    @Test
+    public void put_EmptyTile_IsNotCached() {
+        // When an empty tile is cached
+        mCache.put("a", new Tile(256, 256, null));
+
+        // Then it is not kept
+        assertThat(mCache.size(), is(0));
+        assertThat(mCache.get("a"), is(nullValue()));
+    }
+
+    @Test
+    public void onTrimMemory_RunningLow_HalvesCache() {
+        // Given a full cache
+        mCache.put("a", createTile());
+        mCache.put("b", createTile());
+
+        // When memory runs low
+        mCache.onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW);
+
+        // Then the cache is trimmed to half its budget
+        assertThat(mCache.size(), is(FAKE_TILE_BYTES));
+        assertThat(mCache.get("b") != null, is(true));
+    }
+
+    @Test
+    public void onTrimMemory_Background_EmptiesCache() {
+        // Given a full cache
+        mCache.put("a", createTile());
+        mCache.put("b", createTile());
+
+        // When the app is in the background and the system needs memory
+        mCache.onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_MODERATE);
+
+        // Then every tile is dropped
+        assertThat(mCache.size(), is(0));
+    }
+
+    private static Tile createTile() {
+        return new Tile(256, 256, new byte[FAKE_TILE_BYTES]);
+    }
+}
@@ -0,0 +1,155 @@
+/*
+ * Copyright 2016 Google Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.samples.apps.iosched.map.util;
+
+import android.test.suitebuilder.annotation.SmallTest;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsNull.nullValue;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+@SmallTest
+public class TilePackTest {
+
+    private static final String FAKE_SOURCE_KEY = "FAKE_SOURCE_KEY";
+
+    private static final int FAKE_TILE_SIZE = 512;
+
+    private static final int MIN_ZOOM = 16;
+
+    private static final int MAX_ZOOM = 17;
+
+    private File mPackFile;
+
+    @Before
+    public void setUp() throws IOException {
+        mPackFile = File.createTempFile("tiles", ".pack");
+    }
+
+    @After
+    public void tearDown() {
+        mPackFile.delete();
+    }
+
+    @Test
+    public void getTileData_TilesAddedInAnyOrder_ReturnsEachTile() throws IOException {
+        // Given a pack of tiles added out of order
+        TilePack.Writer writer = createWriter();
+        writer.add(1, 5, 7, MAX_ZOOM, tileData(1, 5, 7, MAX_ZOOM));
+        writer.add(0, 3, 2, MIN_ZOOM, tileData(0, 3, 2, MIN_ZOOM));
+        writer.add(0, 2, 3, MIN_ZOOM, tileData(0, 2, 3, MIN_ZOOM));
+        writer.add(1, 5, 6, MAX_ZOOM, tileData(1, 5, 6, MAX_ZOOM));
+        writer.commit();
+
+        // When the pack is opened
+        TilePack pack = TilePack.open(mPackFile);
+
+        // Then each tile is found with its own data
+        assertThat(pack.getTileCount(), is(4));
+        assertThat(pack.getSourceKey(), is(FAKE_SOURCE_KEY));
+        assertThat(pack.getTileSize(), is(FAKE_TILE_SIZE));
+        assertTile(pack, 1, 5, 7, MAX_ZOOM);
+        assertTile(pack, 0, 3, 2, MIN_ZOOM);
+        assertTile(pack, 0, 2, 3, MIN_ZOOM);
+        assertTile(pack, 1, 5, 6, MAX_ZOOM);
+    }
+
+    @Test
+    public void getTileData_MissingTile_ReturnsNull() throws IOException {
+        // Given a pack of a single tile
+        TilePack.Writer writer = createWriter();
+        writer.add(0, 3, 2, MIN_ZOOM, tileData(0, 3, 2, MIN_ZOOM));
+        writer.commit();
+
+        // When other tiles are looked up
+        TilePack pack = TilePack.open(mPackFile);
+
+        // Then they are not found, and only the pre-rendered zoom levels are complete
+        assertThat(pack.getTileData(1, 3, 2, MIN_ZOOM), is(nullValue()));
+        assertThat(pack.getTileData(0, 2, 3, MIN_ZOOM), is(nullValue()));
+        assertThat(pack.getTileData(0, 3, 2, MAX_ZOOM + 1), is(nullValue()));
+        assertTrue(pack.isZoomComplete(MAX_ZOOM));
+        assertFalse(pack.isZoomComplete(MAX_ZOOM + 1));
+    }
+
+    @Test
+    public void close_BeforeCommit_KeepsPreviousPack() throws IOException {
+        // Given a committed pack
+        TilePack.Writer writer = createWriter();
+        writer.add(0, 3, 2, MIN_ZOOM, tileData(0, 3, 2, MIN_ZOOM));
+        writer.commit();
+
+        // When a new pack is abandoned before being committed
+        writer = createWriter();
+        writer.add(0, 2, 3, MIN_ZOOM, tileData(0, 2, 3, MIN_ZOOM));
+        writer.close();
+
+        // Then the committed pack is still there
+        TilePack pack = TilePack.open(mPackFile);
+        assertThat(pack.getTileCount(), is(1));
+        assertTile(pack, 0, 3, 2, MIN_ZOOM);
+    }
+
+    @Test
+    public void open_TruncatedPack_Throws() throws IOException {
+        // Given a pack that was cut short
+        FileOutputStream stream = new FileOutputStream(mPackFile);
+        stream.write(new byte[]{0x54, 0x50, 0x4b, 0x31, 1, 2, 3});
+        stream.close();
+
+        // When it is opened, then it is rejected
+        try {
+            TilePack.open(mPackFile);
+            fail("Opened a truncated tile pack");
+        } catch (IOException e) {
+            // expected
+        }
+    }
+
+    private TilePack.Writer createWriter() throws IOException {
+        return new TilePack.Writer(mPackFile, FAKE_SOURCE_KEY, FAKE_TILE_SIZE, MIN_ZOOM,
+                MAX_ZOOM);
+    }
+
+    private static void assertTile(TilePack pack, int floor, int x, int y, int zoom) {
+        assertThat(pack.getTileData(floor, x, y, zoom),
+                is(ByteBuffer.wrap(tileData(floor, x, y, zoom))));
+    }
+
+    /**
+     * Returns fake tile data, of a length and contents that depend on the tile.
+     */
+    private static byte[] tileData(int floor, int x, int y, int zoom) {
+        byte[] data = new byte[10 + floor + x + y];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) (floor * 31 + x * 7 + y * 3 + zoom + i);
+        }
+        return data;
+    }
+}
@@ -0,0 +1,148 @@
+/*
+ * Copyright 2016 Google Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.samples.apps.iosched.model;
+
+import android.test.suitebuilder.annotation.SmallTest;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+
+@RunWith(JUnit4.class)
+@SmallTest
+public class ScheduleItemHelperTest {
+
+    private static final long MINUTE = 60 * 1000;
+
+    private static final int RANDOM_DAYS = 500;
+
+    @Test
+    public void markConflicting_OverlappingSessions_FlagsBoth() {
+        // Given two sessions overlapping by more than the allowed overlap, and a later one
+        ArrayList<ScheduleItem> items = new ArrayList<ScheduleItem>(Arrays.asList(
+                item(ScheduleItem.SESSION, 0, 60), item(ScheduleItem.SESSION, 30, 90),
+                item(ScheduleItem.SESSION, 120, 180)));
+
+        // When conflicts are marked
+        ScheduleItemHelper.markConflicting(items);
+
+        // Then only the first two are flagged, as conflicting with each other
+        assertThat(items.get(0).flags, is(ScheduleItem.FLAG_CONFLICTS_WITH_NEXT));
+        assertThat(items.get(1).flags, is(ScheduleItem.FLAG_CONFLICTS_WITH_PREVIOUS));
+        assertThat(items.get(2).flags, is(0));
+    }
+
+    @Test
+    public void moveMutables_SessionInsideFreeBlock_SplitsFreeBlock() {
+        // Given a free block with a session in its middle
+        ArrayList<ScheduleItem> free = new ArrayList<ScheduleItem>(Arrays.asList(
+                item(ScheduleItem.FREE, 0, 120)));
+        ArrayList<ScheduleItem> sessions = new ArrayList<ScheduleItem>(Arrays.asList(
+                item(ScheduleItem.SESSION, 30, 60)));
+
+        // When the free block is moved around the session
+        ScheduleItemHelper.moveMutables(free, sessions);
+
+        // Then the free block is split before and after the session
+        assertThat(free.size(), is(2));
+        assertThat(free.get(0).startTime, is(0L));
+        assertThat(free.get(0).endTime, is(30 * MINUTE));
+        assertThat(free.get(1).startTime, is(60 * MINUTE));
+        assertThat(free.get(1).endTime, is(120 * MINUTE));
+    }
+
+    @Test
+    public void addSessionCounts_SessionsStartingInFreeBlocks_AreCounted() {
+        // Given two free blocks and groups of sessions starting in, between and at their ends
+        List<ScheduleItem> free = Arrays.asList(item(ScheduleItem.FREE, 0, 60),
+                item(ScheduleItem.FREE, 60, 120));
+        List<long[]> counters = Arrays.asList(new long[]{0, 2}, new long[]{30 * MINUTE, 3},
+                new long[]{60 * MINUTE, 4}, new long[]{120 * MINUTE, 5});
+
+        // When sessions are counted
+        ScheduleItemHelper.addSessionCounts(free, counters);
+
+        // Then each block counts the sessions starting in it, excluding its end
+        assertThat(free.get(0).numOfSessions, is(5));
+        assertThat(free.get(1).numOfSessions, is(4));
+    }
+
+    @Test
+    public void processItems_RandomDays_MatchesPairwiseComparison() {
+        ScheduleItemsGenerator generator = new ScheduleItemsGenerator(0);
+        for (int day = 0; day < RANDOM_DAYS; day++) {
+            // Given a random day of free blocks, breaks and sessions
+            ArrayList<ScheduleItem> mutableItems = generator.items(day % 8, ScheduleItem.FREE,
+                    240 * MINUTE);
+            ArrayList<ScheduleItem> immutableItems = generator.immutableItems(day % 5, day % 40);
+
+            // When it is processed by both implementations
+            ArrayList<ScheduleItem> expected = PairwiseScheduleItemHelper.processItems(
+                    ScheduleItemsGenerator.copy(mutableItems),
+                    ScheduleItemsGenerator.copy(immutableItems));
+            ArrayList<ScheduleItem> actual = ScheduleItemHelper.processItems(
+                    ScheduleItemsGenerator.copy(mutableItems),
+                    ScheduleItemsGenerator.copy(immutableItems));
+
+            // Then the items, their times and their flags are the same
+            assertSameItems(actual, expected);
+        }
+    }
+
+    @Test
+    public void addSessionCounts_RandomDays_MatchesPairwiseComparison() {
+        ScheduleItemsGenerator generator = new ScheduleItemsGenerator(0);
+        for (int day = 0; day < RANDOM_DAYS; day++) {
+            // Given random free blocks and session counters
+            ArrayList<ScheduleItem> free = generator.items(day % 8, ScheduleItem.FREE,
+                    240 * MINUTE);
+            List<long[]> counters = generator.counters(day % 60, day % 2 == 0);
+
+            // When sessions are counted by both implementations
+            ArrayList<ScheduleItem> expected = ScheduleItemsGenerator.copy(free);
+            PairwiseScheduleItemHelper.addSessionCounts(expected, counters);
+            ArrayList<ScheduleItem> actual = ScheduleItemsGenerator.copy(free);
+            ScheduleItemHelper.addSessionCounts(actual, counters);
+
+            // Then the counts are the same
+            assertSameItems(actual, expected);
+        }
+    }
+
+    static void assertSameItems(List<ScheduleItem> actual, List<ScheduleItem> expected) {
+        assertThat(actual.size(), is(expected.size()));
+        for (int i = 0; i < expected.size(); i++) {
+            assertThat(actual.get(i).toString(), is(expected.get(i).toString()));
+            assertThat(actual.get(i).numOfSessions, is(expected.get(i).numOfSessions));
+        }
+    }
+
+    private static ScheduleItem item(int type, long startMinute, long endMinute) {
+        ScheduleItem item = new ScheduleItem();
+        item.type = type;
+        item.startTime = startMinute * MINUTE;
+        item.endTime = endMinute * MINUTE;
+        return item;
+    }
+}
@@ -21,6 +21,7 @@ import android.test.suitebuilder.annotation.SmallTest;
 
 import com.google.samples.apps.iosched.provider.ScheduleContract;
 
+import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
@@ -29,6 +30,7 @@ import org.mockito.Mock;
 import org.mockito.runners.MockitoJUnitRunner;
 
 import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.CoreMatchers.sameInstance;
 import static org.hamcrest.core.Is.is;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertThat;
@@ -72,6 +74,11 @@ public class TagMetadataTest {
 
     private TagMetadata mTagMetadata;
 
+    @Before
+    public void setUp() {
+        // The tag metadata cache is shared by the whole process, so each test starts without it.
+        TagMetadata.invalidateCache();
+    }
 
     @Test
     public void constructor_WithNullCursor_ThrowsNPE() {
@@ -151,6 +158,60 @@ public class TagMetadataTest {
         assertThat(mTagMetadata.getTagsInCategory(FAKE_TAG_UNUSED_CATEGORY), nullValue());
     }
 
+    @Test
+    public void fromCursor_WithQueriedCursor_TagCorrectlyLoaded() {
+        // Given a mock cursor with a fake tag, as returned by a query
+        initMockCursorWithOneTag(mMockCursor);
+
+        // When TagMetadata is obtained from the mock cursor
+        mTagMetadata = TagMetadata.fromCursor(mMockCursor);
+
+        // Then the tag is read from the cursor
+        assertThat(mTagMetadata.getTag(FAKE_TAG_ID).getName(), is(FAKE_TAG_NAME));
+    }
+
+    @Test
+    public void getCache_AfterPutCache_ReturnsSameTagMetadata() {
+        // Given a TagMetadata loaded at the current generation
+        initMockCursorWithOneTag(mMockCursor);
+        mTagMetadata = new TagMetadata(mMockCursor);
+        TagMetadata.putCache(mTagMetadata, TagMetadata.getCacheGeneration());
+
+        // When the cached TagMetadata is requested
+        TagMetadata cached = TagMetadata.getCache();
+
+        // Then the loaded TagMetadata is shared
+        assertThat(cached, sameInstance(mTagMetadata));
+    }
+
+    @Test
+    public void getCache_AfterInvalidateCache_ReturnsNull() {
+        // Given a cached TagMetadata
+        initMockCursorWithOneTag(mMockCursor);
+        TagMetadata.putCache(new TagMetadata(mMockCursor), TagMetadata.getCacheGeneration());
+
+        // When the tags change
+        TagMetadata.invalidateCache();
+
+        // Then the TagMetadata has to be loaded again
+        assertThat(TagMetadata.getCache(), nullValue());
+    }
+
+    @Test
+    public void putCache_TagsChangedDuringLoad_TagMetadataNotCached() {
+        // Given a TagMetadata whose load started before the tags changed
+        int generation = TagMetadata.getCacheGeneration();
+        initMockCursorWithOneTag(mMockCursor);
+        mTagMetadata = new TagMetadata(mMockCursor);
+        TagMetadata.invalidateCache();
+
+        // When the load is done
+        TagMetadata.putCache(mTagMetadata, generation);
+
+        // Then the stale TagMetadata is not shared
+        assertThat(TagMetadata.getCache(), nullValue());
+    }
+
     public static void initMockCursorWithOneTag(Cursor cursor) {
         // Return a count of 1
         when(cursor.getCount()).thenReturn(1);
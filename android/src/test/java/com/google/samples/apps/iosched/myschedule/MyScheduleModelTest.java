@@ -34,15 +34,16 @@ import org.mockito.Mock;
 import org.mockito.runners.MockitoJUnitRunner;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 
 import static org.hamcrest.core.Is.is;
 import static org.junit.Assert.assertThat;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anyLong;
 import static org.mockito.Matchers.eq;
+import static org.mockito.Matchers.isNull;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.spy;
-import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -107,12 +108,14 @@ public class MyScheduleModelTest {
         mMyScheduleModel.requestData(MyScheduleModel.MyScheduleQueryEnum.SCHEDULE,
                 mMockDataQueryCallback);
 
-        // Then the schedule helper is called for each day
-        verify(mMockScheduleHelper, times(conferenceDays)).getScheduleDataAsync(
-                mLoadScheduleDataCallbackCaptor.capture(), anyLong(), anyLong());
+        // Then the schedule helper is called once for all days
+        verify(mMockScheduleHelper).getScheduleDataAsync(
+                mLoadScheduleDataCallbackCaptor.capture(), eq(Config.CONFERENCE_DAYS),
+                (String[]) isNull());
 
-        // Given the schedule helper returning the same mock schedule items for each day
-        mLoadScheduleDataCallbackCaptor.getValue().onDataLoaded(mMockScheduleItems);
+        // Given the schedule helper returning mock schedule items for the last day
+        mLoadScheduleDataCallbackCaptor.getValue().onDataLoaded(
+                scheduleItemsForDay(conferenceDays - 1));
 
         // Then the model is updated with the mock schedule items for the last conference day
         // and callback is fired
@@ -137,12 +140,14 @@ public class MyScheduleModelTest {
         mMyScheduleModel.deliverUserAction(MyScheduleModel.MyScheduleUserActionEnum.RELOAD_DATA,
                 null, mMockUserActionCallback);
 
-        // Then the schedule helper is called for each day
-        verify(mMockScheduleHelper, times(conferenceDays)).getScheduleDataAsync(
-                mLoadScheduleDataCallbackCaptor.capture(), anyLong(), anyLong());
+        // Then the schedule helper is called once for all days
+        verify(mMockScheduleHelper).getScheduleDataAsync(
+                mLoadScheduleDataCallbackCaptor.capture(), eq(Config.CONFERENCE_DAYS),
+                (String[]) isNull());
 
-        // Given the schedule helper returning the same mock schedule items for each day
-        mLoadScheduleDataCallbackCaptor.getValue().onDataLoaded(mMockScheduleItems);
+        // Given the schedule helper returning mock schedule items for the last day
+        mLoadScheduleDataCallbackCaptor.getValue().onDataLoaded(
+                scheduleItemsForDay(conferenceDays - 1));
 
         // Then the model is updated with the mock schedule items for the last conference day
         // and callback is fired
@@ -166,7 +171,8 @@ public class MyScheduleModelTest {
 
         // Then the schedule helper is not called
         verify(mMockScheduleHelper, never()).getScheduleDataAsync(
-                mLoadScheduleDataCallbackCaptor.capture(), anyLong(), anyLong());
+                any(MyScheduleModel.LoadScheduleDataListener.class), any(long[][].class),
+                any(String[].class));
 
         // Then the callback is fired
         verify(mMockUserActionCallback).onModelUpdated(mMyScheduleModel,
@@ -184,6 +190,13 @@ public class MyScheduleModelTest {
                 .thenReturn(FAKE_CURRENT_TIME_OFFSET);
     }
 
+    private HashMap<Integer, ArrayList<ScheduleItem>> scheduleItemsForDay(int dayIndex) {
+        HashMap<Integer, ArrayList<ScheduleItem>> scheduleItemsByDay =
+                new HashMap<Integer, ArrayList<ScheduleItem>>();
+        scheduleItemsByDay.put(dayIndex, mMockScheduleItems);
+        return scheduleItemsByDay;
+    }
+
     private void setUpMockScheduleItems() {
         when(mMockScheduleItems.size()).thenReturn(2);
         when(mMockScheduleItems.get(0)).thenReturn(mMockScheduleItem1);
@@ -0,0 +1,172 @@
+/*
+ * Copyright 2016 Google Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.samples.apps.iosched.provider;
+
+import android.os.Handler;
+import android.test.suitebuilder.annotation.SmallTest;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import java.util.Set;
+
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsNull.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@RunWith(MockitoJUnitRunner.class)
+@SmallTest
+public class DataChangeBusTest {
+
+    private static final String SESSIONS_PATH = "sessions";
+
+    private static final String BLOCKS_PATH = "blocks";
+
+    private static final String SPEAKERS_PATH = "speakers";
+
+    private static final String FAKE_SESSION_ID_1 = "FAKE_SESSION_ID_1";
+
+    private static final String FAKE_SESSION_ID_2 = "FAKE_SESSION_ID_2";
+
+    @Mock
+    private Handler mMockHandler;
+
+    @Mock
+    private DataChangeBus.Listener mMockListener;
+
+    @Captor
+    private ArgumentCaptor<Runnable> mDeliveryCaptor;
+
+    @Captor
+    private ArgumentCaptor<DataChangeBus.DataChange> mDataChangeCaptor;
+
+    private DataChangeBus mBus;
+
+    @Before
+    public void setUp() {
+        mBus = new DataChangeBus(mMockHandler);
+        mBus.subscribe(mMockListener, SESSIONS_PATH, BLOCKS_PATH);
+    }
+
+    @Test
+    public void notifyChange_TwiceBeforeDelivery_DeliversOnce() {
+        // When two rows of a subscribed path change before the first change is delivered
+        mBus.notifyChange(SESSIONS_PATH, FAKE_SESSION_ID_1);
+        mBus.notifyChange(SESSIONS_PATH, FAKE_SESSION_ID_2);
+        deliver();
+
+        // Then the listener is called once with both rows
+        verify(mMockListener).onDataChanged(mDataChangeCaptor.capture());
+        Set<String> ids = mDataChangeCaptor.getValue().getChangedIds(SESSIONS_PATH);
+        assertThat(ids.size(), is(2));
+        assertTrue(ids.contains(FAKE_SESSION_ID_1));
+        assertTrue(ids.contains(FAKE_SESSION_ID_2));
+
+        // And the second change is counted as coalesced
+        assertThat(mBus.getPostedChanges(), is(2));
+        assertThat(mBus.getCoalescedChanges(), is(1));
+        assertThat(mBus.getDeliveries(), is(1));
+    }
+
+    @Test
+    public void notifyChange_UnsubscribedPath_IsIgnored() {
+        // When a path nobody subscribed to changes
+        mBus.notifyChange(SPEAKERS_PATH, null);
+
+        // Then no delivery is scheduled and the change is counted as ignored
+        verify(mMockHandler, never()).postDelayed(any(Runnable.class), anyLong());
+        assertThat(mBus.getIgnoredChanges(), is(1));
+    }
+
+    @Test
+    public void notifyChange_NoPath_ChangesAllSubscribedPaths() {
+        // When a change without path is posted
+        mBus.notifyChange(null, null);
+        deliver();
+
+        // Then every subscribed path is delivered as changed in full
+        verify(mMockListener).onDataChanged(mDataChangeCaptor.capture());
+        DataChangeBus.DataChange change = mDataChangeCaptor.getValue();
+        assertThat(change.getChangedPaths().size(), is(2));
+        assertThat(change.getChangedIds(SESSIONS_PATH), is(nullValue()));
+        assertThat(change.getChangedIds(BLOCKS_PATH), is(nullValue()));
+    }
+
+    @Test
+    public void notifyChange_AfterUnsubscribe_IsNotDelivered() {
+        // Given a change posted to the listener
+        mBus.notifyChange(SESSIONS_PATH, FAKE_SESSION_ID_1);
+
+        // When the listener unsubscribes
+        mBus.unsubscribe(mMockListener);
+
+        // Then the pending delivery is cancelled
+        verify(mMockHandler).postDelayed(mDeliveryCaptor.capture(), anyLong());
+        verify(mMockHandler).removeCallbacks(mDeliveryCaptor.getValue());
+        mDeliveryCaptor.getValue().run();
+        verify(mMockListener, never()).onDataChanged(any(DataChangeBus.DataChange.class));
+    }
+
+    @Test
+    public void add_WholePathChange_AbsorbsRowChanges() {
+        // Given a change of any row of a path
+        DataChangeBus.DataChange change = new DataChangeBus.DataChange();
+        change.add(SESSIONS_PATH, null);
+
+        // When a single row of the same path changes too
+        change.add(SESSIONS_PATH, FAKE_SESSION_ID_1);
+
+        // Then any row of the path is still reported as changed
+        assertThat(change.getChangedIds(SESSIONS_PATH), is(nullValue()));
+    }
+
+    @Test
+    public void getChangedIds_UnchangedPath_ReturnsEmptySet() {
+        // Given a change of a single row of a path
+        DataChangeBus.DataChange change = new DataChangeBus.DataChange();
+        change.add(SESSIONS_PATH, FAKE_SESSION_ID_1);
+
+        // When the ids of another path are requested
+        Set<String> ids = change.getChangedIds(BLOCKS_PATH);
+
+        // Then there are none
+        assertTrue(ids.isEmpty());
+        assertFalse(change.getChangedPaths().contains(BLOCKS_PATH));
+    }
+
+    /**
+     * Runs the deliveries scheduled on {@link #mMockHandler}.
+     */
+    private void deliver() {
+        verify(mMockHandler, times(1)).postDelayed(mDeliveryCaptor.capture(), anyLong());
+        for (Runnable delivery : mDeliveryCaptor.getAllValues()) {
+            delivery.run();
+        }
+    }
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright 2016 Google Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.samples.apps.iosched.provider;
+
+import android.test.suitebuilder.annotation.SmallTest;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(JUnit4.class)
+@SmallTest
+public class ScheduleContractTest {
+
+    private static final String SESSIONS_PATH = "sessions";
+
+    private static final String MY_SCHEDULE_PATH = "my_schedule";
+
+    @Test
+    public void getJoiningPaths_Rooms_IncludesSessionsAndMySchedule() {
+        // When getting the paths joining the rooms
+        List<String> paths = Arrays.asList(ScheduleContract.getJoiningPaths("rooms"));
+
+        // Then the sessions and the schedule, which show the room of each session, are included
+        assertTrue(paths.contains(SESSIONS_PATH));
+        assertTrue(paths.contains(MY_SCHEDULE_PATH));
+    }
+
+    @Test
+    public void getJoiningPaths_Speakers_IncludesSessions() {
+        // When getting the paths joining the speakers
+        List<String> paths = Arrays.asList(ScheduleContract.getJoiningPaths("speakers"));
+
+        // Then the sessions, whose speakers are read through sessions/{id}/speakers, are included
+        assertTrue(paths.contains(SESSIONS_PATH));
+    }
+
+    @Test
+    public void getJoiningPaths_TagsAndBlocks_IncludeSessionsAndMySchedule() {
+        for (String path : new String[]{"tags", "blocks"}) {
+            // When getting the paths joining the tags or the blocks
+            List<String> paths = Arrays.asList(ScheduleContract.getJoiningPaths(path));
+
+            // Then the sessions and the schedule are included
+            assertTrue(path, paths.contains(SESSIONS_PATH));
+            assertTrue(path, paths.contains(MY_SCHEDULE_PATH));
+        }
+    }
+
+    @Test
+    public void getJoiningPaths_Announcements_IsEmpty() {
+        // When getting the paths joining the announcements, which no other query reads
+        String[] paths = ScheduleContract.getJoiningPaths("announcements");
+
+        // Then there are none
+        assertThat(paths.length, is(0));
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright 2016 Google Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.samples.apps.iosched.provider;
+
+import android.test.suitebuilder.annotation.SmallTest;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(JUnit4.class)
+@SmallTest
+public class SearchRankerTest {
+
+    private static final int ROW_COUNT = 200;
+
+    private static final int[] AVERAGE_LENGTHS = {6, 80, 4};
+
+    private final SearchRanker mRanker = new SearchRanker(4.0, 1.0, 2.0);
+
+    @Test
+    public void score_HitInTitle_RanksAboveHitInAbstract() {
+        // Given a row with one hit in its title and a row with one hit in its abstract
+        int[] titleHit = matchinfo(new int[]{6, 80, 4}, new int[]{1, 0, 0}, new int[]{10, 10, 0});
+        int[] abstractHit = matchinfo(new int[]{6, 80, 4}, new int[]{0, 1, 0},
+                new int[]{10, 10, 0});
+
+        // When both are scored
+        // Then the title hit scores higher
+        assertTrue(mRanker.score(titleHit) > mRanker.score(abstractHit));
+    }
+
+    @Test
+    public void score_RareTerm_RanksAboveCommonTerm() {
+        // Given two rows with one title hit each, of a rare and of a common term
+        int[] rare = matchinfo(new int[]{6, 80, 4}, new int[]{1, 0, 0}, new int[]{3, 0, 0});
+        int[] common = matchinfo(new int[]{6, 80, 4}, new int[]{1, 0, 0}, new int[]{90, 0, 0});
+
+        // When both are scored
+        // Then the rare term scores higher
+        assertTrue(mRanker.score(rare) > mRanker.score(common));
+    }
+
+    @Test
+    public void score_ShortColumn_RanksAboveLongColumn() {
+        // Given two rows with one abstract hit each, in a short and in a long abstract
+        int[] shortAbstract = matchinfo(new int[]{6, 20, 4}, new int[]{0, 1, 0},
+                new int[]{0, 10, 0});
+        int[] longAbstract = matchinfo(new int[]{6, 300, 4}, new int[]{0, 1, 0},
+                new int[]{0, 10, 0});
+
+        // When both are scored
+        // Then the short abstract scores higher
+        assertTrue(mRanker.score(shortAbstract) > mRanker.score(longAbstract));
+    }
+
+    @Test
+    public void score_TermInEveryRow_StillScoresAboveZero() {
+        // Given a row hit by a term found in every row
+        int[] everywhere = matchinfo(new int[]{6, 80, 4}, new int[]{1, 0, 0},
+                new int[]{ROW_COUNT, 0, 0});
+
+        // When it is scored
+        // Then its score is positive
+        assertTrue(mRanker.score(everywhere) > 0);
+    }
+
+    @Test
+    public void toIntArray_NativeOrderBlob_ReturnsValues() {
+        // Given a blob of integers in the machine's byte order, as written by SQLite
+        ByteBuffer blob = ByteBuffer.allocate(12).order(ByteOrder.nativeOrder());
+        blob.putInt(1).putInt(3).putInt(ROW_COUNT);
+
+        // When it is converted
+        int[] values = SearchRanker.toIntArray(blob.array());
+
+        // Then the integers are returned in order
+        assertThat(values.length, is(3));
+        assertThat(values[0], is(1));
+        assertThat(values[1], is(3));
+        assertThat(values[2], is(ROW_COUNT));
+    }
+
+    /**
+     * Builds the {@link SearchRanker#MATCHINFO_FORMAT} matchinfo of a single phrase query over a
+     * three column table of {@link #ROW_COUNT} rows.
+     */
+    private static int[] matchinfo(int[] lengths, int[] hitsInRow, int[] rowsWithHits) {
+        int columns = lengths.length;
+        int[] matchinfo = new int[3 + 2 * columns + 3 * columns];
+        matchinfo[0] = 1;
+        matchinfo[1] = columns;
+        matchinfo[2] = ROW_COUNT;
+        for (int column = 0; column < columns; column++) {
+            matchinfo[3 + column] = AVERAGE_LENGTHS[column];
+            matchinfo[3 + columns + column] = lengths[column];
+            int hits = 3 + 2 * columns + 3 * column;
+            matchinfo[hits] = hitsInRow[column];
+            matchinfo[hits + 1] = rowsWithHits[column] * 2;
+            matchinfo[hits + 2] = rowsWithHits[column];
+        }
+        return matchinfo;
+    }
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright 2016 Google Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.samples.apps.iosched.provider;
+
+import android.test.suitebuilder.annotation.SmallTest;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertThat;
+
+@RunWith(JUnit4.class)
+@SmallTest
+public class TagFilterIndexTest {
+
+    private static final String TOPIC_ANDROID = "TOPIC_ANDROID";
+
+    private static final String TOPIC_CLOUD = "TOPIC_CLOUD";
+
+    private static final String TYPE_SESSIONS = "TYPE_SESSIONS";
+
+    private static final String TYPE_CODELABS = "TYPE_CODELABS";
+
+    private static final String THEME_DEVELOP = "THEME_DEVELOP";
+
+    private TagFilterIndex mIndex;
+
+    @Before
+    public void setUp() {
+        mIndex = new TagFilterIndex();
+        mIndex.addTag(TOPIC_ANDROID, "TOPIC");
+        mIndex.addTag(TOPIC_CLOUD, "TOPIC");
+        mIndex.addTag(TYPE_SESSIONS, "TYPE");
+        mIndex.addTag(TYPE_CODELABS, "TYPE");
+        mIndex.addTag(THEME_DEVELOP, "THEME");
+        addSession(1, TOPIC_ANDROID, TYPE_SESSIONS, THEME_DEVELOP);
+        addSession(2, TOPIC_CLOUD, TYPE_SESSIONS);
+        addSession(3, TOPIC_ANDROID, TYPE_CODELABS);
+        addSession(4, TOPIC_ANDROID, TOPIC_CLOUD);
+    }
+
+    @Test
+    public void findSessions_OneTag_ReturnsSessionsWithTag() {
+        // When filtering by one tag
+        long[] sessions = mIndex.findSessions(new String[]{TOPIC_CLOUD});
+
+        // Then the sessions with that tag are returned
+        assertArrayEquals(new long[]{2, 4}, sessions);
+    }
+
+    @Test
+    public void findSessions_TagsOfOneCategory_ReturnsSessionsWithAnyOfThem() {
+        // When filtering by two topics
+        long[] sessions = mIndex.findSessions(new String[]{TOPIC_ANDROID, TOPIC_CLOUD});
+
+        // Then the sessions with either topic are returned
+        assertArrayEquals(new long[]{1, 2, 3, 4}, sessions);
+    }
+
+    @Test
+    public void findSessions_TagsOfTwoCategories_ReturnsSessionsWithOneOfEach() {
+        // When filtering by two topics and a type
+        long[] sessions = mIndex.findSessions(
+                new String[]{TOPIC_ANDROID, TOPIC_CLOUD, TYPE_SESSIONS});
+
+        // Then the sessions of that type with either topic are returned, but not the sessions of
+        // another type or without a type
+        assertArrayEquals(new long[]{1, 2}, sessions);
+    }
+
+    @Test
+    public void findSessions_UnknownTag_ReturnsNothing() {
+        // When filtering by a topic and a tag no session has
+        long[] sessions = mIndex.findSessions(new String[]{TOPIC_ANDROID, "TOPIC_UNKNOWN"});
+
+        // Then no session is returned
+        assertThat(sessions.length, is(0));
+    }
+
+    private void addSession(long sessionId, String... tagIds) {
+        for (String tagId : tagIds) {
+            mIndex.addSessionTag(sessionId, tagId);
+        }
+    }
+}
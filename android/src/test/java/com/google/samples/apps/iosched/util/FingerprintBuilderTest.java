@@ -0,0 +1,131 @@
+/*
+ * Copyright 2016 Google Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.samples.apps.iosched.util;
+
+import android.test.suitebuilder.annotation.SmallTest;
+
+import com.google.samples.apps.iosched.io.model.Session;
+import com.google.samples.apps.iosched.io.model.Speaker;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.junit.Assert.assertThat;
+
+@SmallTest
+public class FingerprintBuilderTest {
+
+    @Test
+    public void build_SameFields_ReturnsSameFingerprint() {
+        // When the same fields are fingerprinted twice
+        String first = new FingerprintBuilder().add("id").add(42).add(true).build();
+        String second = new FingerprintBuilder().add("id").add(42).add(true).build();
+
+        // Then the fingerprints are equal, and 128 bits long
+        assertThat(first, is(second));
+        assertThat(first.length(), is(32));
+    }
+
+    @Test
+    public void build_FieldBoundaryMoved_ReturnsOtherFingerprint() {
+        // When the same characters are split differently between two fields
+        String first = new FingerprintBuilder().add("ab").add("c").build();
+        String second = new FingerprintBuilder().add("a").add("bc").build();
+
+        // Then the fingerprints differ
+        assertThat(first, is(not(second)));
+    }
+
+    @Test
+    public void build_NullAndEmpty_ReturnOtherFingerprints() {
+        // When a null and an empty value are fingerprinted
+        String nullString = new FingerprintBuilder().add((String) null).build();
+        String emptyString = new FingerprintBuilder().add("").build();
+        String nullArray = new FingerprintBuilder().add((String[]) null).build();
+        String emptyArray = new FingerprintBuilder().add(new String[0]).build();
+
+        // Then the fingerprints differ
+        assertThat(nullString, is(not(emptyString)));
+        assertThat(nullArray, is(not(emptyArray)));
+    }
+
+    @Test
+    public void getImportHashCode_SameSession_IsStable() {
+        // Given two sessions parsed from the same data
+        Map<String, Speaker> speakers = createSpeakers("Ada");
+
+        // When they are fingerprinted
+        String first = createSession().getImportHashCode(speakers);
+        String second = createSession().getImportHashCode(speakers);
+
+        // Then the fingerprints are equal, so an unchanged session is not rewritten
+        assertThat(first, is(second));
+    }
+
+    @Test
+    public void getImportHashCode_SpeakerRenamed_Changes() {
+        // Given a session
+        Session session = createSession();
+
+        // When the name of one of its speakers changes
+        String before = session.getImportHashCode(createSpeakers("Ada"));
+        String after = session.getImportHashCode(createSpeakers("Grace"));
+
+        // Then the fingerprint changes, as the session row holds the speaker names
+        assertThat(before, is(not(after)));
+    }
+
+    @Test
+    public void getImportHashCode_TagAdded_Changes() {
+        // Given a session
+        Map<String, Speaker> speakers = createSpeakers("Ada");
+        Session session = createSession();
+        String before = session.getImportHashCode(speakers);
+
+        // When a tag is added to it
+        session.tags = new String[]{"TOPIC_ANDROID", "TYPE_SESSION", "THEME_DEVELOP"};
+
+        // Then the fingerprint changes
+        assertThat(session.getImportHashCode(speakers), is(not(before)));
+    }
+
+    private static Session createSession() {
+        Session session = new Session();
+        session.id = "session1";
+        session.title = "What's new in Android";
+        session.description = "Description";
+        session.startTimestamp = "2016-05-18T17:00:00Z";
+        session.endTimestamp = "2016-05-18T18:00:00Z";
+        session.room = "room1";
+        session.tags = new String[]{"TOPIC_ANDROID", "TYPE_SESSION"};
+        session.speakers = new String[]{"speaker1"};
+        return session;
+    }
+
+    private static Map<String, Speaker> createSpeakers(String name) {
+        Speaker speaker = new Speaker();
+        speaker.id = "speaker1";
+        speaker.name = name;
+        Map<String, Speaker> speakers = new HashMap<>();
+        speakers.put(speaker.id, speaker);
+        return speakers;
+    }
+}
@@ -52,6 +52,21 @@ public interface Config {
   public final String MANIFEST_NAME = "manifest_v"+MANIFEST_VERSION+".json";
   public final String MANIFEST_NAME_STAGING = "manifest_v"+MANIFEST_VERSION+"__qa_.json";
 
+  /**
+   * The chunked manifest lists the data as content addressed chunks (see DataChunker), so clients
+   * only download the chunks that changed. It is published next to the v1 manifest, which keeps
+   * being updated for installed clients that only know the v1 format.
+   */
+  public final String MANIFEST_FORMAT_VERSION_CHUNKED = "iosched-json-v2";
+  public final int MANIFEST_VERSION_CHUNKED = 2;
+  public final String MANIFEST_NAME_CHUNKED = "manifest_v"+MANIFEST_VERSION_CHUNKED+".json";
+  public final String MANIFEST_NAME_CHUNKED_STAGING =
+      "manifest_v"+MANIFEST_VERSION_CHUNKED+"__qa_.json";
+  public final String CHUNK_PATH_PREFIX = "chunks/";
+  // Entity types with fewer entities are kept in a single chunk.
+  public final int CHUNK_MIN_ENTITIES = 64;
+  public final int CHUNK_BUCKETS = 16;
+
   public final boolean DEBUG_FIX_DATA = false;
   public final boolean SHOW_UNPUBLISHED_DATA=false;
 
@@ -35,6 +35,7 @@ import com.google.samples.apps.iosched.server.schedule.model.DataCheck.CheckResu
 import com.google.samples.apps.iosched.server.schedule.model.DataExtractor;
 import com.google.samples.apps.iosched.server.schedule.model.JsonDataSource;
 import com.google.samples.apps.iosched.server.schedule.model.JsonDataSources;
+import com.google.samples.apps.iosched.server.schedule.server.DataChunker.DataChunk;
 import com.google.samples.apps.iosched.server.schedule.server.cloudstorage.CloudFileManager;
 import com.google.samples.apps.iosched.server.schedule.server.input.ExtraInput;
 import com.google.samples.apps.iosched.server.schedule.server.input.VendorStaticInput;
@@ -46,6 +47,7 @@ import java.io.Writer;
 import java.nio.channels.Channels;
 import java.text.MessageFormat;
 import java.util.Arrays;
+import java.util.List;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.regex.Matcher;
@@ -136,6 +138,36 @@ public class APIUpdater {
     if (optionalOutput == null) {
       // Only update manifest and log if saving to persistent storage
 
+      // Upload the chunks of the new data that are not stored yet, and list them all in the
+      // chunked manifest, before the GCM ping below tells clients to sync. Chunks are named
+      // after their contents, so unchanged chunks keep their name and clients that already have
+      // them don't download them again.
+      logger.startTimer();
+      List<DataChunk> chunks = new DataChunker().split(newData);
+      int uploadedChunks = 0;
+      for (DataChunk chunk: chunks) {
+        if (fileManager.createIfMissing(chunk.getFilename(), chunk.contents)) {
+          uploadedChunks++;
+        }
+      }
+      dataProduction.setChunks(chunks);
+      Logger.getLogger(APIUpdater.class.getName()).info("Uploaded " + uploadedChunks + " of "
+          + chunks.size() + " data chunks.");
+
+      JsonObject newChunkedProductionManifest = new JsonObject();
+      newChunkedProductionManifest.add("format",
+          new JsonPrimitive(Config.MANIFEST_FORMAT_VERSION_CHUNKED));
+      newChunkedProductionManifest.add("data_files", dataProduction.getDataFilesWithoutSessions());
+      newChunkedProductionManifest.add("chunks", dataProduction.chunks);
+
+      JsonObject newChunkedStagingManifest = new JsonObject();
+      newChunkedStagingManifest.add("format",
+          new JsonPrimitive(Config.MANIFEST_FORMAT_VERSION_CHUNKED));
+
+      fileManager.createOrUpdateChunkedProductionManifest(newChunkedProductionManifest);
+      fileManager.createOrUpdateChunkedStagingManifest(newChunkedStagingManifest);
+      logger.stopTimer("uploadChunks");
+
       logger.startTimer();
 
       // Create new manifests
@@ -0,0 +1,150 @@
+/*
+ * Copyright 2016 Google Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.samples.apps.iosched.server.schedule.server;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.samples.apps.iosched.server.schedule.Config;
+
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Splits the data extracted by the updater into the content addressed chunks listed by the
+ * {@link Config#MANIFEST_FORMAT_VERSION_CHUNKED} manifest.
+ *
+ * Each chunk holds some of the entities of a single type, in the same format as a full data
+ * file ({"sessions": [...]}), and is named after the hash of its contents. Large entity types are
+ * spread over {@link Config#CHUNK_BUCKETS} chunks by the hash of each entity's id, so an entity
+ * always lands in the same chunk: changing a session only changes the name of its own chunk, and
+ * clients only download that one.
+ */
+public class DataChunker {
+
+  private static final Charset UTF8 = Charset.forName("UTF-8");
+
+  // Properties identifying an entity, in order of preference.
+  private static final String[] ID_PROPERTIES = {"id", "tag"};
+
+  public static class DataChunk {
+    public final String type;
+    public final String hash;
+    public final byte[] contents;
+
+    DataChunk(String type, String hash, byte[] contents) {
+      this.type = type;
+      this.hash = hash;
+      this.contents = contents;
+    }
+
+    /**
+     * @return The name of the file holding this chunk. It only depends on the chunk's contents.
+     */
+    public String getFilename() {
+      return Config.CHUNK_PATH_PREFIX + type + "_" + hash + ".json";
+    }
+  }
+
+  /**
+   * Splits {@code data} into chunks. The chunks of a type are returned in a fixed order, and the
+   * entities of a chunk are sorted by id, so the same data always gives the same chunks.
+   */
+  public List<DataChunk> split(JsonObject data) {
+    List<DataChunk> chunks = new ArrayList<DataChunk>();
+    for (Map.Entry<String, JsonElement> entry : data.entrySet()) {
+      String type = entry.getKey();
+      JsonElement value = entry.getValue();
+      if (!value.isJsonArray() || value.getAsJsonArray().size() < Config.CHUNK_MIN_ENTITIES) {
+        chunks.add(createChunk(type, value));
+        continue;
+      }
+
+      List<List<JsonElement>> buckets = new ArrayList<List<JsonElement>>();
+      for (int i = 0; i < Config.CHUNK_BUCKETS; i++) {
+        buckets.add(new ArrayList<JsonElement>());
+      }
+      for (JsonElement entity : value.getAsJsonArray()) {
+        int bucket = (getEntityKey(entity).hashCode() & Integer.MAX_VALUE) % Config.CHUNK_BUCKETS;
+        buckets.get(bucket).add(entity);
+      }
+      for (List<JsonElement> bucket : buckets) {
+        if (bucket.isEmpty()) {
+          continue;
+        }
+        Collections.sort(bucket, ENTITY_KEY_COMPARATOR);
+        JsonArray entities = new JsonArray();
+        for (JsonElement entity : bucket) {
+          entities.add(entity);
+        }
+        chunks.add(createChunk(type, entities));
+      }
+    }
+    return chunks;
+  }
+
+  private DataChunk createChunk(String type, JsonElement value) {
+    JsonObject contents = new JsonObject();
+    contents.add(type, value);
+    byte[] bytes = new Gson().toJson(contents).getBytes(UTF8);
+    return new DataChunk(type, sha1Hex(bytes), bytes);
+  }
+
+  static String getEntityKey(JsonElement entity) {
+    if (entity.isJsonObject()) {
+      JsonObject object = entity.getAsJsonObject();
+      for (String property : ID_PROPERTIES) {
+        JsonElement id = object.get(property);
+        if (id != null && id.isJsonPrimitive()) {
+          return id.getAsString();
+        }
+      }
+    }
+    // Entities without id are identified by their contents.
+    return entity.toString();
+  }
+
+  private static final Comparator<JsonElement> ENTITY_KEY_COMPARATOR =
+      new Comparator<JsonElement>() {
+    @Override
+    public int compare(JsonElement lhs, JsonElement rhs) {
+      int result = getEntityKey(lhs).compareTo(getEntityKey(rhs));
+      return result != 0 ? result : lhs.toString().compareTo(rhs.toString());
+    }
+  };
+
+  static String sha1Hex(byte[] bytes) {
+    MessageDigest md;
+    try {
+      md = MessageDigest.getInstance("SHA-1");
+    } catch (NoSuchAlgorithmException e) {
+      throw new InternalError("SHA-1 MessageDigest is not available");
+    }
+    StringBuilder hex = new StringBuilder();
+    for (byte b : md.digest(bytes)) {
+      hex.append(String.format("%02x", b & 0xff));
+    }
+    return hex.toString();
+  }
+}
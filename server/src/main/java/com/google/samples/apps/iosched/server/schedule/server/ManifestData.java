@@ -17,9 +17,11 @@ package com.google.samples.apps.iosched.server.schedule.server;
 
 import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
 import com.google.samples.apps.iosched.server.schedule.Config;
 
 import java.text.MessageFormat;
+import java.util.List;
 import java.util.regex.Matcher;
 
 public class ManifestData {
@@ -27,6 +29,7 @@ public class ManifestData {
   public int majorVersion;
   public String sessionsFilename;
   public JsonArray dataFiles;
+  public JsonArray chunks;
 
   public void setFromDataFiles(JsonArray files) {
     for (JsonElement file: files) {
@@ -47,4 +50,31 @@ public class ManifestData {
       sessionsFilename = MessageFormat.format(Config.SESSIONS_FORMAT, majorVersion, minorVersion);
   }
 
+  /**
+   * Lists the given chunks in the format of the chunked manifest.
+   */
+  public void setChunks(List<DataChunker.DataChunk> dataChunks) {
+    chunks = new JsonArray();
+    for (DataChunker.DataChunk dataChunk : dataChunks) {
+      JsonObject chunk = new JsonObject();
+      chunk.addProperty("type", dataChunk.type);
+      chunk.addProperty("hash", dataChunk.hash);
+      chunk.addProperty("url", dataChunk.getFilename());
+      chunks.add(chunk);
+    }
+  }
+
+  /**
+   * @return The data files other than the sessions file, whose data the chunks hold instead.
+   */
+  public JsonArray getDataFilesWithoutSessions() {
+    JsonArray files = new JsonArray();
+    for (JsonElement file: dataFiles) {
+      if (!file.getAsString().equals(sessionsFilename)) {
+        files.add(file);
+      }
+    }
+    return files;
+  }
+
 }
@@ -33,16 +33,19 @@ import com.google.gson.JsonParser;
 import com.google.samples.apps.iosched.server.schedule.Config;
 import com.google.samples.apps.iosched.server.schedule.input.fetcher.RemoteJsonHelper;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.io.Writer;
+import java.nio.ByteBuffer;
 import java.nio.channels.Channels;
 import java.nio.charset.Charset;
 import java.security.DigestOutputStream;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.util.logging.Logger;
+import java.util.zip.GZIPOutputStream;
 
 /**
  * Handle all interaction with GoogleCloudStorage.
@@ -52,6 +55,9 @@ public class CloudFileManager {
 
   private static final String DEFAULT_CHARSET_NAME = "UTF-8";
 
+  // One year, in seconds.
+  private static final int IMMUTABLE_MAX_AGE = 365 * 24 * 60 * 60;
+
   private final GcsService gcsService = GcsServiceFactory.createGcsService(
       RetryParams.getDefaultInstance());
 
@@ -111,6 +117,43 @@ public class CloudFileManager {
     }
   }
 
+  /**
+   * Create a file in a GCS bucket unless it already exists, using the default ACL for the
+   * bucket. This is meant for content addressed files, whose contents never change for a given
+   * name, so they are cached for as long as possible. The file is stored gzip compressed, and
+   * served as such to clients accepting gzip.
+   *
+   * @param filename Name of file to create
+   * @param contents File contents
+   * @return Whether the file was created
+   * @throws IOException
+   */
+  public boolean createIfMissing(String filename, byte[] contents) throws IOException {
+    GcsFilename file = new GcsFilename(defaultBucket, filename);
+    if (gcsService.getMetadata(file) != null) {
+      return false;
+    }
+    GcsFileOptions options = new GcsFileOptions.Builder()
+      .mimeType("application/json")
+      .cacheControl("public, max-age=" + IMMUTABLE_MAX_AGE)
+      .contentEncoding("gzip")
+      .build();
+    ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+    GZIPOutputStream gzip = new GZIPOutputStream(compressed);
+    gzip.write(contents);
+    gzip.close();
+    GcsOutputChannel writeChannel = null;
+    try {
+      writeChannel = gcsService.createOrReplace(file, options);
+      writeChannel.write(ByteBuffer.wrap(compressed.toByteArray()));
+    } finally {
+      if (writeChannel != null) {
+        writeChannel.close();
+      }
+    }
+    return true;
+  }
+
   public String getBucketName() {
     return defaultBucket;
   }
@@ -139,6 +182,14 @@ public class CloudFileManager {
     createOrUpdate(Config.MANIFEST_NAME_STAGING, contents, true);
   }
 
+  public void createOrUpdateChunkedProductionManifest(JsonObject contents) throws IOException {
+    createOrUpdate(Config.MANIFEST_NAME_CHUNKED, contents, true);
+  }
+
+  public void createOrUpdateChunkedStagingManifest(JsonObject contents) throws IOException {
+    createOrUpdate(Config.MANIFEST_NAME_CHUNKED_STAGING, contents, true);
+  }
+
   public JsonObject readFileAsJsonObject(String filename) throws IOException {
     return readFileAsJsonObject(new GcsFilename(defaultBucket, filename));
   }
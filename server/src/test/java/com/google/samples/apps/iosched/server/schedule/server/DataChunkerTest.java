@@ -0,0 +1,126 @@
+/*
+ * Copyright 2016 Google Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.samples.apps.iosched.server.schedule.server;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.google.samples.apps.iosched.server.schedule.Config;
+import com.google.samples.apps.iosched.server.schedule.server.DataChunker.DataChunk;
+
+import org.junit.Test;
+
+import java.nio.charset.Charset;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+public class DataChunkerTest {
+
+  private static final int SESSION_COUNT = 300;
+
+  private final DataChunker chunker = new DataChunker();
+
+  @Test
+  public void testSplitIsDeterministic() {
+    List<DataChunk> first = chunker.split(createData(SESSION_COUNT, null));
+    List<DataChunk> second = chunker.split(createData(SESSION_COUNT, null));
+    assertEquals(getFilenames(first), getFilenames(second));
+  }
+
+  @Test
+  public void testSplitKeepsAllEntities() {
+    List<DataChunk> chunks = chunker.split(createData(SESSION_COUNT, null));
+    int sessions = 0;
+    int rooms = 0;
+    for (DataChunk chunk: chunks) {
+      JsonObject contents = new JsonParser().parse(
+          new String(chunk.contents, Charset.forName("UTF-8"))).getAsJsonObject();
+      assertEquals(1, contents.entrySet().size());
+      assertEquals(DataChunker.sha1Hex(chunk.contents), chunk.hash);
+      if (chunk.type.equals("sessions")) {
+        sessions += contents.getAsJsonArray("sessions").size();
+      } else {
+        rooms += contents.getAsJsonArray("rooms").size();
+      }
+    }
+    assertEquals(SESSION_COUNT, sessions);
+    assertEquals(3, rooms);
+  }
+
+  @Test
+  public void testSplitSpreadsLargeTypesOnly() {
+    List<DataChunk> chunks = chunker.split(createData(SESSION_COUNT, null));
+    int sessionChunks = 0;
+    int roomChunks = 0;
+    for (DataChunk chunk: chunks) {
+      if (chunk.type.equals("sessions")) {
+        sessionChunks++;
+      } else {
+        roomChunks++;
+      }
+    }
+    assertTrue(sessionChunks > 1 && sessionChunks <= Config.CHUNK_BUCKETS);
+    assertEquals(1, roomChunks);
+  }
+
+  @Test
+  public void testChangingOneSessionChangesOneChunk() {
+    Set<String> before = getFilenames(chunker.split(createData(SESSION_COUNT, null)));
+    Set<String> after = getFilenames(chunker.split(createData(SESSION_COUNT, "session42")));
+    assertEquals(before.size(), after.size());
+
+    Set<String> changed = new HashSet<String>(after);
+    changed.removeAll(before);
+    assertEquals(1, changed.size());
+  }
+
+  /**
+   * @param changedSessionId The id of a session to give a different title, or null.
+   */
+  private static JsonObject createData(int sessionCount, String changedSessionId) {
+    JsonArray sessions = new JsonArray();
+    for (int i = 0; i < sessionCount; i++) {
+      JsonObject session = new JsonObject();
+      String id = "session" + i;
+      session.addProperty("id", id);
+      session.addProperty("title", id.equals(changedSessionId) ? "New title" : "Title " + i);
+      sessions.add(session);
+    }
+    JsonArray rooms = new JsonArray();
+    for (int i = 0; i < 3; i++) {
+      JsonObject room = new JsonObject();
+      room.addProperty("id", "room" + i);
+      rooms.add(room);
+    }
+    JsonObject data = new JsonObject();
+    data.add("rooms", rooms);
+    data.add("sessions", sessions);
+    return data;
+  }
+
+  private static Set<String> getFilenames(List<DataChunk> chunks) {
+    Set<String> filenames = new HashSet<String>();
+    for (DataChunk chunk: chunks) {
+      filenames.add(chunk.getFilename());
+    }
+    return filenames;
+  }
+}
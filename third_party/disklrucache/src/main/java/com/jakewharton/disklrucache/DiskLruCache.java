@@ -31,13 +31,18 @@ import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.io.Writer;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.Iterator;
-import java.util.LinkedHashMap;
-import java.util.Map;
+import java.util.List;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -79,6 +84,12 @@ import java.util.regex.Pattern;
  * observe the value at the time that {@link #get} was called. Updates and
  * removals after the call do not impact ongoing reads.
  *
+ * <p>Reads of published entries take no lock. Edits and removals lock their
+ * key's stripe: a single lock by default, or one of several when the cache is
+ * opened with a {@code concurrencyLevel} greater than 1, in which case edits
+ * of keys in different stripes proceed in parallel and journal lines are
+ * written and flushed in batches on a background thread.
+ *
  * <p>This class is tolerant of some I/O errors. If files are missing from the
  * filesystem, the corresponding entries will be dropped from the cache. If
  * an error occurs while writing a cache value, the edit will fail silently.
@@ -143,41 +154,61 @@ public final class DiskLruCache implements Closeable {
   private final File journalFileTmp;
   private final File journalFileBackup;
   private final int appVersion;
-  private long maxSize;
+  private volatile long maxSize;
   private final int valueCount;
-  private long size = 0;
-  private Writer journalWriter;
-  private final LinkedHashMap<String, Entry> lruEntries =
-      new LinkedHashMap<String, Entry>(0, 0.75f, true);
-  private int redundantOpCount;
+  private final AtomicLong size = new AtomicLong();
+  /** Null once the cache is closed. */
+  private volatile JournalWriter journalWriter;
+  /**
+   * The entries, in no particular order. Each entry's key is only added or
+   * removed while holding the key's stripe lock.
+   */
+  private final ConcurrentHashMap<String, Entry> lruEntries;
+  private final AtomicInteger redundantOpCount = new AtomicInteger();
 
   /**
    * To differentiate between old and current snapshots, each entry is given
    * a sequence number each time an edit is committed. A snapshot is stale if
    * its sequence number is not equal to its entry's sequence number.
    */
-  private long nextSequenceNumber = 0;
+  private final AtomicLong nextSequenceNumber = new AtomicLong();
+
+  /**
+   * Entries are stamped with the next access order each time they are used;
+   * the entry with the lowest stamp is the least recently used.
+   */
+  private final AtomicLong nextAccessOrder = new AtomicLong();
+
+  /** Guards edits and removals. Keys are spread over the stripes by hash. */
+  private final ReentrantLock[] stripes;
 
   /** This cache uses a single background thread to evict entries. */
   final ThreadPoolExecutor executorService =
       new ThreadPoolExecutor(0, 1, 60L, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>());
+  /** Writes the journal in the background, or null to write it on the calling thread. */
+  private final ThreadPoolExecutor journalExecutorService;
   private final Callable<Void> cleanupCallable = new Callable<Void>() {
     public Void call() throws Exception {
-      synchronized (DiskLruCache.this) {
-        if (journalWriter == null) {
-          return null; // Closed.
-        }
-        trimToSize();
-        if (journalRebuildRequired()) {
-          rebuildJournal();
-          redundantOpCount = 0;
+      if (journalWriter == null) {
+        return null; // Closed.
+      }
+      trimToSize();
+      if (journalRebuildRequired()) {
+        lockAllStripes();
+        try {
+          if (journalWriter != null) { // Not closed meanwhile.
+            writeJournal();
+          }
+        } finally {
+          unlockAllStripes();
         }
       }
       return null;
     }
   };
 
-  private DiskLruCache(File directory, int appVersion, int valueCount, long maxSize) {
+  private DiskLruCache(File directory, int appVersion, int valueCount, long maxSize,
+      int concurrencyLevel) {
     this.directory = directory;
     this.appVersion = appVersion;
     this.journalFile = new File(directory, JOURNAL_FILE);
@@ -185,6 +216,13 @@ public final class DiskLruCache implements Closeable {
     this.journalFileBackup = new File(directory, JOURNAL_FILE_BACKUP);
     this.valueCount = valueCount;
     this.maxSize = maxSize;
+    this.lruEntries = new ConcurrentHashMap<String, Entry>(16, 0.75f, concurrencyLevel);
+    this.stripes = new ReentrantLock[concurrencyLevel];
+    for (int i = 0; i < concurrencyLevel; i++) {
+      stripes[i] = new ReentrantLock();
+    }
+    this.journalExecutorService = concurrencyLevel == 1 ? null
+        : new ThreadPoolExecutor(0, 1, 60L, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>());
   }
 
   /**
@@ -198,12 +236,37 @@ public final class DiskLruCache implements Closeable {
    */
   public static DiskLruCache open(File directory, int appVersion, int valueCount, long maxSize)
       throws IOException {
+    return open(directory, appVersion, valueCount, maxSize, 1);
+  }
+
+  /**
+   * Opens the cache in {@code directory}, creating a cache if none exists
+   * there, for use by up to {@code concurrencyLevel} threads at once.
+   *
+   * <p>With a {@code concurrencyLevel} of 1 this is the same as
+   * {@link #open(File, int, int, long)}. With a greater level, keys are
+   * spread over that many locks, and journal lines are queued and written by
+   * a background thread. Queued lines reach the journal file within moments,
+   * and at the latest on {@link #flush} or {@link #close}.
+   *
+   * @param directory a writable directory
+   * @param valueCount the number of values per cache entry. Must be positive.
+   * @param maxSize the maximum number of bytes this cache should use to store
+   * @param concurrencyLevel the number of threads expected to edit the cache
+   *     at once. Must be positive.
+   * @throws IOException if reading or writing the cache directory fails
+   */
+  public static DiskLruCache open(File directory, int appVersion, int valueCount, long maxSize,
+      int concurrencyLevel) throws IOException {
     if (maxSize <= 0) {
       throw new IllegalArgumentException("maxSize <= 0");
     }
     if (valueCount <= 0) {
       throw new IllegalArgumentException("valueCount <= 0");
     }
+    if (concurrencyLevel <= 0) {
+      throw new IllegalArgumentException("concurrencyLevel <= 0");
+    }
 
     // If a bkp file exists, use it instead.
     File backupFile = new File(directory, JOURNAL_FILE_BACKUP);
@@ -218,13 +281,13 @@ public final class DiskLruCache implements Closeable {
     }
 
     // Prefer to pick up where we left off.
-    DiskLruCache cache = new DiskLruCache(directory, appVersion, valueCount, maxSize);
+    DiskLruCache cache =
+        new DiskLruCache(directory, appVersion, valueCount, maxSize, concurrencyLevel);
     if (cache.journalFile.exists()) {
       try {
         cache.readJournal();
         cache.processJournal();
-        cache.journalWriter = new BufferedWriter(
-            new OutputStreamWriter(new FileOutputStream(cache.journalFile, true), Util.US_ASCII));
+        cache.journalWriter = cache.newJournalWriter();
         return cache;
       } catch (IOException journalIsCorrupt) {
         System.out
@@ -239,7 +302,7 @@ public final class DiskLruCache implements Closeable {
 
     // Create a new empty cache.
     directory.mkdirs();
-    cache = new DiskLruCache(directory, appVersion, valueCount, maxSize);
+    cache = new DiskLruCache(directory, appVersion, valueCount, maxSize, concurrencyLevel);
     cache.rebuildJournal();
     return cache;
   }
@@ -270,7 +333,7 @@ public final class DiskLruCache implements Closeable {
           break;
         }
       }
-      redundantOpCount = lineCount - lruEntries.size();
+      redundantOpCount.set(lineCount - lruEntries.size());
     } finally {
       Util.closeQuietly(reader);
     }
@@ -300,6 +363,7 @@ public final class DiskLruCache implements Closeable {
       entry = new Entry(key);
       lruEntries.put(key, entry);
     }
+    entry.accessOrder = nextAccessOrder.getAndIncrement();
 
     if (secondSpace != -1 && firstSpace == CLEAN.length() && line.startsWith(CLEAN)) {
       String[] parts = line.substring(secondSpace + 1).split(" ");
@@ -318,14 +382,18 @@ public final class DiskLruCache implements Closeable {
   /**
    * Computes the initial size and collects garbage as a part of opening the
    * cache. Dirty entries are assumed to be inconsistent and will be deleted.
+   * Entries that were only read are dropped: a read can be journaled just
+   * after the entry's removal when the two happen concurrently.
    */
   private void processJournal() throws IOException {
     deleteIfExists(journalFileTmp);
     for (Iterator<Entry> i = lruEntries.values().iterator(); i.hasNext(); ) {
       Entry entry = i.next();
-      if (entry.currentEditor == null) {
+      if (entry.currentEditor == null && !entry.readable) {
+        i.remove();
+      } else if (entry.currentEditor == null) {
         for (int t = 0; t < valueCount; t++) {
-          size += entry.lengths[t];
+          size.addAndGet(entry.lengths[t]);
         }
       } else {
         entry.currentEditor = null;
@@ -342,7 +410,17 @@ public final class DiskLruCache implements Closeable {
    * Creates a new journal that omits redundant information. This replaces the
    * current journal if it exists.
    */
-  private synchronized void rebuildJournal() throws IOException {
+  private void rebuildJournal() throws IOException {
+    lockAllStripes();
+    try {
+      writeJournal();
+    } finally {
+      unlockAllStripes();
+    }
+  }
+
+  /** Writes the new journal. The caller must hold every stripe lock. */
+  private void writeJournal() throws IOException {
     if (journalWriter != null) {
       journalWriter.close();
     }
@@ -360,7 +438,7 @@ public final class DiskLruCache implements Closeable {
       writer.write("\n");
       writer.write("\n");
 
-      for (Entry entry : lruEntries.values()) {
+      for (Entry entry : getEntriesByAccessOrder()) {
         if (entry.currentEditor != null) {
           writer.write(DIRTY + ' ' + entry.key + '\n');
         } else {
@@ -377,8 +455,46 @@ public final class DiskLruCache implements Closeable {
     renameTo(journalFileTmp, journalFile, false);
     journalFileBackup.delete();
 
-    journalWriter = new BufferedWriter(
-        new OutputStreamWriter(new FileOutputStream(journalFile, true), Util.US_ASCII));
+    journalWriter = newJournalWriter();
+    redundantOpCount.set(0);
+  }
+
+  private JournalWriter newJournalWriter() throws IOException {
+    return new JournalWriter(new BufferedWriter(
+        new OutputStreamWriter(new FileOutputStream(journalFile, true), Util.US_ASCII)),
+        journalExecutorService);
+  }
+
+  /** Returns the entries from the least to the most recently used. */
+  private List<Entry> getEntriesByAccessOrder() {
+    List<Entry> entries = new ArrayList<Entry>(lruEntries.values());
+    Collections.sort(entries, ACCESS_ORDER);
+    return entries;
+  }
+
+  private static final Comparator<Entry> ACCESS_ORDER = new Comparator<Entry>() {
+    public int compare(Entry a, Entry b) {
+      return a.accessOrder < b.accessOrder ? -1 : (a.accessOrder == b.accessOrder ? 0 : 1);
+    }
+  };
+
+  private ReentrantLock getStripe(String key) {
+    int hash = key.hashCode();
+    hash ^= (hash >>> 20) ^ (hash >>> 12);
+    hash ^= (hash >>> 7) ^ (hash >>> 4);
+    return stripes[(hash & Integer.MAX_VALUE) % stripes.length];
+  }
+
+  private void lockAllStripes() {
+    for (ReentrantLock stripe : stripes) {
+      stripe.lock();
+    }
+  }
+
+  private void unlockAllStripes() {
+    for (int i = stripes.length - 1; i >= 0; i--) {
+      stripes[i].unlock();
+    }
   }
 
   private static void deleteIfExists(File file) throws IOException {
@@ -401,17 +517,64 @@ public final class DiskLruCache implements Closeable {
    * exist is not currently readable. If a value is returned, it is moved to
    * the head of the LRU queue.
    */
-  public synchronized Snapshot get(String key) throws IOException {
+  public Snapshot get(String key) throws IOException {
     checkNotClosed();
     validateKey(key);
     Entry entry = lruEntries.get(key);
     if (entry == null) {
       return null;
     }
+    entry.accessOrder = nextAccessOrder.getAndIncrement();
+
+    // Read without locking, unless an edit is being published or the entry
+    // removed at the same time.
+    Snapshot snapshot = null;
+    int version = entry.version;
+    boolean consistent = false;
+    if ((version & 1) == 0) {
+      snapshot = openSnapshot(entry);
+      consistent = entry.version == version;
+    }
+    if (!consistent) {
+      if (snapshot != null) {
+        snapshot.close();
+      }
+      ReentrantLock stripe = getStripe(key);
+      stripe.lock();
+      try {
+        entry = lruEntries.get(key);
+        snapshot = entry != null ? openSnapshot(entry) : null;
+      } finally {
+        stripe.unlock();
+      }
+    }
+    if (snapshot == null) {
+      return null;
+    }
+
+    redundantOpCount.incrementAndGet();
+    JournalWriter journalWriter = this.journalWriter;
+    if (journalWriter != null) {
+      journalWriter.append(READ + ' ' + key + '\n', false);
+    }
+    if (journalRebuildRequired()) {
+      executorService.submit(cleanupCallable);
+    }
+
+    return snapshot;
+  }
 
+  /**
+   * Opens all streams of {@code entry}, or returns null if it isn't readable.
+   * Unless the caller holds the entry's stripe lock, the snapshot is only
+   * valid if the entry's version didn't change meanwhile.
+   */
+  private Snapshot openSnapshot(Entry entry) {
     if (!entry.readable) {
       return null;
     }
+    long sequenceNumber = entry.sequenceNumber;
+    long[] lengths = entry.lengths.clone();
 
     // Open all streams eagerly to guarantee that we see a single published
     // snapshot. If we opened streams lazily then the streams could come
@@ -422,7 +585,7 @@ public final class DiskLruCache implements Closeable {
         ins[i] = new FileInputStream(entry.getCleanFile(i));
       }
     } catch (FileNotFoundException e) {
-      // A file must have been deleted manually!
+      // A file must have been deleted manually, or the entry removed!
       for (int i = 0; i < valueCount; i++) {
         if (ins[i] != null) {
           Util.closeQuietly(ins[i]);
@@ -433,13 +596,7 @@ public final class DiskLruCache implements Closeable {
       return null;
     }
 
-    redundantOpCount++;
-    journalWriter.append(READ + ' ' + key + '\n');
-    if (journalRebuildRequired()) {
-      executorService.submit(cleanupCallable);
-    }
-
-    return new Snapshot(key, entry.sequenceNumber, ins, entry.lengths);
+    return new Snapshot(entry.key, sequenceNumber, ins, lengths);
   }
 
   /**
@@ -450,28 +607,40 @@ public final class DiskLruCache implements Closeable {
     return edit(key, ANY_SEQUENCE_NUMBER);
   }
 
-  private synchronized Editor edit(String key, long expectedSequenceNumber) throws IOException {
-    checkNotClosed();
-    validateKey(key);
-    Entry entry = lruEntries.get(key);
-    if (expectedSequenceNumber != ANY_SEQUENCE_NUMBER && (entry == null
-        || entry.sequenceNumber != expectedSequenceNumber)) {
-      return null; // Snapshot is stale.
-    }
-    if (entry == null) {
-      entry = new Entry(key);
-      lruEntries.put(key, entry);
-    } else if (entry.currentEditor != null) {
-      return null; // Another edit is in progress.
-    }
+  private Editor edit(String key, long expectedSequenceNumber) throws IOException {
+    ReentrantLock stripe = getStripe(key);
+    stripe.lock();
+    try {
+      checkNotClosed();
+      validateKey(key);
+      Entry entry = lruEntries.get(key);
+      if (entry != null) {
+        entry.accessOrder = nextAccessOrder.getAndIncrement();
+      }
+      if (expectedSequenceNumber != ANY_SEQUENCE_NUMBER && (entry == null
+          || entry.sequenceNumber != expectedSequenceNumber)) {
+        return null; // Snapshot is stale.
+      }
+      if (entry == null) {
+        entry = new Entry(key);
+        entry.accessOrder = nextAccessOrder.getAndIncrement();
+        lruEntries.put(key, entry);
+      } else if (entry.currentEditor != null) {
+        return null; // Another edit is in progress.
+      }
 
-    Editor editor = new Editor(entry);
-    entry.currentEditor = editor;
+      Editor editor = new Editor(entry);
+      entry.currentEditor = editor;
 
-    // Flush the journal before creating files to prevent file leaks.
-    journalWriter.write(DIRTY + ' ' + key + '\n');
-    journalWriter.flush();
-    return editor;
+      // Flush the journal before creating files to prevent file leaks. When
+      // the journal is written in the background, the editor waits for the
+      // line before creating its first file.
+      editor.journalWriter = journalWriter;
+      editor.dirtyTicket = journalWriter.append(DIRTY + ' ' + key + '\n', true);
+      return editor;
+    } finally {
+      stripe.unlock();
+    }
   }
 
   /** Returns the directory where this cache stores its data. */
@@ -483,7 +652,7 @@ public final class DiskLruCache implements Closeable {
    * Returns the maximum number of bytes that this cache should use to store
    * its data.
    */
-  public synchronized long getMaxSize() {
+  public long getMaxSize() {
     return maxSize;
   }
 
@@ -491,7 +660,7 @@ public final class DiskLruCache implements Closeable {
    * Changes the maximum number of bytes the cache can store and queues a job
    * to trim the existing store, if necessary.
    */
-  public synchronized void setMaxSize(long maxSize) {
+  public void setMaxSize(long maxSize) {
     this.maxSize = maxSize;
     executorService.submit(cleanupCallable);
   }
@@ -501,61 +670,73 @@ public final class DiskLruCache implements Closeable {
    * this cache. This may be greater than the max size if a background
    * deletion is pending.
    */
-  public synchronized long size() {
-    return size;
+  public long size() {
+    return size.get();
   }
 
-  private synchronized void completeEdit(Editor editor, boolean success) throws IOException {
+  private void completeEdit(Editor editor, boolean success) throws IOException {
     Entry entry = editor.entry;
-    if (entry.currentEditor != editor) {
-      throw new IllegalStateException();
-    }
+    ReentrantLock stripe = getStripe(entry.key);
+    stripe.lock();
+    try {
+      if (entry.currentEditor != editor) {
+        throw new IllegalStateException();
+      }
 
-    // If this edit is creating the entry for the first time, every index must have a value.
-    if (success && !entry.readable) {
-      for (int i = 0; i < valueCount; i++) {
-        if (!editor.written[i]) {
-          editor.abort();
-          throw new IllegalStateException("Newly created entry didn't create value for index " + i);
-        }
-        if (!entry.getDirtyFile(i).exists()) {
-          editor.abort();
-          return;
+      // If this edit is creating the entry for the first time, every index must have a value.
+      if (success && !entry.readable) {
+        for (int i = 0; i < valueCount; i++) {
+          if (!editor.written[i]) {
+            editor.abort();
+            throw new IllegalStateException("Newly created entry didn't create value for index "
+                + i);
+          }
+          if (!entry.getDirtyFile(i).exists()) {
+            editor.abort();
+            return;
+          }
         }
       }
-    }
 
-    for (int i = 0; i < valueCount; i++) {
-      File dirty = entry.getDirtyFile(i);
       if (success) {
-        if (dirty.exists()) {
-          File clean = entry.getCleanFile(i);
-          dirty.renameTo(clean);
-          long oldLength = entry.lengths[i];
-          long newLength = clean.length();
-          entry.lengths[i] = newLength;
-          size = size - oldLength + newLength;
+        entry.version++; // Readers retry under the lock until the edit is published.
+      }
+      for (int i = 0; i < valueCount; i++) {
+        File dirty = entry.getDirtyFile(i);
+        if (success) {
+          if (dirty.exists()) {
+            File clean = entry.getCleanFile(i);
+            dirty.renameTo(clean);
+            long oldLength = entry.lengths[i];
+            long newLength = clean.length();
+            entry.lengths[i] = newLength;
+            size.addAndGet(newLength - oldLength);
+          }
+        } else {
+          deleteIfExists(dirty);
         }
-      } else {
-        deleteIfExists(dirty);
       }
-    }
 
-    redundantOpCount++;
-    entry.currentEditor = null;
-    if (entry.readable | success) {
-      entry.readable = true;
-      journalWriter.write(CLEAN + ' ' + entry.key + entry.getLengths() + '\n');
+      redundantOpCount.incrementAndGet();
+      entry.currentEditor = null;
+      if (entry.readable | success) {
+        if (success) {
+          entry.sequenceNumber = nextSequenceNumber.getAndIncrement();
+        }
+        entry.readable = true;
+        journalWriter.append(CLEAN + ' ' + entry.key + entry.getLengths() + '\n', true);
+      } else {
+        lruEntries.remove(entry.key);
+        journalWriter.append(REMOVE + ' ' + entry.key + '\n', true);
+      }
       if (success) {
-        entry.sequenceNumber = nextSequenceNumber++;
+        entry.version++;
       }
-    } else {
-      lruEntries.remove(entry.key);
-      journalWriter.write(REMOVE + ' ' + entry.key + '\n');
+    } finally {
+      stripe.unlock();
     }
-    journalWriter.flush();
 
-    if (size > maxSize || journalRebuildRequired()) {
+    if (size.get() > maxSize || journalRebuildRequired()) {
       executorService.submit(cleanupCallable);
     }
   }
@@ -566,6 +747,7 @@ public final class DiskLruCache implements Closeable {
    */
   private boolean journalRebuildRequired() {
     final int redundantOpCompactThreshold = 2000;
+    int redundantOpCount = this.redundantOpCount.get();
     return redundantOpCount >= redundantOpCompactThreshold //
         && redundantOpCount >= lruEntries.size();
   }
@@ -576,36 +758,57 @@ public final class DiskLruCache implements Closeable {
    *
    * @return true if an entry was removed.
    */
-  public synchronized boolean remove(String key) throws IOException {
+  public boolean remove(String key) throws IOException {
     checkNotClosed();
     validateKey(key);
+    ReentrantLock stripe = getStripe(key);
+    stripe.lock();
+    try {
+      checkNotClosed();
+      if (!removeEntry(key)) {
+        return false;
+      }
+    } finally {
+      stripe.unlock();
+    }
+
+    if (journalRebuildRequired()) {
+      executorService.submit(cleanupCallable);
+    }
+
+    return true;
+  }
+
+  /** Removes the entry for {@code key}. The caller must hold the key's stripe lock. */
+  private boolean removeEntry(String key) throws IOException {
     Entry entry = lruEntries.get(key);
     if (entry == null || entry.currentEditor != null) {
       return false;
     }
 
-    for (int i = 0; i < valueCount; i++) {
-      File file = entry.getCleanFile(i);
-      if (file.exists() && !file.delete()) {
-        throw new IOException("failed to delete " + file);
+    entry.version++;
+    try {
+      for (int i = 0; i < valueCount; i++) {
+        File file = entry.getCleanFile(i);
+        if (file.exists() && !file.delete()) {
+          throw new IOException("failed to delete " + file);
+        }
+        size.addAndGet(-entry.lengths[i]);
+        entry.lengths[i] = 0;
       }
-      size -= entry.lengths[i];
-      entry.lengths[i] = 0;
+      entry.readable = false;
+    } finally {
+      entry.version++;
     }
 
-    redundantOpCount++;
-    journalWriter.append(REMOVE + ' ' + key + '\n');
+    redundantOpCount.incrementAndGet();
+    journalWriter.append(REMOVE + ' ' + key + '\n', false);
     lruEntries.remove(key);
-
-    if (journalRebuildRequired()) {
-      executorService.submit(cleanupCallable);
-    }
-
     return true;
   }
 
   /** Returns true if this cache has been closed. */
-  public synchronized boolean isClosed() {
+  public boolean isClosed() {
     return journalWriter == null;
   }
 
@@ -616,31 +819,56 @@ public final class DiskLruCache implements Closeable {
   }
 
   /** Force buffered operations to the filesystem. */
-  public synchronized void flush() throws IOException {
+  public void flush() throws IOException {
     checkNotClosed();
     trimToSize();
-    journalWriter.flush();
+    JournalWriter journalWriter = this.journalWriter;
+    if (journalWriter != null) {
+      journalWriter.flush();
+    }
   }
 
   /** Closes this cache. Stored values will remain on the filesystem. */
-  public synchronized void close() throws IOException {
-    if (journalWriter == null) {
-      return; // Already closed.
-    }
-    for (Entry entry : new ArrayList<Entry>(lruEntries.values())) {
-      if (entry.currentEditor != null) {
-        entry.currentEditor.abort();
+  public void close() throws IOException {
+    lockAllStripes();
+    try {
+      if (journalWriter == null) {
+        return; // Already closed.
       }
+      for (Entry entry : new ArrayList<Entry>(lruEntries.values())) {
+        if (entry.currentEditor != null) {
+          entry.currentEditor.abort();
+        }
+      }
+      trimToSize();
+      journalWriter.close();
+      journalWriter = null;
+    } finally {
+      unlockAllStripes();
     }
-    trimToSize();
-    journalWriter.close();
-    journalWriter = null;
   }
 
+  /** Evicts the least recently used entries until the cache fits in its max size. */
   private void trimToSize() throws IOException {
-    while (size > maxSize) {
-      Map.Entry<String, Entry> toEvict = lruEntries.entrySet().iterator().next();
-      remove(toEvict.getKey());
+    if (size.get() <= maxSize) {
+      return;
+    }
+    for (Entry entry : getEntriesByAccessOrder()) {
+      if (size.get() <= maxSize) {
+        return;
+      }
+      ReentrantLock stripe = getStripe(entry.key);
+      stripe.lock();
+      try {
+        if (journalWriter == null) {
+          return; // Closed.
+        }
+        if (lruEntries.get(entry.key) == entry) {
+          removeEntry(entry.key);
+        }
+      } finally {
+        stripe.unlock();
+      }
     }
   }
 
@@ -723,6 +951,9 @@ public final class DiskLruCache implements Closeable {
     private final boolean[] written;
     private boolean hasErrors;
     private boolean committed;
+    /** The journal that the DIRTY line was appended to, and the line's ticket. */
+    private JournalWriter journalWriter;
+    private long dirtyTicket;
 
     private Editor(Entry entry) {
       this.entry = entry;
@@ -734,7 +965,9 @@ public final class DiskLruCache implements Closeable {
      * or null if no value has been committed.
      */
     public InputStream newInputStream(int index) throws IOException {
-      synchronized (DiskLruCache.this) {
+      ReentrantLock stripe = getStripe(entry.key);
+      stripe.lock();
+      try {
         if (entry.currentEditor != this) {
           throw new IllegalStateException();
         }
@@ -746,6 +979,8 @@ public final class DiskLruCache implements Closeable {
         } catch (FileNotFoundException e) {
           return null;
         }
+      } finally {
+        stripe.unlock();
       }
     }
 
@@ -766,7 +1001,11 @@ public final class DiskLruCache implements Closeable {
      * IOExceptions.
      */
     public OutputStream newOutputStream(int index) throws IOException {
-      synchronized (DiskLruCache.this) {
+      // The DIRTY line must be in the journal before the file is created.
+      journalWriter.awaitFlushed(dirtyTicket);
+      ReentrantLock stripe = getStripe(entry.key);
+      stripe.lock();
+      try {
         if (entry.currentEditor != this) {
           throw new IllegalStateException();
         }
@@ -788,6 +1027,8 @@ public final class DiskLruCache implements Closeable {
           }
         }
         return new FaultHidingOutputStream(outputStream);
+      } finally {
+        stripe.unlock();
       }
     }
 
@@ -878,14 +1119,24 @@ public final class DiskLruCache implements Closeable {
     /** Lengths of this entry's files. */
     private final long[] lengths;
 
-    /** True if this entry has ever been published. */
-    private boolean readable;
+    /** True if this entry has ever been published, and not removed since. */
+    private volatile boolean readable;
 
     /** The ongoing edit or null if this entry is not being edited. */
     private Editor currentEditor;
 
     /** The sequence number of the most recently committed edit to this entry. */
-    private long sequenceNumber;
+    private volatile long sequenceNumber;
+
+    /**
+     * Incremented before and after this entry's clean files change, so that
+     * it is odd while they are changing. Readers that don't hold the entry's
+     * stripe lock use it to detect that they may have seen a mix of values.
+     */
+    private volatile int version;
+
+    /** When this entry was last used, from {@link #nextAccessOrder}. */
+    private volatile long accessOrder;
 
     private Entry(String key) {
       this.key = key;
@@ -0,0 +1,186 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jakewharton.disklrucache;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+/**
+ * Appends lines to a cache journal, from any number of threads.
+ *
+ * <p>Without an executor, lines are written on the calling thread, as the
+ * cache always did. With an executor, {@link #append} only queues the line:
+ * a background task writes every line queued so far and flushes them with a
+ * single flush, so callers neither wait for the disk nor contend for the
+ * writer. Callers that need a line to be on disk before going on, such as an
+ * editor about to create its files, call {@link #awaitFlushed}, which writes
+ * and flushes the queued lines of every thread at once unless another thread
+ * already did.
+ *
+ * <p>Each appended line is numbered, starting from 1. A line's number is the
+ * ticket that {@link #awaitFlushed} waits for.
+ */
+final class JournalWriter implements Closeable {
+  private final Writer writer;
+  private final Executor executor;
+
+  /** Held while writing to {@link #writer}, so that batches are written in order. */
+  private final Object writeLock = new Object();
+
+  // Guarded by this.
+  private List<String> pending = new ArrayList<String>();
+  private long appendedCount;
+  private boolean writeScheduled;
+  private boolean closed;
+  private IOException error;
+
+  // Guarded by writeLock.
+  private long flushedCount;
+
+  private final Runnable writeTask = new Runnable() {
+    public void run() {
+      try {
+        writePending(true);
+      } catch (IOException ignored) {
+        // Kept in error and thrown to the next caller.
+      }
+    }
+  };
+
+  /**
+   * @param executor the executor on which to write batches of lines, or null
+   *     to write each line on the thread appending it.
+   */
+  JournalWriter(Writer writer, Executor executor) {
+    this.writer = writer;
+    this.executor = executor;
+  }
+
+  /**
+   * Appends {@code line}, which must end with a newline.
+   *
+   * <p>Lines appended after {@link #close} are dropped: the journal has
+   * either been closed with the cache or replaced by a rebuilt journal that
+   * already accounts for them.
+   *
+   * @param flush whether to flush the line right away when writing on the
+   *     calling thread. Background writes always flush.
+   * @return the line's ticket.
+   */
+  long append(String line, boolean flush) throws IOException {
+    long ticket;
+    synchronized (this) {
+      checkNoError();
+      if (closed) {
+        return appendedCount;
+      }
+      pending.add(line);
+      ticket = ++appendedCount;
+      if (executor != null) {
+        if (!writeScheduled) {
+          writeScheduled = true;
+          executor.execute(writeTask);
+        }
+        return ticket;
+      }
+    }
+    writePending(flush);
+    return ticket;
+  }
+
+  /** Blocks until the line with {@code ticket} and all lines before it are flushed. */
+  void awaitFlushed(long ticket) throws IOException {
+    synchronized (writeLock) {
+      synchronized (this) {
+        checkNoError();
+        if (flushedCount >= ticket || closed) {
+          return; // Closing flushed every line.
+        }
+      }
+      writePending(true);
+    }
+  }
+
+  /** Blocks until every line appended so far is flushed. */
+  void flush() throws IOException {
+    long ticket;
+    synchronized (this) {
+      ticket = appendedCount;
+    }
+    awaitFlushed(ticket);
+  }
+
+  /** Writes and flushes the lines still queued, then closes the journal. */
+  public void close() throws IOException {
+    synchronized (writeLock) {
+      synchronized (this) {
+        if (closed) {
+          return;
+        }
+        closed = true;
+      }
+      try {
+        writePending(true);
+      } finally {
+        writer.close();
+      }
+    }
+  }
+
+  /** Writes the queued lines in one batch, and flushes them if {@code flush} is true. */
+  private void writePending(boolean flush) throws IOException {
+    synchronized (writeLock) {
+      List<String> lines;
+      long lastTicket;
+      synchronized (this) {
+        lines = pending;
+        lastTicket = appendedCount;
+        pending = new ArrayList<String>();
+        writeScheduled = false;
+      }
+      try {
+        for (String line : lines) {
+          writer.write(line);
+        }
+        if (flush && flushedCount < lastTicket) {
+          writer.flush();
+          flushedCount = lastTicket;
+        }
+      } catch (IOException e) {
+        if (executor != null) {
+          synchronized (this) {
+            error = e;
+          }
+        }
+        throw e;
+      }
+    }
+  }
+
+  /** Throws the error of a failed background write, if any. The caller must hold this. */
+  private void checkNoError() throws IOException {
+    if (error != null) {
+      IOException e = new IOException("journal write failed");
+      e.initCause(error);
+      throw e;
+    }
+  }
+}
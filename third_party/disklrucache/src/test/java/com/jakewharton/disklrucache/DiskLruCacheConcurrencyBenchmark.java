@@ -0,0 +1,142 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jakewharton.disklrucache;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.apache.commons.io.FileUtils;
+
+/**
+ * Measures mixed reads and writes from several threads, with a single lock
+ * and the journal written by each caller, and with striped locks and the
+ * journal written in the background. It is not part of the test suite, as its
+ * results depend on the machine; run {@link #main} to compare them.
+ */
+public final class DiskLruCacheConcurrencyBenchmark {
+  private static final int APP_VERSION = 100;
+  private static final int[] CONCURRENCY_LEVELS = { 1, 8 };
+  private static final int[] THREAD_COUNTS = { 1, 2, 4, 8 };
+  private static final int KEY_COUNT = 64;
+  private static final int OPS_PER_THREAD = 1000;
+
+  private final File cacheDir;
+  private DiskLruCache cache;
+
+  public DiskLruCacheConcurrencyBenchmark(File cacheDir) {
+    this.cacheDir = cacheDir;
+  }
+
+  public static void main(String[] args) throws Exception {
+    File cacheDir =
+        new File(System.getProperty("java.io.tmpdir"), "DiskLruCacheConcurrencyBenchmark");
+    Map<String, Long> results = new DiskLruCacheConcurrencyBenchmark(cacheDir).run();
+    for (Map.Entry<String, Long> result : results.entrySet()) {
+      System.out.println(result.getKey() + ": " + result.getValue() + " ops/sec");
+    }
+  }
+
+  /**
+   * Returns the ops per second of each concurrency level and thread count, after
+   * a warm up.
+   */
+  public Map<String, Long> run() throws Exception {
+    Map<String, Long> results = new LinkedHashMap<String, Long>();
+    try {
+      runMixedLoad(CONCURRENCY_LEVELS[CONCURRENCY_LEVELS.length - 1],
+          THREAD_COUNTS[THREAD_COUNTS.length - 1]); // Warm up.
+      for (int concurrencyLevel : CONCURRENCY_LEVELS) {
+        for (int threads : THREAD_COUNTS) {
+          results.put("concurrencyLevel " + concurrencyLevel + ", " + threads + " threads",
+              runMixedLoad(concurrencyLevel, threads));
+        }
+      }
+    } finally {
+      FileUtils.deleteDirectory(cacheDir);
+    }
+    return results;
+  }
+
+  /**
+   * Returns the ops per second of {@code threads} threads doing 9 reads for each
+   * write, on a new cache.
+   */
+  private long runMixedLoad(int concurrencyLevel, int threads) throws Exception {
+    FileUtils.deleteDirectory(cacheDir);
+    cache = DiskLruCache.open(cacheDir, APP_VERSION, 2, Integer.MAX_VALUE, concurrencyLevel);
+    try {
+      for (int k = 0; k < KEY_COUNT; k++) {
+        set("k" + k, "value", "value");
+      }
+      final CountDownLatch start = new CountDownLatch(1);
+      ExecutorService executor = Executors.newFixedThreadPool(threads);
+      try {
+        List<Future<Void>> futures = new ArrayList<Future<Void>>();
+        for (int t = 0; t < threads; t++) {
+          final int seed = t;
+          futures.add(executor.submit(new Callable<Void>() {
+            public Void call() throws Exception {
+              start.await();
+              for (int i = 0; i < OPS_PER_THREAD; i++) {
+                String key = "k" + ((i * 31 + seed * 17) % KEY_COUNT);
+                if (i % 10 == 0) {
+                  DiskLruCache.Editor editor = cache.edit(key);
+                  if (editor != null) {
+                    editor.set(0, "value" + i);
+                    editor.set(1, "value" + i);
+                    editor.commit();
+                  }
+                } else {
+                  DiskLruCache.Snapshot snapshot = cache.get(key);
+                  if (snapshot != null) {
+                    snapshot.close();
+                  }
+                }
+              }
+              return null;
+            }
+          }));
+        }
+        long startNanos = System.nanoTime();
+        start.countDown();
+        for (Future<Void> future : futures) {
+          future.get();
+        }
+        long elapsedNanos = System.nanoTime() - startNanos;
+        return threads * OPS_PER_THREAD * 1000000000L / elapsedNanos;
+      } finally {
+        executor.shutdownNow();
+      }
+    } finally {
+      cache.close();
+    }
+  }
+
+  private void set(String key, String value0, String value1) throws Exception {
+    DiskLruCache.Editor editor = cache.edit(key);
+    editor.set(0, value0);
+    editor.set(1, value1);
+    editor.commit();
+  }
+}
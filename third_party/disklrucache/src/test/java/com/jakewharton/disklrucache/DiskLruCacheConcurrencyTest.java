@@ -0,0 +1,159 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.jakewharton.disklrucache;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static com.jakewharton.disklrucache.DiskLruCache.JOURNAL_FILE;
+import static org.fest.assertions.api.Assertions.assertThat;
+
+/** Tests a cache opened with a concurrency level greater than 1. */
+public final class DiskLruCacheConcurrencyTest {
+  private static final int APP_VERSION = 100;
+  private static final int CONCURRENCY_LEVEL = 8;
+
+  private File cacheDir;
+  private DiskLruCache cache;
+
+  @Before public void setUp() throws Exception {
+    cacheDir = new File(System.getProperty("java.io.tmpdir"), "DiskLruCacheConcurrencyTest");
+    FileUtils.deleteDirectory(cacheDir);
+    cache = open(CONCURRENCY_LEVEL);
+  }
+
+  @After public void tearDown() throws Exception {
+    cache.close();
+    FileUtils.deleteDirectory(cacheDir);
+  }
+
+  @Test public void journalWrittenInBackgroundSurvivesReopen() throws Exception {
+    set("k1", "A", "B");
+    set("k2", "C", "D");
+    assertThat(cache.remove("k1")).isTrue();
+    cache.flush();
+    List<String> lines = FileUtils.readLines(new File(cacheDir, JOURNAL_FILE), "US-ASCII");
+    assertThat(lines.subList(5, lines.size())).containsExactly(
+        "DIRTY k1", "CLEAN k1 1 1", "DIRTY k2", "CLEAN k2 1 1", "REMOVE k1");
+
+    cache.close();
+    cache = open(CONCURRENCY_LEVEL);
+    assertThat(cache.get("k1")).isNull();
+    assertValue("k2", "C", "D");
+  }
+
+  @Test public void evictsLeastRecentlyUsedAcrossStripes() throws Exception {
+    cache.close();
+    cache = DiskLruCache.open(cacheDir, APP_VERSION, 2, 10, CONCURRENCY_LEVEL);
+    set("a", "a", "a");
+    set("b", "b", "b");
+    set("c", "c", "c");
+    cache.get("a").close();
+    set("d", "d", "d");
+    set("e", "e", "e");
+    set("f", "f", "f");
+    cache.flush();
+    assertThat(cache.size()).isEqualTo(10);
+    assertThat(cache.get("b")).isNull();
+    assertValue("a", "a", "a");
+    assertValue("f", "f", "f");
+  }
+
+  @Test public void concurrentReadersNeverSeeAMixOfValues() throws Exception {
+    final int keyCount = 4;
+    for (int k = 0; k < keyCount; k++) {
+      set("k" + k, "0", "0");
+    }
+    final AtomicBoolean done = new AtomicBoolean();
+    ExecutorService executor = Executors.newFixedThreadPool(6);
+    try {
+      List<Future<Integer>> readers = new ArrayList<Future<Integer>>();
+      for (int t = 0; t < 4; t++) {
+        readers.add(executor.submit(new Callable<Integer>() {
+          public Integer call() throws Exception {
+            int reads = 0;
+            while (!done.get()) {
+              DiskLruCache.Snapshot snapshot = cache.get("k" + (reads % keyCount));
+              assertThat(snapshot).isNotNull();
+              String value = snapshot.getString(0);
+              assertThat(snapshot.getString(1)).isEqualTo(value);
+              assertThat(snapshot.getLength(0)).isEqualTo(value.length());
+              snapshot.close();
+              reads++;
+            }
+            return reads;
+          }
+        }));
+      }
+      List<Future<Integer>> writers = new ArrayList<Future<Integer>>();
+      for (int t = 0; t < 2; t++) {
+        final int writer = t;
+        writers.add(executor.submit(new Callable<Integer>() {
+          public Integer call() throws Exception {
+            for (int i = 1; i <= 500; i++) {
+              String value = Integer.toString(i * 10 + writer);
+              DiskLruCache.Editor editor = cache.edit("k" + (i % keyCount));
+              if (editor != null) {
+                editor.set(0, value);
+                editor.set(1, value);
+                editor.commit();
+              }
+            }
+            return 0;
+          }
+        }));
+      }
+      for (Future<Integer> writer : writers) {
+        writer.get();
+      }
+      done.set(true);
+      for (Future<Integer> reader : readers) {
+        assertThat(reader.get()).isGreaterThan(0);
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  private DiskLruCache open(int concurrencyLevel) throws Exception {
+    return DiskLruCache.open(cacheDir, APP_VERSION, 2, Integer.MAX_VALUE, concurrencyLevel);
+  }
+
+  private void set(String key, String value0, String value1) throws Exception {
+    DiskLruCache.Editor editor = cache.edit(key);
+    editor.set(0, value0);
+    editor.set(1, value1);
+    editor.commit();
+  }
+
+  private void assertValue(String key, String value0, String value1) throws Exception {
+    DiskLruCache.Snapshot snapshot = cache.get(key);
+    assertThat(snapshot.getString(0)).isEqualTo(value0);
+    assertThat(snapshot.getString(1)).isEqualTo(value1);
+    snapshot.close();
+  }
+}
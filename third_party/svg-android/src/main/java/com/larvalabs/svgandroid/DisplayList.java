@@ -0,0 +1,359 @@
+package com.larvalabs.svgandroid;
+
+import android.graphics.Canvas;
+import android.graphics.Matrix;
+import android.graphics.Paint;
+import android.graphics.Path;
+import android.graphics.RectF;
+
+import java.util.ArrayList;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license agreements. See the NOTICE
+ * file distributed with this work for additional information regarding copyright ownership. The ASF licenses this file
+ * to You under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0 Unless required by
+ * applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+
+/**
+ * The drawing operations of a parsed SVG, which can be replayed onto any {@link Canvas}.
+ * <p/>
+ * Unlike a {@link android.graphics.Picture}, a display list is immutable once recorded: every path, paint, rectangle
+ * and matrix it holds is a private copy that is only ever read while replaying. Any number of threads can therefore
+ * replay the same display list concurrently, each onto its own canvas, without locking.
+ */
+public class DisplayList {
+
+	private final Op[] ops;
+	private final int width;
+	private final int height;
+
+	private DisplayList(Op[] ops, int width, int height) {
+		this.ops = ops;
+		this.width = width;
+		this.height = height;
+	}
+
+	/**
+	 * @return the width of the drawing, as declared by the SVG.
+	 */
+	public int getWidth() {
+		return width;
+	}
+
+	/**
+	 * @return the height of the drawing, as declared by the SVG.
+	 */
+	public int getHeight() {
+		return height;
+	}
+
+	/**
+	 * @return the number of recorded operations.
+	 */
+	public int size() {
+		return ops.length;
+	}
+
+	/**
+	 * Replays the drawing onto a canvas, relative to the canvas' current matrix and clip. The canvas' matrix and clip
+	 * are restored once done.
+	 */
+	public void draw(Canvas canvas) {
+		ReplayState state = new ReplayState(canvas);
+		int saveCount = canvas.save();
+		try {
+			for (Op op : ops) {
+				op.draw(canvas, state);
+			}
+		} finally {
+			canvas.restoreToCount(saveCount);
+		}
+	}
+
+	/**
+	 * State of a single replay.
+	 */
+	private static class ReplayState {
+		/** Save count of the canvas for a recorded save count of 1. */
+		final int baseSaveCount;
+		/** Matrix of the canvas before replaying, to which recorded matrices are relative. */
+		final Matrix baseMatrix;
+		final Matrix matrix = new Matrix();
+
+		ReplayState(Canvas canvas) {
+			baseSaveCount = canvas.getSaveCount() + 1;
+			baseMatrix = canvas.getMatrix();
+		}
+	}
+
+	private interface Op {
+		void draw(Canvas canvas, ReplayState state);
+	}
+
+	/**
+	 * Records a display list. Mirrors the subset of {@link Canvas} used by the parser; everything passed in is copied,
+	 * so callers may keep reusing their scratch objects.
+	 */
+	static class Recorder {
+
+		private final ArrayList<Op> ops = new ArrayList<Op>();
+		private final int width;
+		private final int height;
+		private int saveCount = 1;
+
+		// Last snapshots of the paints passed in, so that runs of elements drawn with the same paint share one copy.
+		private Paint lastPaint;
+		private Paint lastPaintSnapshot;
+
+		Recorder(int width, int height) {
+			this.width = width;
+			this.height = height;
+		}
+
+		DisplayList build() {
+			return new DisplayList(ops.toArray(new Op[ops.size()]), width, height);
+		}
+
+		int save() {
+			ops.add(SAVE);
+			return saveCount++;
+		}
+
+		void restore() {
+			if (saveCount > 1) {
+				saveCount--;
+				ops.add(RESTORE);
+			}
+		}
+
+		void restoreToCount(final int count) {
+			if (count < 1 || count >= saveCount) {
+				return;
+			}
+			saveCount = count;
+			ops.add(new Op() {
+				@Override
+				public void draw(Canvas canvas, ReplayState state) {
+					canvas.restoreToCount(state.baseSaveCount + count - 1);
+				}
+			});
+		}
+
+		void translate(final float dx, final float dy) {
+			ops.add(new Op() {
+				@Override
+				public void draw(Canvas canvas, ReplayState state) {
+					canvas.translate(dx, dy);
+				}
+			});
+		}
+
+		void concat(Matrix matrix) {
+			final Matrix copy = new Matrix(matrix);
+			ops.add(new Op() {
+				@Override
+				public void draw(Canvas canvas, ReplayState state) {
+					canvas.concat(copy);
+				}
+			});
+		}
+
+		void setMatrix(Matrix matrix) {
+			final Matrix copy = matrix == null ? new Matrix() : new Matrix(matrix);
+			ops.add(new Op() {
+				@Override
+				public void draw(Canvas canvas, ReplayState state) {
+					// Recorded matrices are relative to the replaying canvas' own matrix.
+					state.matrix.set(state.baseMatrix);
+					state.matrix.preConcat(copy);
+					canvas.setMatrix(state.matrix);
+				}
+			});
+		}
+
+		void clipRect(float left, float top, float right, float bottom) {
+			final RectF rect = new RectF(left, top, right, bottom);
+			ops.add(new Op() {
+				@Override
+				public void draw(Canvas canvas, ReplayState state) {
+					canvas.clipRect(rect);
+				}
+			});
+		}
+
+		void drawRect(RectF rect, Paint paint) {
+			final RectF r = new RectF(rect);
+			final Paint p = snapshot(paint);
+			ops.add(new Op() {
+				@Override
+				public void draw(Canvas canvas, ReplayState state) {
+					canvas.drawRect(r, p);
+				}
+			});
+		}
+
+		void drawRoundRect(RectF rect, final float rx, final float ry, Paint paint) {
+			final RectF r = new RectF(rect);
+			final Paint p = snapshot(paint);
+			ops.add(new Op() {
+				@Override
+				public void draw(Canvas canvas, ReplayState state) {
+					canvas.drawRoundRect(r, rx, ry, p);
+				}
+			});
+		}
+
+		void drawOval(RectF rect, Paint paint) {
+			final RectF r = new RectF(rect);
+			final Paint p = snapshot(paint);
+			ops.add(new Op() {
+				@Override
+				public void draw(Canvas canvas, ReplayState state) {
+					canvas.drawOval(r, p);
+				}
+			});
+		}
+
+		void drawLine(final float x1, final float y1, final float x2, final float y2, Paint paint) {
+			final Paint p = snapshot(paint);
+			ops.add(new Op() {
+				@Override
+				public void draw(Canvas canvas, ReplayState state) {
+					canvas.drawLine(x1, y1, x2, y2, p);
+				}
+			});
+		}
+
+		/**
+		 * Records drawing a path. The path must not be modified afterwards.
+		 */
+		void drawPath(final Path path, Paint paint) {
+			final Paint p = snapshot(paint);
+			ops.add(new Op() {
+				@Override
+				public void draw(Canvas canvas, ReplayState state) {
+					canvas.drawPath(path, p);
+				}
+			});
+		}
+
+		void drawText(final String text, final float x, final float y, Paint paint) {
+			final Paint p = snapshot(paint);
+			ops.add(new Op() {
+				@Override
+				public void draw(Canvas canvas, ReplayState state) {
+					canvas.drawText(text, x, y, p);
+				}
+			});
+		}
+
+		/**
+		 * Returns an immutable copy of the paint, shared with the previous operation if the paint did not change.
+		 */
+		private Paint snapshot(Paint paint) {
+			if (paint != lastPaint || !samePaint(paint, lastPaintSnapshot)) {
+				lastPaint = paint;
+				lastPaintSnapshot = new Paint(paint);
+			}
+			return lastPaintSnapshot;
+		}
+
+		private static boolean samePaint(Paint a, Paint b) {
+			return a.getColor() == b.getColor()
+					&& a.getStyle() == b.getStyle()
+					&& a.getFlags() == b.getFlags()
+					&& a.getStrokeWidth() == b.getStrokeWidth()
+					&& a.getStrokeCap() == b.getStrokeCap()
+					&& a.getStrokeJoin() == b.getStrokeJoin()
+					&& a.getTextSize() == b.getTextSize()
+					&& a.getShader() == b.getShader()
+					&& a.getPathEffect() == b.getPathEffect()
+					&& a.getColorFilter() == b.getColorFilter();
+		}
+
+		/**
+		 * @return a recorder which records nothing, for parsing an SVG without drawing it.
+		 */
+		static Recorder discarding(int width, int height) {
+			return new DiscardingRecorder(width, height);
+		}
+
+		private static final Op SAVE = new Op() {
+			@Override
+			public void draw(Canvas canvas, ReplayState state) {
+				canvas.save();
+			}
+		};
+
+		private static final Op RESTORE = new Op() {
+			@Override
+			public void draw(Canvas canvas, ReplayState state) {
+				canvas.restore();
+			}
+		};
+	}
+
+	private static class DiscardingRecorder extends Recorder {
+
+		DiscardingRecorder(int width, int height) {
+			super(width, height);
+		}
+
+		@Override
+		int save() {
+			return 1;
+		}
+
+		@Override
+		void restore() {
+		}
+
+		@Override
+		void restoreToCount(int count) {
+		}
+
+		@Override
+		void translate(float dx, float dy) {
+		}
+
+		@Override
+		void concat(Matrix matrix) {
+		}
+
+		@Override
+		void setMatrix(Matrix matrix) {
+		}
+
+		@Override
+		void clipRect(float left, float top, float right, float bottom) {
+		}
+
+		@Override
+		void drawRect(RectF rect, Paint paint) {
+		}
+
+		@Override
+		void drawRoundRect(RectF rect, float rx, float ry, Paint paint) {
+		}
+
+		@Override
+		void drawOval(RectF rect, Paint paint) {
+		}
+
+		@Override
+		void drawLine(float x1, float y1, float x2, float y2, Paint paint) {
+		}
+
+		@Override
+		void drawPath(Path path, Paint paint) {
+		}
+
+		@Override
+		void drawText(String text, float x, float y, Paint paint) {
+		}
+	}
+}
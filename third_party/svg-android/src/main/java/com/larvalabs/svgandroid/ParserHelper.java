@@ -22,10 +22,17 @@ public class ParserHelper {
 	private int n;
 	
 	public ParserHelper(String str, int pos) {
+		reset(str, pos);
+	}
+
+	/**
+	 * Starts parsing another string, so that a single parser can be reused for every attribute of a document.
+	 */
+	public void reset(String str, int pos) {
 		this.s = str;
 		this.pos = pos;
 		n = str.length();
-		current = str.charAt(pos);
+		current = pos < n ? str.charAt(pos) : '\0';
 	}
 
 	private char read() {
@@ -65,6 +72,39 @@ public class ParserHelper {
 		}
 	}
 
+	/**
+	 * Skips whitespace and commas up to the next number.
+	 * 
+	 * @return false if there is no number at the new position, because the end of the string or another token (such
+	 *         as a path command or a closing parenthesis) was reached.
+	 */
+	public boolean skipToNumber() {
+		while (pos < n && (current == ',' || Character.isWhitespace(current))) {
+			advance();
+		}
+		if (pos >= n) {
+			return false;
+		}
+		switch (current) {
+		case '-':
+		case '+':
+		case '.':
+		case '0':
+		case '1':
+		case '2':
+		case '3':
+		case '4':
+		case '5':
+		case '6':
+		case '7':
+		case '8':
+		case '9':
+			return true;
+		default:
+			return false;
+		}
+	}
+
 	public void advance() {
 		current = read();
 	}
@@ -1,5 +1,6 @@
 package com.larvalabs.svgandroid;
 
+import android.graphics.Canvas;
 import android.graphics.Picture;
 import android.graphics.RectF;
 import android.graphics.drawable.Drawable;
@@ -22,9 +23,14 @@ import android.graphics.drawable.PictureDrawable;
 public class SVG {
 
 	/**
-	 * The parsed Picture object.
+	 * The parsed drawing operations.
 	 */
-	private final Picture picture;
+	private final DisplayList displayList;
+
+	/**
+	 * The display list recorded into a Picture, created when first needed.
+	 */
+	private Picture picture;
 
 	/**
 	 * These are the bounds for the SVG specified as a hidden "bounds" layer in the SVG.
@@ -42,11 +48,11 @@ public class SVG {
 	/**
 	 * Construct a new SVG.
 	 * 
-	 * @param picture the parsed picture object.
+	 * @param displayList the parsed drawing operations.
 	 * @param bounds the bounds computed from the "bounds" layer in the SVG.
 	 */
-	SVG(Picture picture, RectF bounds) {
-		this.picture = picture;
+	SVG(DisplayList displayList, RectF bounds) {
+		this.displayList = displayList;
 		this.bounds = bounds;
 	}
 
@@ -66,7 +72,7 @@ public class SVG {
 	 */
 	public PictureDrawable getDrawable() {
 		if (drawable == null) {
-			drawable = new PictureDrawable(picture);
+			drawable = new PictureDrawable(getPicture());
 		}
 		return drawable;
 		// return new PictureDrawable(picture) {
@@ -99,10 +105,26 @@ public class SVG {
 	 * 
 	 * @return the picture.
 	 */
-	public Picture getPicture() {
+	public synchronized Picture getPicture() {
+		if (picture == null) {
+			picture = new Picture();
+			Canvas canvas = picture.beginRecording(displayList.getWidth(), displayList.getHeight());
+			displayList.draw(canvas);
+			picture.endRecording();
+		}
 		return picture;
 	}
 
+	/**
+	 * Get the parsed SVG drawing operations. Unlike the {@link Picture}, the display list can be drawn by several
+	 * threads at once.
+	 * 
+	 * @return the display list.
+	 */
+	public DisplayList getDisplayList() {
+		return displayList;
+	}
+
 	/**
 	 * Gets the bounding rectangle for the SVG, if one was specified.
 	 * 
@@ -151,6 +151,23 @@ public class SVGBuilder {
 	 * @throws SVGParseException if there is an error while parsing.
 	 */
 	public SVG build() throws SVGParseException {
+		return parse(false);
+	}
+
+	/**
+	 * Loads, reads and parses the SVG (or SVGZ) without recording its drawing. Much cheaper than {@link #build()} when
+	 * only checking that the SVG is valid.
+	 * 
+	 * @throws SVGParseException if there is an error while parsing.
+	 */
+	public void validate() throws SVGParseException {
+		parse(true);
+	}
+
+	/**
+	 * @return the parsed SVG, or null if validating only.
+	 */
+	private SVG parse(boolean validateOnly) throws SVGParseException {
 		if (data == null) {
 			throw new IllegalStateException("SVG input not specified. Call one of the readFrom...() methods first.");
 		}
@@ -184,6 +201,10 @@ public class SVGBuilder {
 				throw new SVGParseException(ioe);
 			}
 
+			if (validateOnly) {
+				SVGParser.validate(new InputSource(data), handler);
+				return null;
+			}
 			final SVG svg = SVGParser.parse(new InputSource(data), handler);
 			return svg;
 
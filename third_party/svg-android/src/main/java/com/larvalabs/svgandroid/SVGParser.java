@@ -1,26 +1,23 @@
 package com.larvalabs.svgandroid;
 
-import android.graphics.Canvas;
 import android.graphics.Color;
 import android.graphics.DashPathEffect;
 import android.graphics.LinearGradient;
 import android.graphics.Matrix;
 import android.graphics.Paint;
 import android.graphics.Path;
-import android.graphics.Picture;
 import android.graphics.RadialGradient;
 import android.graphics.RectF;
 import android.graphics.Shader;
 import android.graphics.Shader.TileMode;
-import android.util.FloatMath;
 import android.util.Log;
 
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.StringTokenizer;
-import java.util.regex.Pattern;
 
+import javax.xml.parsers.ParserConfigurationException;
 import javax.xml.parsers.SAXParser;
 import javax.xml.parsers.SAXParserFactory;
 
@@ -57,16 +54,50 @@ public class SVGParser {
 	 * @param pathString the SVG path, see the specification <a href="http://www.w3.org/TR/SVG/paths.html">here</a>.
 	 */
 	public static Path parsePath(String pathString) {
-		return doPath(pathString);
+		return doPath(pathString, new Path(), new ParserHelper(pathString, 0));
 	}
 
 	static SVG parse(InputSource data, SVGHandler handler) throws SVGParseException {
-		try {
-			final Picture picture = new Picture();
-			handler.setPicture(picture);
+		read(data, handler);
 
-			SAXParserFactory spf = SAXParserFactory.newInstance();
-			SAXParser sp = spf.newSAXParser();
+		DisplayList displayList = handler.displayList;
+		if (displayList == null) {
+			// No svg element, empty drawing
+			displayList = new DisplayList.Recorder(0, 0).build();
+		}
+		SVG result = new SVG(displayList, handler.bounds);
+		// Skip bounds if it was an empty pic
+		if (!Float.isInfinite(handler.limits.top)) {
+			result.setLimits(handler.limits);
+		}
+		return result;
+	}
+
+	/**
+	 * Parses an SVG without recording its drawing, to check that it is valid.
+	 */
+	static void validate(InputSource data, SVGHandler handler) throws SVGParseException {
+		handler.setValidateOnly(true);
+		read(data, handler);
+	}
+
+	private static SAXParserFactory saxParserFactory;
+
+	/**
+	 * Looking up the parser implementation is costly, so the factory is kept. Factories are not thread-safe.
+	 */
+	private static synchronized SAXParser newSAXParser() throws ParserConfigurationException, SAXException {
+		if (saxParserFactory == null) {
+			saxParserFactory = SAXParserFactory.newInstance();
+			// Elements are matched by local name, which only namespace aware parsers are required to report
+			saxParserFactory.setNamespaceAware(true);
+		}
+		return saxParserFactory.newSAXParser();
+	}
+
+	private static void read(InputSource data, SVGHandler handler) throws SVGParseException {
+		try {
+			SAXParser sp = newSAXParser();
 			XMLReader xr = sp.getXMLReader();
 			xr.setContentHandler(handler);
 			xr.setFeature("http://xml.org/sax/features/validation", false);
@@ -78,196 +109,112 @@ public class SVGParser {
 				}
 			}
 			xr.parse(data);
-
-			SVG result = new SVG(picture, handler.bounds);
-			// Skip bounds if it was an empty pic
-			if (!Float.isInfinite(handler.limits.top)) {
-				result.setLimits(handler.limits);
-			}
-			return result;
 		} catch (Exception e) {
 			Log.e(TAG, "Failed to parse SVG.", e);
 			throw new SVGParseException(e);
 		}
 	}
 
-	private static NumberParse parseNumbers(String s) {
-		// Util.debug("Parsing numbers from: '" + s + "'");
-		int n = s.length();
-		int p = 0;
-		ArrayList<Float> numbers = new ArrayList<Float>();
-		boolean skipChar = false;
-		boolean prevWasE = false;
-		for (int i = 1; i < n; i++) {
-			if (skipChar) {
-				skipChar = false;
+	/**
+	 * Parse a list of transforms such as: foo(n,n,n...) bar(n,n,n..._ ...) Delimiters are whitespaces or commas. The
+	 * numbers are scanned in place, without taking substrings.
+	 * 
+	 * @param matrix the matrix to concatenate the transforms to.
+	 * @param np scratch space for the numbers of each transform.
+	 */
+	private static Matrix parseTransform(String s, Matrix matrix, NumberParse np) {
+		final int n = s.length();
+		int start = 0;
+		while (start < n) {
+			final char c = s.charAt(start);
+			if (c == ',' || Character.isWhitespace(c)) {
+				start++;
 				continue;
 			}
-			char c = s.charAt(i);
-			switch (c) {
-			// This ends the parsing, as we are on the next element
-			case 'M':
-			case 'm':
-			case 'Z':
-			case 'z':
-			case 'L':
-			case 'l':
-			case 'H':
-			case 'h':
-			case 'V':
-			case 'v':
-			case 'C':
-			case 'c':
-			case 'S':
-			case 's':
-			case 'Q':
-			case 'q':
-			case 'T':
-			case 't':
-			case 'a':
-			case 'A':
-			case ')': {
-				String str = s.substring(p, i);
-				if (str.trim().length() > 0) {
-					// Util.debug("  Last: " + str);
-					Float f = Float.parseFloat(str);
-					numbers.add(f);
-				}
-				p = i;
-				return new NumberParse(numbers, p);
-			}
-			case '-':
-				// Allow numbers with negative exp such as 7.23e-4
-				if (prevWasE) {
-					prevWasE = false;
-					break;
-				}
-				// fall-through
-			case '\n':
-			case '\t':
-			case ' ':
-			case ',': {
-				String str = s.substring(p, i);
-				// Just keep moving if multiple whitespace
-				if (str.trim().length() > 0) {
-					// Util.debug("  Next: " + str);
-					Float f = Float.parseFloat(str);
-					numbers.add(f);
-					if (c == '-') {
-						p = i;
-					} else {
-						p = i + 1;
-						skipChar = true;
-					}
-				} else {
-					p++;
-				}
-				prevWasE = false;
+			final int lparen = s.indexOf('(', start);
+			if (lparen < 0) {
+				Log.w(TAG, "Invalid transform (" + s + ")");
 				break;
 			}
-			case 'e':
-				prevWasE = true;
-				break;
-			default:
-				prevWasE = false;
+			int end = lparen;
+			while (end > start && Character.isWhitespace(s.charAt(end - 1))) {
+				end--;
 			}
-		}
-
-		String last = s.substring(p);
-		if (last.length() > 0) {
-			// Util.debug("  Last: " + last);
-			try {
-				numbers.add(Float.parseFloat(last));
-			} catch (NumberFormatException nfe) {
-				// Just white-space, forget it
+			np.parse(s, lparen + 1);
+			parseTransformItem(s, start, end, np, matrix);
+			// Log.i(TAG, "Transformed: (" + s + ") " + matrix);
+			final int rparen = s.indexOf(')', np.getNextCmd());
+			if (rparen < 0) {
+				break;
 			}
-			p = s.length();
+			start = rparen + 1;
 		}
-		return new NumberParse(numbers, p);
+		return matrix;
 	}
 
-	private static final Pattern TRANSFORM_SEP = Pattern.compile("[\\s,]*");
-
 	/**
-	 * Parse a list of transforms such as: foo(n,n,n...) bar(n,n,n..._ ...) Delimiters are whitespaces or commas
+	 * @return true if the name of the transform between {@code start} and {@code end} is {@code name}.
 	 */
-	private static Matrix parseTransform(String s) {
-		Matrix matrix = new Matrix();
-		while (true) {
-			parseTransformItem(s, matrix);
-			// Log.i(TAG, "Transformed: (" + s + ") " + matrix);
-			final int rparen = s.indexOf(")");
-			if (rparen > 0 && s.length() > rparen + 1) {
-				s = TRANSFORM_SEP.matcher(s.substring(rparen + 1)).replaceFirst("");
-			} else {
-				break;
-			}
-		}
-		return matrix;
+	private static boolean isTransform(String s, int start, int end, String name) {
+		return end - start == name.length() && s.regionMatches(start, name, 0, name.length());
 	}
 
-	private static Matrix parseTransformItem(String s, Matrix matrix) {
-		if (s.startsWith("matrix(")) {
-			NumberParse np = parseNumbers(s.substring("matrix(".length()));
-			if (np.numbers.size() == 6) {
+	private static Matrix parseTransformItem(String s, int start, int end, NumberParse np, Matrix matrix) {
+		if (isTransform(s, start, end, "matrix")) {
+			if (np.size() == 6) {
 				Matrix mat = new Matrix();
 				mat.setValues(new float[] {
 						// Row 1
-						np.numbers.get(0), np.numbers.get(2), np.numbers.get(4),
+						np.getNumber(0), np.getNumber(2), np.getNumber(4),
 						// Row 2
-						np.numbers.get(1), np.numbers.get(3), np.numbers.get(5),
+						np.getNumber(1), np.getNumber(3), np.getNumber(5),
 						// Row 3
 						0, 0, 1, });
 				matrix.preConcat(mat);
 			}
-		} else if (s.startsWith("translate(")) {
-			NumberParse np = parseNumbers(s.substring("translate(".length()));
-			if (np.numbers.size() > 0) {
-				float tx = np.numbers.get(0);
+		} else if (isTransform(s, start, end, "translate")) {
+			if (np.size() > 0) {
+				float tx = np.getNumber(0);
 				float ty = 0;
-				if (np.numbers.size() > 1) {
-					ty = np.numbers.get(1);
+				if (np.size() > 1) {
+					ty = np.getNumber(1);
 				}
 				matrix.preTranslate(tx, ty);
 			}
-		} else if (s.startsWith("scale(")) {
-			NumberParse np = parseNumbers(s.substring("scale(".length()));
-			if (np.numbers.size() > 0) {
-				float sx = np.numbers.get(0);
+		} else if (isTransform(s, start, end, "scale")) {
+			if (np.size() > 0) {
+				float sx = np.getNumber(0);
 				float sy = sx;
-				if (np.numbers.size() > 1) {
-					sy = np.numbers.get(1);
+				if (np.size() > 1) {
+					sy = np.getNumber(1);
 				}
 				matrix.preScale(sx, sy);
 			}
-		} else if (s.startsWith("skewX(")) {
-			NumberParse np = parseNumbers(s.substring("skewX(".length()));
-			if (np.numbers.size() > 0) {
-				float angle = np.numbers.get(0);
+		} else if (isTransform(s, start, end, "skewX")) {
+			if (np.size() > 0) {
+				float angle = np.getNumber(0);
 				matrix.preSkew((float) Math.tan(angle), 0);
 			}
-		} else if (s.startsWith("skewY(")) {
-			NumberParse np = parseNumbers(s.substring("skewY(".length()));
-			if (np.numbers.size() > 0) {
-				float angle = np.numbers.get(0);
+		} else if (isTransform(s, start, end, "skewY")) {
+			if (np.size() > 0) {
+				float angle = np.getNumber(0);
 				matrix.preSkew(0, (float) Math.tan(angle));
 			}
-		} else if (s.startsWith("rotate(")) {
-			NumberParse np = parseNumbers(s.substring("rotate(".length()));
-			if (np.numbers.size() > 0) {
-				float angle = np.numbers.get(0);
+		} else if (isTransform(s, start, end, "rotate")) {
+			if (np.size() > 0) {
+				float angle = np.getNumber(0);
 				float cx = 0;
 				float cy = 0;
-				if (np.numbers.size() > 2) {
-					cx = np.numbers.get(1);
-					cy = np.numbers.get(2);
+				if (np.size() > 2) {
+					cx = np.getNumber(1);
+					cy = np.getNumber(2);
 				}
 				matrix.preTranslate(-cx, -cy);
 				matrix.preRotate(angle);
 				matrix.preTranslate(cx, cy);
 			}
 		} else {
-			Log.w(TAG, "Invalid transform (" + s + ")");
+			Log.w(TAG, "Invalid transform (" + s.substring(start) + ")");
 		}
 		return matrix;
 	}
@@ -294,12 +241,13 @@ public class SVGParser {
 	 * sign)
 	 * 
 	 * @param s the path string from the XML
+	 * @param p the path to add to.
+	 * @param ph the parser to scan the path string with.
 	 */
-	private static Path doPath(String s) {
+	private static Path doPath(String s, Path p, ParserHelper ph) {
 		int n = s.length();
-		ParserHelper ph = new ParserHelper(s, 0);
+		ph.reset(s, 0);
 		ph.skipWhitespace();
-		Path p = new Path();
 		float lastX = 0;
 		float lastY = 0;
 		float lastX1 = 0;
@@ -518,8 +466,8 @@ public class SVGParser {
 		ry = Math.abs(ry);
 
 		final float thrad = theta * (float) Math.PI / 180;
-		final float st = FloatMath.sin(thrad);
-		final float ct = FloatMath.cos(thrad);
+		final float st = (float) Math.sin(thrad);
+		final float ct = (float) Math.cos(thrad);
 
 		final float xc = (lastX - x) / 2;
 		final float yc = (lastY - y) / 2;
@@ -534,7 +482,7 @@ public class SVGParser {
 		float lambda = (x1ts / rxs + y1ts / rys) * 1.001f; // add 0.1% to be sure that no out of range occurs due to
 															// limited precision
 		if (lambda > 1) {
-			float lambdasr = FloatMath.sqrt(lambda);
+			float lambdasr = (float) Math.sqrt(lambda);
 			rx *= lambdasr;
 			ry *= lambdasr;
 			rxs = rx * rx;
@@ -542,7 +490,7 @@ public class SVGParser {
 		}
 
 		final float R =
-				FloatMath.sqrt((rxs * rys - rxs * y1ts - rys * x1ts) / (rxs * y1ts + rys * x1ts))
+				(float) Math.sqrt((rxs * rys - rxs * y1ts - rys * x1ts) / (rxs * y1ts + rys * x1ts))
 						* ((largeArc == sweepArc) ? -1 : 1);
 		final float cxt = R * rx * y1t / ry;
 		final float cyt = -R * ry * x1t / rx;
@@ -578,11 +526,11 @@ public class SVGParser {
 		}
 	}
 
-	private static NumberParse getNumberParseAttr(String name, Attributes attributes) {
+	private static NumberParse getNumberParseAttr(String name, Attributes attributes, NumberParse np) {
 		int n = attributes.getLength();
 		for (int i = 0; i < n; i++) {
 			if (attributes.getLocalName(i).equals(name)) {
-				return parseNumbers(attributes.getValue(i));
+				return np.parse(attributes.getValue(i), 0);
 			}
 		}
 		return null;
@@ -625,13 +573,43 @@ public class SVGParser {
 		return Float.parseFloat(str);
 	}
 
+	/**
+	 * A list of numbers scanned from an attribute. Reused for every attribute of a document, so that parsing numbers
+	 * does not allocate.
+	 */
 	private static class NumberParse {
-		private ArrayList<Float> numbers;
+		private final ParserHelper helper;
+		private float[] numbers = new float[16];
+		private int size;
 		private int nextCmd;
 
-		public NumberParse(ArrayList<Float> numbers, int nextCmd) {
-			this.numbers = numbers;
-			this.nextCmd = nextCmd;
+		public NumberParse(ParserHelper helper) {
+			this.helper = helper;
+		}
+
+		/**
+		 * Scans the numbers of {@code s} from {@code start} until the end of the string, or the next token which is
+		 * not a number.
+		 * 
+		 * @return this, holding the numbers found.
+		 */
+		public NumberParse parse(String s, int start) {
+			helper.reset(s, start);
+			size = 0;
+			while (helper.skipToNumber()) {
+				if (size == numbers.length) {
+					float[] grown = new float[size * 2];
+					System.arraycopy(numbers, 0, grown, 0, size);
+					numbers = grown;
+				}
+				numbers[size++] = helper.parseFloat();
+			}
+			nextCmd = helper.pos;
+			return this;
+		}
+
+		public int size() {
+			return size;
 		}
 
 		public int getNextCmd() {
@@ -639,7 +617,10 @@ public class SVGParser {
 		}
 
 		public float getNumber(int index) {
-			return numbers.get(index);
+			if (index >= size) {
+				throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+			}
+			return numbers[index];
 		}
 
 	}
@@ -656,6 +637,16 @@ public class SVGParser {
 		public Shader shader = null;
 		public boolean boundingBox = false;
 		public TileMode tilemode;
+		int[] colorArray;
+		float[] positionArray;
+
+		Shader createShader() {
+			if (isLinear) {
+				return new LinearGradient(x1, y1, x2, y2, colorArray, positionArray, tilemode);
+			} else {
+				return new RadialGradient(x, y, radius, colorArray, positionArray, tilemode);
+			}
+		}
 
 /*
 		public Gradient createChild(Gradient g) {
@@ -831,8 +822,8 @@ public class SVGParser {
 
 	static class SVGHandler extends DefaultHandler {
 
-		private Picture picture;
-		private Canvas canvas;
+		private DisplayList.Recorder recorder;
+		DisplayList displayList;
 		private Float limitsAdjustmentX, limitsAdjustmentY;
 
 		final LinkedList<LayerAttributes> layerAttributeStack = new LinkedList<LayerAttributes>();
@@ -875,6 +866,16 @@ public class SVGParser {
 		final HashMap<String, Gradient> gradientMap = new HashMap<String, Gradient>();
 		Gradient gradient = null;
 
+		boolean validateOnly = false;
+
+		// Scratch objects reused while parsing, so that parsing allocates little besides what is recorded
+		final ParserHelper parserHelper = new ParserHelper("", 0);
+		final NumberParse numberParse = new NumberParse(parserHelper);
+		final Path scratchPath = new Path();
+		// Matrices and paints released by popped transforms and groups, reused by the next ones
+		final ArrayList<Matrix> matrixPool = new ArrayList<Matrix>();
+		final ArrayList<Paint> paintPool = new ArrayList<Paint>();
+
 		public SVGHandler() {
 			strokePaint = new Paint();
 			strokePaint.setAntiAlias(true);
@@ -888,10 +889,6 @@ public class SVGParser {
 			layerAttributeStack.addFirst(new LayerAttributes(1f));
 		}
 
-		void setPicture(Picture picture) {
-			this.picture = picture;
-		}
-
 		public void setColorSwap(Integer searchColor, Integer replaceColor, boolean overideOpacity) {
 			this.searchColor = searchColor;
 			this.replaceColor = replaceColor;
@@ -906,6 +903,50 @@ public class SVGParser {
 			this.whiteMode = whiteMode;
 		}
 
+		/**
+		 * In validate-only mode, the SVG is parsed without recording any drawing.
+		 */
+		public void setValidateOnly(boolean validateOnly) {
+			this.validateOnly = validateOnly;
+		}
+
+		private DisplayList.Recorder newRecorder(int width, int height) {
+			return validateOnly ? DisplayList.Recorder.discarding(width, height) : new DisplayList.Recorder(width,
+					height);
+		}
+
+		/**
+		 * @return a new path, or in validate-only mode the scratch path, emptied.
+		 */
+		private Path newPath() {
+			if (validateOnly) {
+				scratchPath.rewind();
+				return scratchPath;
+			}
+			// The display list keeps the path
+			return new Path();
+		}
+
+		private Matrix obtainMatrix() {
+			final int size = matrixPool.size();
+			if (size == 0) {
+				return new Matrix();
+			}
+			final Matrix matrix = matrixPool.remove(size - 1);
+			matrix.reset();
+			return matrix;
+		}
+
+		private Paint obtainPaint(Paint source) {
+			final int size = paintPool.size();
+			if (size == 0) {
+				return new Paint(source);
+			}
+			final Paint paint = paintPool.remove(size - 1);
+			paint.set(source);
+			return paint;
+		}
+
 		@Override
 		public void startDocument() throws SAXException {
 			// Set up prior to parsing a doc
@@ -943,6 +984,10 @@ public class SVGParser {
 					}
 					if (shader != null) {
 						// Util.debug("Found shader!");
+						if (!validateOnly) {
+							// The display list keeps the shader, so each element needs its own local matrix
+							shader = g.createShader();
+						}
 						fillPaint.setShader(shader);
 						gradMatrix.set(g.matrix);
 						if (g.boundingBox && bounding_box != null) {
@@ -1066,7 +1111,7 @@ public class SVGParser {
 			}
 			String transform = getStringAttr("gradientTransform", atts);
 			if (transform != null) {
-				gradient.matrix = parseTransform(transform);
+				gradient.matrix = parseTransform(transform, new Matrix(), numberParse);
 			}
 			String spreadMethod = getStringAttr("spreadMethod", atts);
 			if (spreadMethod == null) {
@@ -1112,11 +1157,9 @@ public class SVGParser {
                 if (colors.length == 0) {
                		Log.d("BAD", "BAD gradient, id="+gradient.id);
                 }
-                if (gradient.isLinear) {
-                	gradient.shader= new LinearGradient(gradient.x1, gradient.y1, gradient.x2, gradient.y2, colors, positions, gradient.tilemode);
-                } else {
-                	gradient.shader= new RadialGradient(gradient.x, gradient.y, gradient.radius, colors, positions, gradient.tilemode);
-                }
+                gradient.colorArray = colors;
+                gradient.positionArray = positions;
+                gradient.shader = gradient.createShader();
         	}
         }
 
@@ -1229,9 +1272,9 @@ public class SVGParser {
 			boolean pushed = transform != null;
 			transformStack.addLast(pushed);
 			if (pushed) {
-				final Matrix matrix = parseTransform(transform);
-				canvas.save();
-				canvas.concat(matrix);
+				final Matrix matrix = parseTransform(transform, obtainMatrix(), numberParse);
+				recorder.save();
+				recorder.concat(matrix);
 				matrix.postConcat(matrixStack.getLast());
 				matrixStack.addLast(matrix);
 			}
@@ -1240,8 +1283,8 @@ public class SVGParser {
 
 		private void popTransform() {
 			if (transformStack.removeLast()) {
-				canvas.restore();
-				matrixStack.removeLast();
+				recorder.restore();
+				matrixPool.add(matrixStack.removeLast());
 			}
 		}
 
@@ -1275,7 +1318,7 @@ public class SVGParser {
 				return;
 			}
 			if (localName.equals("svg")) {
-				canvas = null;
+				recorder = null;
                 SVG_FILL = getStringAttr("fill", atts);
 				String viewboxStr = getStringAttr("viewBox", atts);
 				if (viewboxStr != null) {
@@ -1289,22 +1332,22 @@ public class SVGParser {
 							x2 += x1;
 							y2 += y1;
 
-							float width = FloatMath.ceil(x2 - x1);
-							float height = FloatMath.ceil(y2 - y1);
-							canvas = picture.beginRecording((int) width, (int) height);
-							canvasRestoreCount = canvas.save();
-							canvas.clipRect(0f, 0f, width, height);
+							float width = (float) Math.ceil(x2 - x1);
+							float height = (float) Math.ceil(y2 - y1);
+							recorder = newRecorder((int) width, (int) height);
+							canvasRestoreCount = recorder.save();
+							recorder.clipRect(0f, 0f, width, height);
 							limitsAdjustmentX = -x1;
 							limitsAdjustmentY = -y1;
-							canvas.translate(limitsAdjustmentX, limitsAdjustmentY);
+							recorder.translate(limitsAdjustmentX, limitsAdjustmentY);
 						}
 					}
 				}
 				// No viewbox
-				if (canvas == null) {
-					int width = (int) FloatMath.ceil(getFloatAttr("width", atts));
-					int height = (int) FloatMath.ceil(getFloatAttr("height", atts));
-					canvas = picture.beginRecording(width, height);
+				if (recorder == null) {
+					int width = (int) Math.ceil(getFloatAttr("width", atts));
+					int height = (int) Math.ceil(getFloatAttr("height", atts));
+					recorder = newRecorder(width, height);
 					canvasRestoreCount = null;
 				}
 
@@ -1359,8 +1402,8 @@ public class SVGParser {
 				layerAttributeStack.addLast(newLayerAttr);
 
 				pushTransform(atts);
-				fillPaintStack.addLast(new Paint(fillPaint));
-				strokePaintStack.addLast(new Paint(strokePaint));
+				fillPaintStack.addLast(obtainPaint(fillPaint));
+				strokePaintStack.addLast(obtainPaint(strokePaint));
 				fillSetStack.addLast(fillSet);
 				strokeSetStack.addLast(strokeSet);
 
@@ -1389,18 +1432,18 @@ public class SVGParser {
 				if (doFill(props, rect)) {
 					rect.set(x, y, x + width, y + height);
 					if (rx <= 0f && ry <= 0f) {
-						canvas.drawRect(rect, fillPaint);
+						recorder.drawRect(rect, fillPaint);
 					} else {
-						canvas.drawRoundRect(rect, rx, ry, fillPaint);
+						recorder.drawRoundRect(rect, rx, ry, fillPaint);
 					}
 					doLimits(rect);
 				}
 				if (doStroke(props)) {
 					rect.set(x, y, x + width, y + height);
 					if (rx <= 0f && ry <= 0f) {
-						canvas.drawRect(rect, strokePaint);
+						recorder.drawRect(rect, strokePaint);
 					} else {
-						canvas.drawRoundRect(rect, rx, ry, strokePaint);
+						recorder.drawRoundRect(rect, rx, ry, strokePaint);
 					}
 					doLimits(rect, strokePaint);
 				}
@@ -1414,7 +1457,7 @@ public class SVGParser {
 				if (doStroke(props)) {
 					pushTransform(atts);
 					rect.set(x1, y1, x2, y2);
-					canvas.drawLine(x1, y1, x2, y2, strokePaint);
+					recorder.drawLine(x1, y1, x2, y2, strokePaint);
 					doLimits(rect, strokePaint);
 					popTransform();
 				}
@@ -1422,8 +1465,8 @@ public class SVGParser {
 				Float textX = getFloatAttr("x", atts);
 				Float textY = getFloatAttr("y", atts);
 				Float fontSize = getFloatAttr("font-size", atts);
-				Matrix font_matrix = parseTransform(getStringAttr("transform",
-						atts));
+				String transform = getStringAttr("transform", atts);
+				Matrix font_matrix = transform != null ? parseTransform(transform, new Matrix(), numberParse) : null;
 				drawCharacters = true;
 				if (fontSize != null) {
 					textSize = fontSize;
@@ -1443,7 +1486,7 @@ public class SVGParser {
 					}
 					this.newLineCount = 0;
 					textPaint.setTextSize(textSize);
-					canvas.save();
+					recorder.save();
 					popTransform();
 				}
 			} else if (!hidden && (localName.equals("circle") || localName.equals("ellipse"))) {
@@ -1463,27 +1506,26 @@ public class SVGParser {
 					Properties props = new Properties(atts);
 					rect.set(centerX - radiusX, centerY - radiusY, centerX + radiusX, centerY + radiusY);
 					if (doFill(props, rect)) {
-						canvas.drawOval(rect, fillPaint);
+						recorder.drawOval(rect, fillPaint);
 						doLimits(rect);
 					}
 					if (doStroke(props)) {
-						canvas.drawOval(rect, strokePaint);
+						recorder.drawOval(rect, strokePaint);
 						doLimits(rect, strokePaint);
 					}
 					popTransform();
 				}
 			} else if (!hidden && (localName.equals("polygon") || localName.equals("polyline"))) {
-				NumberParse numbers = getNumberParseAttr("points", atts);
-				if (numbers != null) {
-					Path p = new Path();
-					ArrayList<Float> points = numbers.numbers;
+				NumberParse points = getNumberParseAttr("points", atts, numberParse);
+				if (points != null) {
+					Path p = newPath();
 					if (points.size() > 1) {
 						pushTransform(atts);
 						Properties props = new Properties(atts);
-						p.moveTo(points.get(0), points.get(1));
-						for (int i = 2; i < points.size(); i += 2) {
-							float x = points.get(i);
-							float y = points.get(i + 1);
+						p.moveTo(points.getNumber(0), points.getNumber(1));
+						for (int i = 2; i + 1 < points.size(); i += 2) {
+							float x = points.getNumber(i);
+							float y = points.getNumber(i + 1);
 							p.lineTo(x, y);
 						}
 						// Don't close a polyline
@@ -1492,27 +1534,27 @@ public class SVGParser {
 						}
 						p.computeBounds(rect, false);
 						if (doFill(props, rect)) {
-							canvas.drawPath(p, fillPaint);
+							recorder.drawPath(p, fillPaint);
 							doLimits(rect);
 						}
 						if (doStroke(props)) {
-							canvas.drawPath(p, strokePaint);
+							recorder.drawPath(p, strokePaint);
 							doLimits(rect, strokePaint);
 						}
 						popTransform();
 					}
 				}
 			} else if (!hidden && localName.equals("path")) {
-				Path p = doPath(getStringAttr("d", atts));
+				Path p = doPath(getStringAttr("d", atts), newPath(), parserHelper);
 				pushTransform(atts);
 				Properties props = new Properties(atts);
 				p.computeBounds(rect, false);
 				if (doFill(props, rect)) {
-					canvas.drawPath(p, fillPaint);
+					recorder.drawPath(p, fillPaint);
 					doLimits(rect);
 				}
 				if (doStroke(props)) {
-					canvas.drawPath(p, strokePaint);
+					recorder.drawPath(p, strokePaint);
 					doLimits(rect, strokePaint);
 				}
 				popTransform();
@@ -1529,22 +1571,22 @@ public class SVGParser {
 		public void characters(char ch[], int start, int length) {
 			if (this.drawCharacters) {
 				if (length == 1 && ch[0] == '\n') {
-					canvas.restore();
-					canvas.save();
+					recorder.restore();
+					recorder.save();
 
 					newLineCount += 1;
-					canvas.translate(0, newLineCount * textSize);
+					recorder.translate(0, newLineCount * textSize);
 				} else {
 					String text = new String(ch, start, length);
 					if (this.textX != null && this.textY != null) {
-						canvas.drawText(text, this.textX, this.textY, textPaint);
+						recorder.drawText(text, this.textX, this.textY, textPaint);
 					} else {
-						canvas.setMatrix(font_matrix);
-						canvas.drawText(text, 0, 0, textPaint);
+						recorder.setMatrix(font_matrix);
+						recorder.drawText(text, 0, 0, textPaint);
 					}
 					Float delta = textPaint.measureText(text);
 
-					canvas.translate(delta, 0);
+					recorder.translate(delta, 0);
 				}
 			}
 		}
@@ -1553,7 +1595,7 @@ public class SVGParser {
 		public void endElement(String namespaceURI, String localName, String qName) throws SAXException {
 			if (localName.equals("svg")) {
 				if (canvasRestoreCount != null) {
-					canvas.restoreToCount(canvasRestoreCount);
+					recorder.restoreToCount(canvasRestoreCount);
 				}
 				if (limitsAdjustmentX != null) {
 					limits.left += limitsAdjustmentX;
@@ -1563,7 +1605,7 @@ public class SVGParser {
 					limits.top += limitsAdjustmentY;
 					limits.bottom += limitsAdjustmentY;
 				}
-				picture.endRecording();
+				displayList = recorder.build();
 
 			} else if (localName.equals("linearGradient") || localName.equals("radialGradient")) {
 				if (gradient.id != null) {
@@ -1586,8 +1628,10 @@ public class SVGParser {
 				// // Clear gradient map
 				// gradientRefMap.clear();
 				popTransform();
+				paintPool.add(fillPaint);
 				fillPaint = fillPaintStack.removeLast();
 				fillSet = fillSetStack.removeLast();
+				paintPool.add(strokePaint);
 				strokePaint = strokePaintStack.removeLast();
 				strokeSet = strokeSetStack.removeLast();
 				if (!layerAttributeStack.isEmpty()) {
@@ -1596,7 +1640,7 @@ public class SVGParser {
 			} else if (localName.equals("text")) {
 				if (this.drawCharacters) {
 					this.drawCharacters = false;
-					canvas.restore();
+					recorder.restore();
 				}
 			}
 		}
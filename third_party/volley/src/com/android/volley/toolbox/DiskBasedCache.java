@@ -21,23 +21,48 @@ import android.os.SystemClock;
 import com.android.volley.Cache;
 import com.android.volley.VolleyLog;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
 import java.io.EOFException;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
+import java.io.FilenameFilter;
 import java.io.FilterInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Cache implementation that caches files directly onto the hard disk in the specified
  * directory. The default disk usage size is 5MB, but is configurable.
+ * <p>
+ * The headers of all entries are also kept in an index file, written in the background after
+ * the cache changes, so that {@link #initialize()} reads one memory-mapped file instead of
+ * opening every cached file. The index records whether it is up to date: the first change made
+ * after it was written marks it out of date, before touching any cached file, so an index left
+ * behind by a process that died with unsaved changes is ignored, and the files are scanned as
+ * they always were.
+ * <p>
+ * The lock on the cache only guards its in-memory state. Files are read and written outside of
+ * it: an entry is written to a temporary file that replaces the cached file in one rename, and
+ * an entry is read from a file opened while the lock is held, so concurrent reads and writes
+ * neither block one another for the duration of the I/O nor see a partially written entry.
  */
 public class DiskBasedCache implements Cache {
 
@@ -54,6 +79,30 @@ public class DiskBasedCache implements Cache {
     /** The maximum size of the cache in bytes. */
     private final int mMaxCacheSizeInBytes;
 
+    /** Buffers into which headers are serialized before being written in one go. */
+    private final ByteArrayPool mHeaderBufferPool = new ByteArrayPool(HEADER_BUFFER_POOL_BYTES);
+
+    /** Writes the index in the background. */
+    private final ScheduledThreadPoolExecutor mIndexExecutor;
+
+    /** Held while writing the index, so that two writes never overlap. */
+    private final Object mIndexWriteLock = new Object();
+
+    /** The number of changes made to the cache so far. */
+    private long mModCount = 0;
+
+    /** True when an index write is scheduled but has not yet looked at the entries. */
+    private boolean mIndexWriteScheduled = false;
+
+    /**
+     * The first bytes of the index file, mapped so that the index can be marked out of date by
+     * writing a single int, or null if there is no index file.
+     */
+    private MappedByteBuffer mIndexHeader;
+
+    /** True when the index file is up to date. */
+    private boolean mIndexClean = false;
+
     /** Default maximum disk usage in bytes. */
     private static final int DEFAULT_DISK_USAGE_BYTES = 5 * 1024 * 1024;
 
@@ -63,6 +112,40 @@ public class DiskBasedCache implements Cache {
     /** Magic number for current version of cache file format. */
     private static final int CACHE_MAGIC = 0x20120504;
 
+    /** Magic number for current version of index file format. */
+    private static final int INDEX_MAGIC = 0x20160601;
+
+    /**
+     * Name of the index file. Cached files are named after hash codes, which never start with a
+     * dot.
+     */
+    static final String INDEX_FILE = ".index";
+
+    /** Suffix of the files that are being written. */
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    /** Offset of the int in the index header that tells whether the index is up to date. */
+    private static final int INDEX_STATE_OFFSET = 4;
+
+    /** Length of the index header: magic, state and entry count. */
+    private static final int INDEX_HEADER_LENGTH = 12;
+
+    private static final int INDEX_CLEAN = 1;
+
+    private static final int INDEX_DIRTY = 0;
+
+    /**
+     * How long to wait after a change before writing the index, so that a burst of changes is
+     * written once.
+     */
+    private static final long INDEX_WRITE_DELAY_MS = 1000;
+
+    /** Initial size of the buffers into which headers are serialized. */
+    private static final int HEADER_BUFFER_BYTES = 1024;
+
+    /** The maximum total size of the header buffers kept for reuse. */
+    private static final int HEADER_BUFFER_POOL_BYTES = 8 * 1024;
+
     /**
      * Constructs an instance of the DiskBasedCache at the specified directory.
      * @param rootDirectory The root directory of the cache.
@@ -71,6 +154,14 @@ public class DiskBasedCache implements Cache {
     public DiskBasedCache(File rootDirectory, int maxCacheSizeInBytes) {
         mRootDirectory = rootDirectory;
         mMaxCacheSizeInBytes = maxCacheSizeInBytes;
+        mIndexExecutor = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "Volley-CacheIndex");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
     }
 
     /**
@@ -95,6 +186,9 @@ public class DiskBasedCache implements Cache {
         }
         mEntries.clear();
         mTotalSize = 0;
+        mIndexHeader = null;
+        mIndexClean = false;
+        mModCount++;
         VolleyLog.d("Cache cleared.");
     }
 
@@ -102,38 +196,61 @@ public class DiskBasedCache implements Cache {
      * Returns the cache entry with the specified key if it exists, null otherwise.
      */
     @Override
-    public synchronized Entry get(String key) {
-        CacheHeader entry = mEntries.get(key);
-        // if the entry does not exist, return.
-        if (entry == null) {
-            return null;
+    public Entry get(String key) {
+        CacheHeader entry;
+        File file = getFileForKey(key);
+        FileInputStream fis;
+        synchronized (this) {
+            entry = mEntries.get(key);
+            // if the entry does not exist, return.
+            if (entry == null) {
+                return null;
+            }
+            // Opened under the lock, so that the file matches the header even if the entry is
+            // replaced while it is read.
+            try {
+                fis = new FileInputStream(file);
+            } catch (IOException e) {
+                VolleyLog.d("%s: %s", file.getAbsolutePath(), e.toString());
+                remove(key);
+                return null;
+            }
         }
 
-        File file = getFileForKey(key);
-        CountingInputStream cis = null;
         try {
-            cis = new CountingInputStream(new FileInputStream(file));
-            CacheHeader.readHeader(cis); // eat header
-            byte[] data = streamToBytes(cis, (int) (file.length() - cis.bytesRead));
+            FileChannel channel = fis.getChannel();
+            if (channel.size() != entry.size) {
+                throw new IOException("Expected " + entry.size + " bytes, found "
+                        + channel.size() + " bytes");
+            }
+            // The data is read straight into the array handed to the caller.
+            byte[] data = new byte[(int) (entry.size - entry.headerLength)];
+            ByteBuffer buffer = ByteBuffer.wrap(data);
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer, entry.headerLength + buffer.position()) == -1) {
+                    throw new EOFException();
+                }
+            }
             return entry.toCacheEntry(data);
         } catch (IOException e) {
             VolleyLog.d("%s: %s", file.getAbsolutePath(), e.toString());
-            remove(key);
-            return null;
-        } finally {
-            if (cis != null) {
-                try {
-                    cis.close();
-                } catch (IOException ioe) {
-                    return null;
+            synchronized (this) {
+                if (mEntries.get(key) == entry) {
+                    remove(key);
                 }
             }
+            return null;
+        } finally {
+            try {
+                fis.close();
+            } catch (IOException ignored) { }
         }
     }
 
     /**
-     * Initializes the DiskBasedCache by scanning for all files currently in the
-     * specified root directory. Creates the root directory if necessary.
+     * Initializes the DiskBasedCache from its index, or if the index is missing or out of date,
+     * by scanning for all files currently in the specified root directory. Creates the root
+     * directory if necessary.
      */
     @Override
     public synchronized void initialize() {
@@ -144,16 +261,32 @@ public class DiskBasedCache implements Cache {
             return;
         }
 
+        if (readIndex()) {
+            deleteTempFiles();
+            return;
+        }
+
         File[] files = mRootDirectory.listFiles();
         if (files == null) {
             return;
         }
         for (File file : files) {
-            FileInputStream fis = null;
+            String name = file.getName();
+            if (name.equals(INDEX_FILE)) {
+                continue;
+            }
+            if (name.endsWith(TEMP_SUFFIX)) {
+                // Left behind by a write that never finished.
+                file.delete();
+                continue;
+            }
+            CountingInputStream cis = null;
             try {
-                fis = new FileInputStream(file);
-                CacheHeader entry = CacheHeader.readHeader(fis);
+                cis = new CountingInputStream(
+                        new BufferedInputStream(new FileInputStream(file)));
+                CacheHeader entry = CacheHeader.readHeader(cis);
                 entry.size = file.length();
+                entry.headerLength = cis.bytesRead;
                 putEntry(entry.key, entry);
             } catch (IOException e) {
                 if (file != null) {
@@ -161,12 +294,14 @@ public class DiskBasedCache implements Cache {
                 }
             } finally {
                 try {
-                    if (fis != null) {
-                        fis.close();
+                    if (cis != null) {
+                        cis.close();
                     }
                 } catch (IOException ignored) { }
             }
         }
+        mModCount++;
+        scheduleIndexWrite();
     }
 
     /**
@@ -175,7 +310,9 @@ public class DiskBasedCache implements Cache {
      * @param fullExpire True to fully expire the entry, false to soft expire
      */
     @Override
-    public synchronized void invalidate(String key, boolean fullExpire) {
+    public void invalidate(String key, boolean fullExpire) {
+        // Like any two writes of the same key, a put made while the entry is rewritten here may
+        // be overwritten.
         Entry entry = get(key);
         if (entry != null) {
             entry.softTtl = 0;
@@ -191,22 +328,46 @@ public class DiskBasedCache implements Cache {
      * Puts the entry with the specified key into the cache.
      */
     @Override
-    public synchronized void put(String key, Entry entry) {
-        pruneIfNeeded(entry.data.length);
+    public void put(String key, Entry entry) {
         File file = getFileForKey(key);
+        // Named after the thread as well, so that concurrent writes of a key do not collide.
+        File tempFile = new File(mRootDirectory, file.getName() + "."
+                + Thread.currentThread().getId() + TEMP_SUFFIX);
+        CacheHeader e = new CacheHeader(key, entry);
+        PoolingByteArrayOutputStream header =
+                new PoolingByteArrayOutputStream(mHeaderBufferPool, HEADER_BUFFER_BYTES);
         try {
-            FileOutputStream fos = new FileOutputStream(file);
-            CacheHeader e = new CacheHeader(key, entry);
-            e.writeHeader(fos);
-            fos.write(entry.data);
-            fos.close();
-            putEntry(key, e);
-            return;
-        } catch (IOException e) {
+            FileOutputStream fos = new FileOutputStream(tempFile);
+            try {
+                if (!e.writeHeader(header)) {
+                    throw new IOException();
+                }
+                header.writeTo(fos);
+                fos.write(entry.data);
+            } finally {
+                fos.close();
+            }
+            e.headerLength = header.size();
+            e.size = e.headerLength + entry.data.length;
+            synchronized (this) {
+                markIndexDirty();
+                pruneIfNeeded(e.size);
+                if (tempFile.renameTo(file)) {
+                    putEntry(key, e);
+                    scheduleIndexWrite();
+                    return;
+                }
+                VolleyLog.d("Could not rename %s", tempFile.getAbsolutePath());
+            }
+        } catch (IOException ioe) {
+        } finally {
+            try {
+                header.close();
+            } catch (IOException ignored) { }
         }
-        boolean deleted = file.delete();
+        boolean deleted = tempFile.delete();
         if (!deleted) {
-            VolleyLog.d("Could not clean up file %s", file.getAbsolutePath());
+            VolleyLog.d("Could not clean up file %s", tempFile.getAbsolutePath());
         }
     }
 
@@ -215,8 +376,10 @@ public class DiskBasedCache implements Cache {
      */
     @Override
     public synchronized void remove(String key) {
+        markIndexDirty();
         boolean deleted = getFileForKey(key).delete();
         removeEntry(key);
+        scheduleIndexWrite();
         if (!deleted) {
             VolleyLog.d("Could not delete cache entry for key=%s, filename=%s",
                     key, getFilenameForKey(key));
@@ -242,11 +405,178 @@ public class DiskBasedCache implements Cache {
         return new File(mRootDirectory, getFilenameForKey(key));
     }
 
+    /**
+     * Deletes the temporary files left behind by writes that never finished, which the index
+     * does not list.
+     */
+    private void deleteTempFiles() {
+        File[] files = mRootDirectory.listFiles(new FilenameFilter() {
+            @Override
+            public boolean accept(File dir, String name) {
+                return name.endsWith(TEMP_SUFFIX);
+            }
+        });
+        if (files == null) {
+            return;
+        }
+        for (File file : files) {
+            if (!file.delete()) {
+                VolleyLog.d("Could not delete temporary file %s", file.getAbsolutePath());
+            }
+        }
+    }
+
+    /**
+     * Loads the entries from the index file, if it is up to date.
+     * @return True if the entries were loaded, false if the files need to be scanned instead.
+     */
+    private boolean readIndex() {
+        File indexFile = new File(mRootDirectory, INDEX_FILE);
+        if (!indexFile.exists()) {
+            return false;
+        }
+        RandomAccessFile raf = null;
+        try {
+            raf = new RandomAccessFile(indexFile, "rw");
+            FileChannel channel = raf.getChannel();
+            MappedByteBuffer header = channel.map(
+                    FileChannel.MapMode.READ_WRITE, 0, INDEX_HEADER_LENGTH);
+            header.order(ByteOrder.LITTLE_ENDIAN);
+            if (header.getInt(0) != INDEX_MAGIC
+                    || header.getInt(INDEX_STATE_OFFSET) != INDEX_CLEAN) {
+                return false;
+            }
+            int count = header.getInt(8);
+            MappedByteBuffer records = channel.map(FileChannel.MapMode.READ_ONLY,
+                    INDEX_HEADER_LENGTH, channel.size() - INDEX_HEADER_LENGTH);
+            InputStream is = new ByteBufferInputStream(records);
+            // Written from least to most recently used, so this also restores the order.
+            for (int i = 0; i < count; i++) {
+                CacheHeader entry = CacheHeader.readHeader(is);
+                entry.size = readLong(is);
+                entry.headerLength = readInt(is);
+                putEntry(entry.key, entry);
+            }
+            mIndexHeader = header;
+            mIndexClean = true;
+            return true;
+        } catch (IOException e) {
+            VolleyLog.d("%s: %s", indexFile.getAbsolutePath(), e.toString());
+            mEntries.clear();
+            mTotalSize = 0;
+            return false;
+        } finally {
+            try {
+                if (raf != null) {
+                    // The mappings remain valid.
+                    raf.close();
+                }
+            } catch (IOException ignored) { }
+        }
+    }
+
+    /**
+     * Writes the headers of all entries to the index file, and marks it up to date if the cache
+     * did not change in the meantime.
+     */
+    // Visible for testing.
+    void writeIndex() throws IOException {
+        synchronized (mIndexWriteLock) {
+            List<CacheHeader> entries;
+            long modCount;
+            synchronized (this) {
+                mIndexWriteScheduled = false;
+                entries = new ArrayList<CacheHeader>(mEntries.values());
+                modCount = mModCount;
+            }
+
+            File tempFile = new File(mRootDirectory, INDEX_FILE + TEMP_SUFFIX);
+            OutputStream os = new BufferedOutputStream(new FileOutputStream(tempFile));
+            try {
+                writeInt(os, INDEX_MAGIC);
+                writeInt(os, INDEX_CLEAN);
+                writeInt(os, entries.size());
+                for (CacheHeader entry : entries) {
+                    if (!entry.writeHeader(os)) {
+                        throw new IOException("Could not write header of " + entry.key);
+                    }
+                    writeLong(os, entry.size);
+                    writeInt(os, entry.headerLength);
+                }
+            } finally {
+                os.close();
+            }
+
+            synchronized (this) {
+                File indexFile = new File(mRootDirectory, INDEX_FILE);
+                mIndexHeader = null;
+                mIndexClean = false;
+                if (!tempFile.renameTo(indexFile)) {
+                    tempFile.delete();
+                    throw new IOException("Could not rename " + tempFile.getAbsolutePath());
+                }
+                RandomAccessFile raf = null;
+                try {
+                    raf = new RandomAccessFile(indexFile, "rw");
+                    mIndexHeader = raf.getChannel().map(
+                            FileChannel.MapMode.READ_WRITE, 0, INDEX_HEADER_LENGTH);
+                    mIndexHeader.order(ByteOrder.LITTLE_ENDIAN);
+                    mIndexClean = true;
+                } catch (IOException e) {
+                    // An index that cannot be marked out of date must not be left behind.
+                    indexFile.delete();
+                    throw e;
+                } finally {
+                    if (raf != null) {
+                        raf.close();
+                    }
+                }
+                if (modCount != mModCount) {
+                    // The write scheduled by that change will catch up.
+                    markIndexDirty();
+                }
+            }
+        }
+    }
+
+    /**
+     * Marks the index file out of date. Called before each change to the cached files, with the
+     * lock held.
+     */
+    private void markIndexDirty() {
+        mModCount++;
+        if (mIndexClean) {
+            mIndexHeader.putInt(INDEX_STATE_OFFSET, INDEX_DIRTY);
+            mIndexClean = false;
+        }
+    }
+
+    /**
+     * Schedules a write of the index file, unless one is already scheduled. Called with the lock
+     * held.
+     */
+    private void scheduleIndexWrite() {
+        if (mIndexWriteScheduled) {
+            return;
+        }
+        mIndexWriteScheduled = true;
+        mIndexExecutor.schedule(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    writeIndex();
+                } catch (IOException e) {
+                    VolleyLog.d("Could not write cache index: %s", e.toString());
+                }
+            }
+        }, INDEX_WRITE_DELAY_MS, TimeUnit.MILLISECONDS);
+    }
+
     /**
      * Prunes the cache to fit the amount of bytes specified.
      * @param neededSpace The amount of bytes we are trying to fit into the cache.
      */
-    private void pruneIfNeeded(int neededSpace) {
+    private void pruneIfNeeded(long neededSpace) {
         if ((mTotalSize + neededSpace) < mMaxCacheSizeInBytes) {
             return;
         }
@@ -330,10 +660,14 @@ public class DiskBasedCache implements Cache {
      */
     // Visible for testing.
     static class CacheHeader {
-        /** The size of the data identified by this CacheHeader. (This is not
-         * serialized to disk. */
+        /** The size of the file identified by this CacheHeader, header included. (This is
+         * only serialized to the index. */
         public long size;
 
+        /** The size of the serialized header, at the start of the file. (This is only
+         * serialized to the index. */
+        public int headerLength;
+
         /** The key that identifies the cache entry. */
         public String key;
 
@@ -456,6 +790,32 @@ public class DiskBasedCache implements Cache {
         }
     }
 
+    /**
+     * Reads a buffer, such as a mapped file, as a stream.
+     */
+    private static class ByteBufferInputStream extends InputStream {
+        private final ByteBuffer mBuffer;
+
+        private ByteBufferInputStream(ByteBuffer buffer) {
+            mBuffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return mBuffer.hasRemaining() ? mBuffer.get() & 0xff : -1;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int count) {
+            if (!mBuffer.hasRemaining()) {
+                return -1;
+            }
+            count = Math.min(count, mBuffer.remaining());
+            mBuffer.get(buffer, offset, count);
+            return count;
+        }
+    }
+
     /*
      * Homebrewed simple serialization system used for reading and writing cache
      * headers on disk. Once upon a time, this used the standard Java
@@ -0,0 +1,127 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.volley.toolbox;
+
+import android.test.AndroidTestCase;
+import android.test.suitebuilder.annotation.LargeTest;
+import android.util.Log;
+
+import com.android.volley.Cache;
+
+import java.io.File;
+import java.util.HashMap;
+
+/**
+ * Measures how long a cache holding 5MB of entries takes to initialize, from its index and by
+ * scanning its files, and how long a cache hit takes. The results are logged rather than
+ * asserted, as they depend on the device.
+ */
+@LargeTest
+public class DiskBasedCacheBenchmarkTest extends AndroidTestCase {
+
+    private static final String TAG = "DiskBasedCacheBenchmark";
+
+    private static final int ENTRY_BYTES = 10 * 1024;
+
+    private static final int ENTRY_COUNT = 5 * 1024 * 1024 / ENTRY_BYTES;
+
+    private static final int ROUNDS = 5;
+
+    private File mRootDirectory;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        mRootDirectory = new File(getContext().getCacheDir(), "DiskBasedCacheBenchmarkTest");
+        deleteRootDirectory();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        deleteRootDirectory();
+        super.tearDown();
+    }
+
+    public void testStartupAndHitLatency() throws Exception {
+        // Room for every entry, so that none is pruned.
+        DiskBasedCache cache = new DiskBasedCache(mRootDirectory, 2 * ENTRY_COUNT * ENTRY_BYTES);
+        cache.initialize();
+        for (int i = 0; i < ENTRY_COUNT; i++) {
+            cache.put(makeKey(i), makeEntry(i));
+        }
+        cache.writeIndex();
+
+        long indexNanos = 0;
+        long scanNanos = 0;
+        for (int round = 0; round < ROUNDS; round++) {
+            long start = System.nanoTime();
+            cache = new DiskBasedCache(mRootDirectory, 2 * ENTRY_COUNT * ENTRY_BYTES);
+            cache.initialize();
+            indexNanos += System.nanoTime() - start;
+
+            new File(mRootDirectory, DiskBasedCache.INDEX_FILE).delete();
+            start = System.nanoTime();
+            cache = new DiskBasedCache(mRootDirectory, 2 * ENTRY_COUNT * ENTRY_BYTES);
+            cache.initialize();
+            scanNanos += System.nanoTime() - start;
+            cache.writeIndex();
+        }
+
+        long hitNanos = 0;
+        for (int round = 0; round < ROUNDS; round++) {
+            for (int i = 0; i < ENTRY_COUNT; i++) {
+                long start = System.nanoTime();
+                Cache.Entry entry = cache.get(makeKey(i));
+                hitNanos += System.nanoTime() - start;
+                assertEquals(ENTRY_BYTES, entry.data.length);
+            }
+        }
+
+        Log.d(TAG, String.format("%d entries of %d bytes: initialize from index %d ms, "
+                + "by scanning %d ms; hit %d us", ENTRY_COUNT, ENTRY_BYTES,
+                indexNanos / ROUNDS / 1000000, scanNanos / ROUNDS / 1000000,
+                hitNanos / ROUNDS / ENTRY_COUNT / 1000));
+    }
+
+    private static String makeKey(int i) {
+        return "http://example.com/api/resource/" + i;
+    }
+
+    private static Cache.Entry makeEntry(int i) {
+        Cache.Entry e = new Cache.Entry();
+        e.data = new byte[ENTRY_BYTES];
+        e.data[0] = (byte) i;
+        e.etag = "etag-" + i;
+        e.serverDate = i;
+        e.ttl = Long.MAX_VALUE;
+        e.softTtl = Long.MAX_VALUE;
+        e.responseHeaders = new HashMap<String, String>();
+        e.responseHeaders.put("Content-Type", "application/json");
+        e.responseHeaders.put("Cache-Control", "max-age=3600");
+        return e;
+    }
+
+    private void deleteRootDirectory() {
+        File[] files = mRootDirectory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        mRootDirectory.delete();
+    }
+}
@@ -23,11 +23,116 @@ import com.android.volley.toolbox.DiskBasedCache.CacheHeader;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
 
 public class DiskBasedCacheTest extends AndroidTestCase {
 
+    private File mRootDirectory;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        mRootDirectory = new File(getContext().getCacheDir(), "DiskBasedCacheTest");
+        deleteRootDirectory();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        deleteRootDirectory();
+        super.tearDown();
+    }
+
+    public void testPutGetAndRemove() throws Exception {
+        DiskBasedCache cache = new DiskBasedCache(mRootDirectory);
+        cache.initialize();
+        Cache.Entry e = makeEntry("data");
+        cache.put("key", e);
+
+        Cache.Entry read = cache.get("key");
+        assertTrue(Arrays.equals(e.data, read.data));
+        assertEquals(e.etag, read.etag);
+        assertEquals(e.responseHeaders, read.responseHeaders);
+
+        cache.remove("key");
+        assertNull(cache.get("key"));
+        assertFalse(cache.getFileForKey("key").exists());
+    }
+
+    public void testInitializeFromIndex() throws Exception {
+        DiskBasedCache cache = new DiskBasedCache(mRootDirectory);
+        cache.initialize();
+        cache.put("first", makeEntry("one"));
+        cache.put("second", makeEntry("two"));
+        cache.writeIndex();
+        // An index that is up to date is used even if the files' headers were lost.
+        truncate(cache.getFileForKey("first"), 1);
+
+        DiskBasedCache reopened = new DiskBasedCache(mRootDirectory);
+        reopened.initialize();
+        assertEquals("two", new String(reopened.get("second").data, "UTF-8"));
+        // The damaged file is caught when it is read.
+        assertNull(reopened.get("first"));
+    }
+
+    public void testInitializeFromIndexDeletesTempFiles() throws Exception {
+        DiskBasedCache cache = new DiskBasedCache(mRootDirectory);
+        cache.initialize();
+        cache.put("key", makeEntry("data"));
+        cache.writeIndex();
+        // Left behind by a write that never finished, which the index does not know about.
+        File tempFile = new File(mRootDirectory, "12345.tmp");
+        assertTrue(tempFile.createNewFile());
+
+        DiskBasedCache reopened = new DiskBasedCache(mRootDirectory);
+        reopened.initialize();
+        assertEquals("data", new String(reopened.get("key").data, "UTF-8"));
+        assertFalse(tempFile.exists());
+    }
+
+    public void testOutOfDateIndexIsIgnored() throws Exception {
+        DiskBasedCache cache = new DiskBasedCache(mRootDirectory);
+        cache.initialize();
+        cache.put("first", makeEntry("one"));
+        cache.writeIndex();
+        // Changed after the index was written, as if the process died before writing it again.
+        cache.put("second", makeEntry("two"));
+        cache.remove("first");
+
+        DiskBasedCache reopened = new DiskBasedCache(mRootDirectory);
+        reopened.initialize();
+        assertNull(reopened.get("first"));
+        assertEquals("two", new String(reopened.get("second").data, "UTF-8"));
+    }
+
+    public void testClearDeletesIndex() throws Exception {
+        DiskBasedCache cache = new DiskBasedCache(mRootDirectory);
+        cache.initialize();
+        cache.put("key", makeEntry("data"));
+        cache.writeIndex();
+        cache.clear();
+
+        DiskBasedCache reopened = new DiskBasedCache(mRootDirectory);
+        reopened.initialize();
+        assertNull(reopened.get("key"));
+        assertFalse(new File(mRootDirectory, DiskBasedCache.INDEX_FILE).exists());
+    }
+
+    public void testInvalidateKeepsData() throws Exception {
+        DiskBasedCache cache = new DiskBasedCache(mRootDirectory);
+        cache.initialize();
+        cache.put("key", makeEntry("data"));
+        cache.invalidate("key", true);
+
+        Cache.Entry read = cache.get("key");
+        assertEquals(0, read.ttl);
+        assertEquals(0, read.softTtl);
+        assertEquals("data", new String(read.data, "UTF-8"));
+    }
+
     // Simple end-to-end serialize/deserialize test.
     public void testCacheHeaderSerialization() throws Exception {
         Cache.Entry e = new Cache.Entry();
@@ -120,4 +225,35 @@ public class DiskBasedCacheTest extends AndroidTestCase {
         assertEquals(DiskBasedCache.readStringStringMap(bais), emptyKey);
         assertEquals(DiskBasedCache.readStringStringMap(bais), emptyValue);
     }
+
+    private static Cache.Entry makeEntry(String data) throws Exception {
+        Cache.Entry e = new Cache.Entry();
+        e.data = data.getBytes("UTF-8");
+        e.etag = "etag";
+        e.serverDate = 1234567L;
+        e.ttl = 9876543L;
+        e.softTtl = 8765432L;
+        e.responseHeaders = new HashMap<String, String>();
+        e.responseHeaders.put("fruit", "banana");
+        return e;
+    }
+
+    private static void truncate(File file, long length) throws Exception {
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        try {
+            raf.setLength(length);
+        } finally {
+            raf.close();
+        }
+    }
+
+    private void deleteRootDirectory() {
+        File[] files = mRootDirectory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        mRootDirectory.delete();
+    }
 }